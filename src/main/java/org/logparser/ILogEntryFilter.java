@@ -18,4 +18,16 @@ public interface ILogEntryFilter<E> {
 	 * @return a parsed log entry object, or null if the filter is unable to parse {@code text}.
 	 */
 	public E parse(String text);
+
+	/**
+	 * Parse the given {@code text} and return a corresponding log entry object.
+	 * 
+	 * The {@code text} may be a view over a buffer that is reused once this
+	 * method returns, so implementations must not hold on to it; the log entry
+	 * returned must copy whatever it needs.
+	 * 
+	 * @param text the {@code text} to parse.
+	 * @return a parsed log entry object, or null if the filter is unable to parse {@code text}.
+	 */
+	public E parse(CharSequence text);
 }
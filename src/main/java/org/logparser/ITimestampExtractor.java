@@ -0,0 +1,20 @@
+package org.logparser;
+
+import java.util.Date;
+
+/**
+ * Specifies the protocol required of objects able to tell the timestamp of a
+ * log entry string without parsing the whole entry.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public interface ITimestampExtractor {
+	/**
+	 * Extract the timestamp of the given {@code text}.
+	 * 
+	 * @param text the {@code text} of a log entry.
+	 * @return the timestamp found, or null if {@code text} has none.
+	 */
+	public Date extractTimestamp(CharSequence text);
+}
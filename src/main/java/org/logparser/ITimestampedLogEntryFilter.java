@@ -0,0 +1,13 @@
+package org.logparser;
+
+/**
+ * Specifies the protocol required of {@link ILogEntryFilter}s which can also
+ * tell the timestamp of a log entry string without parsing the whole entry,
+ * e.g. to seek or index log files by time.
+ * 
+ * @author jorge.decastro
+ * 
+ * @param <E> the type of log entries parsed.
+ */
+public interface ITimestampedLogEntryFilter<E> extends ILogEntryFilter<E>, ITimestampExtractor {
+}
@@ -1,8 +1,6 @@
 package org.logparser;
 
-import java.text.DateFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -11,6 +9,8 @@ import net.jcip.annotations.Immutable;
 
 import org.logparser.time.ITimeInterval;
 import org.logparser.time.InfiniteTimeInterval;
+import org.logparser.time.TimestampCache;
+import org.logparser.time.TimestampLayout;
 
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
@@ -24,7 +24,7 @@ import com.google.common.base.Strings;
  * 
  */
 @Immutable
-public final class LogEntryFilter implements ILogEntryFilter<LogEntry> {
+public final class LogEntryFilter implements ITimestampedLogEntryFilter<LogEntry> {
 	public static final String DEFAULT_FILTER_PATTERN = ".*";
 	private final Pattern timestampPattern;
 	private final String timestampFormat;
@@ -35,41 +35,58 @@ public final class LogEntryFilter implements ILogEntryFilter<LogEntry> {
 	private final ITimeInterval dateInterval;
 	private final String sampleEntry;
 	/**
-	 * The date format to expect from the log entries to be filtered.
+	 * The date format to expect from the log entries to be filtered, which
+	 * remembers the last timestamp parsed by each thread.
 	 */
-	private final ThreadLocal<DateFormat> dateFormatter;
+	private final ThreadLocal<TimestampCache> timestamps;
+	/**
+	 * The format compiled, if it has a fixed layout, shared by all threads.
+	 */
+	private final TimestampLayout timestampLayout;
+	/**
+	 * Matchers are reset for each line, rather than created anew.
+	 */
+	private final ThreadLocal<Matchers> matchers;
 
 	private LogEntryFilter(final Builder builder) {
 		timestampPattern = builder.timestampPattern;
 		timestampFormat = builder.timestampFormat;
-		dateFormatter = new ThreadLocal<DateFormat>() {
+		timestampLayout = TimestampLayout.compile(timestampFormat);
+		timestamps = new ThreadLocal<TimestampCache>() {
 			@Override
-			protected DateFormat initialValue() {
-				return new SimpleDateFormat(timestampFormat);
+			protected TimestampCache initialValue() {
+				return new TimestampCache(timestampFormat, timestampLayout);
 			}
 		};
 		actionPattern = builder.actionPattern;
 		durationPattern = builder.durationPattern;
 		filterPattern = builder.filterPattern;
+		matchers = new ThreadLocal<Matchers>() {
+			@Override
+			protected Matchers initialValue() {
+				return new Matchers();
+			}
+		};
 		timeInterval = builder.timeInterval;
 		dateInterval = builder.dateInterval;
 		sampleEntry = builder.sampleEntry;
 	}
 
 	public LogEntry parse(final String text) {
-		Matcher m = timestampPattern.matcher(text);
-		if (m.find()) {
-			Date date = getDateFromString.apply(m.group(1));
-			if (timeInterval.isBetweenInstants(date) && dateInterval.isBetweenInstants(date)) {
-				m = actionPattern.matcher(text);
-				if (m.find()) {
-					String action = m.group(1);
-					if (filterPattern.matcher(action).matches()) {
-						m = durationPattern.matcher(text);
-						if (m.find()) {
-							String duration = m.group(1);
-							return new LogEntry(date.getTime(), action, Double.valueOf(duration));
-						}
+		return parse((CharSequence) text);
+	}
+
+	public LogEntry parse(final CharSequence text) {
+		Matchers m = matchers.get();
+		if (m.timestamp.reset(text).find() && m.action.reset(text).find() && m.action.start(1) >= 0) {
+			// most lines are rejected by the filter pattern, so it is matched in
+			// place, before anything is extracted from the text
+			if (m.filter.reset(text).region(m.action.start(1), m.action.end(1)).matches()) {
+				long timestamp = parseTimestamp(text, m.timestamp.start(1), m.timestamp.end(1));
+				if (timeInterval.isBetweenInstants(timestamp) && dateInterval.isBetweenInstants(timestamp)) {
+					if (m.duration.reset(text).find()) {
+						String duration = m.duration.group(1);
+						return new LogEntry(timestamp, m.action.group(1), Double.valueOf(duration));
 					}
 				}
 			}
@@ -78,22 +95,43 @@ public final class LogEntryFilter implements ILogEntryFilter<LogEntry> {
 		return null;
 	}
 
+	/**
+	 * Returns the timestamp of the given {@code text}, or null if it has none;
+	 * unlike parsing, a timestamp in the wrong format yields null, rather than
+	 * an exception.
+	 */
+	public Date extractTimestamp(final CharSequence text) {
+		Matcher m = matchers.get().timestamp;
+		if (m.reset(text).find() && m.group(1) != null) {
+			try {
+				return new Date(timestamps.get().parse(text, m.start(1), m.end(1)));
+			} catch (ParseException pe) {
+				return null;
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Returns the {@link Date} corresponding to the given {@link String},
 	 * formatted by this {@link LogEntryFilter#getTimestampFormat()}.
 	 */
 	public Function<String, Date> getDateFromString = new Function<String, Date>() {
 		public Date apply(final String date) {
-			try {
-				return dateFormatter.get().parse(date);
-			} catch (ParseException pe) {
-				// If the date format is wrong, fail quickly
-				throw new IllegalArgumentException(
-						String.format("Check timestamp regex '%s' or timestamp format '%s'; unable to parse '%s'", getTimestampPattern().pattern(), getTimestampFormat(), date));
-			}
+			return new Date(parseTimestamp(date, 0, date.length()));
 		}
 	};
 
+	private long parseTimestamp(final CharSequence text, final int begin, final int end) {
+		try {
+			return timestamps.get().parse(text, begin, end);
+		} catch (ParseException pe) {
+			// If the date format is wrong, fail quickly
+			throw new IllegalArgumentException(
+					String.format("Check timestamp regex '%s' or timestamp format '%s'; unable to parse '%s'", getTimestampPattern().pattern(), getTimestampFormat(), text.subSequence(begin, end)));
+		}
+	}
+
 	public Pattern getTimestampPattern() {
 		return timestampPattern;
 	}
@@ -102,6 +140,13 @@ public final class LogEntryFilter implements ILogEntryFilter<LogEntry> {
 		return timestampFormat;
 	}
 
+	/**
+	 * The layout compiled from the timestamp format, or null if it has none.
+	 */
+	public TimestampLayout getTimestampLayout() {
+		return timestampLayout;
+	}
+
 	public Pattern getActionPattern() {
 		return actionPattern;
 	}
@@ -126,6 +171,16 @@ public final class LogEntryFilter implements ILogEntryFilter<LogEntry> {
 		return sampleEntry;
 	}
 
+	/**
+	 * The {@link Matcher}s used by a single thread.
+	 */
+	private final class Matchers {
+		private final Matcher timestamp = timestampPattern.matcher("");
+		private final Matcher action = actionPattern.matcher("");
+		private final Matcher filter = filterPattern.matcher("");
+		private final Matcher duration = durationPattern.matcher("");
+	}
+
 	public static class Builder {
 		// required parameters
 		private final Pattern timestampPattern;
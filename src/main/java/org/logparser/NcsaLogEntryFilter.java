@@ -0,0 +1,268 @@
+package org.logparser;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.jcip.annotations.Immutable;
+
+import org.logparser.time.ITimeInterval;
+import org.logparser.time.InfiniteTimeInterval;
+import org.logparser.time.TimestampCache;
+import org.logparser.time.TimestampLayout;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+
+/**
+ * Responsible for parsing NCSA common/combined format (e.g. Apache httpd)
+ * access log entry strings, with the duration of the request as their last
+ * field, and returning corresponding {@link LogEntry}s.
+ * 
+ * Each line is scanned once, by hand, rather than matched against regular
+ * expressions; the {@link LogEntry}s returned are the same as those of a
+ * {@link LogEntryFilter} with the patterns below, which are those of the
+ * 'example' profile:
+ * <ul>
+ * <li>timestamp: the text between the first '[' and the ']' after it;</li>
+ * <li>action: the last path after the timestamp, i.e. the last token after
+ * white space starting with '/', up to any '?' or '#', as matched by
+ * {@link #ACTION_PATTERN};</li>
+ * <li>duration: the digits at the end of the line.</li>
+ * </ul>
+ * Only the filter pattern, matched against the action, remains a regular
+ * expression.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+@Immutable
+public final class NcsaLogEntryFilter implements ITimestampedLogEntryFilter<LogEntry> {
+	public static final String DEFAULT_TIMESTAMP_FORMAT = "dd/MMM/yyyy:HH:mm:ss";
+	public static final String TIMESTAMP_PATTERN = "\\[((.*?))\\]";
+	public static final String ACTION_PATTERN = "(?:\\[.*?\\].*\\s)(((?:\\/\\w+)*\\/)([\\w\\-\\.]+[^#?\\s]+))";
+	public static final String DURATION_PATTERN = "(\\d+)$";
+	private final String timestampFormat;
+	private final Pattern filterPattern;
+	private final ITimeInterval timeInterval;
+	private final ITimeInterval dateInterval;
+	private final String sampleEntry;
+	/**
+	 * The date format to expect from the log entries to be filtered, which
+	 * remembers the last timestamp parsed by each thread.
+	 */
+	private final ThreadLocal<TimestampCache> timestamps;
+	/**
+	 * The format compiled, if it has a fixed layout, shared by all threads.
+	 */
+	private final TimestampLayout timestampLayout;
+	/**
+	 * The filter pattern is matched for each line, rather than created anew.
+	 */
+	private final ThreadLocal<Matcher> filter;
+
+	private NcsaLogEntryFilter(final Builder builder) {
+		timestampFormat = builder.timestampFormat;
+		timestampLayout = TimestampLayout.compile(timestampFormat);
+		timestamps = new ThreadLocal<TimestampCache>() {
+			@Override
+			protected TimestampCache initialValue() {
+				return new TimestampCache(timestampFormat, timestampLayout);
+			}
+		};
+		filterPattern = builder.filterPattern;
+		filter = new ThreadLocal<Matcher>() {
+			@Override
+			protected Matcher initialValue() {
+				return filterPattern.matcher("");
+			}
+		};
+		timeInterval = builder.timeInterval;
+		dateInterval = builder.dateInterval;
+		sampleEntry = builder.sampleEntry;
+	}
+
+	public LogEntry parse(final String text) {
+		return parse((CharSequence) text);
+	}
+
+	public LogEntry parse(final CharSequence text) {
+		int open = indexOf(text, '[', 0);
+		int close = open >= 0 ? indexOf(text, ']', open + 1) : -1;
+		if (close < 0) {
+			return null;
+		}
+		int action = lastAction(text, close);
+		if (action < 0) {
+			return null;
+		}
+		int actionEnd = actionEnd(text, action);
+		// most lines are rejected by the filter pattern, so it is matched in
+		// place, before anything is extracted from the text
+		if (filter.get().reset(text).region(action, actionEnd).matches()) {
+			long timestamp = parseTimestamp(text, open + 1, close);
+			if (timeInterval.isBetweenInstants(timestamp) && dateInterval.isBetweenInstants(timestamp)) {
+				int duration = text.length();
+				while (duration > 0 && isDigit(text.charAt(duration - 1))) {
+					duration--;
+				}
+				if (duration < text.length()) {
+					return new LogEntry(timestamp, text.subSequence(action, actionEnd).toString(), Double.valueOf(text.subSequence(duration, text.length()).toString()));
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the timestamp of the given {@code text}, or null if it has none;
+	 * unlike parsing, a timestamp in the wrong format yields null, rather than
+	 * an exception.
+	 */
+	public Date extractTimestamp(final CharSequence text) {
+		int open = indexOf(text, '[', 0);
+		int close = open >= 0 ? indexOf(text, ']', open + 1) : -1;
+		if (close < 0) {
+			return null;
+		}
+		try {
+			return new Date(timestamps.get().parse(text, open + 1, close));
+		} catch (ParseException pe) {
+			return null;
+		}
+	}
+
+	private long parseTimestamp(final CharSequence text, final int begin, final int end) {
+		try {
+			return timestamps.get().parse(text, begin, end);
+		} catch (ParseException pe) {
+			// If the date format is wrong, fail quickly
+			throw new IllegalArgumentException(String.format("Check timestamp format '%s'; unable to parse '%s'", timestampFormat, text.subSequence(begin, end)));
+		}
+	}
+
+	/**
+	 * Finds the start of the last action after the timestamp closing at
+	 * {@code close}: a '/' right after white space, followed by a word, '-' or
+	 * '.' character, and by at least one more character before any '?', '#'
+	 * or white space.
+	 * 
+	 * @return the index of the action, or -1 if there is none.
+	 */
+	private static int lastAction(final CharSequence text, final int close) {
+		for (int i = text.length() - 3; i > close; i--) {
+			if (text.charAt(i + 1) == '/' && isWhitespace(text.charAt(i)) && isPathChar(text.charAt(i + 2)) && actionEnd(text, i + 1) - (i + 1) >= 3) {
+				return i + 1;
+			}
+		}
+		return -1;
+	}
+
+	private static int actionEnd(final CharSequence text, final int action) {
+		int end = action;
+		while (end < text.length()) {
+			char c = text.charAt(end);
+			if (c == '?' || c == '#' || isWhitespace(c)) {
+				break;
+			}
+			end++;
+		}
+		return end;
+	}
+
+	private static int indexOf(final CharSequence text, final char c, final int from) {
+		for (int i = from; i < text.length(); i++) {
+			if (text.charAt(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * As '\s' in a {@link Pattern}.
+	 */
+	private static boolean isWhitespace(final char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	/**
+	 * As '[\w\-\.]' in a {@link Pattern}.
+	 */
+	private static boolean isPathChar(final char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_' || c == '-' || c == '.';
+	}
+
+	private static boolean isDigit(final char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	public String getTimestampFormat() {
+		return timestampFormat;
+	}
+
+	/**
+	 * The layout compiled from the timestamp format, or null if it has none.
+	 */
+	public TimestampLayout getTimestampLayout() {
+		return timestampLayout;
+	}
+
+	public Pattern getFilterPattern() {
+		return filterPattern;
+	}
+
+	public ITimeInterval getTimeInterval() {
+		return timeInterval;
+	}
+
+	public ITimeInterval getDateInterval() {
+		return dateInterval;
+	}
+
+	public String getSampleEntry() {
+		return sampleEntry;
+	}
+
+	public static class Builder {
+		// optional parameters
+		private String timestampFormat = DEFAULT_TIMESTAMP_FORMAT;
+		private Pattern filterPattern = Pattern.compile(LogEntryFilter.DEFAULT_FILTER_PATTERN);
+		private ITimeInterval timeInterval = new InfiniteTimeInterval();
+		private ITimeInterval dateInterval = new InfiniteTimeInterval();
+		private String sampleEntry = "";
+
+		public Builder() {
+		}
+
+		public Builder timestampFormat(final String timestampFormat) {
+			this.timestampFormat = Preconditions.checkNotNull(timestampFormat, "'timestampFormat' argument cannot be null.");
+			return this;
+		}
+
+		public Builder filterPattern(final Pattern filterPattern) {
+			this.filterPattern = Preconditions.checkNotNull(filterPattern, "'filterPattern' argument cannot be null.");
+			return this;
+		}
+
+		public Builder timeInterval(final ITimeInterval timeInterval) {
+			this.timeInterval = Preconditions.checkNotNull(timeInterval, "'timeInterval' argument cannot be null.");
+			return this;
+		}
+
+		public Builder dateInterval(final ITimeInterval dateInterval) {
+			this.dateInterval = Preconditions.checkNotNull(dateInterval, "'dateInterval' argument cannot be null.");
+			return this;
+		}
+
+		public Builder sampleEntry(final String sampleEntry) {
+			this.sampleEntry = Strings.nullToEmpty(sampleEntry);
+			return this;
+		}
+
+		public NcsaLogEntryFilter build() {
+			return new NcsaLogEntryFilter(this);
+		}
+	}
+}
@@ -3,29 +3,39 @@ package org.logparser.example;
 import static org.logparser.Constants.LINE_SEPARATOR;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.codehaus.jackson.JsonParseException;
 import org.codehaus.jackson.map.JsonMappingException;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.type.TypeReference;
 import org.logparser.ILogEntryFilter;
+import org.logparser.ITimestampedLogEntryFilter;
 import org.logparser.LogEntry;
-import org.logparser.LogEntryFilter;
 import org.logparser.LogSnapshot;
+import org.logparser.io.AbstractLogFilter;
+import org.logparser.io.CachingLogFilter;
 import org.logparser.io.ChartView;
 import org.logparser.io.CommandLineArguments;
 import org.logparser.io.CsvView;
+import org.logparser.io.FollowingLogFilter;
 import org.logparser.io.GoogleChartView;
 import org.logparser.io.LineByLineLogFilter;
 import org.logparser.io.LogFiles;
+import org.logparser.io.SyslogLogFilter;
 import org.logparser.provider.ChartParams;
 import org.logparser.provider.Config;
 import org.logparser.provider.FilterProvider;
+import org.logparser.provider.LogFilterProvider;
 import org.logparser.provider.LogFilesProvider;
 import org.logparser.provider.StatsProvider;
+import org.logparser.sampling.DuplicateSuppression;
 import org.logparser.stats.AbstractStats;
 import org.logparser.stats.DayStats;
 import org.logparser.stats.HourStats;
@@ -33,6 +43,7 @@ import org.logparser.stats.MinuteStats;
 import org.logparser.stats.PredicateArguments;
 import org.logparser.stats.TimeStats;
 import org.logparser.stats.WeekDayStats;
+import org.logparser.time.DateInterval;
 
 import com.beust.jcommander.JCommander;
 import com.google.common.base.Predicate;
@@ -70,23 +81,50 @@ public class CommandLineApplicationRunner {
 		Config config = getConfig(cla);
 
 		if (config != null) {
+			config.validate();
+			FilterProvider filterProvider = config.getFilterProvider();
+			filterProvider.applyCommandLineOverrides(cla);
+
 			LogFilesProvider logFilesProvider = config.getLogFilesProvider();
 			logFilesProvider.applyCommandLineOverrides(cla);
-			LogFiles logfiles = logFilesProvider.build();
+			// log files dated outside the date interval are never opened
+			LogFiles logfiles = logFilesProvider.build(filterProvider.getDateInterval());
 
-			File[] listOfLogFiles = logfiles.list();
-			if (listOfLogFiles.length > 0) { // there's something to work with
+			// a stream or syslog messages replace the log files
+			boolean listening = cla.stream != null || cla.syslogPort > 0;
+			File[] listOfLogFiles = listening ? new File[0] : logfiles.list();
+			if (listening || listOfLogFiles.length > 0) { // there's something to work with
 				String outputDir = logfiles.getOutputDir();
 
-				FilterProvider filterProvider = config.getFilterProvider();
-				filterProvider.applyCommandLineOverrides(cla);
-				LogEntryFilter filter = filterProvider.build();
+				ITimestampedLogEntryFilter<LogEntry> filter = filterProvider.buildFilter();
 
 				// for large log files sampling is preferred/required
 				ILogEntryFilter<LogEntry> sampler = config.getSamplerProvider() != null ? config.getSamplerProvider().build(filter) : filter;
+				// duplicate lines are dropped before they are sampled
+				DuplicateSuppression<LogEntry> deduplicator = config.getDuplicateFilterProvider() != null ? config.getDuplicateFilterProvider().build(sampler) : null;
+				if (deduplicator != null) {
+					sampler = deduplicator;
+				}
 
 				// sampler returns filter if unable to decorate
-				LineByLineLogFilter<LogEntry> lineByLineParser = new LineByLineLogFilter<LogEntry>(sampler);
+				LogFilterProvider logFilterProvider = config.getLogFilterProvider();
+				SyslogLogFilter<LogEntry> listener = cla.syslogPort > 0 ? new SyslogLogFilter.Builder<LogEntry>(sampler).port(cla.syslogPort).build() : null;
+				FollowingLogFilter<LogEntry> follower = listener == null && cla.follow ? new FollowingLogFilter<LogEntry>(cla.pollInterval, sampler) : null;
+				AbstractLogFilter<LogEntry> logFilter;
+				if (listener != null || follower != null) {
+					logFilter = listener != null ? listener : follower;
+					if (logFilterProvider != null) {
+						logFilterProvider.configure(logFilter);
+					}
+				} else if (logFilterProvider != null) {
+					// checkpoints, indices and cached entries outlive the folder of this run
+					logFilter = logFilterProvider.build(filter, sampler, filterProvider.getTimeInterval(), filterProvider.getDateInterval(), logfiles.getBaseOutputDir(), config.getFilterDigest());
+				} else {
+					logFilter = new LineByLineLogFilter<LogEntry>(sampler);
+				}
+				// the filter that reads lines, and counts those oversized
+				AbstractLogFilter<LogEntry> lineFilter = logFilter instanceof CachingLogFilter ? ((CachingLogFilter<LogEntry>) logFilter).getLogFilter() : logFilter;
+				int workers = logFilterProvider != null ? logFilterProvider.getWorkers() : 1;
 				LogSnapshot<LogEntry> logSnapshot = new LogSnapshot<LogEntry>();
 				DayStats<LogEntry> dayStats = null;
 				WeekDayStats<LogEntry> weekStats = null;
@@ -99,12 +137,12 @@ public class CommandLineApplicationRunner {
 					weekStats = statsProvider.buildWeekDayStats();
 					hourStats = statsProvider.buildHourStats();
 					minuteStats = statsProvider.buildMinuteStats();
-					lineByLineParser.attach(dayStats);
-					lineByLineParser.attach(weekStats);
-					lineByLineParser.attach(hourStats);
-					lineByLineParser.attach(minuteStats);
+					logFilter.attach(dayStats);
+					logFilter.attach(weekStats);
+					logFilter.attach(hourStats);
+					logFilter.attach(minuteStats);
 				}
-				lineByLineParser.attach(logSnapshot);
+				logFilter.attach(logSnapshot);
 				CsvView csvView = new CsvView(outputDir);
 				// submit csv serializables in the order we want them presented
 				csvView.submit(logSnapshot);
@@ -113,9 +151,28 @@ public class CommandLineApplicationRunner {
 				csvView.submit(weekStats);
 				csvView.submit(minuteStats);
 
-				lineByLineParser.filter(listOfLogFiles);
+				if (listener != null) {
+					listen(listener, cla.reportInterval, logSnapshot, dayStats, weekStats, hourStats, minuteStats);
+					return;
+				}
+				if (follower != null) {
+					follow(follower, logfiles, cla, logSnapshot, dayStats, weekStats, hourStats, minuteStats);
+					return;
+				}
+
+				if (cla.stream != null) {
+					logFilter.filter(openStream(cla.stream), cla.stream);
+				} else {
+					logFilter.filter(listOfLogFiles, workers);
+				}
 
 				System.out.println(LINE_SEPARATOR + logSnapshot.toString());
+				if (deduplicator != null) {
+					System.out.println(String.format("Duplicate lines suppressed: %s", deduplicator.getSuppressed()));
+				}
+				if (lineFilter.getTruncatedLines() > 0 || lineFilter.getSkippedLines() > 0) {
+					System.out.println(String.format("Lines longer than %s characters: %s truncated, %s skipped", lineFilter.getMaxLineLength(), lineFilter.getTruncatedLines(), lineFilter.getSkippedLines()));
+				}
 
 				if (statsProvider != null) {
 					printStats(dayStats, weekStats, hourStats, minuteStats);
@@ -133,6 +190,21 @@ public class CommandLineApplicationRunner {
 
 	}
 
+	/**
+	 * Opens the named pipe at the given {@code path}, or standard input if
+	 * {@code path} is '-'.
+	 */
+	private static InputStream openStream(final String path) {
+		if ("-".equals(path)) {
+			return System.in;
+		}
+		try {
+			return new FileInputStream(path);
+		} catch (FileNotFoundException fnfe) {
+			throw new IllegalArgumentException(String.format("Unable to open stream '%s'.", path), fnfe);
+		}
+	}
+
 	private static void writeCharts(final Config config,
 			final DayStats<LogEntry> dayStats,
 			final WeekDayStats<LogEntry> weekStats,
@@ -151,8 +223,82 @@ public class CommandLineApplicationRunner {
 		}
 	}
 
+	/**
+	 * Follows the given log files until interrupted, printing a report of the
+	 * stats gathered so far every {@code reportInterval} seconds.
+	 */
+	private static void follow(final FollowingLogFilter<LogEntry> follower,
+			final LogFiles logfiles,
+			final CommandLineArguments cla,
+			final LogSnapshot<LogEntry> logSnapshot,
+			final AbstractStats<?>... stats) {
+
+		final int reportInterval = cla.reportInterval;
+		Thread following = new Thread(new Runnable() {
+			public void run() {
+				if (cla.followThreads > 0) {
+					follower.follow(logfiles, cla.followThreads, TimeUnit.SECONDS.toMillis(cla.rescanInterval));
+				} else {
+					follower.follow(logfiles.list());
+				}
+			}
+		}, "follower");
+		following.start();
+		try {
+			report(following, follower, reportInterval, logSnapshot, stats);
+		} catch (InterruptedException ie) {
+			follower.stop();
+		}
+	}
+
+	/**
+	 * Listens for syslog messages until interrupted, printing a report of the
+	 * stats gathered so far every {@code reportInterval} seconds.
+	 */
+	private static void listen(final SyslogLogFilter<LogEntry> listener,
+			final int reportInterval,
+			final LogSnapshot<LogEntry> logSnapshot,
+			final AbstractStats<?>... stats) {
+
+		Thread listening = new Thread(new Runnable() {
+			public void run() {
+				listener.listen();
+			}
+		}, "syslog-listener");
+		listening.start();
+		try {
+			report(listening, listener, reportInterval, logSnapshot, stats);
+		} catch (InterruptedException ie) {
+			listener.stop();
+		}
+	}
+
+	/**
+	 * Prints a report of the stats gathered so far every
+	 * {@code reportInterval} seconds, for as long as the {@code worker} thread
+	 * updating them through the given {@code logFilter} is alive.
+	 */
+	private static void report(final Thread worker,
+			final AbstractLogFilter<LogEntry> logFilter,
+			final int reportInterval,
+			final LogSnapshot<LogEntry> logSnapshot,
+			final AbstractStats<?>... stats) throws InterruptedException {
+
+		while (worker.isAlive()) {
+			worker.join(TimeUnit.SECONDS.toMillis(reportInterval));
+			// observers are updated by the worker thread while it holds this lock
+			synchronized (logFilter) {
+				System.out.println(LINE_SEPARATOR + logSnapshot.toString());
+				printStats(stats);
+			}
+		}
+	}
+
 	private static void printStats(final AbstractStats<?>... stats) {
 		for (AbstractStats<?> stat : stats) {
+			if (stat == null) {
+				continue;
+			}
 			System.out.println(stat.toString());
 		}
 	}
@@ -0,0 +1,387 @@
+package org.logparser.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+import org.logparser.ILogEntryFilter;
+import org.logparser.ILogFilter;
+import org.logparser.IObserver;
+import org.logparser.Observable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+
+/**
+ * Skeletal implementation of {@link ILogFilter} that processes a log file one
+ * line at a time, and publishes filtered entries as events to all
+ * {@link IObserver}s attached.
+ * 
+ * Subclasses decide how a log file is opened for reading.
+ * 
+ * Given a record start {@link Pattern}, lines are assembled into multi-line
+ * records, e.g. entries followed by their stack traces, and only the first
+ * line of each record is filtered; see {@link RecordLineReader}.
+ * 
+ * Given a maximum line length, longer lines are truncated or skipped before
+ * they reach the {@link ILogEntryFilter}s; see {@link BoundedLineReader}.
+ * 
+ * Multiple log files may be read concurrently, each by its own worker; in that
+ * case the {@link ILogEntryFilter}s must be thread-safe, while the
+ * {@link IObserver}s attached are always notified one entry at a time.
+ * 
+ * @author jorge.decastro
+ * 
+ * @param <E> the type of elements held by this {@link ILogFilter}.
+ */
+public abstract class AbstractLogFilter<E> extends Observable<E> implements ILogFilter {
+	private static final Logger LOGGER = Logger.getLogger(AbstractLogFilter.class.getName());
+	private static final int STREAM_BUFFER_SIZE = 256 * 1024;
+	protected final List<ILogEntryFilter<E>> logEntryFilters;
+	protected int size;
+	private volatile Pattern recordStart;
+	private final AtomicLong continuations = new AtomicLong();
+	private volatile int maxLineLength;
+	private volatile BoundedLineReader.Oversized oversized = BoundedLineReader.Oversized.SKIP;
+	private final AtomicLong truncatedLines = new AtomicLong();
+	private final AtomicLong skippedLines = new AtomicLong();
+
+	protected AbstractLogFilter(final List<ILogEntryFilter<E>> messageFilters) {
+		Preconditions.checkNotNull(messageFilters, "'messageFilters' argument cannot be null.");
+		for (ILogEntryFilter<E> filter : messageFilters) {
+			Preconditions.checkNotNull(filter, "'filter' elements of 'messageFilters' argument cannot be null.");
+		}
+		this.logEntryFilters = Collections.unmodifiableList(messageFilters);
+		this.size = 0;
+	}
+
+	/**
+	 * Opens the given log {@code file} for line-by-line reading.
+	 * 
+	 * @param file the log {@code file} to open.
+	 * @return an {@link ILineReader} positioned at the start of the file.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	protected abstract ILineReader open(File file) throws IOException;
+
+	public void filter(final File file) {
+		Preconditions.checkNotNull(file, "'file' argument cannot be null.");
+		size = read(file);
+	}
+
+	/**
+	 * Reads log entries from the given files, one file after the other.
+	 * 
+	 * @param files the log {@code files}.
+	 */
+	public void filter(final File[] files) {
+		filter(files, 1);
+	}
+
+	/**
+	 * Reads log entries from the given files, using up to {@code workers}
+	 * threads to read distinct files concurrently; larger files are started
+	 * first.
+	 * 
+	 * @param files the log {@code files}.
+	 * @param workers the maximum number of files to read concurrently.
+	 */
+	public void filter(final File[] files, final int workers) {
+		Preconditions.checkNotNull(files, "'files' argument cannot be null.");
+		Preconditions.checkArgument(workers > 0, "'workers' argument must be a positive number.");
+		size = 0;
+		if (workers == 1 || files.length < 2) {
+			int total = 0;
+			for (File f : files) {
+				total += new FileTask(f).call();
+			}
+			size = total;
+			return;
+		}
+		// largest files first, so that a large file is not left for last
+		File[] largestFirst = files.clone();
+		Arrays.sort(largestFirst, new Comparator<File>() {
+			public int compare(final File a, final File b) {
+				long x = a.length();
+				long y = b.length();
+				return x > y ? -1 : (x == y ? 0 : 1);
+			}
+		});
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, files.length));
+		try {
+			List<Future<Integer>> results = new ArrayList<Future<Integer>>(files.length);
+			for (File f : largestFirst) {
+				results.add(executor.submit(new FileTask(f)));
+			}
+			int total = 0;
+			for (Future<Integer> result : results) {
+				total += result.get();
+			}
+			size = total;
+		} catch (ExecutionException ee) {
+			LOGGER.warn("Error reading log files", ee.getCause());
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Reads log entries from the given stream, e.g. standard input or a named
+	 * pipe, until it ends; the stream is closed once read. Compressed streams
+	 * are recognised, and decompressed.
+	 * 
+	 * @param in the stream of log lines.
+	 * @param name the name of the stream, for diagnostics.
+	 */
+	public void filter(final InputStream in, final String name) {
+		Preconditions.checkNotNull(in, "'in' argument cannot be null.");
+		ILineReader reader = null;
+		size = 0;
+		try {
+			reader = lineReader(new BufferedReader(new InputStreamReader(Compression.open(in, name)), STREAM_BUFFER_SIZE));
+			size = filter(reader, name);
+		} catch (IOException ioe) {
+			LOGGER.warn(String.format("IO error reading '%s'", name), ioe);
+		} finally {
+			Closeables.closeQuietly(reader);
+			Closeables.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Sets the {@link Pattern} that a line must start with to begin a new log
+	 * record; other lines continue the record before them, and are skipped
+	 * rather than filtered. {@code null}, the default, makes every line a
+	 * record of its own.
+	 */
+	public void setRecordStart(final Pattern recordStart) {
+		this.recordStart = recordStart;
+	}
+
+	public Pattern getRecordStart() {
+		return recordStart;
+	}
+
+	/**
+	 * The total number of continuation lines skipped, across all reads, when
+	 * a record start {@link Pattern} is set.
+	 */
+	public long getContinuations() {
+		return continuations.get();
+	}
+
+	/**
+	 * Sets the maximum length of the lines filtered, and what to do with
+	 * longer lines; a {@code maxLineLength} of 0, the default, leaves lines
+	 * unbounded.
+	 */
+	public void setMaxLineLength(final int maxLineLength, final BoundedLineReader.Oversized oversized) {
+		Preconditions.checkArgument(maxLineLength >= 0, "'maxLineLength' argument cannot be negative.");
+		this.oversized = Preconditions.checkNotNull(oversized, "'oversized' argument cannot be null.");
+		this.maxLineLength = maxLineLength;
+	}
+
+	public int getMaxLineLength() {
+		return maxLineLength;
+	}
+
+	public BoundedLineReader.Oversized getOversized() {
+		return oversized;
+	}
+
+	/**
+	 * The total number of oversized lines truncated, across all reads.
+	 */
+	public long getTruncatedLines() {
+		return truncatedLines.get();
+	}
+
+	/**
+	 * The total number of oversized lines skipped, across all reads.
+	 */
+	public long getSkippedLines() {
+		return skippedLines.get();
+	}
+
+	/**
+	 * The total number of log entries read by the last call to one of the
+	 * {@code filter} methods, across all files given.
+	 */
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void notifyObservers(final E event) {
+		// serialize notifications when several files are read concurrently
+		synchronized (this) {
+			super.notifyObservers(event);
+		}
+	}
+
+	/**
+	 * Reads all lines of the given log {@code file}, and publishes the filtered
+	 * entries to all {@link IObserver}s attached.
+	 * 
+	 * @return {@code int} containing the number of lines read.
+	 */
+	protected int read(final File file) {
+		ILineReader in = null;
+		int lines = 0;
+		try {
+			in = open(file);
+			lines = filter(in, file.getAbsolutePath());
+		} catch (IOException ioe) {
+			LOGGER.warn(String.format("IO error reading file '%s'", file.getAbsolutePath()), ioe);
+		} finally {
+			Closeables.closeQuietly(in);
+		}
+		return lines;
+	}
+
+	/**
+	 * Reads all lines available from the given {@link ILineReader}, and
+	 * publishes the filtered entries to all {@link IObserver}s attached.
+	 * 
+	 * @return {@code int} containing the number of lines read.
+	 */
+	protected int filter(final ILineReader in, final String name) {
+		return filter(in, name, null);
+	}
+
+	/**
+	 * Reads all lines available from the given {@link ILineReader}, publishes
+	 * the filtered entries to all {@link IObserver}s attached, and adds them to
+	 * the {@code published} list, if one is given.
+	 * 
+	 * @return {@code int} containing the number of lines read, or of records
+	 *         if a record start {@link Pattern} is set.
+	 */
+	protected int filter(final ILineReader in, final String name, final List<E> published) {
+		ILineReader reader = records(in);
+		int lines = 0;
+		try {
+			CharSequence str;
+			E entry;
+			while ((str = reader.readSequence()) != null) {
+				lines++;
+				entry = applyFilters(str, logEntryFilters);
+				if (entry != null) {
+					notifyObservers(entry);
+					if (published != null) {
+						published.add(entry);
+					}
+				}
+			}
+		} catch (IOException ioe) {
+			LOGGER.warn(String.format("IO error reading '%s'", name), ioe);
+		} finally {
+			countSkippedLines(reader, name);
+		}
+		return lines;
+	}
+
+	/**
+	 * Wraps the given {@link Reader} for line-by-line reading, bounding the
+	 * length of lines if a maximum is set, so that oversized lines are never
+	 * read in full.
+	 */
+	protected ILineReader lineReader(final Reader in) {
+		int max = maxLineLength;
+		if (max > 0) {
+			return new BoundedLineReader(in, max, oversized);
+		}
+		return new BufferedLineReader(in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in));
+	}
+
+	/**
+	 * Wraps the given {@link ILineReader} in a {@link BoundedLineReader}, if a
+	 * maximum line length is set and {@code in} does not bound lines already,
+	 * and then in a {@link RecordLineReader}, if a record start {@link Pattern}
+	 * is set; the wrappers are not meant to be closed, so that the caller keeps
+	 * ownership of {@code in}.
+	 */
+	protected ILineReader records(final ILineReader in) {
+		ILineReader reader = in;
+		int max = maxLineLength;
+		if (max > 0 && !(reader instanceof BoundedLineReader)) {
+			reader = new BoundedLineReader(reader, max, oversized);
+		}
+		Pattern pattern = recordStart;
+		return pattern != null ? new RecordLineReader(reader, pattern) : reader;
+	}
+
+	/**
+	 * Adds the lines skipped or truncated by a reader from
+	 * {@link #records(ILineReader)} to the totals, and reports oversized ones.
+	 */
+	protected void countSkippedLines(final ILineReader reader, final String name) {
+		ILineReader in = reader;
+		if (in instanceof RecordLineReader) {
+			continuations.addAndGet(((RecordLineReader) in).getContinuations());
+			in = ((RecordLineReader) in).getReader();
+		}
+		if (in instanceof BoundedLineReader) {
+			BoundedLineReader bounded = (BoundedLineReader) in;
+			truncatedLines.addAndGet(bounded.getTruncated());
+			skippedLines.addAndGet(bounded.getSkipped());
+			if (bounded.getTruncated() > 0 || bounded.getSkipped() > 0) {
+				LOGGER.warn(String.format("%s - %s lines longer than %s characters truncated, %s skipped", name, bounded.getTruncated(), bounded.getMaxLength(), bounded.getSkipped()));
+			}
+		}
+	}
+
+	protected E applyFilters(final CharSequence toParse, final List<ILogEntryFilter<E>> filters) {
+		E entry = null;
+		for (ILogEntryFilter<E> filter : filters) {
+			entry = filter.parse(toParse);
+			if (entry != null) {
+				break;
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * Reads a single log file, and reports its own throughput.
+	 */
+	private final class FileTask implements Callable<Integer> {
+		private final File file;
+
+		private FileTask(final File file) {
+			this.file = file;
+		}
+
+		public Integer call() {
+			long start = System.nanoTime();
+			int lines = read(file);
+			long end = TimeUnit.MILLISECONDS.convert(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			LOGGER.info(String.format("%s - Ellapsed = %sms, rate = %sstrings/ms, total = %s entries",
+					file.getName(),
+					end,
+					new DecimalFormat("#.#").format(lines / (double) Math.max(end, 1)),
+					lines));
+			return lines;
+		}
+	}
+}
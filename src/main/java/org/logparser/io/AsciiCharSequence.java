@@ -0,0 +1,89 @@
+package org.logparser.io;
+
+import java.nio.ByteBuffer;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A {@link CharSequence} view over a range of ASCII bytes held in a
+ * {@link ByteBuffer}; each byte is read as the {@code char} of equal value.
+ *
+ * The view is reusable: {@link #set(ByteBuffer, int, int)} points it at
+ * another range without allocating, so that lines can be matched against
+ * regular expressions without first being decoded into a {@link String}. Only
+ * {@link #toString()} copies the bytes viewed.
+ *
+ * @author jorge.decastro
+ *
+ */
+@NotThreadSafe
+public final class AsciiCharSequence implements CharSequence {
+	private ByteBuffer bytes;
+	private int offset;
+	private int length;
+
+	public AsciiCharSequence() {
+		this.bytes = ByteBuffer.allocate(0);
+	}
+
+	public AsciiCharSequence(final ByteBuffer bytes, final int offset, final int length) {
+		set(bytes, offset, length);
+	}
+
+	/**
+	 * Points this view at {@code length} bytes of the given buffer, starting at
+	 * the absolute index {@code offset}.
+	 *
+	 * @return this {@link AsciiCharSequence}.
+	 */
+	public AsciiCharSequence set(final ByteBuffer bytes, final int offset, final int length) {
+		Preconditions.checkNotNull(bytes, "'bytes' argument cannot be null.");
+		Preconditions.checkArgument(offset >= 0 && length >= 0 && offset + length <= bytes.limit(), "'offset' and 'length' arguments must lie within the buffer limit.");
+		this.bytes = bytes;
+		this.offset = offset;
+		this.length = length;
+		return this;
+	}
+
+	/**
+	 * @return {@code true} if all bytes in the given range are ASCII, i.e. can
+	 *         be viewed by an {@link AsciiCharSequence}.
+	 */
+	public static boolean isAscii(final ByteBuffer bytes, final int offset, final int length) {
+		for (int i = offset, end = offset + length; i < end; i++) {
+			if (bytes.get(i) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int length() {
+		return length;
+	}
+
+	public char charAt(final int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException(String.format("Index %s out of bounds for length %s", index, length));
+		}
+		return (char) bytes.get(offset + index);
+	}
+
+	public CharSequence subSequence(final int start, final int end) {
+		if (start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException(String.format("Range [%s, %s) out of bounds for length %s", start, end, length));
+		}
+		return new AsciiCharSequence(bytes, offset + start, end - start);
+	}
+
+	@Override
+	public String toString() {
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = (char) bytes.get(offset + i);
+		}
+		return new String(chars);
+	}
+}
@@ -0,0 +1,230 @@
+package org.logparser.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.logparser.ILogEntryFilter;
+import org.logparser.ILogFilter;
+import org.logparser.IObserver;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+
+/**
+ * Implementation of {@link ILogFilter} that spreads the reading of many log
+ * files of very different sizes evenly over its workers, and publishes
+ * filtered entries as events to all {@link IObserver}s attached.
+ * 
+ * Uncompressed log files larger than the {@code chunkSize} are split into byte
+ * ranges aligned to line boundaries, of about {@code chunkSize} bytes each;
+ * smaller and compressed files are read whole. All ranges and files are put on
+ * a single queue, largest first, from which each worker takes the next task as
+ * soon as it is done with the last. The largest tasks thus start first, the
+ * smallest fill in at the end, and no worker sits idle while another is left
+ * with a large file.
+ * 
+ * As when reading several files concurrently, entries are published as each
+ * task reads them, so entries of distinct tasks are interleaved; the
+ * {@link ILogEntryFilter}s must be thread-safe.
+ * 
+ * @author jorge.decastro
+ * 
+ * @param <E> the type of elements held by this {@link ILogFilter}.
+ */
+public final class BalancedLogFilter<E> extends AbstractLogFilter<E> {
+	private static final Logger LOGGER = Logger.getLogger(BalancedLogFilter.class.getName());
+	public static final long DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+	private final long chunkSize;
+	private final int windowSize;
+	private final Charset charset;
+
+	private BalancedLogFilter(final Builder<E> builder) {
+		super(builder.messageFilters);
+		chunkSize = builder.chunkSize;
+		windowSize = builder.windowSize;
+		charset = builder.charset;
+	}
+
+	@Override
+	protected ILineReader open(final File file) throws IOException {
+		Compression compression = Compression.of(file);
+		if (compression != Compression.NONE) {
+			return lineReader(new InputStreamReader(compression.open(file), charset));
+		}
+		FileChannel channel = new FileInputStream(file).getChannel();
+		return new MappedLineReader(channel, 0, channel.size(), windowSize, charset);
+	}
+
+	@Override
+	public void filter(final File[] files, final int workers) {
+		Preconditions.checkNotNull(files, "'files' argument cannot be null.");
+		Preconditions.checkArgument(workers > 0, "'workers' argument must be a positive number.");
+		final Queue<Task> tasks = new ConcurrentLinkedQueue<Task>(schedule(files));
+		final AtomicInteger lines = new AtomicInteger();
+		int threads = Math.max(1, Math.min(workers, tasks.size()));
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (int i = 0; i < threads; i++) {
+				executor.execute(new Runnable() {
+					public void run() {
+						Task task;
+						while ((task = tasks.poll()) != null && !Thread.currentThread().isInterrupted()) {
+							lines.addAndGet(task.call());
+						}
+					}
+				});
+			}
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+		size = lines.get();
+	}
+
+	/**
+	 * Splits the given files into tasks, ordered largest first.
+	 */
+	List<Task> schedule(final File[] files) {
+		List<Task> tasks = new ArrayList<Task>();
+		for (File file : files) {
+			long length = file.length();
+			if (length <= chunkSize || Compression.of(file) != Compression.NONE) {
+				tasks.add(new Task(file, null, length));
+				continue;
+			}
+			FileChannel channel = null;
+			try {
+				channel = new FileInputStream(file).getChannel();
+				int parts = (int) Math.min(Integer.MAX_VALUE, (length + chunkSize - 1) / chunkSize);
+				for (ByteRange range : ByteRange.split(channel, parts)) {
+					tasks.add(new Task(file, range, range.length()));
+				}
+			} catch (IOException ioe) {
+				LOGGER.warn(String.format("Unable to split file '%s'; reading it whole", file.getAbsolutePath()), ioe);
+				tasks.add(new Task(file, null, length));
+			} finally {
+				Closeables.closeQuietly(channel);
+			}
+		}
+		Collections.sort(tasks, new Comparator<Task>() {
+			public int compare(final Task a, final Task b) {
+				return a.length > b.length ? -1 : (a.length == b.length ? 0 : 1);
+			}
+		});
+		return tasks;
+	}
+
+	public long getChunkSize() {
+		return chunkSize;
+	}
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	/**
+	 * Reads a whole file, or a single {@link ByteRange} of one.
+	 */
+	final class Task {
+		private final File file;
+		private final ByteRange range;
+		private final long length;
+
+		private Task(final File file, final ByteRange range, final long length) {
+			this.file = file;
+			this.range = range;
+			this.length = length;
+		}
+
+		long getLength() {
+			return length;
+		}
+
+		ByteRange getRange() {
+			return range;
+		}
+
+		private int call() {
+			if (range == null) {
+				return read(file);
+			}
+			ILineReader in = null;
+			try {
+				FileChannel channel = new FileInputStream(file).getChannel();
+				in = new MappedLineReader(channel, range.getBegin(), range.getEnd(), windowSize, charset);
+				return filter(in, String.format("%s%s", file.getAbsolutePath(), range));
+			} catch (IOException ioe) {
+				LOGGER.warn(String.format("IO error reading file '%s'", file.getAbsolutePath()), ioe);
+				return 0;
+			} finally {
+				Closeables.closeQuietly(in);
+			}
+		}
+	}
+
+	public static class Builder<E> {
+		// required parameters
+		private final List<ILogEntryFilter<E>> messageFilters;
+		// optional parameters
+		private long chunkSize = DEFAULT_CHUNK_SIZE;
+		private int windowSize = MappedLineReader.DEFAULT_WINDOW_SIZE;
+		private Charset charset = Charset.defaultCharset();
+
+		@SuppressWarnings("unchecked")
+		public Builder(final ILogEntryFilter<E>... messageFilter) {
+			this(Arrays.asList(messageFilter));
+		}
+
+		public Builder(final List<ILogEntryFilter<E>> messageFilters) {
+			this.messageFilters = Preconditions.checkNotNull(messageFilters, "'messageFilters' argument cannot be null.");
+		}
+
+		/**
+		 * The size, in bytes, above which uncompressed log files are split into
+		 * ranges of about that size.
+		 */
+		public Builder<E> chunkSize(final long chunkSize) {
+			Preconditions.checkArgument(chunkSize > 0, "'chunkSize' argument must be a positive number.");
+			this.chunkSize = chunkSize;
+			return this;
+		}
+
+		public Builder<E> windowSize(final int windowSize) {
+			Preconditions.checkArgument(windowSize > 0, "'windowSize' argument must be a positive number.");
+			this.windowSize = windowSize;
+			return this;
+		}
+
+		public Builder<E> charset(final Charset charset) {
+			this.charset = Preconditions.checkNotNull(charset, "'charset' argument cannot be null.");
+			return this;
+		}
+
+		public BalancedLogFilter<E> build() {
+			return new BalancedLogFilter<E>(this);
+		}
+	}
+}
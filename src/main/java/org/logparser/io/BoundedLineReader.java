@@ -0,0 +1,176 @@
+package org.logparser.io;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link ILineReader} implementation that caps the length of the lines it
+ * hands out, so that a single pathological line, e.g. megabytes of encoded
+ * data in a query string, can neither exhaust memory nor stall the regular
+ * expressions applied to it. Lines longer than {@code maxLength} are either
+ * truncated or skipped, as per {@link Oversized}, and counted.
+ * 
+ * Reading from a {@link Reader}, lines are split on line feeds, optionally
+ * preceded by a carriage return, and oversized lines are never held in full:
+ * characters past the limit are discarded as they are read. Decorating another
+ * {@link ILineReader}, e.g. a {@link MappedLineReader} that hands out views
+ * over its own buffer, only the lines handed on are capped.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+@NotThreadSafe
+public final class BoundedLineReader implements ILineReader {
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * What to do with lines longer than the maximum length.
+	 */
+	public enum Oversized {
+		/**
+		 * Keep the first characters of the line, up to the maximum length; the
+		 * fields cut off, or cut short, are lost to the filters, which cannot
+		 * tell a truncated line from a whole one.
+		 */
+		TRUNCATE,
+		/** Leave the line out altogether. */
+		SKIP
+	};
+
+	private final Reader reader;
+	private final ILineReader lines;
+	private final int maxLength;
+	private final Oversized oversized;
+	private final char[] buffer;
+	private final StringBuilder line;
+	private int position;
+	private int limit;
+	private long truncated;
+	private long skipped;
+
+	public BoundedLineReader(final Reader reader, final int maxLength, final Oversized oversized) {
+		this(Preconditions.checkNotNull(reader, "'reader' argument cannot be null."), null, maxLength, oversized);
+	}
+
+	public BoundedLineReader(final ILineReader lines, final int maxLength, final Oversized oversized) {
+		this(null, Preconditions.checkNotNull(lines, "'lines' argument cannot be null."), maxLength, oversized);
+	}
+
+	private BoundedLineReader(final Reader reader, final ILineReader lines, final int maxLength, final Oversized oversized) {
+		Preconditions.checkArgument(maxLength > 0, "'maxLength' argument must be a positive number.");
+		this.reader = reader;
+		this.lines = lines;
+		this.maxLength = maxLength;
+		this.oversized = Preconditions.checkNotNull(oversized, "'oversized' argument cannot be null.");
+		this.buffer = reader != null ? new char[BUFFER_SIZE] : null;
+		this.line = reader != null ? new StringBuilder() : null;
+	}
+
+	public String readLine() throws IOException {
+		CharSequence text = readSequence();
+		return text != null ? text.toString() : null;
+	}
+
+	/**
+	 * Reads the next line, capped at the maximum length; the
+	 * {@link CharSequence} returned is only valid until the next read.
+	 */
+	public CharSequence readSequence() throws IOException {
+		return reader != null ? readFromReader() : readFromLines();
+	}
+
+	private CharSequence readFromLines() throws IOException {
+		CharSequence text;
+		while ((text = lines.readSequence()) != null) {
+			if (text.length() <= maxLength) {
+				return text;
+			}
+			if (oversized == Oversized.TRUNCATE) {
+				truncated++;
+				return text.subSequence(0, maxLength);
+			}
+			skipped++;
+		}
+		return null;
+	}
+
+	private CharSequence readFromReader() throws IOException {
+		while (true) {
+			line.setLength(0);
+			// one character of room past the limit, for a carriage return
+			boolean overflow = false;
+			boolean found = false;
+			boolean read = false;
+			while (!found) {
+				if (position >= limit) {
+					int n = reader.read(buffer, 0, buffer.length);
+					if (n == -1) {
+						break;
+					}
+					position = 0;
+					limit = n;
+				}
+				read = true;
+				int end = position;
+				while (end < limit && buffer[end] != '\n') {
+					end++;
+				}
+				found = end < limit;
+				int room = maxLength + 1 - line.length();
+				int take = Math.min(room, end - position);
+				line.append(buffer, position, take);
+				overflow |= take < end - position;
+				position = found ? end + 1 : end;
+			}
+			if (!read) {
+				return null;
+			}
+			if (!overflow && line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+				line.setLength(line.length() - 1);
+			}
+			if (!overflow && line.length() <= maxLength) {
+				return line;
+			}
+			if (oversized == Oversized.TRUNCATE) {
+				truncated++;
+				line.setLength(maxLength);
+				return line;
+			}
+			skipped++;
+		}
+	}
+
+	public int getMaxLength() {
+		return maxLength;
+	}
+
+	public Oversized getOversized() {
+		return oversized;
+	}
+
+	/**
+	 * The number of oversized lines truncated so far.
+	 */
+	public long getTruncated() {
+		return truncated;
+	}
+
+	/**
+	 * The number of oversized lines skipped so far.
+	 */
+	public long getSkipped() {
+		return skipped;
+	}
+
+	public void close() throws IOException {
+		if (reader != null) {
+			reader.close();
+		} else {
+			lines.close();
+		}
+	}
+}
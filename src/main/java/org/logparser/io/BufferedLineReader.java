@@ -0,0 +1,32 @@
+package org.logparser.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link ILineReader} implementation backed by a {@link BufferedReader}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public final class BufferedLineReader implements ILineReader {
+	private final BufferedReader reader;
+
+	public BufferedLineReader(final BufferedReader reader) {
+		this.reader = Preconditions.checkNotNull(reader, "'reader' argument cannot be null.");
+	}
+
+	public String readLine() throws IOException {
+		return reader.readLine();
+	}
+
+	public CharSequence readSequence() throws IOException {
+		return reader.readLine();
+	}
+
+	public void close() throws IOException {
+		reader.close();
+	}
+}
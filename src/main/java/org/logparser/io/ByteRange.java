@@ -0,0 +1,97 @@
+package org.logparser.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.jcip.annotations.Immutable;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Represents a half-open range of bytes, {@code [begin, end)}, of a log file.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+@Immutable
+public final class ByteRange {
+	private static final int SCAN_BUFFER_SIZE = 8 * 1024;
+	private final long begin;
+	private final long end;
+
+	public ByteRange(final long begin, final long end) {
+		Preconditions.checkArgument(begin >= 0 && begin <= end, "'begin' argument must be a positive number no larger than 'end'.");
+		this.begin = begin;
+		this.end = end;
+	}
+
+	public long getBegin() {
+		return begin;
+	}
+
+	public long getEnd() {
+		return end;
+	}
+
+	public long length() {
+		return end - begin;
+	}
+
+	/**
+	 * Splits the content of the given {@code channel} into (at most)
+	 * {@code parts} ranges of roughly the same length. Every range but the last
+	 * ends just after a line feed, so no line is ever split across ranges.
+	 * 
+	 * @param channel the {@link FileChannel} to split.
+	 * @param parts the desired number of ranges.
+	 * @return the {@link List} of contiguous, non-empty ranges covering the
+	 *         whole channel.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static List<ByteRange> split(final FileChannel channel, final int parts) throws IOException {
+		Preconditions.checkNotNull(channel, "'channel' argument cannot be null.");
+		Preconditions.checkArgument(parts > 0, "'parts' argument must be a positive number.");
+		long size = channel.size();
+		List<ByteRange> ranges = new ArrayList<ByteRange>(parts);
+		ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+		long begin = 0;
+		for (int i = 1; i <= parts && begin < size; i++) {
+			long end = i == parts ? size : nextLineStart(channel, Math.max(begin, size / parts * i), size, buffer);
+			if (end > begin) {
+				ranges.add(new ByteRange(begin, end));
+			}
+			begin = end;
+		}
+		return ranges;
+	}
+
+	/**
+	 * Returns the offset just after the first line feed found at or after
+	 * {@code from}, or {@code size} if there is none.
+	 */
+	private static long nextLineStart(final FileChannel channel, final long from, final long size, final ByteBuffer buffer) throws IOException {
+		long position = from;
+		while (position < size) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("[%s, %s)", begin, end);
+	}
+}
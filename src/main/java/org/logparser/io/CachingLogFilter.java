@@ -0,0 +1,179 @@
+package org.logparser.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.logparser.ILogFilter;
+import org.logparser.IObserver;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+
+/**
+ * Decorates an {@link AbstractLogFilter} with a cache of the entries filtered
+ * from each log file, so that files left unchanged since a previous run are
+ * not parsed again; their cached entries are published to all
+ * {@link IObserver}s attached instead, which rebuilds the same aggregates.
+ *
+ * Cached results are keyed by the {@link FileFingerprint} of the log file and
+ * by a key describing the filter settings in use, e.g. a digest of the
+ * configuration; a change of either means the file is parsed again, and its
+ * cached results replaced.
+ *
+ * Lines of files loaded from the cache are not counted by {@link #size()}. The
+ * entries must be {@link java.io.Serializable}.
+ *
+ * @author jorge.decastro
+ *
+ * @param <E> the type of elements held by this {@link ILogFilter}.
+ */
+public final class CachingLogFilter<E> extends AbstractLogFilter<E> {
+	private static final Logger LOGGER = Logger.getLogger(CachingLogFilter.class.getName());
+	private static final String CACHE_EXTENSION = ".cache";
+	private final AbstractLogFilter<E> logFilter;
+	private final File cacheDir;
+	private final String filterKey;
+	private final ThreadLocal<List<E>> published;
+
+	@SuppressWarnings("unchecked")
+	public CachingLogFilter(final AbstractLogFilter<E> logFilter, final File cacheDir, final String filterKey) {
+		super(Preconditions.checkNotNull(logFilter, "'logFilter' argument cannot be null.").logEntryFilters);
+		this.logFilter = logFilter;
+		this.cacheDir = Preconditions.checkNotNull(cacheDir, "'cacheDir' argument cannot be null.");
+		this.filterKey = Preconditions.checkNotNull(filterKey, "'filterKey' argument cannot be null.");
+		this.published = new ThreadLocal<List<E>>();
+		// entries filtered by the decorated filter are captured, and passed on
+		logFilter.attach(new IObserver<E>() {
+			public void consume(final E event) {
+				List<E> entries = published.get();
+				if (entries != null) {
+					entries.add(event);
+				}
+				notifyObservers(event);
+			}
+		});
+	}
+
+	@Override
+	protected ILineReader open(final File file) throws IOException {
+		return logFilter.open(file);
+	}
+
+	@Override
+	protected int read(final File file) {
+		FileFingerprint fingerprint;
+		try {
+			fingerprint = FileFingerprint.of(file);
+		} catch (IOException ioe) {
+			LOGGER.warn(String.format("IO error reading file '%s'", file.getAbsolutePath()), ioe);
+			return 0;
+		}
+		File cached = cacheOf(file);
+		List<E> entries = load(cached, fingerprint);
+		if (entries != null) {
+			for (E entry : entries) {
+				notifyObservers(entry);
+			}
+			LOGGER.info(String.format("%s - loaded %s entries from cache", file.getName(), entries.size()));
+			return 0;
+		}
+		int lines = 0;
+		published.set(new ArrayList<E>());
+		try {
+			lines = logFilter.read(file);
+			// a file that changed while being read would be cached inconsistently
+			if (fingerprint.equals(FileFingerprint.of(file))) {
+				store(cached, fingerprint, published.get());
+			}
+		} catch (IOException ioe) {
+			LOGGER.warn(String.format("IO error reading file '%s'", file.getAbsolutePath()), ioe);
+		} finally {
+			published.remove();
+		}
+		return lines;
+	}
+
+	public AbstractLogFilter<E> getLogFilter() {
+		return logFilter;
+	}
+
+	public File getCacheDir() {
+		return cacheDir;
+	}
+
+	public String getFilterKey() {
+		return filterKey;
+	}
+
+	File cacheOf(final File file) {
+		// log files with the same name may live in different input directories
+		return new File(cacheDir, String.format("%s-%08x%s", file.getName(), file.getAbsolutePath().hashCode(), CACHE_EXTENSION));
+	}
+
+	/**
+	 * @return the cached entries, or {@code null} if there are none for the
+	 *         given {@link FileFingerprint} and the current filter key.
+	 */
+	@SuppressWarnings("unchecked")
+	private List<E> load(final File cached, final FileFingerprint fingerprint) {
+		if (!cached.exists()) {
+			return null;
+		}
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(cached)));
+			if (!fingerprint.toString().equals(in.readUTF()) || !filterKey.equals(in.readUTF())) {
+				return null;
+			}
+			return (List<E>) new ObjectInputStream(in).readObject();
+		} catch (IOException ioe) {
+			LOGGER.warn(String.format("Ignoring unreadable cache file '%s'", cached.getAbsolutePath()), ioe);
+		} catch (ClassNotFoundException cnfe) {
+			LOGGER.warn(String.format("Ignoring unreadable cache file '%s'", cached.getAbsolutePath()), cnfe);
+		} finally {
+			Closeables.closeQuietly(in);
+		}
+		return null;
+	}
+
+	private void store(final File cached, final FileFingerprint fingerprint, final List<E> entries) {
+		if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+			LOGGER.warn(String.format("Unable to create cache directory '%s'", cacheDir.getAbsolutePath()));
+			return;
+		}
+		// write aside and rename, so an interrupted run never leaves a partial file
+		File tmp = new File(cached.getPath() + ".tmp");
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+			out.writeUTF(fingerprint.toString());
+			out.writeUTF(filterKey);
+			ObjectOutputStream serializer = new ObjectOutputStream(out);
+			serializer.writeObject(entries);
+			serializer.close();
+			out = null;
+			if (!tmp.renameTo(cached)) {
+				cached.delete();
+				if (!tmp.renameTo(cached)) {
+					LOGGER.warn(String.format("Unable to replace cache file '%s'", cached.getAbsolutePath()));
+				}
+			}
+		} catch (IOException ioe) {
+			LOGGER.warn(String.format("Unable to cache entries of '%s'", fingerprint.getPath()), ioe);
+			tmp.delete();
+		} finally {
+			Closeables.closeQuietly(out);
+		}
+	}
+}
@@ -0,0 +1,260 @@
+package org.logparser.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+
+/**
+ * Persists a {@link Checkpoint} per log file, recording how far into the file
+ * a previous run has read, so that a later run may carry on from there.
+ *
+ * Checkpoints are kept in a single properties file in the given directory,
+ * alongside one journal file per log file, which {@link IncrementalLogFilter}
+ * uses to hold the entries filtered so far.
+ *
+ * @author jorge.decastro
+ *
+ */
+@ThreadSafe
+public final class CheckpointStore {
+	private static final Logger LOGGER = Logger.getLogger(CheckpointStore.class.getName());
+	public static final String CHECKPOINTS_FILENAME = "checkpoints.properties";
+	private static final String JOURNAL_EXTENSION = ".journal";
+	private final File dir;
+	private final File checkpointsFile;
+	private final Properties checkpoints;
+
+	public CheckpointStore(final File dir) {
+		Preconditions.checkNotNull(dir, "'dir' argument cannot be null.");
+		this.dir = dir;
+		this.checkpointsFile = new File(dir, CHECKPOINTS_FILENAME);
+		this.checkpoints = new Properties();
+		load();
+	}
+
+	public File getDir() {
+		return dir;
+	}
+
+	/**
+	 * @return the {@link Checkpoint} last saved for the given {@code file}, or
+	 *         {@code null} if there isn't one.
+	 */
+	public synchronized Checkpoint get(final File file) {
+		String value = checkpoints.getProperty(file.getAbsolutePath());
+		return value != null ? Checkpoint.valueOf(value) : null;
+	}
+
+	/**
+	 * Saves the {@link Checkpoint} of the given {@code file}, and writes all
+	 * checkpoints to disk.
+	 */
+	public synchronized void put(final File file, final Checkpoint checkpoint) {
+		Preconditions.checkNotNull(checkpoint, "'checkpoint' argument cannot be null.");
+		checkpoints.setProperty(file.getAbsolutePath(), checkpoint.toString());
+		save();
+	}
+
+	/**
+	 * Forgets the {@link Checkpoint} of the given {@code file}, along with its
+	 * journal.
+	 */
+	public synchronized void remove(final File file) {
+		if (checkpoints.remove(file.getAbsolutePath()) != null) {
+			save();
+		}
+		File journal = journalOf(file);
+		if (journal.exists() && !journal.delete()) {
+			LOGGER.warn(String.format("Unable to delete journal '%s'", journal.getAbsolutePath()));
+		}
+	}
+
+	/**
+	 * @return the journal file that holds the entries filtered from the given
+	 *         log {@code file}.
+	 */
+	public File journalOf(final File file) {
+		// log files with the same name may live in different input directories
+		String path = file.getAbsolutePath();
+		return new File(dir, String.format("%s-%08x%s", file.getName(), path.hashCode(), JOURNAL_EXTENSION));
+	}
+
+	private void load() {
+		if (!checkpointsFile.exists()) {
+			return;
+		}
+		InputStream in = null;
+		try {
+			in = new FileInputStream(checkpointsFile);
+			checkpoints.load(in);
+		} catch (IOException ioe) {
+			LOGGER.warn(String.format("Unable to load checkpoints from '%s'", checkpointsFile.getAbsolutePath()), ioe);
+			checkpoints.clear();
+		} finally {
+			Closeables.closeQuietly(in);
+		}
+	}
+
+	private void save() {
+		if (!dir.exists() && !dir.mkdirs()) {
+			LOGGER.warn(String.format("Unable to create checkpoint directory '%s'", dir.getAbsolutePath()));
+			return;
+		}
+		// write aside and rename, so an interrupted save never leaves a partial file
+		File tmp = new File(dir, CHECKPOINTS_FILENAME + ".tmp");
+		OutputStream out = null;
+		try {
+			out = new FileOutputStream(tmp);
+			checkpoints.store(out, "log file checkpoints: size,offset,hash,modified,digest");
+			out.close();
+			out = null;
+			if (!tmp.renameTo(checkpointsFile)) {
+				checkpointsFile.delete();
+				if (!tmp.renameTo(checkpointsFile)) {
+					LOGGER.warn(String.format("Unable to replace checkpoints file '%s'", checkpointsFile.getAbsolutePath()));
+				}
+			}
+		} catch (IOException ioe) {
+			LOGGER.warn(String.format("Unable to save checkpoints to '%s'", checkpointsFile.getAbsolutePath()), ioe);
+		} finally {
+			Closeables.closeQuietly(out);
+		}
+	}
+
+	/**
+	 * The state of a log file at the end of a run: its size, the offset just
+	 * past the last line read, a hash of the first block of the file, its last
+	 * modification time, and the digest of the filter settings the lines were
+	 * read with, which may be empty.
+	 *
+	 * The hash tells apart a file that grew from one that was replaced by a new
+	 * file of equal or greater size, e.g. after log rotation. The size and
+	 * modification time tell whether the file is still being written. The
+	 * digest tells apart entries filtered under other settings, which must not
+	 * be reused.
+	 */
+	@Immutable
+	public static final class Checkpoint {
+		public static final int BLOCK_SIZE = 4096;
+		private final long size;
+		private final long offset;
+		private final long hash;
+		private final long modified;
+		private final String digest;
+
+		public Checkpoint(final long size, final long offset, final long hash, final long modified, final String digest) {
+			Preconditions.checkArgument(offset >= 0 && offset <= size, "'offset' argument must be a positive number no larger than 'size'.");
+			Preconditions.checkNotNull(digest, "'digest' argument cannot be null.");
+			Preconditions.checkArgument(digest.indexOf(',') < 0, "'digest' argument cannot contain a comma.");
+			this.size = size;
+			this.offset = offset;
+			this.hash = hash;
+			this.modified = modified;
+			this.digest = digest;
+		}
+
+		/**
+		 * Creates the {@link Checkpoint} of the given {@code file}, open as
+		 * {@code channel}, read up to {@code offset} with filter settings of the
+		 * given {@code digest}.
+		 */
+		public static Checkpoint of(final File file, final FileChannel channel, final long offset, final String digest) throws IOException {
+			return new Checkpoint(channel.size(), offset, hash(channel, offset), file.lastModified(), digest);
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		public long getOffset() {
+			return offset;
+		}
+
+		public long getHash() {
+			return hash;
+		}
+
+		/**
+		 * The last modification time of the file, in milliseconds since the
+		 * epoch.
+		 */
+		public long getModified() {
+			return modified;
+		}
+
+		/**
+		 * The digest of the filter settings the file was read with, or an empty
+		 * string if none was given.
+		 */
+		public String getDigest() {
+			return digest;
+		}
+
+		/**
+		 * @return {@code true} if the file behind the given {@code channel} is
+		 *         still the one this {@link Checkpoint} was taken from, and it
+		 *         was not truncated since.
+		 */
+		public boolean isValidFor(final FileChannel channel) throws IOException {
+			return channel.size() >= offset && hash(channel, offset) == hash;
+		}
+
+		/**
+		 * @return {@code true} if the given {@code file}, open as
+		 *         {@code channel}, has neither changed size nor been modified
+		 *         since this {@link Checkpoint} was taken.
+		 */
+		public boolean isUnchanged(final File file, final FileChannel channel) throws IOException {
+			return channel.size() == size && file.lastModified() == modified;
+		}
+
+		/**
+		 * Hashes the first block of the file, or its first {@code limit} bytes
+		 * if fewer.
+		 */
+		static long hash(final FileChannel channel, final long limit) throws IOException {
+			ByteBuffer block = ByteBuffer.allocate((int) Math.min(BLOCK_SIZE, limit));
+			while (block.hasRemaining()) {
+				if (channel.read(block, block.position()) < 0) {
+					break;
+				}
+			}
+			CRC32 crc = new CRC32();
+			crc.update(block.array(), 0, block.position());
+			return crc.getValue();
+		}
+
+		static Checkpoint valueOf(final String value) {
+			// an empty digest is kept as a trailing empty field
+			String[] fields = value.split(",", -1);
+			if (fields.length != 5) {
+				return null;
+			}
+			try {
+				return new Checkpoint(Long.parseLong(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2]), Long.parseLong(fields[3]), fields[4]);
+			} catch (IllegalArgumentException iae) {
+				return null;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s,%s,%s,%s,%s", size, offset, hash, modified, digest);
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package org.logparser.io;
 
+import java.util.concurrent.TimeUnit;
+
 import com.beust.jcommander.Parameter;
 
 /**
@@ -33,4 +35,25 @@ public class CommandLineArguments {
 
 	@Parameter(names = { "-dateinterval", "-d" }, description = "Optional date interval in format 'yyyy/MM/dd,yyyy/MM/dd' (begin,end)", required = false)
 	public String dateInterval;
+
+	@Parameter(names = { "-stream", "-s" }, description = "Optional path to a named pipe to read log lines from, or '-' for standard input, instead of the log files", required = false)
+	public String stream;
+
+	@Parameter(names = { "-syslog" }, description = "Optional port to listen on, over TCP and UDP, for syslog messages to read log lines from, instead of the log files; reports stats periodically", required = false)
+	public int syslogPort;
+
+	@Parameter(names = { "-follow", "-tail" }, description = "Optional; keep following the log files as they grow, reporting stats periodically", required = false)
+	public boolean follow;
+
+	@Parameter(names = { "-pollinterval" }, description = "Optional interval, in milliseconds, between checks for new log lines when following; defaults to 1000", required = false)
+	public long pollInterval = FollowingLogFilter.DEFAULT_POLL_INTERVAL;
+
+	@Parameter(names = { "-followthreads" }, description = "Optional number of threads polling log files when following, for following many files; the input dirs are then rescanned for new log files. Defaults to 0, i.e. all files are polled in turn by a single thread", required = false)
+	public int followThreads = 0;
+
+	@Parameter(names = { "-rescaninterval" }, description = "Optional interval, in seconds, between rescans of the input dirs when following with several threads; defaults to 10", required = false)
+	public int rescanInterval = (int) TimeUnit.MILLISECONDS.toSeconds(FollowingLogFilter.DEFAULT_RESCAN_INTERVAL);
+
+	@Parameter(names = { "-reportinterval" }, description = "Optional interval, in seconds, between stats reports when following or listening for syslog messages; defaults to 60", required = false)
+	public int reportInterval = 60;
 }
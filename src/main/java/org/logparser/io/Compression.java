@@ -0,0 +1,215 @@
+package org.logparser.io;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+
+/**
+ * The compression formats recognised for (rotated) log files.
+ * 
+ * A format is recognised by the file name extension. Only a file without one,
+ * other than the counter of a rotated log (e.g.: {@code access.log.1}), is
+ * opened to look for the magic bytes at its start.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public enum Compression {
+	NONE {
+		@Override
+		protected InputStream decompress(final InputStream in) {
+			return in;
+		}
+	},
+	GZIP {
+		@Override
+		protected InputStream decompress(final InputStream in) throws IOException {
+			return new GZIPInputStream(in, BUFFER_SIZE);
+		}
+	},
+	ZIP {
+		@Override
+		protected InputStream decompress(final InputStream in) throws IOException {
+			return new ZipEntriesInputStream(new ZipInputStream(in));
+		}
+	};
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	protected abstract InputStream decompress(InputStream in) throws IOException;
+
+	/**
+	 * Opens the given {@code file} for reading its uncompressed content. For
+	 * compressed files, decompression runs on a separate thread, ahead of the
+	 * consumer of the returned {@link InputStream}.
+	 * 
+	 * @param file the {@code file} to open.
+	 * @return an {@link InputStream} of uncompressed bytes.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public InputStream open(final File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		if (this == NONE) {
+			return in;
+		}
+		try {
+			return new ReadAheadInputStream(decompress(in), file.getName());
+		} catch (IOException ioe) {
+			Closeables.closeQuietly(in);
+			throw ioe;
+		}
+	}
+
+	/**
+	 * Opens the given stream, e.g. standard input or a named pipe, for reading
+	 * its uncompressed content; the format is recognised by the magic bytes at
+	 * the start of the stream. Reading, and decompression if any, run on a
+	 * separate thread, ahead of the consumer of the returned
+	 * {@link InputStream}.
+	 * 
+	 * @param in the stream to read, which cannot be rewound.
+	 * @param name the name of the stream, for diagnostics.
+	 * @return an {@link InputStream} of uncompressed bytes.
+	 * @throws IOException if the stream cannot be read.
+	 */
+	public static InputStream open(final InputStream in, final String name) throws IOException {
+		Preconditions.checkNotNull(in, "'in' argument cannot be null.");
+		BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+		byte[] magic = new byte[4];
+		buffered.mark(magic.length);
+		int read = 0;
+		int n;
+		while (read < magic.length && (n = buffered.read(magic, read, magic.length - read)) != -1) {
+			read += n;
+		}
+		buffered.reset();
+		return new ReadAheadInputStream(ofMagicBytes(magic, read).decompress(buffered), name);
+	}
+
+	/**
+	 * Answers the {@link Compression} format of the given {@code file}. Any
+	 * extension is trusted, so that a plain log file (e.g.: {@code .log}) is
+	 * not opened again every time it is asked about.
+	 * 
+	 * @param file the {@code file} to check.
+	 * @return the {@link Compression} format recognised, or {@link #NONE}.
+	 */
+	public static Compression of(final File file) {
+		Preconditions.checkNotNull(file, "'file' argument cannot be null.");
+		String name = file.getName().toLowerCase();
+		if (name.endsWith(".gz") || name.endsWith(".gzip")) {
+			return GZIP;
+		}
+		if (name.endsWith(".zip")) {
+			return ZIP;
+		}
+		return hasExtension(name) ? NONE : ofMagicBytes(file);
+	}
+
+	/**
+	 * Answers whether the given file name ends with an extension, leaving out
+	 * the number given to a rotated log.
+	 */
+	private static boolean hasExtension(final String name) {
+		int dot = name.lastIndexOf('.');
+		if (dot <= 0 || dot == name.length() - 1) {
+			return false;
+		}
+		for (int i = dot + 1; i < name.length(); i++) {
+			if (!Character.isDigit(name.charAt(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Compression ofMagicBytes(final File file) {
+		byte[] magic = new byte[4];
+		int read = 0;
+		InputStream in = null;
+		try {
+			in = new FileInputStream(file);
+			int n;
+			while (read < magic.length && (n = in.read(magic, read, magic.length - read)) != -1) {
+				read += n;
+			}
+		} catch (IOException ioe) {
+			return NONE;
+		} finally {
+			Closeables.closeQuietly(in);
+		}
+		return ofMagicBytes(magic, read);
+	}
+
+	private static Compression ofMagicBytes(final byte[] magic, final int read) {
+		if (read >= 2 && (magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b) {
+			return GZIP;
+		}
+		if (read == 4 && magic[0] == 'P' && magic[1] == 'K' && magic[2] == 3 && magic[3] == 4) {
+			return ZIP;
+		}
+		return NONE;
+	}
+
+	/**
+	 * Reads the content of all the entries of a zip archive, one after the
+	 * other, as a single stream.
+	 */
+	private static final class ZipEntriesInputStream extends InputStream {
+		private final ZipInputStream in;
+		private boolean open;
+
+		private ZipEntriesInputStream(final ZipInputStream in) {
+			this.in = in;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			while (true) {
+				if (!open && !nextEntry()) {
+					return -1;
+				}
+				int n = in.read(b, off, len);
+				if (n != -1) {
+					return n;
+				}
+				open = false;
+			}
+		}
+
+		private boolean nextEntry() throws IOException {
+			ZipEntry entry;
+			while ((entry = in.getNextEntry()) != null) {
+				if (!entry.isDirectory()) {
+					open = true;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return open ? in.available() : 0;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
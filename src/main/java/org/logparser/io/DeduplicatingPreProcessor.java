@@ -0,0 +1,357 @@
+package org.logparser.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+import net.jcip.annotations.Immutable;
+
+import org.apache.log4j.Logger;
+import org.logparser.io.CheckpointStore.Checkpoint;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+
+/**
+ * {@link IPreProcessor} implementation that drops log files whose content is
+ * also found in another log file of the list, e.g. where input directories
+ * overlap, through symbolic links, or in copies of a log file left behind by
+ * log rotation. A file is dropped if:
+ * <ul>
+ * <li>it is the same file as another, once paths are made canonical;</li>
+ * <li>it has the same content as another, in which case the first one listed
+ * is kept;</li>
+ * <li>its content is a prefix of a larger file, e.g. an archived copy of a log
+ * file that has grown since; compressed files are never taken as prefixes.</li>
+ * </ul>
+ * 
+ * Files are fingerprinted in parallel by their size and a hash of a few
+ * sampled blocks; only files whose fingerprints collide are hashed in full, to
+ * confirm they are duplicates. The first block of each file is kept with its
+ * fingerprint, which settles whether a file of up to a block is a prefix of
+ * another, and groups larger files by the hash of their first block; each
+ * file of a group is then read once, to hash all the smaller files' lengths
+ * of it, so a file is never read more than a few times however many it is
+ * compared to.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+@Immutable
+public final class DeduplicatingPreProcessor implements IPreProcessor {
+	private static final Logger LOGGER = Logger.getLogger(DeduplicatingPreProcessor.class);
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private final int threads;
+
+	public DeduplicatingPreProcessor() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public DeduplicatingPreProcessor(final int threads) {
+		Preconditions.checkArgument(threads > 0, "'threads' argument must be a positive number.");
+		this.threads = threads;
+	}
+
+	public List<File> apply(final List<File> logFiles) {
+		Preconditions.checkNotNull(logFiles, "'logFiles' argument cannot be null.");
+		if (logFiles.size() < 2) {
+			return logFiles;
+		}
+		Set<File> dropped = new HashSet<File>();
+		List<Fingerprint> fingerprints = fingerprint(logFiles, dropped);
+		try {
+			dropDuplicates(fingerprints, dropped);
+			dropPrefixes(fingerprints, dropped);
+		} catch (IOException ioe) {
+			LOGGER.warn("IO error comparing log files; keeping them all", ioe);
+			return logFiles;
+		}
+		List<File> kept = new ArrayList<File>(logFiles.size() - dropped.size());
+		for (File file : logFiles) {
+			if (!dropped.contains(file)) {
+				kept.add(file);
+			}
+		}
+		return kept;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Fingerprints the given files in parallel, and drops those that resolve
+	 * to a path already listed; files that cannot be read are left out, and so
+	 * kept as they are.
+	 */
+	private List<Fingerprint> fingerprint(final List<File> logFiles, final Set<File> dropped) {
+		List<Fingerprint> fingerprints = new ArrayList<Fingerprint>(logFiles.size());
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, logFiles.size()));
+		try {
+			List<Future<Fingerprint>> results = new ArrayList<Future<Fingerprint>>(logFiles.size());
+			for (final File file : logFiles) {
+				results.add(executor.submit(new Callable<Fingerprint>() {
+					public Fingerprint call() throws IOException {
+						return new Fingerprint(file);
+					}
+				}));
+			}
+			Map<String, File> paths = new HashMap<String, File>();
+			for (int i = 0; i < results.size(); i++) {
+				File file = logFiles.get(i);
+				try {
+					Fingerprint fingerprint = results.get(i).get();
+					File original = paths.get(fingerprint.path);
+					if (original == null) {
+						paths.put(fingerprint.path, file);
+						fingerprints.add(fingerprint);
+					} else {
+						LOGGER.info(String.format("Dropping log file '%s', the same file as '%s'", file.getPath(), original.getPath()));
+						dropped.add(file);
+					}
+				} catch (ExecutionException ee) {
+					LOGGER.warn(String.format("Unable to fingerprint log file '%s'", file.getAbsolutePath()), ee.getCause());
+				}
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+		return fingerprints;
+	}
+
+	/**
+	 * Drops the files with the same content as a file listed before them.
+	 */
+	private void dropDuplicates(final List<Fingerprint> fingerprints, final Set<File> dropped) throws IOException {
+		Map<List<Long>, List<Fingerprint>> groups = new LinkedHashMap<List<Long>, List<Fingerprint>>();
+		for (Fingerprint fingerprint : fingerprints) {
+			List<Long> key = Arrays.asList(fingerprint.size, fingerprint.sampledHash);
+			List<Fingerprint> group = groups.get(key);
+			if (group == null) {
+				group = new ArrayList<Fingerprint>();
+				groups.put(key, group);
+			}
+			group.add(fingerprint);
+		}
+		for (List<Fingerprint> group : groups.values()) {
+			if (group.size() < 2) {
+				continue;
+			}
+			// fingerprints collide: compare full hashes
+			Map<String, Fingerprint> kept = new HashMap<String, Fingerprint>();
+			for (Fingerprint fingerprint : group) {
+				String digest = fingerprint.fullHash();
+				Fingerprint original = kept.get(digest);
+				if (original == null) {
+					kept.put(digest, fingerprint);
+				} else {
+					LOGGER.info(String.format("Dropping log file '%s', a copy of '%s'", fingerprint.file.getPath(), original.file.getPath()));
+					fingerprint.duplicate = true;
+					dropped.add(fingerprint.file);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Drops the files whose content is a prefix of a larger file.
+	 */
+	private void dropPrefixes(final List<Fingerprint> fingerprints, final Set<File> dropped) throws IOException {
+		List<Fingerprint> candidates = new ArrayList<Fingerprint>();
+		for (Fingerprint fingerprint : fingerprints) {
+			if (!fingerprint.duplicate && !fingerprint.compressed && fingerprint.size > 0) {
+				candidates.add(fingerprint);
+			}
+		}
+		Collections.sort(candidates, new Comparator<Fingerprint>() {
+			public int compare(final Fingerprint a, final Fingerprint b) {
+				return a.size < b.size ? -1 : (a.size == b.size ? 0 : 1);
+			}
+		});
+		// a file of up to a block is all in its head, so heads are compared
+		Map<Long, List<Fingerprint>> groups = new LinkedHashMap<Long, List<Fingerprint>>();
+		for (int i = 0; i < candidates.size(); i++) {
+			Fingerprint prefix = candidates.get(i);
+			if (prefix.size > Checkpoint.BLOCK_SIZE) {
+				List<Fingerprint> group = groups.get(prefix.headHash);
+				if (group == null) {
+					group = new ArrayList<Fingerprint>();
+					groups.put(prefix.headHash, group);
+				}
+				group.add(prefix);
+				continue;
+			}
+			for (int j = candidates.size() - 1; j > i; j--) {
+				Fingerprint larger = candidates.get(j);
+				if (larger.size > prefix.size && larger.startsWith(prefix.head)) {
+					drop(prefix, larger, dropped);
+					break;
+				}
+			}
+		}
+		// larger files can only be prefixes of files with the same first block
+		for (List<Fingerprint> group : groups.values()) {
+			for (int j = group.size() - 1; j > 0; j--) {
+				Fingerprint larger = group.get(j);
+				Set<Long> limits = new TreeSet<Long>();
+				for (int i = 0; i < j; i++) {
+					Fingerprint prefix = group.get(i);
+					if (prefix.size < larger.size && !dropped.contains(prefix.file)) {
+						limits.add(prefix.size);
+					}
+				}
+				if (limits.isEmpty()) {
+					continue;
+				}
+				Map<Long, String> hashes = larger.hashesUpTo(limits);
+				for (int i = 0; i < j; i++) {
+					Fingerprint prefix = group.get(i);
+					if (limits.contains(prefix.size) && !dropped.contains(prefix.file) && hashes.get(prefix.size).equals(prefix.fullHash())) {
+						drop(prefix, larger, dropped);
+					}
+				}
+			}
+		}
+	}
+
+	private static void drop(final Fingerprint prefix, final Fingerprint larger, final Set<File> dropped) {
+		LOGGER.info(String.format("Dropping log file '%s', a prefix of '%s'", prefix.file.getPath(), larger.file.getPath()));
+		dropped.add(prefix.file);
+	}
+
+	/**
+	 * The size and sampled hash of a log file, and its full hash once needed.
+	 */
+	private static final class Fingerprint {
+		private final File file;
+		private final String path;
+		private final long size;
+		private final long sampledHash;
+		// the first block of the file, or all of it if smaller
+		private final byte[] head;
+		private final long headHash;
+		private final boolean compressed;
+		private String fullHash;
+		private boolean duplicate;
+
+		private Fingerprint(final File file) throws IOException {
+			this.file = file;
+			this.path = file.getCanonicalPath();
+			this.compressed = Compression.of(file) != Compression.NONE;
+			FileChannel channel = new FileInputStream(file).getChannel();
+			try {
+				size = channel.size();
+				sampledHash = FileFingerprint.sampledHash(channel, size);
+				ByteBuffer block = ByteBuffer.allocate((int) Math.min(Checkpoint.BLOCK_SIZE, size));
+				while (block.hasRemaining()) {
+					if (channel.read(block, block.position()) < 0) {
+						break;
+					}
+				}
+				head = new byte[block.position()];
+				System.arraycopy(block.array(), 0, head, 0, head.length);
+			} finally {
+				Closeables.closeQuietly(channel);
+			}
+			CRC32 crc = new CRC32();
+			crc.update(head);
+			headHash = crc.getValue();
+		}
+
+		/**
+		 * Answers whether the file starts with the given bytes, of up to a block.
+		 */
+		private boolean startsWith(final byte[] bytes) {
+			if (bytes.length > head.length) {
+				return false;
+			}
+			for (int i = 0; i < bytes.length; i++) {
+				if (head[i] != bytes[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private String fullHash() throws IOException {
+			if (fullHash == null) {
+				fullHash = hashesUpTo(Collections.singleton(size)).get(size);
+			}
+			return fullHash;
+		}
+
+		/**
+		 * The MD5 digests of the first {@code limit} bytes of the file, for each
+		 * of the given {@code limits}, read in a single pass.
+		 */
+		private Map<Long, String> hashesUpTo(final Set<Long> limits) throws IOException {
+			MessageDigest md5;
+			try {
+				md5 = MessageDigest.getInstance("MD5");
+			} catch (NoSuchAlgorithmException nsae) {
+				throw new IllegalStateException("MD5 digest not available", nsae);
+			}
+			Map<Long, String> hashes = new HashMap<Long, String>();
+			FileChannel channel = new FileInputStream(file).getChannel();
+			try {
+				ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+				long position = 0;
+				for (long limit : new TreeSet<Long>(limits)) {
+					while (position < limit) {
+						buffer.clear();
+						buffer.limit((int) Math.min(BUFFER_SIZE, limit - position));
+						int read = channel.read(buffer, position);
+						if (read < 0) {
+							break;
+						}
+						md5.update(buffer.array(), 0, read);
+						position += read;
+					}
+					hashes.put(limit, hex(copy(md5).digest()));
+				}
+			} finally {
+				Closeables.closeQuietly(channel);
+			}
+			return hashes;
+		}
+
+		private static MessageDigest copy(final MessageDigest md5) {
+			try {
+				return (MessageDigest) md5.clone();
+			} catch (CloneNotSupportedException cnse) {
+				throw new IllegalStateException("MD5 digest cannot be copied", cnse);
+			}
+		}
+
+		private static String hex(final byte[] digest) {
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package org.logparser.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import net.jcip.annotations.Immutable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+
+/**
+ * Identifies the content of a file cheaply: its path, size, last modified time,
+ * and a hash of a few sampled blocks taken from its beginning, middle and end.
+ *
+ * Two files with equal fingerprints are taken to have equal content; the
+ * sampled hash guards against content changed in place without a change of
+ * size or modified time, at the cost of reading a few blocks only.
+ *
+ * @author jorge.decastro
+ *
+ */
+@Immutable
+public final class FileFingerprint {
+	public static final int SAMPLE_SIZE = 64 * 1024;
+	private final String path;
+	private final long size;
+	private final long lastModified;
+	private final long hash;
+	private volatile int hashCode;
+
+	public FileFingerprint(final String path, final long size, final long lastModified, final long hash) {
+		this.path = Preconditions.checkNotNull(path, "'path' argument cannot be null.");
+		this.size = size;
+		this.lastModified = lastModified;
+		this.hash = hash;
+	}
+
+	/**
+	 * Takes the {@link FileFingerprint} of the given {@code file}.
+	 */
+	public static FileFingerprint of(final File file) throws IOException {
+		Preconditions.checkNotNull(file, "'file' argument cannot be null.");
+		FileChannel channel = new FileInputStream(file).getChannel();
+		try {
+			long size = channel.size();
+			return new FileFingerprint(file.getAbsolutePath(), size, file.lastModified(), sampledHash(channel, size));
+		} finally {
+			Closeables.closeQuietly(channel);
+		}
+	}
+
+	static long sampledHash(final FileChannel channel, final long size) throws IOException {
+		CRC32 crc = new CRC32();
+		if (size <= 3L * SAMPLE_SIZE) {
+			// small files are hashed whole
+			update(crc, channel, 0, (int) size);
+		} else {
+			update(crc, channel, 0, SAMPLE_SIZE);
+			update(crc, channel, (size - SAMPLE_SIZE) / 2, SAMPLE_SIZE);
+			update(crc, channel, size - SAMPLE_SIZE, SAMPLE_SIZE);
+		}
+		return crc.getValue();
+	}
+
+	private static void update(final CRC32 crc, final FileChannel channel, final long offset, final int length) throws IOException {
+		ByteBuffer block = ByteBuffer.allocate(length);
+		while (block.hasRemaining() && channel.read(block, offset + block.position()) >= 0) {
+			// keep reading until the block is full
+		}
+		crc.update(block.array(), 0, block.position());
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	public long getHash() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(final Object other) {
+		if (other == this)
+			return true;
+		if (!(other instanceof FileFingerprint))
+			return false;
+		final FileFingerprint fingerprint = (FileFingerprint) other;
+		return path.equals(fingerprint.path)
+				&& size == fingerprint.size
+				&& lastModified == fingerprint.lastModified
+				&& hash == fingerprint.hash;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = hashCode;
+		if (result == 0) {
+			result = 17;
+			result = 31 * result + path.hashCode();
+			result = 31 * result + (int) (size ^ (size >>> 32));
+			result = 31 * result + (int) (lastModified ^ (lastModified >>> 32));
+			result = 31 * result + (int) (hash ^ (hash >>> 32));
+			hashCode = result;
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s,%s,%s,%s", path, size, lastModified, hash);
+	}
+}
@@ -0,0 +1,288 @@
+package org.logparser.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.logparser.ILogEntryFilter;
+import org.logparser.ILogFilter;
+import org.logparser.IObserver;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+
+/**
+ * Implementation of {@link ILogFilter} that follows log files as they grow,
+ * in the manner of {@code tail -f}, and publishes filtered entries as events
+ * to all {@link IObserver}s attached.
+ * 
+ * Each file is kept open between polls, and each poll reads only the bytes
+ * appended since the previous one, so keeping the {@link IObserver}s up to
+ * date costs time proportional to new data only. Rotated and truncated files
+ * are handled by {@link TailedFile}. Compressed files don't grow, so they are
+ * read once.
+ * 
+ * Many files, e.g. thousands of live logs on one host, are best followed by
+ * {@link #follow(LogFiles, int, long)}: each file is polled on its own
+ * schedule by a small pool of threads, polls of files that did not grow are
+ * backed off, and the input dirs are rescanned for files appearing or
+ * disappearing. Each file then costs a small read buffer and an open file
+ * handle, rather than a thread.
+ * 
+ * {@link IObserver}s are notified from the following thread(s) while holding
+ * this filter's lock; synchronize on it to read them consistently meanwhile.
+ * 
+ * @author jorge.decastro
+ * 
+ * @param <E> the type of elements held by this {@link ILogFilter}.
+ */
+public final class FollowingLogFilter<E> extends AbstractLogFilter<E> {
+	private static final Logger LOGGER = Logger.getLogger(FollowingLogFilter.class.getName());
+	public static final long DEFAULT_POLL_INTERVAL = 1000L;
+	public static final long DEFAULT_RESCAN_INTERVAL = 10000L;
+	// polls of idle files are backed off up to this many poll intervals
+	private static final int MAX_BACKOFF = 8;
+	private static final int SCHEDULED_BUFFER_SIZE = 8 * 1024;
+	private final long pollInterval;
+	private final Charset charset;
+	private final Map<File, TailedFile> tailedFiles;
+	private final Set<File> readOnce;
+	private volatile boolean following;
+
+	@SuppressWarnings("unchecked")
+	public FollowingLogFilter(final long pollInterval, final ILogEntryFilter<E>... messageFilter) {
+		this(pollInterval, Arrays.asList(messageFilter));
+	}
+
+	public FollowingLogFilter(final long pollInterval, final List<ILogEntryFilter<E>> messageFilters) {
+		super(messageFilters);
+		Preconditions.checkArgument(pollInterval > 0, "'pollInterval' argument must be a positive number.");
+		this.pollInterval = pollInterval;
+		this.charset = Charset.defaultCharset();
+		this.tailedFiles = new LinkedHashMap<File, TailedFile>();
+		this.readOnce = new HashSet<File>();
+	}
+
+	@Override
+	protected ILineReader open(final File file) throws IOException {
+		return lineReader(new InputStreamReader(Compression.of(file).open(file), charset));
+	}
+
+	/**
+	 * Reads the lines appended to the given files since the previous poll.
+	 * 
+	 * @param files the log {@code files} to follow.
+	 * @return {@code int} containing the number of lines read.
+	 */
+	public int poll(final File[] files) {
+		Preconditions.checkNotNull(files, "'files' argument cannot be null.");
+		int lines = 0;
+		for (File f : files) {
+			if (Compression.of(f) != Compression.NONE) {
+				if (readOnce.add(f)) {
+					lines += read(f);
+				}
+				continue;
+			}
+			TailedFile tailed = tailedFiles.get(f);
+			if (tailed == null) {
+				tailed = new TailedFile(f, charset);
+				tailedFiles.put(f, tailed);
+			}
+			lines += filter(tailed, f.getAbsolutePath());
+		}
+		size += lines;
+		return lines;
+	}
+
+	/**
+	 * Polls the given files every {@link #getPollInterval()} milliseconds,
+	 * until {@link #stop()} is called or the calling thread is interrupted.
+	 * 
+	 * @param files the log {@code files} to follow.
+	 */
+	public void follow(final File[] files) {
+		following = true;
+		size = 0;
+		LOGGER.info(String.format("Following log files '%s'", Arrays.toString(files)));
+		try {
+			while (following) {
+				poll(files);
+				Thread.sleep(pollInterval);
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		} finally {
+			for (TailedFile tailed : tailedFiles.values()) {
+				Closeables.closeQuietly(tailed);
+			}
+			tailedFiles.clear();
+			readOnce.clear();
+		}
+	}
+
+	/**
+	 * Follows the log files listed by {@code logFiles}, polling each one on
+	 * its own schedule with a pool of {@code threads}, until {@link #stop()}
+	 * is called or the calling thread is interrupted. The input dirs are
+	 * listed again every {@code rescanInterval} milliseconds: files that
+	 * appear are followed from their beginning, and files that disappear are
+	 * dropped.
+	 * 
+	 * A file is polled every {@link #getPollInterval()} milliseconds while it
+	 * grows; once idle, the interval doubles with each empty poll, up to a few
+	 * poll intervals.
+	 * 
+	 * @param logFiles the log files to follow.
+	 * @param threads the number of threads polling files.
+	 * @param rescanInterval the interval, in milliseconds, between listings.
+	 */
+	public void follow(final LogFiles logFiles, final int threads, final long rescanInterval) {
+		Preconditions.checkNotNull(logFiles, "'logFiles' argument cannot be null.");
+		Preconditions.checkArgument(threads > 0, "'threads' argument must be a positive number.");
+		Preconditions.checkArgument(rescanInterval > 0, "'rescanInterval' argument must be a positive number.");
+		following = true;
+		synchronized (this) {
+			size = 0;
+		}
+		final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(threads);
+		final Map<File, ScheduledFile> scheduled = new ConcurrentHashMap<File, ScheduledFile>();
+		LOGGER.info(String.format("Following log files in '%s' with %s threads", Arrays.toString(logFiles.getInputDirs()), threads));
+		try {
+			scheduler.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					rescan(logFiles, scheduler, scheduled);
+				}
+			}, 0, rescanInterval, TimeUnit.MILLISECONDS);
+			while (following) {
+				Thread.sleep(pollInterval);
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		} finally {
+			following = false;
+			scheduler.shutdownNow();
+			try {
+				scheduler.awaitTermination(pollInterval, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+			for (ScheduledFile file : scheduled.values()) {
+				file.cancel();
+			}
+			scheduled.clear();
+		}
+	}
+
+	/**
+	 * Starts following the files newly listed, and stops following those gone.
+	 */
+	private void rescan(final LogFiles logFiles, final ScheduledExecutorService scheduler, final Map<File, ScheduledFile> scheduled) {
+		File[] files;
+		try {
+			files = logFiles.list();
+		} catch (RuntimeException re) {
+			LOGGER.warn("Unable to list log files to follow", re);
+			return;
+		}
+		Set<File> listed = new HashSet<File>(Arrays.asList(files));
+		for (File f : files) {
+			if (!scheduled.containsKey(f)) {
+				ScheduledFile file = new ScheduledFile(f, scheduler);
+				scheduled.put(f, file);
+				file.schedule(0);
+			}
+		}
+		for (Iterator<Map.Entry<File, ScheduledFile>> i = scheduled.entrySet().iterator(); i.hasNext();) {
+			Map.Entry<File, ScheduledFile> entry = i.next();
+			if (!listed.contains(entry.getKey()) && !entry.getKey().exists()) {
+				LOGGER.info(String.format("Log file '%s' is gone; no longer following it", entry.getKey().getAbsolutePath()));
+				entry.getValue().cancel();
+				i.remove();
+			}
+		}
+	}
+
+	public void stop() {
+		following = false;
+	}
+
+	public boolean isFollowing() {
+		return following;
+	}
+
+	public long getPollInterval() {
+		return pollInterval;
+	}
+
+	/**
+	 * A log file polled on its own schedule, which backs off while the file
+	 * does not grow.
+	 */
+	private final class ScheduledFile implements Runnable {
+		private final File file;
+		private final ScheduledExecutorService scheduler;
+		private final TailedFile tailed;
+		private long delay;
+		private boolean cancelled;
+
+		private ScheduledFile(final File file, final ScheduledExecutorService scheduler) {
+			this.file = file;
+			this.scheduler = scheduler;
+			// compressed files don't grow, so they are read once
+			this.tailed = Compression.of(file) == Compression.NONE ? new TailedFile(file, charset, SCHEDULED_BUFFER_SIZE) : null;
+			this.delay = pollInterval;
+		}
+
+		public synchronized void run() {
+			if (cancelled || !following) {
+				return;
+			}
+			int lines = 0;
+			try {
+				lines = tailed != null ? filter(tailed, file.getAbsolutePath()) : read(file);
+			} catch (RuntimeException re) {
+				// a failed poll must not stop the file being followed
+				LOGGER.warn(String.format("Error following log file '%s'", file.getAbsolutePath()), re);
+			} finally {
+				synchronized (FollowingLogFilter.this) {
+					size += lines;
+				}
+				if (tailed != null) {
+					delay = lines > 0 ? pollInterval : Math.min(delay * 2, pollInterval * MAX_BACKOFF);
+					schedule(delay);
+				}
+			}
+		}
+
+		private void schedule(final long after) {
+			try {
+				scheduler.schedule(this, after, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException ree) {
+				// shutting down
+			}
+		}
+
+		/**
+		 * Stops polling the file, and closes it; waits for a poll under way.
+		 */
+		private synchronized void cancel() {
+			cancelled = true;
+			Closeables.closeQuietly(tailed);
+		}
+	}
+}
@@ -0,0 +1,220 @@
+package org.logparser.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Reads the uncompressed content of the gzip members of a gzip file, starting
+ * at any member; files written by e.g. {@code pigz --independent} or
+ * {@code bgzip} hold many members, one after the other.
+ * 
+ * Each member can be decompressed on its own, so reading can start at any
+ * member without reading what comes before it, and several parts of one file
+ * can be read at once. {@link #getMemberOffset()} tells which member the
+ * bytes last read came from; a single read never returns bytes of two
+ * members.
+ * 
+ * The file is read with positional reads only, so the {@link FileChannel} may
+ * be shared with other readers, and is never closed by this stream.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public final class GzipMembersInputStream extends InputStream {
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int FHCRC = 2;
+	private static final int FEXTRA = 4;
+	private static final int FNAME = 8;
+	private static final int FCOMMENT = 16;
+	private final FileChannel channel;
+	private final Inflater inflater;
+	private final CRC32 crc;
+	private final byte[] input;
+	// the offset, in the file, of input[0]
+	private long inputOffset;
+	private int inputPosition;
+	private int inputLength;
+	private boolean inMember;
+	private boolean finished;
+	private int members;
+	private long memberOffset;
+
+	/**
+	 * @param channel the gzip file.
+	 * @param begin the offset of a member start.
+	 */
+	public GzipMembersInputStream(final FileChannel channel, final long begin) {
+		Preconditions.checkArgument(begin >= 0, "'begin' argument cannot be negative.");
+		this.channel = Preconditions.checkNotNull(channel, "'channel' argument cannot be null.");
+		this.inflater = new Inflater(true);
+		this.crc = new CRC32();
+		this.input = new byte[BUFFER_SIZE];
+		this.inputOffset = begin;
+		this.memberOffset = begin;
+	}
+
+	/**
+	 * The offset, in the file, of the member the bytes last read came from.
+	 */
+	public long getMemberOffset() {
+		return memberOffset;
+	}
+
+	/**
+	 * The number of whole members read.
+	 */
+	public int getMembers() {
+		return members;
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		while (!finished) {
+			if (!inMember) {
+				if (!readHeader()) {
+					finished = true;
+					break;
+				}
+				inMember = true;
+			}
+			if (inflater.needsInput()) {
+				if (inputPosition == inputLength && !fill()) {
+					throw new EOFException(String.format("Unexpected end of gzip member at offset %s", inputOffset + inputPosition));
+				}
+				inflater.setInput(input, inputPosition, inputLength - inputPosition);
+			}
+			int n;
+			try {
+				n = inflater.inflate(b, off, len);
+			} catch (DataFormatException dfe) {
+				IOException ioe = new IOException(String.format("Corrupt gzip member before offset %s", inputOffset + inputLength));
+				ioe.initCause(dfe);
+				throw ioe;
+			}
+			inputPosition = inputLength - inflater.getRemaining();
+			if (n > 0) {
+				crc.update(b, off, n);
+				return n;
+			}
+			if (inflater.finished()) {
+				readTrailer();
+				inMember = false;
+				members++;
+			} else if (inflater.needsDictionary()) {
+				throw new IOException("Unsupported gzip member with a preset dictionary");
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public void close() {
+		inflater.end();
+	}
+
+	/**
+	 * Reads the header of the next member, if any.
+	 * 
+	 * @return {@code false} if there are no more members, i.e. at the end of
+	 *         the file, or at trailing bytes that are not a member.
+	 */
+	private boolean readHeader() throws IOException {
+		if (inputPosition == inputLength && !fill()) {
+			return false;
+		}
+		long offset = inputOffset + inputPosition;
+		if (readByte() != 0x1f || readByte() != 0x8b || readByte() != 8) {
+			if (members == 0) {
+				throw new IOException(String.format("No gzip member at offset %s", offset));
+			}
+			// trailing garbage, e.g. zero padding, is ignored as by gzip itself
+			return false;
+		}
+		int flags = readByte();
+		// MTIME, XFL and OS
+		skip(6);
+		if ((flags & FEXTRA) != 0) {
+			skip(readByte() | readByte() << 8);
+		}
+		if ((flags & FNAME) != 0) {
+			while (readByte() != 0) {
+				continue;
+			}
+		}
+		if ((flags & FCOMMENT) != 0) {
+			while (readByte() != 0) {
+				continue;
+			}
+		}
+		if ((flags & FHCRC) != 0) {
+			skip(2);
+		}
+		inflater.reset();
+		crc.reset();
+		memberOffset = offset;
+		return true;
+	}
+
+	private void readTrailer() throws IOException {
+		long expected = readInt();
+		// ISIZE, the uncompressed size modulo 2^32, is not checked
+		readInt();
+		if (expected != crc.getValue()) {
+			throw new IOException(String.format("CRC mismatch in gzip member ending at offset %s", inputOffset + inputPosition));
+		}
+	}
+
+	private long readInt() throws IOException {
+		return (readByte() | readByte() << 8 | readByte() << 16 | (long) readByte() << 24) & 0xffffffffL;
+	}
+
+	private void skip(final int bytes) throws IOException {
+		for (int i = 0; i < bytes; i++) {
+			readByte();
+		}
+	}
+
+	private int readByte() throws IOException {
+		if (inputPosition == inputLength && !fill()) {
+			throw new EOFException(String.format("Unexpected end of gzip member at offset %s", inputOffset + inputPosition));
+		}
+		return input[inputPosition++] & 0xff;
+	}
+
+	/**
+	 * Reads the bytes after those in the input buffer.
+	 * 
+	 * @return {@code false} at the end of the file.
+	 */
+	private boolean fill() throws IOException {
+		inputOffset += inputLength;
+		inputPosition = 0;
+		inputLength = 0;
+		ByteBuffer buffer = ByteBuffer.wrap(input);
+		int n;
+		while (buffer.hasRemaining() && (n = channel.read(buffer, inputOffset + buffer.position())) != -1) {
+			if (n == 0) {
+				break;
+			}
+		}
+		inputLength = buffer.position();
+		return inputLength > 0;
+	}
+}
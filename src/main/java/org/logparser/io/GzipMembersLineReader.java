@@ -0,0 +1,140 @@
+package org.logparser.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link ILineReader} over the lines of a gzip file whose members may cut
+ * lines anywhere, as {@code bgzip} does, which reads a range of members.
+ * 
+ * Each line is owned by the member holding the line separator before it; the
+ * first line of the file is owned by the first member. Reading a range
+ * returns exactly the lines owned by its members: the line cut by the start
+ * of the range is skipped, and the line cut by its end is read in full, from
+ * the member after the range. {@link #getOwner()} tells the owner of the last
+ * line read, which is what ranges are built of.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+@NotThreadSafe
+public final class GzipMembersLineReader implements ILineReader {
+	private static final int BUFFER_SIZE = 8 * 1024;
+	private final GzipMembersInputStream in;
+	private final long end;
+	private final Charset charset;
+	private final byte[] buffer;
+	private final ByteArrayOutputStream line;
+	private int bufferPosition;
+	private int bufferLength;
+	// the member the bytes in the buffer came from
+	private long bufferMember;
+	// the member holding the last line separator read
+	private long separatorMember;
+	private long owner;
+	private boolean skipFirstLine;
+	private boolean done;
+
+	/**
+	 * @param in the gzip members, starting at the first member of the range.
+	 * @param begin the offset of the first member of the range.
+	 * @param end the offset just past the last member of the range.
+	 * @param charset the {@link Charset} of the lines.
+	 */
+	public GzipMembersLineReader(final GzipMembersInputStream in, final long begin, final long end, final Charset charset) {
+		Preconditions.checkArgument(begin >= 0 && begin <= end, "'begin' argument must be within [0, end].");
+		this.in = Preconditions.checkNotNull(in, "'in' argument cannot be null.");
+		this.end = end;
+		this.charset = Preconditions.checkNotNull(charset, "'charset' argument cannot be null.");
+		this.buffer = new byte[BUFFER_SIZE];
+		this.line = new ByteArrayOutputStream();
+		this.bufferMember = begin;
+		this.separatorMember = begin;
+		this.owner = begin;
+		// the first line is owned by the member before, unless at the start of the file
+		this.skipFirstLine = begin > 0;
+	}
+
+	/**
+	 * The offset of the member owning the last line read.
+	 */
+	public long getOwner() {
+		return owner;
+	}
+
+	public String readLine() throws IOException {
+		if (done) {
+			return null;
+		}
+		if (skipFirstLine) {
+			skipFirstLine = false;
+			if (readToSeparator() < 0) {
+				done = true;
+				return null;
+			}
+			line.reset();
+		}
+		long lineOwner = separatorMember;
+		if (lineOwner >= end) {
+			done = true;
+			return null;
+		}
+		int read = readToSeparator();
+		if (read < 0 && line.size() == 0) {
+			done = true;
+			return null;
+		}
+		owner = lineOwner;
+		byte[] bytes = line.toByteArray();
+		line.reset();
+		int length = bytes.length;
+		if (length > 0 && bytes[length - 1] == '\r') {
+			length--;
+		}
+		return charset.decode(ByteBuffer.wrap(bytes, 0, length)).toString();
+	}
+
+	public CharSequence readSequence() throws IOException {
+		return readLine();
+	}
+
+	/**
+	 * Closes the gzip members read; their file is left open.
+	 */
+	public void close() {
+		in.close();
+	}
+
+	/**
+	 * Reads bytes into {@code line} up to the next line separator, which is
+	 * left out.
+	 * 
+	 * @return 0 when a separator is found, or -1 at the end of the file.
+	 */
+	private int readToSeparator() throws IOException {
+		while (true) {
+			for (int i = bufferPosition; i < bufferLength; i++) {
+				if (buffer[i] == '\n') {
+					line.write(buffer, bufferPosition, i - bufferPosition);
+					bufferPosition = i + 1;
+					separatorMember = bufferMember;
+					return 0;
+				}
+			}
+			line.write(buffer, bufferPosition, bufferLength - bufferPosition);
+			bufferPosition = 0;
+			bufferLength = in.read(buffer, 0, buffer.length);
+			if (bufferLength < 0) {
+				bufferLength = 0;
+				return -1;
+			}
+			bufferMember = in.getMemberOffset();
+		}
+	}
+}
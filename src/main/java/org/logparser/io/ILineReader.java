@@ -0,0 +1,31 @@
+package org.logparser.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Specifies the protocol required of line-oriented log readers.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public interface ILineReader extends Closeable {
+
+	/**
+	 * Reads the next line of text, excluding any line termination characters.
+	 * 
+	 * @return the next line, or null if the end of the input has been reached.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public String readLine() throws IOException;
+
+	/**
+	 * Reads the next line of text, like {@link #readLine()}, but may return a
+	 * view over the reader's own buffer rather than a new {@link String}; such
+	 * a view is only valid until the next read.
+	 * 
+	 * @return the next line, or null if the end of the input has been reached.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public CharSequence readSequence() throws IOException;
+}
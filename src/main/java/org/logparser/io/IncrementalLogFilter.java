@@ -0,0 +1,372 @@
+package org.logparser.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.logparser.ILogEntryFilter;
+import org.logparser.ILogFilter;
+import org.logparser.IObserver;
+import org.logparser.io.CheckpointStore.Checkpoint;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+
+/**
+ * Implementation of {@link ILogFilter} that re-reads log files incrementally:
+ * each run carries on from the offset where the previous run stopped, and
+ * publishes to all {@link IObserver}s attached both the entries filtered in
+ * previous runs and those filtered from the new lines.
+ *
+ * The offset reached in each file is kept as a {@link Checkpoint} in a
+ * {@link CheckpointStore}, and the entries filtered from each file are
+ * appended to its journal, so repeated runs over growing log files cost time
+ * proportional to the new data, plus replaying the entries already filtered.
+ * A file that was truncated or replaced since its checkpoint was taken, or
+ * whose checkpoint was taken with other filter settings, as told by the
+ * {@link Builder#filterDigest(String)}, is read again from the start.
+ *
+ * An unterminated last line may still be being written, and is left for a
+ * later run; it is read once a run finds the file neither grown nor modified
+ * since the run before. Compressed log files are read in full on every run.
+ * The entries must be {@link java.io.Serializable}; they are journaled in
+ * batches, so that a run never holds all the entries of a file in memory.
+ *
+ * @author jorge.decastro
+ *
+ * @param <E> the type of elements held by this {@link ILogFilter}.
+ */
+public final class IncrementalLogFilter<E> extends AbstractLogFilter<E> {
+	private static final Logger LOGGER = Logger.getLogger(IncrementalLogFilter.class.getName());
+	public static final int DEFAULT_JOURNAL_BATCH_SIZE = 1024;
+	private final CheckpointStore checkpointStore;
+	private final int windowSize;
+	private final Charset charset;
+	private final String filterDigest;
+	private final int journalBatchSize;
+
+	private IncrementalLogFilter(final Builder<E> builder) {
+		super(builder.messageFilters);
+		checkpointStore = new CheckpointStore(builder.checkpointDir);
+		windowSize = builder.windowSize;
+		charset = builder.charset;
+		filterDigest = builder.filterDigest;
+		journalBatchSize = builder.journalBatchSize;
+	}
+
+	@Override
+	protected ILineReader open(final File file) throws IOException {
+		return lineReader(new InputStreamReader(Compression.of(file).open(file), charset));
+	}
+
+	@Override
+	protected int read(final File file) {
+		if (Compression.of(file) != Compression.NONE) {
+			return super.read(file);
+		}
+		int lines = 0;
+		FileChannel channel = null;
+		try {
+			channel = new FileInputStream(file).getChannel();
+			File journal = checkpointStore.journalOf(file);
+			Checkpoint checkpoint = checkpointStore.get(file);
+			boolean resumed = checkpoint != null && checkpoint.getDigest().equals(filterDigest) && checkpoint.isValidFor(channel);
+			long begin = 0;
+			if (resumed) {
+				begin = checkpoint.getOffset();
+				// segments past the checkpoint were left by a run that failed to
+				// save it, and would otherwise be replayed once the offset passes them
+				truncate(journal, replay(journal, begin));
+			} else {
+				if (checkpoint != null && !checkpoint.getDigest().equals(filterDigest)) {
+					LOGGER.info(String.format("%s - filter settings changed since the last run; reading from the start", file.getName()));
+				}
+				checkpointStore.remove(file);
+			}
+			long end = lastLineEnd(channel, begin);
+			if (resumed && end < channel.size() && checkpoint.isUnchanged(file, channel)) {
+				// the file stopped growing, so its unterminated last line is complete
+				end = channel.size();
+			}
+			if (end > begin) {
+				JournalBatch published = new JournalBatch(journal, end);
+				// the reader owns the channel from here on
+				ILineReader in = new MappedLineReader(channel, begin, end, windowSize, charset);
+				try {
+					lines = filter(in, file.getAbsolutePath(), published);
+					published.flush();
+					checkpointStore.put(file, Checkpoint.of(file, channel, end, filterDigest));
+				} finally {
+					Closeables.closeQuietly(in);
+				}
+			}
+			LOGGER.info(String.format("%s - read from offset %s to %s", file.getName(), begin, end));
+		} catch (IOException ioe) {
+			LOGGER.warn(String.format("IO error reading file '%s'", file.getAbsolutePath()), ioe);
+		} finally {
+			Closeables.closeQuietly(channel);
+		}
+		return lines;
+	}
+
+	public CheckpointStore getCheckpointStore() {
+		return checkpointStore;
+	}
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	public String getFilterDigest() {
+		return filterDigest;
+	}
+
+	public int getJournalBatchSize() {
+		return journalBatchSize;
+	}
+
+	/**
+	 * Publishes the entries journaled up to the given {@code offset}.
+	 *
+	 * The journal is a sequence of segments, a batch of entries each, holding
+	 * the offset reached by the run that filtered them. Segments past
+	 * the {@code offset} were written by a run that failed to save its
+	 * {@link Checkpoint}, and are ignored, as is a segment cut short; those
+	 * lines will be read again.
+	 *
+	 * @return the length of the journal up to the end of the last segment
+	 *         replayed.
+	 */
+	@SuppressWarnings("unchecked")
+	private long replay(final File journal, final long offset) throws IOException {
+		if (!journal.exists()) {
+			return 0;
+		}
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)));
+		int replayed = 0;
+		long length = 0;
+		try {
+			while (true) {
+				long segmentEnd;
+				byte[] segment;
+				try {
+					segmentEnd = in.readLong();
+					segment = new byte[in.readInt()];
+					in.readFully(segment);
+				} catch (EOFException eofe) {
+					break;
+				}
+				if (segmentEnd > offset) {
+					break;
+				}
+				List<E> entries = (List<E>) new ObjectInputStream(new ByteArrayInputStream(segment)).readObject();
+				for (E entry : entries) {
+					notifyObservers(entry);
+				}
+				replayed += entries.size();
+				// the end offset and the length of the segment, then the segment
+				length += 8 + 4 + segment.length;
+			}
+		} catch (ClassNotFoundException cnfe) {
+			throw new IOException(String.format("Unable to replay journal '%s': %s", journal.getAbsolutePath(), cnfe.getMessage()));
+		} finally {
+			Closeables.closeQuietly(in);
+		}
+		LOGGER.info(String.format("%s - replayed %s entries", journal.getName(), replayed));
+		return length;
+	}
+
+	/**
+	 * Cuts the given {@code journal} down to {@code length} bytes, if longer.
+	 */
+	private static void truncate(final File journal, final long length) throws IOException {
+		if (!journal.exists() || journal.length() <= length) {
+			return;
+		}
+		LOGGER.warn(String.format("%s - dropping %s bytes journaled past the checkpoint", journal.getName(), journal.length() - length));
+		RandomAccessFile file = new RandomAccessFile(journal, "rw");
+		try {
+			file.setLength(length);
+		} finally {
+			file.close();
+		}
+	}
+
+	private void append(final File journal, final long end, final List<E> entries) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream serializer = new ObjectOutputStream(bytes);
+		serializer.writeObject(entries);
+		serializer.close();
+		File dir = journal.getParentFile();
+		if (!dir.exists() && !dir.mkdirs()) {
+			throw new IOException(String.format("Unable to create checkpoint directory '%s'", dir.getAbsolutePath()));
+		}
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journal, true)));
+		try {
+			out.writeLong(end);
+			out.writeInt(bytes.size());
+			bytes.writeTo(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * @return the offset just past the last line feed at or after
+	 *         {@code begin}, or {@code begin} if there is none.
+	 */
+	static long lastLineEnd(final FileChannel channel, final long begin) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(Checkpoint.BLOCK_SIZE);
+		long end = channel.size();
+		while (end > begin) {
+			long from = Math.max(begin, end - buffer.capacity());
+			buffer.clear();
+			buffer.limit((int) (end - from));
+			while (buffer.hasRemaining() && channel.read(buffer, from + buffer.position()) >= 0) {
+				// keep reading until the block is full
+			}
+			for (int i = buffer.position() - 1; i >= 0; i--) {
+				if (buffer.get(i) == '\n') {
+					return from + i + 1;
+				}
+			}
+			end = from;
+		}
+		return begin;
+	}
+
+	/**
+	 * Collects the entries filtered from a file, and appends them to its
+	 * journal each time a batch is full. Every segment appended in a run holds
+	 * the offset that the run reads up to, so that none is replayed unless the
+	 * run saves its {@link Checkpoint}.
+	 */
+	private final class JournalBatch extends ArrayList<E> {
+		private static final long serialVersionUID = 1L;
+		private final File journal;
+		private final long end;
+		private IOException error;
+
+		private JournalBatch(final File journal, final long end) {
+			super(journalBatchSize);
+			this.journal = journal;
+			this.end = end;
+		}
+
+		@Override
+		public boolean add(final E entry) {
+			super.add(entry);
+			if (size() >= journalBatchSize) {
+				try {
+					flush();
+				} catch (IOException ioe) {
+					// reported by the last flush; the entries are dropped meanwhile
+					clear();
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Appends the entries held, if any, to the journal.
+		 *
+		 * @throws IOException if this, or an earlier, append failed.
+		 */
+		private void flush() throws IOException {
+			if (error != null) {
+				throw error;
+			}
+			if (!isEmpty()) {
+				try {
+					append(journal, end, new ArrayList<E>(this));
+				} catch (IOException ioe) {
+					error = ioe;
+					throw ioe;
+				}
+				clear();
+			}
+		}
+	}
+
+	public static class Builder<E> {
+		// required parameters
+		private final File checkpointDir;
+		private final List<ILogEntryFilter<E>> messageFilters;
+		// optional parameters
+		private int windowSize = MappedLineReader.DEFAULT_WINDOW_SIZE;
+		private Charset charset = Charset.defaultCharset();
+		private String filterDigest = "";
+		private int journalBatchSize = DEFAULT_JOURNAL_BATCH_SIZE;
+
+		@SuppressWarnings("unchecked")
+		public Builder(final File checkpointDir, final ILogEntryFilter<E>... messageFilter) {
+			this(checkpointDir, Arrays.asList(messageFilter));
+		}
+
+		public Builder(final File checkpointDir, final List<ILogEntryFilter<E>> messageFilters) {
+			this.checkpointDir = Preconditions.checkNotNull(checkpointDir, "'checkpointDir' argument cannot be null.");
+			this.messageFilters = Preconditions.checkNotNull(messageFilters, "'messageFilters' argument cannot be null.");
+		}
+
+		public Builder<E> windowSize(final int windowSize) {
+			Preconditions.checkArgument(windowSize > 0, "'windowSize' argument must be a positive number.");
+			this.windowSize = windowSize;
+			return this;
+		}
+
+		public Builder<E> charset(final Charset charset) {
+			this.charset = Preconditions.checkNotNull(charset, "'charset' argument cannot be null.");
+			return this;
+		}
+
+		/**
+		 * The digest of the settings that decide which entries are filtered,
+		 * e.g. {@link org.logparser.provider.Config#getFilterDigest()}; a
+		 * checkpoint taken under another digest is discarded, along with its
+		 * journal.
+		 */
+		public Builder<E> filterDigest(final String filterDigest) {
+			Preconditions.checkNotNull(filterDigest, "'filterDigest' argument cannot be null.");
+			Preconditions.checkArgument(filterDigest.indexOf(',') < 0, "'filterDigest' argument cannot contain a comma.");
+			this.filterDigest = filterDigest;
+			return this;
+		}
+
+		/**
+		 * The number of entries journaled at a time, and thus held in memory
+		 * while reading a file.
+		 */
+		public Builder<E> journalBatchSize(final int journalBatchSize) {
+			Preconditions.checkArgument(journalBatchSize > 0, "'journalBatchSize' argument must be a positive number.");
+			this.journalBatchSize = journalBatchSize;
+			return this;
+		}
+
+		public IncrementalLogFilter<E> build() {
+			return new IncrementalLogFilter<E>(this);
+		}
+	}
+}
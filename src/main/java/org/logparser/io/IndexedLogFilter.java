@@ -0,0 +1,396 @@
+package org.logparser.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.logparser.ILogEntryFilter;
+import org.logparser.ILogFilter;
+import org.logparser.IObserver;
+import org.logparser.ITimestampExtractor;
+import org.logparser.time.ITimeInterval;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+
+/**
+ * Implementation of {@link ILogFilter} that keeps a {@link TimeIndex} of each
+ * log file, and reads only the blocks of the file that may hold entries within
+ * the {@link ITimeInterval}s given; filtered entries are published as events
+ * to all {@link IObserver}s attached.
+ * 
+ * The first read of a file reads it in full, and indexes it on the way; later
+ * reads consult the index, and index only what was appended since. Unlike a
+ * binary search, the index does not depend on the file being ordered by time.
+ * 
+ * Gzip archives are indexed by member, since each member can be decompressed
+ * on its own: blocks are ranges of members, and later reads decompress only
+ * the members that may hold entries within the intervals, several ranges at
+ * once if {@link Builder#workers(int)} is set. An archive written as a single
+ * member, as by plain {@code gzip}, is thus still read in full;
+ * {@code pigz --independent} and {@code bgzip} write many. Archives are not
+ * expected to grow, so one that changed is indexed anew. Zip archives are
+ * read in full, and never indexed.
+ * 
+ * @author jorge.decastro
+ * 
+ * @param <E> the type of elements held by this {@link ILogFilter}.
+ */
+public final class IndexedLogFilter<E> extends AbstractLogFilter<E> {
+	private static final Logger LOGGER = Logger.getLogger(IndexedLogFilter.class.getName());
+	public static final String INDEX_EXTENSION = ".tidx";
+	private final ITimestampExtractor timestampExtractor;
+	private final ITimeInterval[] timeIntervals;
+	private final File indexDir;
+	private final int blockSize;
+	private final int windowSize;
+	private final int workers;
+	private final Charset charset;
+
+	private IndexedLogFilter(final Builder<E> builder) {
+		super(builder.messageFilters);
+		timestampExtractor = builder.timestampExtractor;
+		timeIntervals = builder.timeIntervals;
+		indexDir = builder.indexDir;
+		blockSize = builder.blockSize;
+		windowSize = builder.windowSize;
+		workers = builder.workers;
+		charset = builder.charset;
+	}
+
+	@Override
+	protected ILineReader open(final File file) throws IOException {
+		return lineReader(new InputStreamReader(Compression.of(file).open(file), charset));
+	}
+
+	@Override
+	protected int read(final File file) {
+		Compression compression = Compression.of(file);
+		if (compression == Compression.GZIP) {
+			return readGzip(file);
+		}
+		if (compression != Compression.NONE) {
+			return super.read(file);
+		}
+		int lines = 0;
+		FileChannel channel = null;
+		try {
+			channel = new FileInputStream(file).getChannel();
+			File indexFile = indexOf(file);
+			TimeIndex index = load(indexFile, channel);
+			// readers are not closed, since closing would close the channel too
+			List<ByteRange> ranges = index.overlapping(timeIntervals);
+			for (ByteRange range : ranges) {
+				lines += filter(new MappedLineReader(channel, range.getBegin(), range.getEnd(), windowSize, charset), file.getAbsolutePath());
+			}
+			long indexed = index.getEnd();
+			long end = IncrementalLogFilter.lastLineEnd(channel, indexed);
+			if (end > indexed) {
+				lines += index(new MappedLineReader(channel, indexed, end, windowSize, charset), index, file.getAbsolutePath());
+				index.finish(channel, end);
+				index.save(indexFile);
+			}
+			// an unterminated last line is read, but left out of the index until complete
+			long size = channel.size();
+			if (size > end) {
+				lines += filter(new MappedLineReader(channel, end, size, windowSize, charset), file.getAbsolutePath());
+			}
+			LOGGER.info(String.format("%s - read %s indexed ranges up to offset %s, and %s bytes after it", file.getName(), ranges.size(), indexed, size - indexed));
+		} catch (IOException ioe) {
+			LOGGER.warn(String.format("IO error reading file '%s'", file.getAbsolutePath()), ioe);
+		} finally {
+			Closeables.closeQuietly(channel);
+		}
+		return lines;
+	}
+
+	/**
+	 * Reads the members of a gzip archive that may hold entries within the
+	 * intervals, or reads and indexes the whole archive if not indexed yet.
+	 */
+	private int readGzip(final File file) {
+		int lines = 0;
+		FileChannel channel = null;
+		try {
+			channel = new FileInputStream(file).getChannel();
+			File indexFile = indexOf(file);
+			TimeIndex index = load(indexFile, channel);
+			long size = channel.size();
+			if (index.getEnd() == size) {
+				List<ByteRange> ranges = index.overlapping(timeIntervals);
+				lines += readMembers(channel, workers > 1 ? split(index, ranges) : ranges, file.getAbsolutePath());
+				LOGGER.info(String.format("%s - read %s indexed ranges of gzip members", file.getName(), ranges.size()));
+			} else {
+				index = new TimeIndex(blockSize);
+				GzipMembersLineReader in = new GzipMembersLineReader(new GzipMembersInputStream(channel, 0), 0, size, charset);
+				try {
+					lines += index(in, index, file.getAbsolutePath());
+				} finally {
+					in.close();
+				}
+				index.finish(channel, size);
+				index.save(indexFile);
+				LOGGER.info(String.format("%s - indexed %s blocks of gzip members", file.getName(), index.getBlocks().size()));
+			}
+		} catch (IOException ioe) {
+			LOGGER.warn(String.format("IO error reading file '%s'", file.getAbsolutePath()), ioe);
+		} finally {
+			Closeables.closeQuietly(channel);
+		}
+		return lines;
+	}
+
+	/**
+	 * Reads the given ranges of gzip members, with up to {@link #getWorkers()}
+	 * threads.
+	 */
+	private int readMembers(final FileChannel channel, final List<ByteRange> ranges, final String name) throws IOException {
+		if (workers == 1 || ranges.size() < 2) {
+			int lines = 0;
+			for (ByteRange range : ranges) {
+				lines += readMembers(channel, range, name);
+			}
+			return lines;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, ranges.size()));
+		try {
+			List<Future<Integer>> results = new ArrayList<Future<Integer>>(ranges.size());
+			for (final ByteRange range : ranges) {
+				results.add(executor.submit(new Callable<Integer>() {
+					public Integer call() throws IOException {
+						return readMembers(channel, range, name);
+					}
+				}));
+			}
+			int lines = 0;
+			for (Future<Integer> result : results) {
+				lines += result.get();
+			}
+			return lines;
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IOException(String.format("Interrupted reading '%s'", name));
+		} catch (ExecutionException ee) {
+			if (ee.getCause() instanceof IOException) {
+				throw (IOException) ee.getCause();
+			}
+			throw new IllegalStateException(ee.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Splits the given ranges at block boundaries, into about four pieces per
+	 * worker, so that adjacent blocks can be decompressed at once too.
+	 */
+	private List<ByteRange> split(final TimeIndex index, final List<ByteRange> ranges) {
+		long total = 0;
+		for (ByteRange range : ranges) {
+			total += range.length();
+		}
+		long piece = Math.max(1, total / (workers * 4));
+		List<ByteRange> pieces = new ArrayList<ByteRange>();
+		for (ByteRange range : ranges) {
+			long begin = range.getBegin();
+			for (TimeIndex.Block block : index.getBlocks()) {
+				if (block.getBegin() > begin && block.getBegin() < range.getEnd() && block.getBegin() - begin >= piece) {
+					pieces.add(new ByteRange(begin, block.getBegin()));
+					begin = block.getBegin();
+				}
+			}
+			pieces.add(new ByteRange(begin, range.getEnd()));
+		}
+		return pieces;
+	}
+
+	private int readMembers(final FileChannel channel, final ByteRange range, final String name) throws IOException {
+		GzipMembersLineReader in = new GzipMembersLineReader(new GzipMembersInputStream(channel, range.getBegin()), range.getBegin(), range.getEnd(), charset);
+		try {
+			return filter(in, name);
+		} finally {
+			in.close();
+		}
+	}
+
+	File indexOf(final File file) {
+		File dir = indexDir != null ? indexDir : file.getAbsoluteFile().getParentFile();
+		return new File(dir, file.getName() + INDEX_EXTENSION);
+	}
+
+	private TimeIndex load(final File indexFile, final FileChannel channel) {
+		try {
+			TimeIndex index = TimeIndex.load(indexFile);
+			if (index != null && index.getBlockSize() == blockSize && index.isValidFor(channel)) {
+				return index;
+			}
+		} catch (IOException ioe) {
+			LOGGER.warn(String.format("Ignoring unreadable time index '%s'", indexFile.getAbsolutePath()), ioe);
+		}
+		return new TimeIndex(blockSize);
+	}
+
+	/**
+	 * Reads all lines available from the given {@link MappedLineReader}, adds
+	 * their timestamps to the {@code index}, and publishes the filtered entries.
+	 * 
+	 * @return {@code int} containing the number of lines read.
+	 */
+	private int index(final MappedLineReader in, final TimeIndex index, final String name) throws IOException {
+		// continuation lines are indexed with the record after them, and skipped on reading
+		ILineReader records = records(in);
+		int lines = 0;
+		long offset = in.position();
+		CharSequence str;
+		E entry;
+		while ((str = records.readSequence()) != null) {
+			lines++;
+			index.add(offset, timestampExtractor.extractTimestamp(str));
+			entry = applyFilters(str, logEntryFilters);
+			if (entry != null) {
+				notifyObservers(entry);
+			}
+			offset = in.position();
+		}
+		countSkippedLines(records, name);
+		return lines;
+	}
+
+	/**
+	 * Reads all lines of the given {@link GzipMembersLineReader}, adds their
+	 * timestamps to the {@code index} at the offset of the member owning them,
+	 * and publishes the filtered entries.
+	 * 
+	 * @return {@code int} containing the number of lines read.
+	 */
+	private int index(final GzipMembersLineReader in, final TimeIndex index, final String name) throws IOException {
+		ILineReader records = records(in);
+		int lines = 0;
+		CharSequence str;
+		E entry;
+		while ((str = records.readSequence()) != null) {
+			lines++;
+			index.add(in.getOwner(), timestampExtractor.extractTimestamp(str));
+			entry = applyFilters(str, logEntryFilters);
+			if (entry != null) {
+				notifyObservers(entry);
+			}
+		}
+		countSkippedLines(records, name);
+		return lines;
+	}
+
+	public ITimeInterval[] getTimeIntervals() {
+		return timeIntervals.clone();
+	}
+
+	public File getIndexDir() {
+		return indexDir;
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	public int getWorkers() {
+		return workers;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	public static class Builder<E> {
+		// required parameters
+		private final ITimestampExtractor timestampExtractor;
+		private final List<ILogEntryFilter<E>> messageFilters;
+		// optional parameters
+		private ITimeInterval[] timeIntervals = new ITimeInterval[0];
+		private File indexDir;
+		private int blockSize = TimeIndex.DEFAULT_BLOCK_SIZE;
+		private int windowSize = MappedLineReader.DEFAULT_WINDOW_SIZE;
+		private int workers = 1;
+		private Charset charset = Charset.defaultCharset();
+
+		@SuppressWarnings("unchecked")
+		public Builder(final ITimestampExtractor timestampExtractor, final ILogEntryFilter<E>... messageFilter) {
+			this(timestampExtractor, Arrays.asList(messageFilter));
+		}
+
+		public Builder(final ITimestampExtractor timestampExtractor, final List<ILogEntryFilter<E>> messageFilters) {
+			this.timestampExtractor = Preconditions.checkNotNull(timestampExtractor, "'timestampExtractor' argument cannot be null.");
+			this.messageFilters = Preconditions.checkNotNull(messageFilters, "'messageFilters' argument cannot be null.");
+		}
+
+		/**
+		 * The intervals that entries must lie within; {@code null} elements are
+		 * ignored.
+		 */
+		public Builder<E> timeIntervals(final ITimeInterval... timeIntervals) {
+			Preconditions.checkNotNull(timeIntervals, "'timeIntervals' argument cannot be null.");
+			List<ITimeInterval> intervals = new ArrayList<ITimeInterval>();
+			for (ITimeInterval interval : timeIntervals) {
+				if (interval != null) {
+					intervals.add(interval);
+				}
+			}
+			this.timeIntervals = intervals.toArray(new ITimeInterval[intervals.size()]);
+			return this;
+		}
+
+		/**
+		 * The directory to keep indexes in; by default, each index is kept next
+		 * to its log file.
+		 */
+		public Builder<E> indexDir(final File indexDir) {
+			this.indexDir = Preconditions.checkNotNull(indexDir, "'indexDir' argument cannot be null.");
+			return this;
+		}
+
+		public Builder<E> blockSize(final int blockSize) {
+			Preconditions.checkArgument(blockSize > 0, "'blockSize' argument must be a positive number.");
+			this.blockSize = blockSize;
+			return this;
+		}
+
+		public Builder<E> windowSize(final int windowSize) {
+			Preconditions.checkArgument(windowSize > 0, "'windowSize' argument must be a positive number.");
+			this.windowSize = windowSize;
+			return this;
+		}
+
+		/**
+		 * The number of threads decompressing the members of one gzip archive.
+		 */
+		public Builder<E> workers(final int workers) {
+			Preconditions.checkArgument(workers > 0, "'workers' argument must be a positive number.");
+			this.workers = workers;
+			return this;
+		}
+
+		public Builder<E> charset(final Charset charset) {
+			this.charset = Preconditions.checkNotNull(charset, "'charset' argument cannot be null.");
+			return this;
+		}
+
+		public IndexedLogFilter<E> build() {
+			return new IndexedLogFilter<E>(this);
+		}
+	}
+}
@@ -5,16 +5,25 @@ import static org.logparser.Constants.FILE_SEPARATOR;
 
 import java.io.File;
 import java.text.DateFormat;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import net.jcip.annotations.Immutable;
 
 import org.apache.log4j.Logger;
+import org.logparser.time.ITimeInterval;
 
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Preconditions;
@@ -24,6 +33,14 @@ import com.google.common.base.Strings;
  * Represents one or more log files on the file system, to be collected for
  * processing.
  * 
+ * If file names carry the date of their content, e.g.
+ * 'EXAMPLE_log_2008-12-15.log', and a date interval is given, files dated
+ * outside it are left out before any is opened: the date is parsed from a
+ * capturing group of the filename pattern, and covers one unit of the finest
+ * field of its format, e.g. a whole day for 'yyyy-MM-dd'. Files whose name
+ * yields no date are kept.
+ * 
+ * Input dirs are listed concurrently.
  * @author jorge.decastro
  * 
  */
@@ -33,17 +50,29 @@ public final class LogFiles {
 	public static final String DEFAULT_TIMESTAMP_PATTERN = "yyyyMMdd_HHmmss";
 	public static final String DEFAULT_FILENAME_PATTERN = ".*.log$";
 	public static final String DEFAULT_INPUT_DIR = ".";
+	public static final int DEFAULT_FILENAME_DATE_GROUP = 1;
+	private static final int MAX_LISTING_THREADS = 8;
 
 	private final Pattern filenamePattern;
 	private final String[] inputDirs;
 	private final String outputDir;
+	private final String baseOutputDir;
 	private final IPreProcessor preProcessor;
+	private final boolean deduplicate;
+	private final int filenameDateGroup;
+	private final String filenameDateFormat;
+	private final ITimeInterval dateInterval;
 
 	private LogFiles(final Builder builder) {
 		filenamePattern = builder.filenamePattern;
 		inputDirs = builder.inputDirs;
 		outputDir = builder.outputDir;
+		baseOutputDir = builder.baseOutputDir;
 		preProcessor = builder.preProcessor;
+		deduplicate = builder.deduplicate;
+		filenameDateGroup = builder.filenameDateGroup;
+		filenameDateFormat = builder.filenameDateFormat;
+		dateInterval = builder.dateInterval;
 	}
 
 	public Pattern getFilenamePattern() {
@@ -58,36 +87,184 @@ public final class LogFiles {
 		return outputDir;
 	}
 
+	/**
+	 * The output dir configured, without the folder of this run that
+	 * {@link #getOutputDir()} adds to it; state kept from one run to the next,
+	 * e.g. checkpoints, belongs here.
+	 */
+	public String getBaseOutputDir() {
+		return baseOutputDir;
+	}
+
 	public IPreProcessor getPreProcessor() {
 		return preProcessor;
 	}
 
+	/**
+	 * Whether log files with the same content as another, or whose content is a
+	 * prefix of another, are dropped from the list; see
+	 * {@link DeduplicatingPreProcessor}.
+	 */
+	public boolean isDeduplicate() {
+		return deduplicate;
+	}
+
+	/**
+	 * The capturing group of the filename pattern holding the date of a file.
+	 */
+	public int getFilenameDateGroup() {
+		return filenameDateGroup;
+	}
+
+	/**
+	 * The {@link SimpleDateFormat} pattern of the date in file names, if any.
+	 */
+	public String getFilenameDateFormat() {
+		return filenameDateFormat;
+	}
+
+	/**
+	 * The interval that files must be dated within, if any.
+	 */
+	public ITimeInterval getDateInterval() {
+		return dateInterval;
+	}
+
 	public File[] list() {
 		return list(inputDirs, filenamePattern);
 	}
 
 	private File[] list(final String[] inputDirs, final Pattern filenamePattern) {
 		List<File> listOfFiles = new ArrayList<File>();
-		for (String path : inputDirs) {
-			File f = new File(path.trim());
-			if (!f.exists()) {
-				throw new IllegalArgumentException(String.format("Unable to find path to log file '%s'", path));
-			}
-			File[] contents = f.listFiles();
-			for (File file : contents) {
-				if (filenamePattern.matcher(file.getName()).matches()) {
-					LOGGER.info(String.format("Log file to parse '%s'", file.getAbsolutePath()));
-					listOfFiles.add(file);
-				}
-			}
+		for (List<File> files : listDirs(inputDirs, filenamePattern)) {
+			listOfFiles.addAll(files);
 		}
 		LOGGER.info(String.format("Extracted log files matching pattern '%s' from input dir(s) '%s'", filenamePattern.pattern(), Arrays.toString(inputDirs)));
+		if (deduplicate) {
+			int found = listOfFiles.size();
+			listOfFiles = new DeduplicatingPreProcessor().apply(listOfFiles);
+			LOGGER.info(String.format("Dropped %s duplicate log file(s)", found - listOfFiles.size()));
+		}
 		listOfFiles = preProcessor.apply(listOfFiles);
 		File[] files = listOfFiles.toArray(new File[0]);
 		LOGGER.info(String.format("Pre-processing applied; returning log files '%s'", Arrays.toString(files)));
 		return files;
 	}
 
+	/**
+	 * Lists the input dirs concurrently.
+	 * 
+	 * @return the matching files of each input dir, in the order of the dirs.
+	 */
+	private List<List<File>> listDirs(final String[] inputDirs, final Pattern filenamePattern) {
+		List<List<File>> listed = new ArrayList<List<File>>(inputDirs.length);
+		if (inputDirs.length < 2) {
+			for (String path : inputDirs) {
+				listed.add(listDir(path, filenamePattern));
+			}
+			return listed;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(inputDirs.length, MAX_LISTING_THREADS));
+		try {
+			List<Future<List<File>>> results = new ArrayList<Future<List<File>>>(inputDirs.length);
+			for (final String path : inputDirs) {
+				results.add(executor.submit(new Callable<List<File>>() {
+					public List<File> call() {
+						return listDir(path, filenamePattern);
+					}
+				}));
+			}
+			for (Future<List<File>> result : results) {
+				listed.add(result.get());
+			}
+			return listed;
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted listing log files", ie);
+		} catch (ExecutionException ee) {
+			if (ee.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ee.getCause();
+			}
+			throw new IllegalStateException(ee.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private List<File> listDir(final String path, final Pattern filenamePattern) {
+		File f = new File(path.trim());
+		if (!f.exists()) {
+			throw new IllegalArgumentException(String.format("Unable to find path to log file '%s'", path));
+		}
+		// formats are not thread-safe, so each listing gets its own
+		DateFormat dateFormat = dateInterval != null && filenameDateFormat != null ? new SimpleDateFormat(filenameDateFormat) : null;
+		List<File> listOfFiles = new ArrayList<File>();
+		File[] contents = f.listFiles();
+		for (File file : contents) {
+			Matcher matcher = filenamePattern.matcher(file.getName());
+			if (matcher.matches()) {
+				if (dateFormat != null && !isDatedWithin(matcher, dateFormat)) {
+					LOGGER.info(String.format("Log file '%s' is dated outside %s; skipping it", file.getAbsolutePath(), dateInterval));
+					continue;
+				}
+				LOGGER.info(String.format("Log file to parse '%s' (compression: %s)", file.getAbsolutePath(), Compression.of(file)));
+				listOfFiles.add(file);
+			}
+		}
+		return listOfFiles;
+	}
+
+	/**
+	 * Answers whether the date in a file name, if any, may lie within the
+	 * date interval.
+	 */
+	private boolean isDatedWithin(final Matcher filename, final DateFormat dateFormat) {
+		if (filenameDateGroup > filename.groupCount() || filename.group(filenameDateGroup) == null) {
+			return true;
+		}
+		Date from;
+		try {
+			from = dateFormat.parse(filename.group(filenameDateGroup));
+		} catch (ParseException pe) {
+			LOGGER.debug(String.format("No date with pattern '%s' in '%s'", filenameDateFormat, filename.group(filenameDateGroup)));
+			return true;
+		}
+		Calendar to = Calendar.getInstance();
+		to.setTime(from);
+		to.add(finestField(filenameDateFormat), 1);
+		return dateInterval.overlaps(from, to.getTime());
+	}
+
+	/**
+	 * The {@link Calendar} field of the finest unit in the given
+	 * {@link SimpleDateFormat} pattern; quoted text is ignored.
+	 */
+	static int finestField(final String pattern) {
+		String fields = pattern.replaceAll("'[^']*'", "");
+		if (fields.indexOf('S') >= 0) {
+			return Calendar.MILLISECOND;
+		}
+		if (fields.indexOf('s') >= 0) {
+			return Calendar.SECOND;
+		}
+		if (fields.indexOf('m') >= 0) {
+			return Calendar.MINUTE;
+		}
+		if (CharMatcher.anyOf("HkKh").indexIn(fields) >= 0) {
+			return Calendar.HOUR_OF_DAY;
+		}
+		if (CharMatcher.anyOf("dDEF").indexIn(fields) >= 0) {
+			return Calendar.DAY_OF_MONTH;
+		}
+		if (CharMatcher.anyOf("wW").indexIn(fields) >= 0) {
+			return Calendar.WEEK_OF_YEAR;
+		}
+		if (fields.indexOf('M') >= 0) {
+			return Calendar.MONTH;
+		}
+		return Calendar.YEAR;
+	}
+
 	public static class Builder {
 		// required parameters
 		// optional parameters
@@ -97,6 +274,11 @@ public final class LogFiles {
 		private DateFormat dateFormat = new SimpleDateFormat(DEFAULT_TIMESTAMP_PATTERN);
 		private Date today = new Date();
 		private String outputDir = DEFAULT_OUTPUT_DIR;
+		private String baseOutputDir;
+		private boolean deduplicate = false;
+		private int filenameDateGroup = DEFAULT_FILENAME_DATE_GROUP;
+		private String filenameDateFormat;
+		private ITimeInterval dateInterval;
 
 		public Builder() {
 		}
@@ -124,6 +306,36 @@ public final class LogFiles {
 			return this;
 		}
 
+		public Builder deduplicate(final boolean deduplicate) {
+			this.deduplicate = deduplicate;
+			return this;
+		}
+
+		/**
+		 * Parses the date of each file from the given capturing group of the
+		 * filename pattern, with the given {@link SimpleDateFormat} pattern.
+		 */
+		public Builder filenameDate(final int group, final String format) {
+			Preconditions.checkArgument(group >= 0, "'group' argument cannot be negative.");
+			if (Strings.isNullOrEmpty(format)) {
+				throw new IllegalArgumentException("'format' argument cannot be null.");
+			}
+			// fail quickly on a bad pattern
+			new SimpleDateFormat(format);
+			this.filenameDateGroup = group;
+			this.filenameDateFormat = format;
+			return this;
+		}
+
+		/**
+		 * Leaves out files dated outside the given interval; {@code null} keeps
+		 * all files.
+		 */
+		public Builder dateInterval(final ITimeInterval dateInterval) {
+			this.dateInterval = dateInterval;
+			return this;
+		}
+
 		public LogFiles build() {
 			sanitizeOutputDir();
 			return new LogFiles(this);
@@ -132,6 +344,7 @@ public final class LogFiles {
 		private void sanitizeOutputDir() {
 			outputDir = CharMatcher.anyOf("/\\").replaceFrom(outputDir, FILE_SEPARATOR);
 			outputDir = CharMatcher.anyOf("<>:;\"|?*,~'[]{}=&^%$~#@!`").replaceFrom(outputDir, "_");
+			baseOutputDir = outputDir;
 			// allow distinct output folders
 			outputDir = String.format("%s%s%s", outputDir, FILE_SEPARATOR, dateFormat.format(today));
 		}
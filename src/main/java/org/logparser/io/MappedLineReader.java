@@ -0,0 +1,175 @@
+package org.logparser.io;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link ILineReader} implementation that memory maps a byte range of a file,
+ * in windows of (at least) {@code windowSize} bytes, and finds line boundaries
+ * directly in the mapped bytes.
+ * 
+ * Lines are terminated by a line feed, optionally preceded by a carriage
+ * return. A line that straddles the end of a window causes the next window to
+ * be mapped from the beginning of that line, so lines are never split.
+ * 
+ * When the charset encodes ASCII as single bytes of equal value, lines made of
+ * ASCII bytes only are handed out by {@link #readSequence()} as an
+ * {@link AsciiCharSequence} view over the mapped bytes, without decoding.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public final class MappedLineReader implements ILineReader {
+	public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+	private static final byte LF = '\n';
+	private static final byte CR = '\r';
+	private final FileChannel channel;
+	private final long end;
+	private final int windowSize;
+	private final CharsetDecoder decoder;
+	private final boolean asciiCompatible;
+	private final AsciiCharSequence line;
+	private MappedByteBuffer window;
+	private ByteBuffer view;
+	private CharBuffer chars;
+	private long windowStart;
+	private long position;
+
+	public MappedLineReader(final FileChannel channel, final Charset charset) throws IOException {
+		this(channel, 0, channel.size(), DEFAULT_WINDOW_SIZE, charset);
+	}
+
+	public MappedLineReader(final FileChannel channel, final long begin, final long end, final int windowSize, final Charset charset) {
+		Preconditions.checkNotNull(charset, "'charset' argument cannot be null.");
+		Preconditions.checkArgument(begin >= 0 && begin <= end, "'begin' argument must be a positive number no larger than 'end'.");
+		Preconditions.checkArgument(windowSize > 0, "'windowSize' argument must be a positive number.");
+		this.channel = Preconditions.checkNotNull(channel, "'channel' argument cannot be null.");
+		this.end = end;
+		this.windowSize = windowSize;
+		this.position = begin;
+		this.decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.asciiCompatible = isAsciiCompatible(charset);
+		this.line = new AsciiCharSequence();
+	}
+
+	public String readLine() throws IOException {
+		CharSequence text = readSequence();
+		return text != null ? text.toString() : null;
+	}
+
+	public CharSequence readSequence() throws IOException {
+		if (position >= end) {
+			return null;
+		}
+		long scan = position;
+		while (true) {
+			if (window == null || scan >= windowStart + window.limit()) {
+				map(position, scan);
+			}
+			int limit = window.limit();
+			for (int i = (int) (scan - windowStart); i < limit; i++) {
+				if (window.get(i) == LF) {
+					CharSequence text = sequence(position, windowStart + i);
+					position = windowStart + i + 1;
+					return text;
+				}
+			}
+			scan = windowStart + limit;
+			if (scan >= end) {
+				// last line of the range has no line terminator
+				CharSequence text = sequence(position, end);
+				position = end;
+				return text;
+			}
+		}
+	}
+
+	/**
+	 * The offset of the next byte to be read, relative to the start of the file.
+	 * 
+	 * @return {@code long} containing the current read position.
+	 */
+	public long position() {
+		return position;
+	}
+
+	public void close() throws IOException {
+		window = null;
+		view = null;
+		channel.close();
+	}
+
+	/**
+	 * Maps a window starting at {@code from}, growing it past the default size
+	 * when a single line is longer than the window already mapped.
+	 */
+	private void map(final long from, final long scan) throws IOException {
+		long size = Math.max(windowSize, (scan - from) + windowSize);
+		size = Math.min(Math.min(size, end - from), Integer.MAX_VALUE);
+		window = channel.map(MapMode.READ_ONLY, from, size);
+		view = window.duplicate();
+		windowStart = from;
+	}
+
+	private CharSequence sequence(final long from, final long to) {
+		int begin = (int) (from - windowStart);
+		int limit = (int) (to - windowStart);
+		if (limit > begin && window.get(limit - 1) == CR) {
+			limit--;
+		}
+		if (asciiCompatible && AsciiCharSequence.isAscii(window, begin, limit - begin)) {
+			return line.set(window, begin, limit - begin);
+		}
+		return decode(begin, limit);
+	}
+
+	private String decode(final int begin, final int limit) {
+		view.clear();
+		view.limit(limit);
+		view.position(begin);
+		int capacity = (int) ((limit - begin) * decoder.maxCharsPerByte()) + 1;
+		if (chars == null || chars.capacity() < capacity) {
+			chars = CharBuffer.allocate(Math.max(capacity, 256));
+		}
+		chars.clear();
+		decoder.reset();
+		decoder.decode(view, chars, true);
+		decoder.flush(chars);
+		chars.flip();
+		return chars.toString();
+	}
+
+	/**
+	 * @return {@code true} if the given charset decodes every ASCII byte as the
+	 *         {@code char} of equal value.
+	 */
+	static boolean isAsciiCompatible(final Charset charset) {
+		byte[] ascii = new byte[128];
+		for (int i = 0; i < ascii.length; i++) {
+			ascii[i] = (byte) i;
+		}
+		try {
+			String decoded = new String(ascii, charset.name());
+			for (int i = 0; i < ascii.length; i++) {
+				if (decoded.length() != ascii.length || decoded.charAt(i) != i) {
+					return false;
+				}
+			}
+			return true;
+		} catch (UnsupportedEncodingException uee) {
+			return false;
+		}
+	}
+}
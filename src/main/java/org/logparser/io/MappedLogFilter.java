@@ -0,0 +1,299 @@
+package org.logparser.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.apache.log4j.Logger;
+import org.logparser.ILogEntryFilter;
+import org.logparser.ILogFilter;
+import org.logparser.IObserver;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+
+/**
+ * Implementation of {@link ILogFilter} that memory maps a log file in large
+ * windows, finds line boundaries in the mapped bytes, and publishes filtered
+ * entries as events to all {@link IObserver}s attached.
+ * 
+ * It avoids the intermediate copies of a {@link java.io.BufferedReader},
+ * which makes it better suited to very large log files.
+ * 
+ * When configured with more than one split, each file is divided into byte
+ * ranges aligned to line boundaries, and each range is parsed by the
+ * {@link ILogEntryFilter}s on its own worker thread; the {@link ILogEntryFilter}s
+ * must therefore be thread-safe. Each worker hands its entries over in
+ * batches, which the calling thread publishes in file order, range after
+ * range, as soon as they are ready, so {@link IObserver}s need not be
+ * thread-safe. Only a fixed number of batches may be waiting per range, which
+ * bounds the memory used; a worker ahead of the ranges being published waits
+ * for them to catch up.
+ * 
+ * The workers are pooled once per call to {@link #filter(File[], int)}, and
+ * shared by all the files it reads.
+ * 
+ * Compressed log files cannot be mapped; they are decompressed on the fly and
+ * read sequentially instead.
+ * 
+ * @author jorge.decastro
+ * 
+ * @param <E> the type of elements held by this {@link ILogFilter}.
+ */
+public final class MappedLogFilter<E> extends AbstractLogFilter<E> {
+	private static final Logger LOGGER = Logger.getLogger(MappedLogFilter.class.getName());
+	public static final int DEFAULT_BATCH_SIZE = 1024;
+	public static final int DEFAULT_BATCHES = 16;
+	private final int windowSize;
+	private final Charset charset;
+	private final int splits;
+	private final int batchSize;
+	private final int batches;
+	// the workers shared by the files of a filter(File[], int) call, if any
+	private volatile ExecutorService executor;
+
+	private MappedLogFilter(final Builder<E> builder) {
+		super(builder.messageFilters);
+		windowSize = builder.windowSize;
+		charset = builder.charset;
+		splits = builder.splits;
+		batchSize = builder.batchSize;
+		batches = builder.batches;
+	}
+
+	@Override
+	protected ILineReader open(final File file) throws IOException {
+		Compression compression = Compression.of(file);
+		if (compression != Compression.NONE) {
+			return lineReader(new InputStreamReader(compression.open(file), charset));
+		}
+		FileChannel channel = new FileInputStream(file).getChannel();
+		return new MappedLineReader(channel, 0, channel.size(), windowSize, charset);
+	}
+
+	@Override
+	public void filter(final File[] files, final int workers) {
+		Preconditions.checkNotNull(files, "'files' argument cannot be null.");
+		Preconditions.checkArgument(workers > 0, "'workers' argument must be a positive number.");
+		if (splits < 2) {
+			super.filter(files, workers);
+			return;
+		}
+		// enough workers for every file read at once to have all its ranges parsed
+		executor = Executors.newFixedThreadPool(splits * Math.max(1, Math.min(workers, files.length)));
+		try {
+			super.filter(files, workers);
+		} finally {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	@Override
+	protected int read(final File file) {
+		if (splits < 2 || Compression.of(file) != Compression.NONE) {
+			return super.read(file);
+		}
+		int lines = 0;
+		FileChannel channel = null;
+		ExecutorService shared = executor;
+		ExecutorService pool = null;
+		List<Future<Integer>> results = new ArrayList<Future<Integer>>(splits);
+		try {
+			channel = new FileInputStream(file).getChannel();
+			List<ByteRange> ranges = ByteRange.split(channel, splits);
+			channel.close();
+			pool = shared != null ? shared : Executors.newFixedThreadPool(Math.max(1, ranges.size()));
+			List<RangeTask> tasks = new ArrayList<RangeTask>(ranges.size());
+			// the ranges of a file are started in order, so the range being
+			// published is always running, even when the workers are short
+			for (ByteRange range : ranges) {
+				RangeTask task = new RangeTask(file, range);
+				tasks.add(task);
+				results.add(pool.submit(task));
+			}
+			// publish the batches of each range in file order, as they are ready
+			for (int i = 0; i < tasks.size(); i++) {
+				RangeTask task = tasks.get(i);
+				List<E> batch;
+				while ((batch = task.parsed.take()) != task.end) {
+					task.room.release();
+					for (E entry : batch) {
+						notifyObservers(entry);
+					}
+				}
+				lines += results.get(i).get();
+			}
+		} catch (IOException ioe) {
+			LOGGER.warn(String.format("IO error reading file '%s'", file.getAbsolutePath()), ioe);
+		} catch (ExecutionException ee) {
+			LOGGER.warn(String.format("Error reading file '%s'", file.getAbsolutePath()), ee.getCause());
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		} finally {
+			Closeables.closeQuietly(channel);
+			// stops the ranges left after a failure
+			for (Future<Integer> result : results) {
+				result.cancel(true);
+			}
+			if (pool != null && pool != shared) {
+				pool.shutdownNow();
+			}
+		}
+		return lines;
+	}
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	public int getSplits() {
+		return splits;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public int getBatches() {
+		return batches;
+	}
+
+	/**
+	 * Parses a single {@link ByteRange} of a log file, and hands the filtered
+	 * entries over in batches; returns the number of lines read.
+	 */
+	private final class RangeTask implements Callable<Integer> {
+		private final File file;
+		private final ByteRange range;
+		private final BlockingQueue<List<E>> parsed;
+		// the batches that may still be queued; the end marker needs none
+		private final Semaphore room;
+		private final List<E> end = new ArrayList<E>(0);
+
+		private RangeTask(final File file, final ByteRange range) {
+			this.file = file;
+			this.range = range;
+			this.parsed = new ArrayBlockingQueue<List<E>>(batches + 1);
+			this.room = new Semaphore(batches);
+		}
+
+		public Integer call() throws IOException, InterruptedException {
+			int lines = 0;
+			ILineReader in = null;
+			ILineReader records = null;
+			try {
+				FileChannel channel = new FileInputStream(file).getChannel();
+				in = new MappedLineReader(channel, range.getBegin(), range.getEnd(), windowSize, charset);
+				records = records(in);
+				List<E> batch = new ArrayList<E>(batchSize);
+				CharSequence str;
+				E entry;
+				while ((str = records.readSequence()) != null) {
+					lines++;
+					entry = applyFilters(str, logEntryFilters);
+					if (entry != null) {
+						batch.add(entry);
+						if (batch.size() == batchSize) {
+							room.acquire();
+							parsed.add(batch);
+							batch = new ArrayList<E>(batchSize);
+						}
+					}
+				}
+				if (!batch.isEmpty()) {
+					room.acquire();
+					parsed.add(batch);
+				}
+			} finally {
+				if (records != null) {
+					countSkippedLines(records, file.getAbsolutePath());
+				}
+				Closeables.closeQuietly(in);
+				// the publisher waits for the end of this range, even after a
+				// failure; there is always room for it, so that a task cancelled
+				// while its batches are left unpublished never blocks here
+				parsed.add(end);
+			}
+			return lines;
+		}
+	}
+
+	public static class Builder<E> {
+		// required parameters
+		private final List<ILogEntryFilter<E>> messageFilters;
+		// optional parameters
+		private int windowSize = MappedLineReader.DEFAULT_WINDOW_SIZE;
+		private Charset charset = Charset.defaultCharset();
+		private int splits = 1;
+		private int batchSize = DEFAULT_BATCH_SIZE;
+		private int batches = DEFAULT_BATCHES;
+
+		@SuppressWarnings("unchecked")
+		public Builder(final ILogEntryFilter<E>... messageFilter) {
+			this(Arrays.asList(messageFilter));
+		}
+
+		public Builder(final List<ILogEntryFilter<E>> messageFilters) {
+			this.messageFilters = Preconditions.checkNotNull(messageFilters, "'messageFilters' argument cannot be null.");
+		}
+
+		public Builder<E> windowSize(final int windowSize) {
+			Preconditions.checkArgument(windowSize > 0, "'windowSize' argument must be a positive number.");
+			this.windowSize = windowSize;
+			return this;
+		}
+
+		public Builder<E> charset(final Charset charset) {
+			this.charset = Preconditions.checkNotNull(charset, "'charset' argument cannot be null.");
+			return this;
+		}
+
+		public Builder<E> splits(final int splits) {
+			Preconditions.checkArgument(splits > 0, "'splits' argument must be a positive number.");
+			this.splits = splits;
+			return this;
+		}
+
+		/**
+		 * The number of filtered entries a worker hands over at a time.
+		 */
+		public Builder<E> batchSize(final int batchSize) {
+			Preconditions.checkArgument(batchSize > 0, "'batchSize' argument must be a positive number.");
+			this.batchSize = batchSize;
+			return this;
+		}
+
+		/**
+		 * The number of batches a worker may have waiting to be published before
+		 * it waits too.
+		 */
+		public Builder<E> batches(final int batches) {
+			Preconditions.checkArgument(batches > 0, "'batches' argument must be a positive number.");
+			this.batches = batches;
+			return this;
+		}
+
+		public MappedLogFilter<E> build() {
+			return new MappedLogFilter<E>(this);
+		}
+	}
+}
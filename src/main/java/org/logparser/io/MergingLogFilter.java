@@ -0,0 +1,184 @@
+package org.logparser.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.log4j.Logger;
+import org.logparser.ILogEntryFilter;
+import org.logparser.ILogFilter;
+import org.logparser.IObserver;
+import org.logparser.ITimestampExtractor;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+
+/**
+ * Implementation of {@link ILogFilter} that merges several log files, e.g. the
+ * logs of one service pulled from many hosts, into a single stream ordered by
+ * time, and publishes filtered entries as events to all {@link IObserver}s
+ * attached; time-ordered samplers and stats thus see the entries of all files
+ * in order.
+ * 
+ * Each file must be ordered by time itself. The files are read together, and
+ * a heap keyed on the timestamp of the next line of each file picks the line
+ * to publish next, so only one line per file is held in memory. Lines without
+ * a timestamp, e.g. stack traces, keep the timestamp of the line before them
+ * in the same file, and so stay right after it. Lines with equal timestamps
+ * are published in the order the files were given.
+ * 
+ * @author jorge.decastro
+ * 
+ * @param <E> the type of elements held by this {@link ILogFilter}.
+ */
+public final class MergingLogFilter<E> extends AbstractLogFilter<E> {
+	private static final Logger LOGGER = Logger.getLogger(MergingLogFilter.class.getName());
+	private final ITimestampExtractor timestampExtractor;
+	private final Charset charset;
+
+	private MergingLogFilter(final Builder<E> builder) {
+		super(builder.messageFilters);
+		timestampExtractor = builder.timestampExtractor;
+		charset = builder.charset;
+	}
+
+	@Override
+	protected ILineReader open(final File file) throws IOException {
+		return lineReader(new InputStreamReader(Compression.of(file).open(file), charset));
+	}
+
+	/**
+	 * Reads log entries from the given files, merged into a single stream
+	 * ordered by time; the files are always read together, by the calling
+	 * thread, so {@code workers} is ignored.
+	 * 
+	 * @param files the log {@code files}.
+	 * @param workers ignored.
+	 */
+	@Override
+	public void filter(final File[] files, final int workers) {
+		Preconditions.checkNotNull(files, "'files' argument cannot be null.");
+		Preconditions.checkArgument(workers > 0, "'workers' argument must be a positive number.");
+		List<Source> sources = new ArrayList<Source>(files.length);
+		PriorityQueue<Source> heap = new PriorityQueue<Source>(Math.max(1, files.length));
+		int lines = 0;
+		try {
+			for (int i = 0; i < files.length; i++) {
+				try {
+					ILineReader in = open(files[i]);
+					Source source = new Source(i, files[i].getAbsolutePath(), in, records(in));
+					sources.add(source);
+					if (source.advance()) {
+						heap.add(source);
+					}
+				} catch (IOException ioe) {
+					LOGGER.warn(String.format("IO error reading file '%s'", files[i].getAbsolutePath()), ioe);
+				}
+			}
+			Source source;
+			while ((source = heap.poll()) != null) {
+				lines++;
+				E entry = applyFilters(source.line, logEntryFilters);
+				if (entry != null) {
+					notifyObservers(entry);
+				}
+				try {
+					if (source.advance()) {
+						heap.add(source);
+					}
+				} catch (IOException ioe) {
+					LOGGER.warn(String.format("IO error reading file '%s'", source.name), ioe);
+				}
+			}
+		} finally {
+			for (Source s : sources) {
+				countSkippedLines(s.records, s.name);
+				Closeables.closeQuietly(s.in);
+			}
+		}
+		size = lines;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	/**
+	 * A log file being merged, and the next line read from it.
+	 */
+	private final class Source implements Comparable<Source> {
+		private final int order;
+		private final String name;
+		private final ILineReader in;
+		private final ILineReader records;
+		private String line;
+		private long timestamp = Long.MIN_VALUE;
+
+		private Source(final int order, final String name, final ILineReader in, final ILineReader records) {
+			this.order = order;
+			this.name = name;
+			this.in = in;
+			this.records = records;
+		}
+
+		/**
+		 * Reads the next line.
+		 * 
+		 * @return {@code false} if there are no more lines.
+		 */
+		private boolean advance() throws IOException {
+			CharSequence text = records.readSequence();
+			if (text == null) {
+				line = null;
+				return false;
+			}
+			// held across reads of other files, so it cannot stay a view
+			line = text.toString();
+			Date date = timestampExtractor.extractTimestamp(line);
+			if (date != null) {
+				timestamp = date.getTime();
+			}
+			return true;
+		}
+
+		public int compareTo(final Source other) {
+			if (timestamp != other.timestamp) {
+				return timestamp < other.timestamp ? -1 : 1;
+			}
+			return order < other.order ? -1 : (order == other.order ? 0 : 1);
+		}
+	}
+
+	public static class Builder<E> {
+		// required parameters
+		private final ITimestampExtractor timestampExtractor;
+		private final List<ILogEntryFilter<E>> messageFilters;
+		// optional parameters
+		private Charset charset = Charset.defaultCharset();
+
+		@SuppressWarnings("unchecked")
+		public Builder(final ITimestampExtractor timestampExtractor, final ILogEntryFilter<E>... messageFilter) {
+			this(timestampExtractor, Arrays.asList(messageFilter));
+		}
+
+		public Builder(final ITimestampExtractor timestampExtractor, final List<ILogEntryFilter<E>> messageFilters) {
+			this.timestampExtractor = Preconditions.checkNotNull(timestampExtractor, "'timestampExtractor' argument cannot be null.");
+			this.messageFilters = Preconditions.checkNotNull(messageFilters, "'messageFilters' argument cannot be null.");
+		}
+
+		public Builder<E> charset(final Charset charset) {
+			this.charset = Preconditions.checkNotNull(charset, "'charset' argument cannot be null.");
+			return this;
+		}
+
+		public MergingLogFilter<E> build() {
+			return new MergingLogFilter<E>(this);
+		}
+	}
+}
@@ -0,0 +1,354 @@
+package org.logparser.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.log4j.Logger;
+import org.logparser.ILogEntryFilter;
+import org.logparser.ILogFilter;
+import org.logparser.IObserver;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Implementation of {@link ILogFilter} that reads and parses each log file in
+ * a pipeline of three stages, so that reading and parsing overlap:
+ * <ol>
+ * <li>a reader thread fills batches of lines;</li>
+ * <li>several parser threads apply the {@link ILogEntryFilter}s to whole
+ * batches, so the {@link ILogEntryFilter}s must be thread-safe;</li>
+ * <li>the calling thread publishes the filtered entries to all
+ * {@link IObserver}s attached, in file order.</li>
+ * </ol>
+ *
+ * A fixed number of batches is allocated per file and recycled once
+ * published, which bounds the memory used and makes the reader wait when the
+ * later stages fall behind. The time each stage spends waiting on the others
+ * is counted, and tells which stage is the bottleneck: the stage that waits
+ * least.
+ *
+ * The threads of the pipelines are pooled once per call to
+ * {@link #filter(File[], int)}, and shared by all the files it reads.
+ *
+ * @author jorge.decastro
+ *
+ * @param <E> the type of elements held by this {@link ILogFilter}.
+ */
+public final class PipelinedLogFilter<E> extends AbstractLogFilter<E> {
+	private static final Logger LOGGER = Logger.getLogger(PipelinedLogFilter.class.getName());
+	public static final int DEFAULT_BATCH_SIZE = 1024;
+	public static final int DEFAULT_BATCHES = 16;
+	private final int parsers;
+	private final int batchSize;
+	private final int batches;
+	private final Charset charset;
+	private final AtomicLong readerWait;
+	private final AtomicLong parserWait;
+	private final AtomicLong publisherWait;
+	// the threads shared by the files of a filter(File[], int) call, if any
+	private volatile ExecutorService executor;
+
+	private PipelinedLogFilter(final Builder<E> builder) {
+		super(builder.messageFilters);
+		parsers = builder.parsers;
+		batchSize = builder.batchSize;
+		batches = builder.batches;
+		charset = builder.charset;
+		readerWait = new AtomicLong();
+		parserWait = new AtomicLong();
+		publisherWait = new AtomicLong();
+	}
+
+	@Override
+	protected ILineReader open(final File file) throws IOException {
+		return lineReader(new InputStreamReader(Compression.of(file).open(file), charset));
+	}
+
+	@Override
+	public void filter(final File[] files, final int workers) {
+		Preconditions.checkNotNull(files, "'files' argument cannot be null.");
+		Preconditions.checkArgument(workers > 0, "'workers' argument must be a positive number.");
+		// a reader and its parsers for every file read at once
+		executor = Executors.newFixedThreadPool((parsers + 1) * Math.max(1, Math.min(workers, files.length)));
+		try {
+			super.filter(files, workers);
+		} finally {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	@Override
+	protected int filter(final ILineReader in, final String name, final List<E> published) {
+		final ILineReader records = records(in);
+		final BlockingQueue<Batch<E>> free = new ArrayBlockingQueue<Batch<E>>(batches);
+		// room for every batch plus one end marker per parser, so puts never block
+		final BlockingQueue<Batch<E>> toParse = new ArrayBlockingQueue<Batch<E>>(batches + parsers);
+		final BlockingQueue<Batch<E>> parsed = new ArrayBlockingQueue<Batch<E>>(batches + parsers);
+		final Batch<E> end = new Batch<E>(0);
+		for (int i = 0; i < batches; i++) {
+			free.add(new Batch<E>(batchSize));
+		}
+		final AtomicInteger lines = new AtomicInteger();
+		final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+		final Waits waits = new Waits();
+
+		final ExecutorService shared = executor;
+		ExecutorService pool = shared != null ? shared : Executors.newFixedThreadPool(parsers + 1);
+		List<Future<?>> tasks = new ArrayList<Future<?>>(parsers + 1);
+		tasks.add(pool.submit(new Runnable() {
+			public void run() {
+				long sequence = 0;
+				Batch<E> batch = null;
+				try {
+					batch = waits.take(free, waits.reader);
+					String line;
+					while ((line = records.readLine()) != null) {
+						lines.incrementAndGet();
+						batch.lines[batch.size++] = line;
+						if (batch.size == batch.lines.length) {
+							batch.sequence = sequence++;
+							toParse.put(batch);
+							batch = null;
+							batch = waits.take(free, waits.reader);
+						}
+					}
+				} catch (IOException ioe) {
+					LOGGER.warn(String.format("IO error reading '%s'", name), ioe);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+				} catch (RuntimeException re) {
+					failure.compareAndSet(null, re);
+				} finally {
+					countSkippedLines(records, name);
+					// the last batch, full or not, even after an error, as its lines are counted
+					if (batch != null && batch.size > 0) {
+						batch.sequence = sequence++;
+						toParse.add(batch);
+					}
+					for (int i = 0; i < parsers; i++) {
+						toParse.add(end);
+					}
+				}
+			}
+		}));
+		for (int p = 0; p < parsers; p++) {
+			tasks.add(pool.submit(new Runnable() {
+				public void run() {
+					try {
+						Batch<E> batch;
+						while ((batch = waits.take(toParse, waits.parser)) != end) {
+							// after a failure, batches are passed on unparsed so the pipeline drains
+							if (failure.get() == null) {
+								try {
+									for (int i = 0; i < batch.size; i++) {
+										E entry = applyFilters(batch.lines[i], logEntryFilters);
+										if (entry != null) {
+											batch.entries.add(entry);
+										}
+									}
+								} catch (RuntimeException re) {
+									failure.compareAndSet(null, re);
+								}
+							}
+							parsed.add(batch);
+						}
+					} catch (InterruptedException ie) {
+						Thread.currentThread().interrupt();
+					} finally {
+						parsed.add(end);
+					}
+				}
+			}));
+		}
+
+		try {
+			Map<Long, Batch<E>> pending = new HashMap<Long, Batch<E>>();
+			long next = 0;
+			int ended = 0;
+			while (ended < parsers) {
+				Batch<E> batch = waits.take(parsed, waits.publisher);
+				if (batch == end) {
+					ended++;
+					continue;
+				}
+				pending.put(batch.sequence, batch);
+				// publish in file order, whatever order parsers finish in
+				while ((batch = pending.remove(next)) != null) {
+					for (E entry : batch.entries) {
+						notifyObservers(entry);
+						if (published != null) {
+							published.add(entry);
+						}
+					}
+					next++;
+					batch.clear();
+					free.add(batch);
+				}
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		} finally {
+			// stops a reader or parsers left waiting after an interruption
+			for (Future<?> task : tasks) {
+				task.cancel(true);
+			}
+			if (pool != shared) {
+				pool.shutdownNow();
+			}
+		}
+		readerWait.addAndGet(waits.reader.get());
+		parserWait.addAndGet(waits.parser.get());
+		publisherWait.addAndGet(waits.publisher.get());
+		LOGGER.info(String.format("%s - waits: reader = %sms, parsers = %sms, publisher = %sms",
+				name,
+				TimeUnit.NANOSECONDS.toMillis(waits.reader.get()),
+				TimeUnit.NANOSECONDS.toMillis(waits.parser.get()),
+				TimeUnit.NANOSECONDS.toMillis(waits.publisher.get())));
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+		return lines.get();
+	}
+
+	public int getParsers() {
+		return parsers;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public int getBatches() {
+		return batches;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	/**
+	 * Total time the reader spent waiting for a free batch, i.e. for the parsers
+	 * or the publisher to catch up.
+	 */
+	public long getReaderWait(final TimeUnit unit) {
+		return unit.convert(readerWait.get(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Total time the parsers spent waiting for lines, i.e. for the reader to
+	 * catch up; this is summed over all parser threads.
+	 */
+	public long getParserWait(final TimeUnit unit) {
+		return unit.convert(parserWait.get(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Total time the publisher spent waiting for parsed entries.
+	 */
+	public long getPublisherWait(final TimeUnit unit) {
+		return unit.convert(publisherWait.get(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * A reusable batch of lines, and of the entries filtered from them.
+	 */
+	private static final class Batch<E> {
+		private final String[] lines;
+		private final List<E> entries;
+		private int size;
+		private long sequence;
+
+		private Batch(final int capacity) {
+			lines = new String[capacity];
+			entries = new ArrayList<E>();
+		}
+
+		private void clear() {
+			Arrays.fill(lines, 0, size, null);
+			entries.clear();
+			size = 0;
+		}
+	}
+
+	/**
+	 * Time spent by each stage of a single pipeline waiting on the others.
+	 */
+	private static final class Waits {
+		private final AtomicLong reader = new AtomicLong();
+		private final AtomicLong parser = new AtomicLong();
+		private final AtomicLong publisher = new AtomicLong();
+
+		private <T> T take(final BlockingQueue<T> queue, final AtomicLong wait) throws InterruptedException {
+			T element = queue.poll();
+			if (element == null) {
+				long start = System.nanoTime();
+				element = queue.take();
+				wait.addAndGet(System.nanoTime() - start);
+			}
+			return element;
+		}
+	}
+
+	public static class Builder<E> {
+		// required parameters
+		private final List<ILogEntryFilter<E>> messageFilters;
+		// optional parameters
+		private int parsers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		private int batchSize = DEFAULT_BATCH_SIZE;
+		private int batches = DEFAULT_BATCHES;
+		private Charset charset = Charset.defaultCharset();
+
+		@SuppressWarnings("unchecked")
+		public Builder(final ILogEntryFilter<E>... messageFilter) {
+			this(Arrays.asList(messageFilter));
+		}
+
+		public Builder(final List<ILogEntryFilter<E>> messageFilters) {
+			this.messageFilters = Preconditions.checkNotNull(messageFilters, "'messageFilters' argument cannot be null.");
+		}
+
+		public Builder<E> parsers(final int parsers) {
+			Preconditions.checkArgument(parsers > 0, "'parsers' argument must be a positive number.");
+			this.parsers = parsers;
+			return this;
+		}
+
+		public Builder<E> batchSize(final int batchSize) {
+			Preconditions.checkArgument(batchSize > 0, "'batchSize' argument must be a positive number.");
+			this.batchSize = batchSize;
+			return this;
+		}
+
+		public Builder<E> batches(final int batches) {
+			Preconditions.checkArgument(batches > 0, "'batches' argument must be a positive number.");
+			this.batches = batches;
+			return this;
+		}
+
+		public Builder<E> charset(final Charset charset) {
+			this.charset = Preconditions.checkNotNull(charset, "'charset' argument cannot be null.");
+			return this;
+		}
+
+		public PipelinedLogFilter<E> build() {
+			return new PipelinedLogFilter<E>(this);
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package org.logparser.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+
+/**
+ * {@link InputStream} decorator that reads the stream it decorates on a
+ * separate thread, ahead of its consumer.
+ * 
+ * It is useful when producing the bytes is costly (e.g.: decompressing them),
+ * so that producing and consuming them can overlap. A bounded number of
+ * reusable chunks is handed over between the two threads, so the reading
+ * thread blocks when the consumer falls behind. A chunk is handed over as soon
+ * as no more bytes are available without blocking, rather than once it is
+ * full, so a slow stream (e.g.: a pipe) does not hold back what it has
+ * delivered. Whatever stops the reading thread, be it the end of the stream or
+ * a failure, is handed over too, after the bytes read before it, and a failure
+ * is rethrown to the consumer.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public final class ReadAheadInputStream extends InputStream {
+	private static final Logger LOGGER = Logger.getLogger(ReadAheadInputStream.class.getName());
+	public static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+	public static final int DEFAULT_CHUNKS = 4;
+	private final InputStream in;
+	private final BlockingQueue<Chunk> filled;
+	private final BlockingQueue<Chunk> empty;
+	private final Thread reader;
+	private Chunk current;
+	private boolean eof;
+
+	public ReadAheadInputStream(final InputStream in, final String name) {
+		this(in, name, DEFAULT_CHUNK_SIZE, DEFAULT_CHUNKS);
+	}
+
+	public ReadAheadInputStream(final InputStream in, final String name, final int chunkSize, final int chunks) {
+		Preconditions.checkArgument(chunkSize > 0, "'chunkSize' argument must be a positive number.");
+		Preconditions.checkArgument(chunks > 0, "'chunks' argument must be a positive number.");
+		this.in = Preconditions.checkNotNull(in, "'in' argument cannot be null.");
+		this.filled = new ArrayBlockingQueue<Chunk>(chunks + 1);
+		this.empty = new ArrayBlockingQueue<Chunk>(chunks);
+		for (int i = 0; i < chunks; i++) {
+			empty.add(new Chunk(chunkSize));
+		}
+		this.reader = new Thread(new Runnable() {
+			public void run() {
+				readAhead();
+			}
+		}, String.format("read-ahead %s", name));
+		this.reader.setDaemon(true);
+		this.reader.start();
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!fill()) {
+			return -1;
+		}
+		return current.bytes[current.position++] & 0xff;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!fill()) {
+			return -1;
+		}
+		int n = Math.min(len, current.length - current.position);
+		System.arraycopy(current.bytes, current.position, b, off, n);
+		current.position += n;
+		return n;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.interrupt();
+		Closeables.closeQuietly(in);
+	}
+
+	/**
+	 * Makes sure there are unread bytes in the current chunk, waiting for the
+	 * reading thread if necessary.
+	 * 
+	 * @return false if the end of the stream has been reached.
+	 */
+	private boolean fill() throws IOException {
+		while (current == null || current.position >= current.length) {
+			if (eof) {
+				return false;
+			}
+			if (current != null) {
+				empty.offer(current);
+				current = null;
+			}
+			try {
+				Chunk chunk = filled.take();
+				if (chunk.error != null) {
+					eof = true;
+					rethrow(chunk.error);
+				}
+				if (chunk.length < 0) {
+					eof = true;
+					return false;
+				}
+				current = chunk;
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted waiting for read-ahead data.");
+			}
+		}
+		return true;
+	}
+
+	private static void rethrow(final Throwable error) throws IOException {
+		if (error instanceof IOException) {
+			throw (IOException) error;
+		}
+		if (error instanceof RuntimeException) {
+			throw (RuntimeException) error;
+		}
+		if (error instanceof Error) {
+			throw (Error) error;
+		}
+		throw new IOException("Error reading ahead: " + error);
+	}
+
+	private void readAhead() {
+		Chunk chunk = null;
+		try {
+			while (true) {
+				chunk = empty.take();
+				chunk.position = 0;
+				chunk.length = 0;
+				int n = in.read(chunk.bytes, 0, chunk.bytes.length);
+				if (n == -1) {
+					filled.put(Chunk.END);
+					return;
+				}
+				chunk.length = n;
+				// add whatever else is ready without blocking, but never wait for more
+				// (e.g.: on a pipe), as the consumer can use what was read already
+				while (chunk.length < chunk.bytes.length && in.available() > 0 && (n = in.read(chunk.bytes, chunk.length, chunk.bytes.length - chunk.length)) != -1) {
+					chunk.length += n;
+				}
+				filled.put(chunk);
+				chunk = null;
+			}
+		} catch (IOException ioe) {
+			if (!Thread.currentThread().isInterrupted()) {
+				LOGGER.debug("IO error reading ahead", ioe);
+				fail(chunk, ioe);
+			}
+		} catch (InterruptedException ie) {
+			// closed by the consumer
+		} catch (Throwable t) {
+			// the consumer would otherwise wait for the next chunk forever
+			LOGGER.warn("Error reading ahead", t);
+			fail(chunk, t);
+		}
+	}
+
+	/**
+	 * Hands over the bytes read into the given {@code chunk} before the
+	 * failure, then the failure itself. There is always room for both, as
+	 * {@link #filled} holds one more than all the chunks.
+	 */
+	private void fail(final Chunk chunk, final Throwable error) {
+		if (chunk != null && chunk.length > 0) {
+			filled.offer(chunk);
+		}
+		filled.offer(Chunk.failed(error));
+	}
+
+	private static final class Chunk {
+		private static final Chunk END = new Chunk(0, -1);
+		private final byte[] bytes;
+		private int position;
+		private int length;
+		private Throwable error;
+
+		private Chunk(final int size) {
+			this(size, 0);
+		}
+
+		private Chunk(final int size, final int length) {
+			this.bytes = new byte[size];
+			this.length = length;
+		}
+
+		private static Chunk failed(final Throwable error) {
+			Chunk chunk = new Chunk(0, -1);
+			chunk.error = error;
+			return chunk;
+		}
+	}
+}
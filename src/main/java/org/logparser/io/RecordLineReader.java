@@ -0,0 +1,81 @@
+package org.logparser.io;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link ILineReader} decorator that assembles physical lines into log
+ * records: a record starts at a line matching the record start
+ * {@link Pattern}, e.g. a timestamp prefix, and runs up to the next such line.
+ * Stack traces and wrapped messages thus become continuation lines of the
+ * record logged before them.
+ * 
+ * Only the first line of each record is returned, since that is all log entry
+ * filters parse; continuation lines are counted and skipped, without ever
+ * being held, so records of any length take no more memory than a line.
+ * Lines before the first record start are counted as continuations too.
+ * 
+ * The record start {@link Pattern} is matched with
+ * {@link Matcher#lookingAt()}, so it need only describe the start of a line,
+ * and should be kept cheap.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+@NotThreadSafe
+public final class RecordLineReader implements ILineReader {
+	private final ILineReader reader;
+	private final Matcher recordStart;
+	private long continuations;
+
+	public RecordLineReader(final ILineReader reader, final Pattern recordStart) {
+		this.reader = Preconditions.checkNotNull(reader, "'reader' argument cannot be null.");
+		this.recordStart = Preconditions.checkNotNull(recordStart, "'recordStart' argument cannot be null.").matcher("");
+	}
+
+	/**
+	 * Reads the first line of the next record.
+	 */
+	public String readLine() throws IOException {
+		CharSequence line = readSequence();
+		return line != null ? line.toString() : null;
+	}
+
+	/**
+	 * Reads the first line of the next record; the view returned, if any, is
+	 * only valid until the next read.
+	 */
+	public CharSequence readSequence() throws IOException {
+		CharSequence line;
+		while ((line = reader.readSequence()) != null) {
+			if (recordStart.reset(line).lookingAt()) {
+				return line;
+			}
+			continuations++;
+		}
+		return null;
+	}
+
+	/**
+	 * The number of continuation lines skipped so far.
+	 */
+	public long getContinuations() {
+		return continuations;
+	}
+
+	/**
+	 * The {@link ILineReader} decorated.
+	 */
+	ILineReader getReader() {
+		return reader;
+	}
+
+	public void close() throws IOException {
+		reader.close();
+	}
+}
@@ -0,0 +1,239 @@
+package org.logparser.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.logparser.ILogEntryFilter;
+import org.logparser.ILogFilter;
+import org.logparser.IObserver;
+import org.logparser.ITimestampExtractor;
+import org.logparser.time.DateInterval;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+
+/**
+ * Implementation of {@link ILogFilter} that reads only the part of each log
+ * file that falls within a {@link DateInterval}, and publishes filtered entries
+ * as events to all {@link IObserver}s attached.
+ *
+ * Log files are expected to be ordered by time. The first and last lines of
+ * the interval are found by binary search over byte offsets: each probe
+ * resyncs to the next line, and extracts only its timestamp. Lines are then
+ * read and filtered between those two offsets only, so a narrow interval over
+ * a large file costs a few probes plus a scan of the lines in the interval.
+ *
+ * Log entries are seldom written in strict time order, so the search widens
+ * the interval by a {@code slack} on either side; lines within the slack but
+ * outside the interval are left to the {@link ILogEntryFilter}s to reject.
+ *
+ * Compressed log files cannot be searched; they are read in full instead.
+ *
+ * @author jorge.decastro
+ *
+ * @param <E> the type of elements held by this {@link ILogFilter}.
+ */
+public final class SeekingLogFilter<E> extends AbstractLogFilter<E> {
+	private static final Logger LOGGER = Logger.getLogger(SeekingLogFilter.class.getName());
+	public static final long DEFAULT_SLACK = 60 * 1000L;
+	/**
+	 * The search stops once it narrows down to this many bytes, which are then
+	 * scanned.
+	 */
+	private static final int SCAN_THRESHOLD = 64 * 1024;
+	private final ITimestampExtractor timestampExtractor;
+	private final DateInterval dateInterval;
+	private final long slack;
+	private final int windowSize;
+	private final Charset charset;
+
+	private SeekingLogFilter(final Builder<E> builder) {
+		super(builder.messageFilters);
+		timestampExtractor = builder.timestampExtractor;
+		dateInterval = builder.dateInterval;
+		slack = builder.slack;
+		windowSize = builder.windowSize;
+		charset = builder.charset;
+	}
+
+	@Override
+	protected ILineReader open(final File file) throws IOException {
+		return lineReader(new InputStreamReader(Compression.of(file).open(file), charset));
+	}
+
+	@Override
+	protected int read(final File file) {
+		if (Compression.of(file) != Compression.NONE) {
+			return super.read(file);
+		}
+		int lines = 0;
+		FileChannel channel = null;
+		try {
+			channel = new FileInputStream(file).getChannel();
+			long size = channel.size();
+			long begin = search(channel, size, dateInterval.getBegin().getTime() - slack)[0];
+			long end = search(channel, size, dateInterval.getEnd().getTime() + slack)[1];
+			LOGGER.info(String.format("%s - reading bytes %s to %s of %s in date interval %s", file.getName(), begin, end, size, dateInterval));
+			if (end > begin) {
+				// the reader owns the channel from here on
+				ILineReader in = new MappedLineReader(channel, begin, end, windowSize, charset);
+				channel = null;
+				try {
+					lines = filter(in, file.getAbsolutePath());
+				} finally {
+					Closeables.closeQuietly(in);
+				}
+			}
+		} catch (IOException ioe) {
+			LOGGER.warn(String.format("IO error reading file '%s'", file.getAbsolutePath()), ioe);
+		} finally {
+			Closeables.closeQuietly(channel);
+		}
+		return lines;
+	}
+
+	/**
+	 * Searches for the lines around the first one timestamped at or after
+	 * {@code target}.
+	 *
+	 * @return the offset of a line that starts at or before the first line at
+	 *         or after {@code target}, and the offset of a line that starts at
+	 *         or after it.
+	 */
+	long[] search(final FileChannel channel, final long size, final long target) throws IOException {
+		// 'low' is always the start of a line before the target
+		long low = 0;
+		long high = size;
+		long highLine = size;
+		while (high - low > SCAN_THRESHOLD) {
+			long mid = low + (high - low) / 2;
+			long line = resync(channel, mid, size);
+			long[] probe = probe(channel, line, size);
+			if (probe == null || probe[1] >= target) {
+				high = mid;
+				highLine = line;
+			} else {
+				low = probe[0];
+			}
+		}
+		return new long[] { low, Math.max(low, highLine) };
+	}
+
+	/**
+	 * @return the offset at which the first line starting at or after
+	 *         {@code from} begins.
+	 */
+	static long resync(final FileChannel channel, final long from, final long size) throws IOException {
+		if (from == 0) {
+			return 0;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		// the line starts at 'from' if the byte before it ends a line
+		long position = from - 1;
+		while (position < size) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	/**
+	 * Reads lines from {@code line} until one has a timestamp.
+	 *
+	 * @return the offset just past that line and its timestamp, or null if no
+	 *         line up to {@code size} has a timestamp.
+	 */
+	private long[] probe(final FileChannel channel, final long line, final long size) throws IOException {
+		// not closed, since closing would close the channel too
+		MappedLineReader in = new MappedLineReader(channel, line, size, SCAN_THRESHOLD, charset);
+		CharSequence text;
+		while ((text = in.readSequence()) != null) {
+			Date timestamp = timestampExtractor.extractTimestamp(text);
+			if (timestamp != null) {
+				return new long[] { in.position(), timestamp.getTime() };
+			}
+		}
+		return null;
+	}
+
+	public DateInterval getDateInterval() {
+		return dateInterval;
+	}
+
+	public long getSlack() {
+		return slack;
+	}
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	public static class Builder<E> {
+		// required parameters
+		private final ITimestampExtractor timestampExtractor;
+		private final DateInterval dateInterval;
+		private final List<ILogEntryFilter<E>> messageFilters;
+		// optional parameters
+		private long slack = DEFAULT_SLACK;
+		private int windowSize = MappedLineReader.DEFAULT_WINDOW_SIZE;
+		private Charset charset = Charset.defaultCharset();
+
+		@SuppressWarnings("unchecked")
+		public Builder(final ITimestampExtractor timestampExtractor, final DateInterval dateInterval, final ILogEntryFilter<E>... messageFilter) {
+			this(timestampExtractor, dateInterval, Arrays.asList(messageFilter));
+		}
+
+		public Builder(final ITimestampExtractor timestampExtractor, final DateInterval dateInterval, final List<ILogEntryFilter<E>> messageFilters) {
+			this.timestampExtractor = Preconditions.checkNotNull(timestampExtractor, "'timestampExtractor' argument cannot be null.");
+			this.dateInterval = Preconditions.checkNotNull(dateInterval, "'dateInterval' argument cannot be null.");
+			this.messageFilters = Preconditions.checkNotNull(messageFilters, "'messageFilters' argument cannot be null.");
+		}
+
+		/**
+		 * @param slack how far out of time order, in milliseconds, log entries
+		 *            may be written.
+		 */
+		public Builder<E> slack(final long slack) {
+			Preconditions.checkArgument(slack >= 0, "'slack' argument cannot be negative.");
+			this.slack = slack;
+			return this;
+		}
+
+		public Builder<E> windowSize(final int windowSize) {
+			Preconditions.checkArgument(windowSize > 0, "'windowSize' argument must be a positive number.");
+			this.windowSize = windowSize;
+			return this;
+		}
+
+		public Builder<E> charset(final Charset charset) {
+			this.charset = Preconditions.checkNotNull(charset, "'charset' argument cannot be null.");
+			return this;
+		}
+
+		public SeekingLogFilter<E> build() {
+			return new SeekingLogFilter<E>(this);
+		}
+	}
+}
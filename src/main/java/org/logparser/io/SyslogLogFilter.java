@@ -0,0 +1,575 @@
+package org.logparser.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.logparser.ILogEntryFilter;
+import org.logparser.ILogFilter;
+import org.logparser.IObserver;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+
+/**
+ * Implementation of {@link ILogFilter} that listens for syslog messages, e.g.
+ * access logs shipped by services that don't write files, and publishes
+ * filtered entries as events to all {@link IObserver}s attached.
+ * 
+ * Messages are received over TCP, framed either by octet counting or by a
+ * trailing new line (RFC 6587), and over UDP, one message per datagram. The
+ * RFC 3164 or RFC 5424 header of each message is stripped, and only its
+ * content is handed to the {@link ILogEntryFilter}s.
+ * 
+ * A single thread serves all connections through a {@link Selector}. Bytes
+ * are read into one shared buffer; a connection borrows a buffer from a pool
+ * only while it holds the start of an incomplete message, so thousands of
+ * mostly idle connections cost little memory. Messages longer than
+ * {@link Builder#maxMessageSize(int)} are dropped.
+ * 
+ * {@link IObserver}s are notified from the listening thread while holding
+ * this filter's lock; synchronize on it to read them consistently meanwhile.
+ * 
+ * @author jorge.decastro
+ * 
+ * @param <E> the type of elements held by this {@link ILogFilter}.
+ */
+public final class SyslogLogFilter<E> extends AbstractLogFilter<E> {
+	private static final Logger LOGGER = Logger.getLogger(SyslogLogFilter.class.getName());
+	public static final int DEFAULT_PORT = 514;
+	public static final int DEFAULT_MAX_MESSAGE_SIZE = 64 * 1024;
+	// the largest UDP payload
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+	private static final int MAX_POOLED_BUFFERS = 64;
+	private static final long SELECT_TIMEOUT = 500L;
+	// RFC 3164 tags are at most 32 characters, but some senders go beyond
+	private static final int MAX_TAG_LENGTH = 48;
+	private final String host;
+	private final int port;
+	private final boolean tcp;
+	private final boolean udp;
+	private final int maxMessageSize;
+	private final Charset charset;
+	private final LinkedList<ByteBuffer> pool;
+	private volatile boolean listening;
+	private volatile Selector selector;
+	private volatile int tcpPort;
+	private volatile int udpPort;
+	private long dropped;
+
+	private SyslogLogFilter(final Builder<E> builder) {
+		super(builder.messageFilters);
+		host = builder.host;
+		port = builder.port;
+		tcp = builder.tcp;
+		udp = builder.udp;
+		maxMessageSize = builder.maxMessageSize;
+		charset = builder.charset;
+		pool = new LinkedList<ByteBuffer>();
+	}
+
+	/**
+	 * Reads a file of syslog lines, e.g. one written by a syslog daemon, as
+	 * any other log file; headers are not stripped.
+	 */
+	@Override
+	protected ILineReader open(final File file) throws IOException {
+		return lineReader(new InputStreamReader(Compression.of(file).open(file), charset));
+	}
+
+	/**
+	 * Listens for syslog messages until {@link #stop()} is called or the
+	 * calling thread is interrupted.
+	 * 
+	 * @throws IllegalStateException if unable to bind to the port.
+	 */
+	public void listen() {
+		ServerSocketChannel server = null;
+		DatagramChannel datagrams = null;
+		synchronized (this) {
+			size = 0;
+			dropped = 0;
+		}
+		try {
+			selector = Selector.open();
+			InetSocketAddress address = host != null ? new InetSocketAddress(host, port) : new InetSocketAddress(port);
+			if (tcp) {
+				server = ServerSocketChannel.open();
+				server.configureBlocking(false);
+				server.socket().setReuseAddress(true);
+				server.socket().bind(address);
+				server.register(selector, SelectionKey.OP_ACCEPT);
+				tcpPort = server.socket().getLocalPort();
+			}
+			if (udp) {
+				datagrams = DatagramChannel.open();
+				datagrams.configureBlocking(false);
+				datagrams.socket().bind(tcp ? new InetSocketAddress(address.getAddress(), tcpPort) : address);
+				datagrams.register(selector, SelectionKey.OP_READ);
+				udpPort = datagrams.socket().getLocalPort();
+			}
+		} catch (IOException ioe) {
+			close(server, datagrams);
+			closeSelector();
+			throw new IllegalStateException(String.format("Unable to listen for syslog messages on port %s", port), ioe);
+		}
+		LOGGER.info(String.format("Listening for syslog messages on %s port %s%s", tcp ? "TCP" : "UDP", tcp ? tcpPort : udpPort, tcp && udp ? " and UDP" : ""));
+		listening = true;
+		ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+		try {
+			while (listening && !Thread.currentThread().isInterrupted()) {
+				selector.select(SELECT_TIMEOUT);
+				for (Iterator<SelectionKey> i = selector.selectedKeys().iterator(); i.hasNext();) {
+					SelectionKey key = i.next();
+					i.remove();
+					try {
+						if (!key.isValid()) {
+							continue;
+						} else if (key.isAcceptable()) {
+							accept(key);
+						} else if (key.channel() instanceof DatagramChannel) {
+							receive((DatagramChannel) key.channel(), buffer);
+						} else {
+							read(key, buffer);
+						}
+					} catch (IOException ioe) {
+						LOGGER.debug("IO error on syslog connection; closing it", ioe);
+						disconnect(key);
+					}
+				}
+			}
+		} catch (IOException ioe) {
+			LOGGER.warn("IO error listening for syslog messages", ioe);
+		} finally {
+			listening = false;
+			for (SelectionKey key : selector.keys()) {
+				if (key.channel() instanceof SocketChannel) {
+					disconnect(key);
+				}
+			}
+			close(server, datagrams);
+			closeSelector();
+			pool.clear();
+		}
+	}
+
+	public void stop() {
+		listening = false;
+		Selector s = selector;
+		if (s != null) {
+			s.wakeup();
+		}
+	}
+
+	public boolean isListening() {
+		return listening;
+	}
+
+	/**
+	 * The TCP port listened on, e.g. the one picked when port 0 is given.
+	 */
+	public int getTcpPort() {
+		return tcpPort;
+	}
+
+	/**
+	 * The UDP port listened on, e.g. the one picked when port 0 is given.
+	 */
+	public int getUdpPort() {
+		return udpPort;
+	}
+
+	/**
+	 * The number of messages dropped for being longer than the maximum size.
+	 */
+	public synchronized long getDropped() {
+		return dropped;
+	}
+
+	private void accept(final SelectionKey key) throws IOException {
+		SocketChannel channel = ((ServerSocketChannel) key.channel()).accept();
+		if (channel != null) {
+			channel.configureBlocking(false);
+			channel.register(selector, SelectionKey.OP_READ, new Connection(this));
+		}
+	}
+
+	private void receive(final DatagramChannel channel, final ByteBuffer buffer) throws IOException {
+		buffer.clear();
+		while (channel.receive(buffer) != null) {
+			buffer.flip();
+			publish(buffer.array(), 0, buffer.limit());
+			buffer.clear();
+		}
+	}
+
+	private void read(final SelectionKey key, final ByteBuffer buffer) throws IOException {
+		Connection connection = (Connection) key.attachment();
+		buffer.clear();
+		int read;
+		while ((read = ((SocketChannel) key.channel()).read(buffer)) > 0) {
+			buffer.flip();
+			connection.consume(buffer);
+			buffer.clear();
+		}
+		if (read < 0) {
+			disconnect(key);
+		}
+	}
+
+	private void disconnect(final SelectionKey key) {
+		key.cancel();
+		Closeables.closeQuietly(key.channel());
+		if (key.attachment() != null) {
+			((Connection) key.attachment()).release();
+		}
+	}
+
+	private void close(final ServerSocketChannel server, final DatagramChannel datagrams) {
+		Closeables.closeQuietly(server);
+		Closeables.closeQuietly(datagrams);
+	}
+
+	private void closeSelector() {
+		try {
+			if (selector != null) {
+				selector.close();
+			}
+		} catch (IOException ioe) {
+			LOGGER.debug("IO error closing selector", ioe);
+		}
+	}
+
+	private ByteBuffer borrow() {
+		ByteBuffer buffer = pool.poll();
+		// room for the octet count too
+		return buffer != null ? buffer : ByteBuffer.allocate(maxMessageSize + 16);
+	}
+
+	private void giveBack(final ByteBuffer buffer) {
+		if (pool.size() < MAX_POOLED_BUFFERS) {
+			buffer.clear();
+			pool.add(buffer);
+		}
+	}
+
+	/**
+	 * Strips the header off a message and publishes the filtered entry, if any.
+	 */
+	private void publish(final byte[] bytes, final int offset, final int length) {
+		String message = content(charset.decode(ByteBuffer.wrap(bytes, offset, length)).toString());
+		if (message.length() == 0) {
+			return;
+		}
+		E entry = applyFilters(message, logEntryFilters);
+		synchronized (this) {
+			size++;
+			if (entry != null) {
+				notifyObservers(entry);
+			}
+		}
+	}
+
+	private synchronized void drop() {
+		dropped++;
+	}
+
+	/**
+	 * Returns the content of the given syslog message, i.e. without its RFC
+	 * 3164 or RFC 5424 header and trailing line separators; messages without
+	 * a header are returned as they are.
+	 */
+	static String content(final String message) {
+		int end = message.length();
+		while (end > 0 && (message.charAt(end - 1) == '\n' || message.charAt(end - 1) == '\r' || message.charAt(end - 1) == '\0')) {
+			end--;
+		}
+		int close = message.indexOf('>');
+		if (end == 0 || message.charAt(0) != '<' || close < 2 || close > 4 || close >= end || !digits(message, 1, close)) {
+			return message.substring(0, end);
+		}
+		int start = close + 1;
+		int version = start;
+		while (version < end && Character.isDigit(message.charAt(version))) {
+			version++;
+		}
+		if (version > start && version - start <= 2 && version < end && message.charAt(version) == ' ') {
+			int content = rfc5424(message, version + 1, end);
+			if (content >= 0) {
+				return message.substring(content, end);
+			}
+		}
+		return message.substring(rfc3164(message, start, end), end);
+	}
+
+	/**
+	 * Skips TIMESTAMP HOSTNAME APP-NAME PROCID MSGID STRUCTURED-DATA.
+	 * 
+	 * @return the offset of the content, or -1 if the header is malformed.
+	 */
+	private static int rfc5424(final String message, final int start, final int end) {
+		int i = start;
+		for (int field = 0; field < 5; field++) {
+			int space = message.indexOf(' ', i);
+			if (space < 0 || space >= end) {
+				return -1;
+			}
+			i = space + 1;
+		}
+		if (i < end && message.charAt(i) == '-') {
+			i++;
+		} else {
+			while (i < end && message.charAt(i) == '[') {
+				// SD-PARAM values escape ']' with '\'
+				for (i++; i < end && message.charAt(i) != ']'; i++) {
+					if (message.charAt(i) == '\\') {
+						i++;
+					}
+				}
+				if (i >= end) {
+					return -1;
+				}
+				i++;
+			}
+		}
+		if (i < end && message.charAt(i) == ' ') {
+			i++;
+		}
+		if (i < end && message.charAt(i) == '\uFEFF') {
+			i++;
+		}
+		return Math.min(i, end);
+	}
+
+	/**
+	 * Skips an 'Mmm dd hh:mm:ss' TIMESTAMP and HOSTNAME, if present, and then
+	 * the TAG, e.g. 'nginx[42]:', if present.
+	 * 
+	 * @return the offset of the content.
+	 */
+	private static int rfc3164(final String message, final int start, final int end) {
+		int i = start;
+		if (end - i > 16 && message.charAt(i + 3) == ' ' && message.charAt(i + 6) == ' ' && message.charAt(i + 9) == ':' && message.charAt(i + 12) == ':' && message.charAt(i + 15) == ' ') {
+			int space = message.indexOf(' ', i + 16);
+			if (space < 0 || space >= end) {
+				return end;
+			}
+			i = space + 1;
+		}
+		int tag = i;
+		while (tag < end && tag - i < MAX_TAG_LENGTH && isTagChar(message.charAt(tag))) {
+			tag++;
+		}
+		if (tag > i && tag < end && message.charAt(tag) == ':') {
+			i = tag + 1;
+			if (i < end && message.charAt(i) == ' ') {
+				i++;
+			}
+		}
+		return i;
+	}
+
+	private static boolean isTagChar(final char c) {
+		return Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '.' || c == '/' || c == '[' || c == ']';
+	}
+
+	private static boolean digits(final String s, final int start, final int end) {
+		for (int i = start; i < end; i++) {
+			if (!Character.isDigit(s.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Splits the bytes received on a TCP connection into messages, framed by
+	 * octet counting ('LENGTH SP MESSAGE') or by a trailing new line.
+	 */
+	private static final class Connection {
+		private final SyslogLogFilter<?> listener;
+		private final int maxMessageSize;
+		// the longest octet count, in digits, a message within the maximum size can have
+		private final int maxLengthDigits;
+		private ByteBuffer pending;
+		// bytes still to be skipped of an oversized octet-counted message
+		private long skip;
+		// whether the rest of an oversized message is skipped up to a new line
+		private boolean skipLine;
+
+		private Connection(final SyslogLogFilter<?> listener) {
+			this.listener = listener;
+			this.maxMessageSize = listener.maxMessageSize;
+			this.maxLengthDigits = String.valueOf(maxMessageSize).length();
+		}
+
+		private void consume(final ByteBuffer in) {
+			while (in.hasRemaining()) {
+				if (skip > 0) {
+					int n = (int) Math.min(skip, in.remaining());
+					in.position(in.position() + n);
+					skip -= n;
+					continue;
+				}
+				if (skipLine) {
+					while (in.hasRemaining()) {
+						if (in.get() == '\n') {
+							skipLine = false;
+							break;
+						}
+					}
+					continue;
+				}
+				if (pending == null) {
+					pending = listener.borrow();
+				}
+				int n = Math.min(in.remaining(), pending.remaining());
+				int limit = in.limit();
+				in.limit(in.position() + n);
+				pending.put(in);
+				in.limit(limit);
+				frames();
+			}
+			if (pending != null && pending.position() == 0) {
+				release();
+			}
+		}
+
+		/**
+		 * Publishes the complete messages held, and keeps the rest.
+		 */
+		private void frames() {
+			byte[] bytes = pending.array();
+			int length = pending.position();
+			int i = 0;
+			while (i < length && skip == 0 && !skipLine) {
+				if (Character.isDigit(bytes[i])) {
+					int space = i;
+					long count = 0;
+					while (space < length && space - i <= maxLengthDigits && Character.isDigit(bytes[space])) {
+						count = count * 10 + (bytes[space] - '0');
+						space++;
+					}
+					if (space < length && bytes[space] == ' ' && space - i <= maxLengthDigits) {
+						if (count > maxMessageSize) {
+							listener.drop();
+							int n = (int) Math.min(count, length - space - 1);
+							skip = count - n;
+							i = space + 1 + n;
+						} else if (length - space - 1 >= count) {
+							listener.publish(bytes, space + 1, (int) count);
+							i = space + 1 + (int) count;
+						} else {
+							break;
+						}
+						continue;
+					} else if (space == length && space - i <= maxLengthDigits) {
+						break;
+					}
+					// not an octet count after all; a message framed by a new line
+				}
+				int lf = i;
+				while (lf < length && bytes[lf] != '\n') {
+					lf++;
+				}
+				if (lf < length) {
+					listener.publish(bytes, i, lf - i);
+					i = lf + 1;
+				} else if (i == 0 && length == bytes.length) {
+					listener.drop();
+					skipLine = true;
+					i = length;
+				} else {
+					break;
+				}
+			}
+			pending.flip();
+			pending.position(i);
+			pending.compact();
+		}
+
+		private void release() {
+			if (pending != null) {
+				listener.giveBack(pending);
+				pending = null;
+			}
+		}
+	}
+
+	public static class Builder<E> {
+		// required parameters
+		private final List<ILogEntryFilter<E>> messageFilters;
+		// optional parameters
+		private String host;
+		private int port = DEFAULT_PORT;
+		private boolean tcp = true;
+		private boolean udp = true;
+		private int maxMessageSize = DEFAULT_MAX_MESSAGE_SIZE;
+		private Charset charset = Charset.forName("UTF-8");
+
+		@SuppressWarnings("unchecked")
+		public Builder(final ILogEntryFilter<E>... messageFilter) {
+			this(Arrays.asList(messageFilter));
+		}
+
+		public Builder(final List<ILogEntryFilter<E>> messageFilters) {
+			this.messageFilters = Preconditions.checkNotNull(messageFilters, "'messageFilters' argument cannot be null.");
+		}
+
+		/**
+		 * The address to listen on; defaults to all addresses.
+		 */
+		public Builder<E> host(final String host) {
+			this.host = host;
+			return this;
+		}
+
+		/**
+		 * The port to listen on, both for TCP and UDP; 0 picks a free one.
+		 */
+		public Builder<E> port(final int port) {
+			Preconditions.checkArgument(port >= 0 && port <= 0xFFFF, "'port' argument must be a valid port number.");
+			this.port = port;
+			return this;
+		}
+
+		public Builder<E> tcp(final boolean tcp) {
+			this.tcp = tcp;
+			return this;
+		}
+
+		public Builder<E> udp(final boolean udp) {
+			this.udp = udp;
+			return this;
+		}
+
+		public Builder<E> maxMessageSize(final int maxMessageSize) {
+			Preconditions.checkArgument(maxMessageSize > 0, "'maxMessageSize' argument must be a positive number.");
+			this.maxMessageSize = maxMessageSize;
+			return this;
+		}
+
+		public Builder<E> charset(final Charset charset) {
+			this.charset = Preconditions.checkNotNull(charset, "'charset' argument cannot be null.");
+			return this;
+		}
+
+		public SyslogLogFilter<E> build() {
+			Preconditions.checkArgument(tcp || udp, "Either TCP or UDP must be listened on.");
+			return new SyslogLogFilter<E>(this);
+		}
+	}
+}
@@ -0,0 +1,234 @@
+package org.logparser.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+
+/**
+ * {@link ILineReader} implementation that follows a growing log file, keeping
+ * its file handle open between reads.
+ * 
+ * {@link #readLine()} returns null when no complete line has been appended
+ * yet, and can be called again later to pick up new lines; only the bytes
+ * appended since the previous read are ever read.
+ * 
+ * The first bytes read from the file are kept as its fingerprint. Truncation
+ * (e.g.: copytruncate) is detected when the file becomes shorter than the
+ * bytes already read, or no longer starts with its fingerprint, e.g. when it
+ * was truncated and grew past the bytes read between two polls; reading then
+ * restarts from the beginning. Rotation (e.g.: rename and create) is detected
+ * when the file found at the path is no longer the file held open, i.e. it is
+ * shorter, or longer but does not start with the fingerprint, or has content
+ * while the file held is still empty; the rest of the old file is read before
+ * the new file is opened.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public final class TailedFile implements ILineReader {
+	private static final Logger LOGGER = Logger.getLogger(TailedFile.class.getName());
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	private static final int FINGERPRINT_SIZE = 256;
+	private final File file;
+	private final Charset charset;
+	private final byte[] buffer;
+	private final ByteArrayOutputStream pending;
+	// the first bytes read from the file held open
+	private final byte[] fingerprint;
+	private int fingerprintLength;
+	private RandomAccessFile handle;
+	private long position;
+	private int bufferPosition;
+	private int bufferLength;
+
+	public TailedFile(final File file, final Charset charset) {
+		this(file, charset, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param bufferSize the size of the read buffer; lines longer than it are
+	 *            still read whole. Keep it small when following many files.
+	 */
+	public TailedFile(final File file, final Charset charset, final int bufferSize) {
+		Preconditions.checkArgument(bufferSize > 0, "'bufferSize' argument must be a positive number.");
+		this.file = Preconditions.checkNotNull(file, "'file' argument cannot be null.");
+		this.charset = Preconditions.checkNotNull(charset, "'charset' argument cannot be null.");
+		this.buffer = new byte[bufferSize];
+		this.pending = new ByteArrayOutputStream();
+		this.fingerprint = new byte[FINGERPRINT_SIZE];
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * The offset, in the file currently open, of the next byte to be read.
+	 * 
+	 * @return {@code long} containing the current read position.
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	public String readLine() throws IOException {
+		while (true) {
+			for (int i = bufferPosition; i < bufferLength; i++) {
+				if (buffer[i] == '\n') {
+					String line = decode(i);
+					bufferPosition = i + 1;
+					return line;
+				}
+			}
+			// keep an incomplete line until the rest of it is appended
+			pending.write(buffer, bufferPosition, bufferLength - bufferPosition);
+			bufferPosition = 0;
+			bufferLength = 0;
+			if (!fill()) {
+				return null;
+			}
+		}
+	}
+
+	public CharSequence readSequence() throws IOException {
+		return readLine();
+	}
+
+	public void close() throws IOException {
+		RandomAccessFile toClose = handle;
+		handle = null;
+		if (toClose != null) {
+			toClose.close();
+		}
+	}
+
+	private boolean fill() throws IOException {
+		if (handle == null && !reopen()) {
+			return false;
+		}
+		long length = handle.length();
+		if (length < position || (length > position && !startsWithFingerprint(handle))) {
+			LOGGER.info(String.format("Log file '%s' was truncated; reading from the start", file.getAbsolutePath()));
+			position = 0;
+			fingerprintLength = 0;
+			pending.reset();
+		}
+		if (length > position) {
+			handle.seek(position);
+			int n = handle.read(buffer, 0, buffer.length);
+			if (n > 0) {
+				if (position < FINGERPRINT_SIZE) {
+					int taken = (int) Math.min(n, FINGERPRINT_SIZE - position);
+					System.arraycopy(buffer, 0, fingerprint, (int) position, taken);
+					fingerprintLength = (int) position + taken;
+				}
+				position += n;
+				bufferLength = n;
+				return true;
+			}
+		}
+		if (isRotated()) {
+			LOGGER.info(String.format("Log file '%s' was rotated; reading the new file", file.getAbsolutePath()));
+			Closeables.closeQuietly(handle);
+			handle = null;
+			if (pending.size() > 0) {
+				// the old file is complete, so its last line is too
+				buffer[0] = '\n';
+				bufferLength = 1;
+				return true;
+			}
+			return fill();
+		}
+		return false;
+	}
+
+	private boolean reopen() throws IOException {
+		if (!file.exists()) {
+			return false;
+		}
+		handle = new RandomAccessFile(file, "r");
+		position = 0;
+		fingerprintLength = 0;
+		pending.reset();
+		return true;
+	}
+
+	/**
+	 * Answers whether the file found at the path is not the file held open.
+	 */
+	private boolean isRotated() throws IOException {
+		if (!file.exists()) {
+			return true;
+		}
+		long pathLength = file.length();
+		long handleLength = handle.length();
+		if (pathLength < handleLength) {
+			return true;
+		}
+		if (pathLength == handleLength) {
+			return false;
+		}
+		if (handleLength == 0) {
+			// an empty file cannot grow without the handle seeing it
+			return true;
+		}
+		// grown since the handle was checked, or replaced by a longer file
+		RandomAccessFile current = new RandomAccessFile(file, "r");
+		try {
+			return !startsWithFingerprint(current);
+		} finally {
+			Closeables.closeQuietly(current);
+		}
+	}
+
+	/**
+	 * Answers whether the given file starts with the bytes first read from the
+	 * file held open; the read position of {@code in} is not kept.
+	 */
+	private boolean startsWithFingerprint(final RandomAccessFile in) throws IOException {
+		if (fingerprintLength == 0) {
+			return true;
+		}
+		if (in.length() < fingerprintLength) {
+			return false;
+		}
+		byte[] found = new byte[fingerprintLength];
+		in.seek(0);
+		in.readFully(found);
+		for (int i = 0; i < fingerprintLength; i++) {
+			if (found[i] != fingerprint[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String decode(final int end) {
+		int limit = end;
+		ByteBuffer bytes;
+		if (pending.size() == 0) {
+			if (limit > bufferPosition && buffer[limit - 1] == '\r') {
+				limit--;
+			}
+			bytes = ByteBuffer.wrap(buffer, bufferPosition, limit - bufferPosition);
+		} else {
+			pending.write(buffer, bufferPosition, limit - bufferPosition);
+			byte[] line = pending.toByteArray();
+			pending.reset();
+			limit = line.length;
+			if (limit > 0 && line[limit - 1] == '\r') {
+				limit--;
+			}
+			bytes = ByteBuffer.wrap(line, 0, limit);
+		}
+		return charset.decode(bytes).toString();
+	}
+}
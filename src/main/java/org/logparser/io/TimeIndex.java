@@ -0,0 +1,245 @@
+package org.logparser.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import org.logparser.io.CheckpointStore.Checkpoint;
+import org.logparser.time.ITimeInterval;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+
+/**
+ * A sparse index of the timestamps in a log file: the file is divided into
+ * blocks of whole lines, roughly {@code blockSize} bytes each, and the index
+ * holds the earliest and latest timestamp found in each block.
+ *
+ * The blocks that may hold entries within a given {@link ITimeInterval} can
+ * then be told apart without reading the file, whether the file is ordered by
+ * time or not.
+ *
+ * An index covers the file up to {@link #getEnd()}, and is tied to the file by
+ * a hash of its first block; blocks are appended as the file grows.
+ *
+ * @author jorge.decastro
+ *
+ */
+@NotThreadSafe
+public final class TimeIndex {
+	public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+	private static final int MAGIC = 0x54494458; // "TIDX"
+	private static final int VERSION = 1;
+	private final int blockSize;
+	private final List<Block> blocks;
+	private long end;
+	private long hash;
+	private Block current;
+
+	public TimeIndex(final int blockSize) {
+		Preconditions.checkArgument(blockSize > 0, "'blockSize' argument must be a positive number.");
+		this.blockSize = blockSize;
+		this.blocks = new ArrayList<Block>();
+	}
+
+	/**
+	 * Loads a {@link TimeIndex} previously {@link #save(File)}d.
+	 *
+	 * @return the {@link TimeIndex} held by the given {@code file}, or
+	 *         {@code null} if there is no such file.
+	 * @throws IOException if the file exists but cannot be read as an index.
+	 */
+	public static TimeIndex load(final File file) throws IOException {
+		if (!file.exists()) {
+			return null;
+		}
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException(String.format("'%s' is not a time index", file.getAbsolutePath()));
+			}
+			TimeIndex index = new TimeIndex(in.readInt());
+			index.end = in.readLong();
+			index.hash = in.readLong();
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				index.blocks.add(new Block(in.readLong(), in.readLong(), in.readLong(), in.readLong()));
+			}
+			return index;
+		} finally {
+			Closeables.closeQuietly(in);
+		}
+	}
+
+	public void save(final File file) throws IOException {
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (!dir.exists() && !dir.mkdirs()) {
+			throw new IOException(String.format("Unable to create index directory '%s'", dir.getAbsolutePath()));
+		}
+		File tmp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(blockSize);
+			out.writeLong(end);
+			out.writeLong(hash);
+			out.writeInt(blocks.size());
+			for (Block block : blocks) {
+				out.writeLong(block.begin);
+				out.writeLong(block.end);
+				out.writeLong(block.min);
+				out.writeLong(block.max);
+			}
+		} finally {
+			out.close();
+		}
+		if (!tmp.renameTo(file)) {
+			file.delete();
+			if (!tmp.renameTo(file)) {
+				throw new IOException(String.format("Unable to replace time index '%s'", file.getAbsolutePath()));
+			}
+		}
+	}
+
+	/**
+	 * @return {@code true} if this index was built from the file behind the
+	 *         given {@code channel}, as it was up to {@link #getEnd()}.
+	 */
+	public boolean isValidFor(final FileChannel channel) throws IOException {
+		return channel.size() >= end && Checkpoint.hash(channel, end) == hash;
+	}
+
+	/**
+	 * Records the line starting at {@code offset} with the given timestamp, or
+	 * {@code null} if it has none; lines must be added in file order, starting
+	 * at {@link #getEnd()}.
+	 */
+	public void add(final long offset, final Date timestamp) {
+		if (current == null || offset - current.begin >= blockSize) {
+			close(offset);
+			current = new Block(offset, offset, Long.MAX_VALUE, Long.MIN_VALUE);
+		}
+		if (timestamp != null) {
+			current.min = Math.min(current.min, timestamp.getTime());
+			current.max = Math.max(current.max, timestamp.getTime());
+		}
+	}
+
+	/**
+	 * Ends indexing at {@code offset}, just past the last line added.
+	 */
+	public void finish(final FileChannel channel, final long offset) throws IOException {
+		close(offset);
+		current = null;
+		end = offset;
+		hash = Checkpoint.hash(channel, end);
+	}
+
+	private void close(final long offset) {
+		if (current != null) {
+			current.end = offset;
+			blocks.add(current);
+		}
+	}
+
+	/**
+	 * @return the byte ranges of the blocks that may hold lines within all of
+	 *         the given intervals, with adjacent blocks merged; blocks without
+	 *         any timestamp are left out.
+	 */
+	public List<ByteRange> overlapping(final ITimeInterval... intervals) {
+		List<ByteRange> ranges = new ArrayList<ByteRange>();
+		long begin = -1;
+		long last = -1;
+		for (Block block : blocks) {
+			if (block.overlaps(intervals)) {
+				if (block.begin != last) {
+					if (begin >= 0) {
+						ranges.add(new ByteRange(begin, last));
+					}
+					begin = block.begin;
+				}
+				last = block.end;
+			}
+		}
+		if (begin >= 0) {
+			ranges.add(new ByteRange(begin, last));
+		}
+		return ranges;
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * The offset up to which the file is indexed.
+	 */
+	public long getEnd() {
+		return end;
+	}
+
+	public List<Block> getBlocks() {
+		return Collections.unmodifiableList(blocks);
+	}
+
+	/**
+	 * A range of whole lines, and the earliest and latest timestamps in it.
+	 */
+	public static final class Block {
+		private final long begin;
+		private long end;
+		private long min;
+		private long max;
+
+		private Block(final long begin, final long end, final long min, final long max) {
+			this.begin = begin;
+			this.end = end;
+			this.min = min;
+			this.max = max;
+		}
+
+		public long getBegin() {
+			return begin;
+		}
+
+		public long getEnd() {
+			return end;
+		}
+
+		public long getMin() {
+			return min;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		private boolean overlaps(final ITimeInterval... intervals) {
+			if (min > max) {
+				return false;
+			}
+			Date from = new Date(min);
+			Date to = new Date(max);
+			for (ITimeInterval interval : intervals) {
+				if (!interval.overlaps(from, to)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -1,6 +1,12 @@
 package org.logparser.provider;
 
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 import org.apache.commons.lang.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang.builder.ToStringStyle;
 import org.codehaus.jackson.annotate.JsonCreator;
 import org.codehaus.jackson.annotate.JsonProperty;
 
@@ -15,6 +21,8 @@ public final class Config {
 	private StatsProvider statsProvider;
 	private ChartParams chartParams;
 	private SamplerProvider samplerProvider;
+	private DuplicateFilterProvider duplicateFilterProvider;
+	private LogFilterProvider logFilterProvider;
 	private final LogFilesProvider logFilesProvider;
 
 	@JsonCreator
@@ -57,6 +65,22 @@ public final class Config {
 		this.samplerProvider = samplerProvider;
 	}
 
+	public DuplicateFilterProvider getDuplicateFilterProvider() {
+		return duplicateFilterProvider;
+	}
+
+	public void setDuplicateFilterProvider(final DuplicateFilterProvider duplicateFilterProvider) {
+		this.duplicateFilterProvider = duplicateFilterProvider;
+	}
+
+	public LogFilterProvider getLogFilterProvider() {
+		return logFilterProvider;
+	}
+
+	public void setLogFilterProvider(final LogFilterProvider logFilterProvider) {
+		this.logFilterProvider = logFilterProvider;
+	}
+
 	public ChartParams getChartParams() {
 		return chartParams;
 	}
@@ -69,6 +93,51 @@ public final class Config {
 		return logFilesProvider;
 	}
 
+	/**
+	 * Checks that the providers configured can be used together.
+	 * 
+	 * @throws IllegalArgumentException if a sampler is configured along with a
+	 *             log filter provider that parses lines concurrently; which
+	 *             entries a sampler keeps depends on the order lines are parsed
+	 *             in, so it would sample differently from one run to the next.
+	 */
+	public void validate() {
+		if (samplerProvider != null && logFilterProvider != null && logFilterProvider.isConcurrent()) {
+			throw new IllegalArgumentException("'samplerProvider' property cannot be used when log files are read concurrently, i.e. with more than one worker or split, or by PIPELINE or BALANCED. Check configuration file.");
+		}
+	}
+
+	/**
+	 * A digest of the settings that decide which entries are filtered from a
+	 * log file, i.e. those of the filter, sampler and duplicate filter
+	 * providers, and the record start pattern and line length limit of the
+	 * log filter provider; any change to them yields a different digest.
+	 */
+	public String getFilterDigest() {
+		StringBuilder settings = new StringBuilder(ReflectionToStringBuilder.toString(filterProvider, ToStringStyle.SHORT_PREFIX_STYLE));
+		if (samplerProvider != null) {
+			settings.append(ReflectionToStringBuilder.toString(samplerProvider, ToStringStyle.SHORT_PREFIX_STYLE));
+		}
+		if (duplicateFilterProvider != null) {
+			settings.append(ReflectionToStringBuilder.toString(duplicateFilterProvider, ToStringStyle.SHORT_PREFIX_STYLE));
+		}
+		if (logFilterProvider != null) {
+			// how lines are read does not change the entries, but how they are cut does
+			settings.append(String.format("LogFilterProvider[recordStartPattern=%s,maxLineLength=%s,oversizedLines=%s]",
+					logFilterProvider.getRecordStartPattern(),
+					logFilterProvider.getMaxLineLength(),
+					logFilterProvider.getOversizedLines()));
+		}
+		try {
+			byte[] digest = MessageDigest.getInstance("MD5").digest(settings.toString().getBytes("UTF-8"));
+			return String.format("%032x", new BigInteger(1, digest));
+		} catch (NoSuchAlgorithmException nsae) {
+			throw new IllegalStateException(nsae);
+		} catch (UnsupportedEncodingException uee) {
+			throw new IllegalStateException(uee);
+		}
+	}
+
 	@Override
 	public String toString() {
 		return ReflectionToStringBuilder.toString(this);
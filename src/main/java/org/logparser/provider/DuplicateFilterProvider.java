@@ -0,0 +1,62 @@
+package org.logparser.provider;
+
+import net.jcip.annotations.Immutable;
+
+import org.apache.commons.lang.builder.ReflectionToStringBuilder;
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonProperty;
+import org.logparser.ILogEntryFilter;
+import org.logparser.sampling.DuplicateSuppression;
+
+/**
+ * Responsible for providing bespoke instances of {@link DuplicateSuppression}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+@Immutable
+public final class DuplicateFilterProvider {
+	public static final long DEFAULT_EXPECTED_LINES = 1000000;
+	public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.0001;
+	private final long expectedLines;
+	private final double falsePositiveRate;
+
+	@JsonCreator
+	public DuplicateFilterProvider(
+			@JsonProperty("expectedLines") final Long expectedLines,
+			@JsonProperty("falsePositiveRate") final Double falsePositiveRate) {
+
+		if (expectedLines != null && expectedLines < 0) {
+			throw new IllegalArgumentException("'expectedLines' property of duplicate filter provider must be a positive integer.");
+		}
+		if (falsePositiveRate != null && (falsePositiveRate < 0 || falsePositiveRate >= 1)) {
+			throw new IllegalArgumentException("'falsePositiveRate' property of duplicate filter provider must lie between 0 and 1.");
+		}
+		this.expectedLines = expectedLines != null && expectedLines > 0 ? expectedLines : DEFAULT_EXPECTED_LINES;
+		this.falsePositiveRate = falsePositiveRate != null && falsePositiveRate > 0 ? falsePositiveRate : DEFAULT_FALSE_POSITIVE_RATE;
+	}
+
+	/**
+	 * The number of lines the duplicate filter is first sized for; it grows as
+	 * needed.
+	 */
+	public long getExpectedLines() {
+		return expectedLines;
+	}
+
+	/**
+	 * The probability of a line being wrongly taken for a duplicate.
+	 */
+	public double getFalsePositiveRate() {
+		return falsePositiveRate;
+	}
+
+	@Override
+	public String toString() {
+		return ReflectionToStringBuilder.toString(this);
+	}
+
+	public <E> DuplicateSuppression<E> build(final ILogEntryFilter<E> filter) {
+		return new DuplicateSuppression<E>(filter, expectedLines, falsePositiveRate);
+	}
+}
@@ -9,7 +9,9 @@ import org.codehaus.jackson.annotate.JsonCreator;
 import org.codehaus.jackson.annotate.JsonProperty;
 import org.codehaus.jackson.map.annotate.JsonDeserialize;
 import org.logparser.LogEntry;
+import org.logparser.ITimestampedLogEntryFilter;
 import org.logparser.LogEntryFilter;
+import org.logparser.NcsaLogEntryFilter;
 import org.logparser.io.CommandLineArguments;
 import org.logparser.time.DateInterval;
 import org.logparser.time.ITimeInterval;
@@ -26,6 +28,7 @@ import com.google.common.base.Strings;
  */
 public final class FilterProvider {
 	private static final Logger LOGGER = Logger.getLogger(FilterProvider.class);
+	private final Format format;
 	private final String sampleEntry;
 	private final String timestampPattern;
 	private final String timestampFormat;
@@ -35,9 +38,37 @@ public final class FilterProvider {
 	private ITimeInterval timeInterval;
 	private ITimeInterval dateInterval;
 
+	/**
+	 * The formats of log entries a filter can be built for.
+	 */
+	public enum Format {
+		/**
+		 * Any format, described by the timestamp, action and duration patterns.
+		 */
+		REGEX,
+		/**
+		 * NCSA common/combined format, parsed by a {@link NcsaLogEntryFilter},
+		 * without patterns.
+		 */
+		NCSA
+	}
+
+	public FilterProvider(
+			final String sampleEntry,
+			final String timestampPattern,
+			final String timestampFormat,
+			final String actionPattern,
+			final String durationPattern,
+			final String filterPattern,
+			final ITimeInterval timeInterval,
+			final ITimeInterval dateInterval) {
+		this(null, sampleEntry, timestampPattern, timestampFormat, actionPattern, durationPattern, filterPattern, timeInterval, dateInterval);
+	}
+
 	// Ugh. Builder pattern doesn't work with Jackson's JSON auto-mapping; tolerable because it's handled by Jackson.
 	@JsonCreator
 	public FilterProvider(
+			@JsonProperty("format") final Format format,
 			@JsonProperty("sampleEntry") final String sampleEntry,
 			@JsonProperty("timestampPattern") final String timestampPattern,
 			@JsonProperty("timestampFormat") final String timestampFormat,
@@ -47,28 +78,36 @@ public final class FilterProvider {
 			@JsonProperty("timeInterval") @JsonDeserialize(as = TimeInterval.class) final ITimeInterval timeInterval,
 			@JsonProperty("dateInterval") @JsonDeserialize(as = DateInterval.class) final ITimeInterval dateInterval) {
 
-		if (Strings.isNullOrEmpty(timestampPattern)) {
-			throw new IllegalArgumentException("'timestampPattern' property of filter provider is required.");
-		}
-		if (Strings.isNullOrEmpty(timestampFormat)) {
-			throw new IllegalArgumentException("'timestampFormat' property of filter provider is required.");
-		}
-		if (Strings.isNullOrEmpty(actionPattern)) {
-			throw new IllegalArgumentException("'actionPattern' property of filter provider is required.");
-		}
-		if (Strings.isNullOrEmpty(durationPattern)) {
-			throw new IllegalArgumentException("'durationPattern' property of filter provider is required.");
+		this.format = format == null ? Format.REGEX : format;
+		// the NCSA format needs no patterns, and has a default timestamp format
+		if (this.format == Format.REGEX) {
+			if (Strings.isNullOrEmpty(timestampPattern)) {
+				throw new IllegalArgumentException("'timestampPattern' property of filter provider is required.");
+			}
+			if (Strings.isNullOrEmpty(timestampFormat)) {
+				throw new IllegalArgumentException("'timestampFormat' property of filter provider is required.");
+			}
+			if (Strings.isNullOrEmpty(actionPattern)) {
+				throw new IllegalArgumentException("'actionPattern' property of filter provider is required.");
+			}
+			if (Strings.isNullOrEmpty(durationPattern)) {
+				throw new IllegalArgumentException("'durationPattern' property of filter provider is required.");
+			}
 		}
 		this.timestampPattern = timestampPattern;
 		this.actionPattern = actionPattern;
 		this.durationPattern = durationPattern;
 		this.filterPattern = filterPattern;
-		this.timestampFormat = timestampFormat;
+		this.timestampFormat = Strings.isNullOrEmpty(timestampFormat) && this.format == Format.NCSA ? NcsaLogEntryFilter.DEFAULT_TIMESTAMP_FORMAT : timestampFormat;
 		this.timeInterval = timeInterval;
 		this.dateInterval = dateInterval;
 		this.sampleEntry = sampleEntry;
 	}
 
+	public Format getFormat() {
+		return format;
+	}
+
 	public String getSampleEntry() {
 		return sampleEntry;
 	}
@@ -144,6 +183,38 @@ public final class FilterProvider {
 		}
 	}
 
+	/**
+	 * Builds the filter for this provider's {@link Format}.
+	 */
+	public ITimestampedLogEntryFilter<LogEntry> buildFilter() {
+		return format == Format.NCSA ? buildNcsa() : build();
+	}
+
+	/**
+	 * Builds a {@link NcsaLogEntryFilter}, whatever this provider's
+	 * {@link Format}; the patterns, if any, are ignored.
+	 */
+	public NcsaLogEntryFilter buildNcsa() {
+		NcsaLogEntryFilter.Builder filterBuilder = new NcsaLogEntryFilter.Builder().timestampFormat(timestampFormat);
+
+		if (!Strings.isNullOrEmpty(sampleEntry)) {
+			filterBuilder.sampleEntry(sampleEntry);
+		}
+		if (!Strings.isNullOrEmpty(filterPattern)) {
+			filterBuilder.filterPattern(Pattern.compile(filterPattern));
+		}
+		if (timeInterval != null) {
+			filterBuilder.timeInterval(timeInterval);
+		}
+		if (dateInterval != null) {
+			filterBuilder.dateInterval(dateInterval);
+		}
+
+		NcsaLogEntryFilter logEntryFilter = filterBuilder.build();
+		checkSampleEntry(logEntryFilter, logEntryFilter.getSampleEntry());
+		return logEntryFilter;
+	}
+
 	public LogEntryFilter build() {
 		LogEntryFilter.Builder filterBuilder = new LogEntryFilter.Builder(
 				Pattern.compile(timestampPattern),
@@ -165,7 +236,11 @@ public final class FilterProvider {
 		}
 
 		LogEntryFilter logEntryFilter = filterBuilder.build();
-		String sampleLogEntry = logEntryFilter.getSampleEntry();
+		checkSampleEntry(logEntryFilter, logEntryFilter.getSampleEntry());
+		return logEntryFilter;
+	}
+
+	private static void checkSampleEntry(final ITimestampedLogEntryFilter<LogEntry> logEntryFilter, final String sampleLogEntry) {
 		// sanity check: if a sample entry is given, it should be able to parse it
 		if (!Strings.isNullOrEmpty(sampleLogEntry)) {
 			LogEntry logEntry = logEntryFilter.parse(sampleLogEntry);
@@ -175,6 +250,5 @@ public final class FilterProvider {
 				LOGGER.warn("Filter built but unable to parse given sample entry!");
 			}
 		}
-		return logEntryFilter;
 	}
 }
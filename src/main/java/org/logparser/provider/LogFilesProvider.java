@@ -10,6 +10,7 @@ import org.codehaus.jackson.annotate.JsonProperty;
 import org.logparser.io.CommandLineArguments;
 import org.logparser.io.IPreProcessor;
 import org.logparser.io.LogFiles;
+import org.logparser.time.ITimeInterval;
 
 import com.google.common.base.Strings;
 
@@ -25,18 +26,31 @@ public final class LogFilesProvider {
 	private String[] inputDirs;
 	private String outputDir;
 	private final PreProcessorProvider preProcessorProvider;
+	private final boolean deduplicate;
+	private final Integer filenameDateGroup;
+	private final String filenameDateFormat;
+
+	public LogFilesProvider(final String filenamePattern, final String[] inputDirs, final String outputDir, final PreProcessorProvider preProcessorProvider) {
+		this(filenamePattern, inputDirs, outputDir, preProcessorProvider, false, null, null);
+	}
 
 	@JsonCreator
 	public LogFilesProvider(
 			@JsonProperty("filenamePattern") final String filenamePattern,
 			@JsonProperty("inputDirs") final String[] inputDirs,
 			@JsonProperty("outputDir") final String outputDir,
-			@JsonProperty("preprocessor") final PreProcessorProvider preProcessorProvider) {
+			@JsonProperty("preprocessor") final PreProcessorProvider preProcessorProvider,
+			@JsonProperty("deduplicate") final Boolean deduplicate,
+			@JsonProperty("filenameDateGroup") final Integer filenameDateGroup,
+			@JsonProperty("filenameDateFormat") final String filenameDateFormat) {
 
 		this.filenamePattern = filenamePattern;
 		this.inputDirs = inputDirs;
 		this.outputDir = outputDir;
 		this.preProcessorProvider = preProcessorProvider;
+		this.deduplicate = deduplicate != null ? deduplicate : false;
+		this.filenameDateGroup = filenameDateGroup;
+		this.filenameDateFormat = filenameDateFormat;
 	}
 
 	public String getFilenamePattern() {
@@ -55,6 +69,30 @@ public final class LogFilesProvider {
 		return preProcessorProvider;
 	}
 
+	/**
+	 * Whether duplicate log files, e.g. from overlapping input dirs, are
+	 * dropped before parsing.
+	 */
+	public boolean isDeduplicate() {
+		return deduplicate;
+	}
+
+	/**
+	 * The capturing group of {@link #getFilenamePattern()} holding the date
+	 * of a log file; defaults to the first group.
+	 */
+	public Integer getFilenameDateGroup() {
+		return filenameDateGroup;
+	}
+
+	/**
+	 * The {@link java.text.SimpleDateFormat} pattern of the date in log file
+	 * names, if log files dated outside the date interval are to be skipped.
+	 */
+	public String getFilenameDateFormat() {
+		return filenameDateFormat;
+	}
+
 	@Override
 	public String toString() {
 		return ReflectionToStringBuilder.toString(this);
@@ -95,6 +133,14 @@ public final class LogFilesProvider {
 	}
 
 	public LogFiles build() {
+		return build(null);
+	}
+
+	/**
+	 * @param dateInterval the interval that log files must be dated within,
+	 *            if a filename date format is set; {@code null} keeps all.
+	 */
+	public LogFiles build(final ITimeInterval dateInterval) {
 		LogFiles.Builder logFilesBuilder = new LogFiles.Builder();
 		if (!Strings.isNullOrEmpty(filenamePattern)) {
 			logFilesBuilder.filenamePattern(filenamePattern);
@@ -105,6 +151,11 @@ public final class LogFilesProvider {
 		if (outputDir != null) {
 			logFilesBuilder.outputDir(outputDir);
 		}
+		logFilesBuilder.deduplicate(deduplicate);
+		if (!Strings.isNullOrEmpty(filenameDateFormat)) {
+			logFilesBuilder.filenameDate(filenameDateGroup != null ? filenameDateGroup : LogFiles.DEFAULT_FILENAME_DATE_GROUP, filenameDateFormat);
+			logFilesBuilder.dateInterval(dateInterval);
+		}
 		if (preProcessorProvider != null) {
 			String type = preProcessorProvider.type;
 			if (Strings.isNullOrEmpty(type)) {
@@ -0,0 +1,384 @@
+package org.logparser.provider;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import net.jcip.annotations.Immutable;
+
+import org.apache.commons.lang.builder.ReflectionToStringBuilder;
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonProperty;
+import org.logparser.ILogEntryFilter;
+import org.logparser.ILogFilter;
+import org.logparser.ITimestampExtractor;
+import org.logparser.io.AbstractLogFilter;
+import org.logparser.io.BalancedLogFilter;
+import org.logparser.io.BoundedLineReader.Oversized;
+import org.logparser.io.CachingLogFilter;
+import org.logparser.io.IncrementalLogFilter;
+import org.logparser.io.IndexedLogFilter;
+import org.logparser.io.LineByLineLogFilter;
+import org.logparser.io.MappedLineReader;
+import org.logparser.io.MappedLogFilter;
+import org.logparser.io.MergingLogFilter;
+import org.logparser.io.PipelinedLogFilter;
+import org.logparser.io.SeekingLogFilter;
+import org.logparser.time.DateInterval;
+import org.logparser.time.ITimeInterval;
+import org.logparser.time.InfiniteTimeInterval;
+
+import com.google.common.base.Strings;
+
+/**
+ * Responsible for providing bespoke instances of {@link ILogFilter}
+ * implementations.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+@Immutable
+public final class LogFilterProvider {
+
+	public enum ReadBy {
+		LINE, MEMORY_MAP, PIPELINE, BALANCED
+	};
+
+	private static final String CHECKPOINT_DIR = "checkpoints";
+	private static final String INDEX_DIR = "index";
+	private static final String CACHE_DIR = "cache";
+	private final ReadBy readBy;
+	private final int windowSize;
+	private final int splits;
+	private final int workers;
+	private final long chunkSize;
+	private final int parsers;
+	private final boolean incremental;
+	private final boolean cached;
+	private final boolean seek;
+	private final int seekSlack;
+	private final boolean indexed;
+	private final boolean merged;
+	private final String recordStartPattern;
+	private final int maxLineLength;
+	private final Oversized oversizedLines;
+
+	@JsonCreator
+	public LogFilterProvider(
+			@JsonProperty("readBy") final ReadBy readBy,
+			@JsonProperty("windowSize") final Integer windowSize,
+			@JsonProperty("splits") final Integer splits,
+			@JsonProperty("workers") final Integer workers,
+			@JsonProperty("chunkSize") final Long chunkSize,
+			@JsonProperty("parsers") final Integer parsers,
+			@JsonProperty("incremental") final Boolean incremental,
+			@JsonProperty("cached") final Boolean cached,
+			@JsonProperty("seek") final Boolean seek,
+			@JsonProperty("seekSlack") final Integer seekSlack,
+			@JsonProperty("indexed") final Boolean indexed,
+			@JsonProperty("merged") final Boolean merged,
+			@JsonProperty("recordStartPattern") final String recordStartPattern,
+			@JsonProperty("maxLineLength") final Integer maxLineLength,
+			@JsonProperty("oversizedLines") final Oversized oversizedLines) {
+
+		// properties left out of the configuration are null, and take their defaults
+		if (windowSize != null && windowSize < 0) {
+			throw new IllegalArgumentException("'windowSize' property of log filter provider must be a positive integer.");
+		}
+		if (splits != null && splits < 0) {
+			throw new IllegalArgumentException("'splits' property of log filter provider must be a positive integer.");
+		}
+		this.readBy = readBy != null ? readBy : ReadBy.LINE;
+		this.windowSize = windowSize != null && windowSize > 0 ? windowSize : MappedLineReader.DEFAULT_WINDOW_SIZE;
+		if (workers != null && workers < 0) {
+			throw new IllegalArgumentException("'workers' property of log filter provider must be a positive integer.");
+		}
+		this.splits = splits != null && splits > 0 ? splits : 1;
+		this.workers = workers != null && workers > 0 ? workers : 1;
+		if (chunkSize != null && chunkSize < 0) {
+			throw new IllegalArgumentException("'chunkSize' property of log filter provider must be a positive integer.");
+		}
+		this.chunkSize = chunkSize != null && chunkSize > 0 ? chunkSize : BalancedLogFilter.DEFAULT_CHUNK_SIZE;
+		if (parsers != null && parsers < 0) {
+			throw new IllegalArgumentException("'parsers' property of log filter provider must be a positive integer.");
+		}
+		this.parsers = parsers != null && parsers > 0 ? parsers : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		this.incremental = incremental != null ? incremental : false;
+		this.cached = cached != null ? cached : false;
+		if (seekSlack != null && seekSlack < 0) {
+			throw new IllegalArgumentException("'seekSlack' property of log filter provider must be a positive integer.");
+		}
+		this.seek = seek != null ? seek : false;
+		this.indexed = indexed != null ? indexed : false;
+		this.merged = merged != null ? merged : false;
+		int modes = (this.incremental ? 1 : 0) + (this.seek ? 1 : 0) + (this.indexed ? 1 : 0) + (this.merged ? 1 : 0);
+		if (modes > 1) {
+			throw new IllegalArgumentException("Only one of 'incremental', 'seek', 'indexed' and 'merged' properties of log filter provider can be set.");
+		}
+		if (modes > 0 && readBy != null && readBy != ReadBy.LINE) {
+			throw new IllegalArgumentException("'readBy' property of log filter provider cannot be set along with 'incremental', 'seek', 'indexed' or 'merged'.");
+		}
+		if (this.cached && this.merged) {
+			// cached entries are published file by file, which would undo a merge
+			throw new IllegalArgumentException("'cached' and 'merged' properties of log filter provider cannot both be set.");
+		}
+		this.seekSlack = seekSlack != null && seekSlack > 0 ? seekSlack : (int) TimeUnit.MILLISECONDS.toSeconds(SeekingLogFilter.DEFAULT_SLACK);
+		if (!Strings.isNullOrEmpty(recordStartPattern)) {
+			// fail early on a malformed pattern
+			Pattern.compile(recordStartPattern);
+		}
+		this.recordStartPattern = Strings.emptyToNull(recordStartPattern);
+		if (maxLineLength != null && maxLineLength < 0) {
+			throw new IllegalArgumentException("'maxLineLength' property of log filter provider must be a positive integer.");
+		}
+		this.maxLineLength = maxLineLength != null ? maxLineLength : 0;
+		this.oversizedLines = oversizedLines != null ? oversizedLines : Oversized.SKIP;
+	}
+
+	public ReadBy getReadBy() {
+		return readBy;
+	}
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	/**
+	 * The number of byte ranges each log file is split into, and parsed in
+	 * parallel; only applies when reading by {@link ReadBy#MEMORY_MAP}.
+	 */
+	public int getSplits() {
+		return splits;
+	}
+
+	/**
+	 * The number of log files, or ranges of log files when reading by
+	 * {@link ReadBy#BALANCED}, read concurrently.
+	 */
+	public int getWorkers() {
+		return workers;
+	}
+
+	/**
+	 * The size, in bytes, above which log files are split into ranges that
+	 * workers read independently; only applies when reading by
+	 * {@link ReadBy#BALANCED}.
+	 */
+	public long getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * The number of threads parsing the lines of each log file; only applies
+	 * when reading by {@link ReadBy#PIPELINE}. Defaults to one fewer than the
+	 * number of processors.
+	 */
+	public int getParsers() {
+		return parsers;
+	}
+
+	/**
+	 * Whether log files are read incrementally, carrying on from where the
+	 * previous run stopped; checkpoints are kept in the base output directory,
+	 * which every run shares.
+	 */
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	/**
+	 * Whether the entries filtered from each log file are cached in the base
+	 * output directory, so unchanged files need not be parsed again by later
+	 * runs.
+	 */
+	public boolean isCached() {
+		return cached;
+	}
+
+	/**
+	 * Whether time ordered log files are searched for the date interval
+	 * filtered, and only the lines within it read.
+	 */
+	public boolean isSeek() {
+		return seek;
+	}
+
+	/**
+	 * How far out of time order, in seconds, log entries may be written.
+	 */
+	public int getSeekSlack() {
+		return seekSlack;
+	}
+
+	/**
+	 * Whether a time index of each log file is kept in the base output
+	 * directory, so that later runs read only the blocks within the time and
+	 * date intervals filtered; the blocks of a gzip archive are ranges of its
+	 * members.
+	 */
+	public boolean isIndexed() {
+		return indexed;
+	}
+
+	/**
+	 * Whether the log files are merged into a single stream ordered by time,
+	 * e.g. when the same logs are gathered from several hosts; each file must
+	 * be ordered by time.
+	 */
+	public boolean isMerged() {
+		return merged;
+	}
+
+	/**
+	 * Whether lines are parsed by several threads at once, and thus not in
+	 * file order: when reading several files at once, reading by
+	 * {@link ReadBy#PIPELINE} or {@link ReadBy#BALANCED}, or by
+	 * {@link ReadBy#MEMORY_MAP} with more than one split. Merged log files are
+	 * always read by a single thread.
+	 */
+	public boolean isConcurrent() {
+		if (merged) {
+			return false;
+		}
+		if (workers > 1) {
+			return true;
+		}
+		if (incremental || seek || indexed) {
+			return false;
+		}
+		return readBy == ReadBy.PIPELINE || readBy == ReadBy.BALANCED || (readBy == ReadBy.MEMORY_MAP && splits > 1);
+	}
+
+	/**
+	 * The pattern that a line must start with to begin a new log record, e.g.
+	 * a timestamp; other lines, such as stack traces, continue the record
+	 * before them and are skipped rather than filtered. Unset by default, so
+	 * that every line is a record of its own.
+	 */
+	public String getRecordStartPattern() {
+		return recordStartPattern;
+	}
+
+	/**
+	 * The maximum length of the lines filtered; 0, the default, leaves lines
+	 * unbounded.
+	 */
+	public int getMaxLineLength() {
+		return maxLineLength;
+	}
+
+	/**
+	 * Whether lines longer than {@link #getMaxLineLength()} are skipped, the
+	 * default, or truncated; a truncated line is still filtered, and a value
+	 * cut short at its end, e.g. a duration, is taken as it is.
+	 */
+	public Oversized getOversizedLines() {
+		return oversizedLines;
+	}
+
+	/**
+	 * Applies the {@link #getRecordStartPattern()} and
+	 * {@link #getMaxLineLength()}, if any, to the given
+	 * {@link AbstractLogFilter}.
+	 * 
+	 * @return the given {@code logFilter}.
+	 */
+	public <E> AbstractLogFilter<E> configure(final AbstractLogFilter<E> logFilter) {
+		if (recordStartPattern != null) {
+			logFilter.setRecordStart(Pattern.compile(recordStartPattern));
+		}
+		logFilter.setMaxLineLength(maxLineLength, oversizedLines);
+		return logFilter;
+	}
+
+	@Override
+	public String toString() {
+		return ReflectionToStringBuilder.toString(this);
+	}
+
+	public <E> AbstractLogFilter<E> build(final ILogEntryFilter<E> filter) {
+		return build(filter, null);
+	}
+
+	/**
+	 * @param outputDir the directory where checkpoints are kept, when reading
+	 *            {@link #isIncremental()}ly; see
+	 *            {@link #build(ITimestampExtractor, ILogEntryFilter, ITimeInterval, ITimeInterval, String, String)}.
+	 */
+	public <E> AbstractLogFilter<E> build(final ILogEntryFilter<E> filter, final String outputDir) {
+		return build(null, filter, new InfiniteTimeInterval(), new InfiniteTimeInterval(), outputDir, "");
+	}
+
+	/**
+	 * Builds the {@link AbstractLogFilter} of the mode set, i.e. reading
+	 * {@link #isIncremental()}ly, {@link #isSeek()}ing, {@link #isIndexed()}
+	 * or {@link #isMerged()}, or else reading by {@link #getReadBy()}; it is
+	 * wrapped in a {@link CachingLogFilter} if {@link #isCached()}.
+	 * 
+	 * @param timestampExtractor tells the timestamp of a line, when seeking,
+	 *            indexing or merging.
+	 * @param filter the filter applied to each line.
+	 * @param timeInterval the time interval filtered, for indexing.
+	 * @param dateInterval the date interval filtered; seeking requires one.
+	 * @param outputDir the directory where checkpoints, indices and cached
+	 *            entries are kept; it must be the same from one run to the
+	 *            next for them to be found again, e.g.
+	 *            {@link org.logparser.io.LogFiles#getBaseOutputDir()} rather
+	 *            than the folder of a single run.
+	 * @param filterDigest the digest of the filter settings, e.g.
+	 *            {@link Config#getFilterDigest()}; checkpoints and cached
+	 *            entries taken with other settings are discarded.
+	 * @throws IllegalArgumentException if an argument the mode set requires
+	 *             is missing.
+	 */
+	@SuppressWarnings("unchecked")
+	public <E> AbstractLogFilter<E> build(final ITimestampExtractor timestampExtractor, final ILogEntryFilter<E> filter, final ITimeInterval timeInterval, final ITimeInterval dateInterval, final String outputDir, final String filterDigest) {
+		if ((incremental || indexed || cached) && outputDir == null) {
+			throw new IllegalArgumentException("'outputDir' argument is required to read log files incrementally, indexed or cached.");
+		}
+		if ((seek || indexed || merged) && timestampExtractor == null) {
+			throw new IllegalArgumentException("'timestampExtractor' argument is required to seek, index or merge log files.");
+		}
+		AbstractLogFilter<E> logFilter = null;
+		if (incremental) {
+			logFilter = new IncrementalLogFilter.Builder<E>(new File(outputDir, CHECKPOINT_DIR), filter).windowSize(windowSize).filterDigest(filterDigest).build();
+		} else if (seek) {
+			if (!(dateInterval instanceof DateInterval)) {
+				throw new IllegalArgumentException("'seek' property of log filter provider requires a date interval to seek.");
+			}
+			logFilter = new SeekingLogFilter.Builder<E>(timestampExtractor, (DateInterval) dateInterval, filter)
+					.slack(TimeUnit.SECONDS.toMillis(seekSlack))
+					.windowSize(windowSize)
+					.build();
+		} else if (indexed) {
+			logFilter = new IndexedLogFilter.Builder<E>(timestampExtractor, filter)
+					.timeIntervals(timeInterval, dateInterval)
+					.indexDir(new File(outputDir, INDEX_DIR))
+					.windowSize(windowSize)
+					.workers(workers)
+					.build();
+		} else if (merged) {
+			logFilter = new MergingLogFilter.Builder<E>(timestampExtractor, filter).build();
+		} else {
+			switch (readBy) {
+				case MEMORY_MAP:
+					logFilter = new MappedLogFilter.Builder<E>(filter).windowSize(windowSize).splits(splits).build();
+					break;
+				case BALANCED:
+					logFilter = new BalancedLogFilter.Builder<E>(filter).chunkSize(chunkSize).windowSize(windowSize).build();
+					break;
+				case PIPELINE:
+					logFilter = new PipelinedLogFilter.Builder<E>(filter).parsers(parsers).build();
+					break;
+				default:
+					logFilter = new LineByLineLogFilter<E>(filter);
+			}
+		}
+		configure(logFilter);
+		if (cached) {
+			// a change of filter settings invalidates the cached entries
+			return new CachingLogFilter<E>(logFilter, new File(outputDir, CACHE_DIR), filterDigest);
+		}
+		return logFilter;
+	}
+}
@@ -0,0 +1,71 @@
+package org.logparser.sampling;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.logparser.ILogEntryFilter;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * An {@link ILogEntryFilter} decorator that drops exact duplicate lines, e.g.
+ * runs of lines replayed by a log shipper after reconnecting, before they are
+ * parsed by the {@link ILogEntryFilter} it decorates.
+ * 
+ * Lines seen are remembered in a {@link ScalableBloomFilter}, which takes a
+ * fixed number of bits per line, however long; the price is that a line never
+ * seen before is, at the false positive rate given, taken for a duplicate.
+ * Since a line is only remembered once seen, the first of a run of duplicates
+ * is always kept.
+ * 
+ * @see <a href="http://en.wikipedia.org/wiki/Decorator_pattern">Decorator pattern</a>
+ * @author jorge.decastro
+ * 
+ */
+@ThreadSafe
+public final class DuplicateSuppression<E> implements ILogEntryFilter<E> {
+	private final ILogEntryFilter<E> filter;
+	private final ScalableBloomFilter seen;
+	private final AtomicLong suppressed;
+
+	public DuplicateSuppression(final ILogEntryFilter<E> filter, final long expectedLines, final double falsePositiveRate) {
+		this.filter = Preconditions.checkNotNull(filter);
+		this.seen = new ScalableBloomFilter(expectedLines, falsePositiveRate);
+		this.suppressed = new AtomicLong();
+	}
+
+	public E parse(final String text) {
+		return isFirstSeen(text) ? filter.parse(text) : null;
+	}
+
+	public E parse(final CharSequence text) {
+		return isFirstSeen(text) ? filter.parse(text) : null;
+	}
+
+	private boolean isFirstSeen(final CharSequence text) {
+		if (text == null) {
+			return true;
+		}
+		boolean added;
+		// parsing may run on several threads
+		synchronized (seen) {
+			added = seen.add(text);
+		}
+		if (!added) {
+			suppressed.incrementAndGet();
+		}
+		return added;
+	}
+
+	public ILogEntryFilter<E> getFilter() {
+		return filter;
+	}
+
+	/**
+	 * The number of lines dropped as duplicates.
+	 */
+	public long getSuppressed() {
+		return suppressed.get();
+	}
+}
@@ -21,6 +21,9 @@ import com.google.common.base.Preconditions;
  * In this particular case, it extracts {@link ITimestampedEntry}s each time the
  * time interval between any 2 entries is longer than the time given by the given {@link TimeComparator}.
  * 
+ * As with {@link SamplingByTime}, the sample depends on the order entries are
+ * parsed in, and is only reproducible when lines are parsed in file order.
+ * 
  * @see <a href="http://en.wikipedia.org/wiki/Stratified_sampling">Stratified sampling</a>
  * @see <a href="http://en.wikipedia.org/wiki/Systematic_sampling">Systematic sampling</a>
  * @see <a href="http://en.wikipedia.org/wiki/Decorator_pattern">Decorator pattern</a>
@@ -40,17 +43,26 @@ public final class GenericSamplingByTime<E extends ITimestampedEntry> implements
 	}
 
 	public E parse(final String text) {
-		E entry = filter.parse(text);
+		return sample(filter.parse(text));
+	}
+
+	public E parse(final CharSequence text) {
+		return sample(filter.parse(text));
+	}
+
+	private E sample(final E entry) {
 		if (entry != null) {
-			String action = entry.getAction();
-			if (!sampleTable.containsKey(action)) {
-				sampleTable.put(action, entry);
-				return entry;
-			}
-			E previous = sampleTable.get(action);
-			if (timeComparator.isIntervalApart(previous, entry)) {
-				sampleTable.put(action, entry);
-				return entry;
+			synchronized (sampleTable) {
+				String action = entry.getAction();
+				if (!sampleTable.containsKey(action)) {
+					sampleTable.put(action, entry);
+					return entry;
+				}
+				E previous = sampleTable.get(action);
+				if (timeComparator.isIntervalApart(previous, entry)) {
+					sampleTable.put(action, entry);
+					return entry;
+				}
 			}
 		}
 		return null;
@@ -20,6 +20,10 @@ import com.google.common.base.Preconditions;
  * In this particular case, it extracts log entries at the rate given by the sampling {@code interval}. 
  * If every 3rd log {@code E}ntry is desired, for example, the sampling {@code interval} is 3.
  * 
+ * Which entry of each {@code interval} is kept depends on the order entries
+ * are counted in; only when lines are parsed one at a time, in file order, is
+ * the same sample taken on every run.
+ * 
  * @see <a href="http://en.wikipedia.org/wiki/Stratified_sampling">Stratified sampling</a>
  * @see <a href="http://en.wikipedia.org/wiki/Systematic_sampling">Systematic sampling</a>
  * @see <a href="http://en.wikipedia.org/wiki/Decorator_pattern">Decorator pattern</a>
@@ -39,20 +43,30 @@ public final class SamplingByFrequency<E extends ITimestampedEntry> implements I
 	}
 
 	public E parse(final String text) {
-		E entry = filter.parse(text);
+		return sample(filter.parse(text));
+	}
+
+	public E parse(final CharSequence text) {
+		return sample(filter.parse(text));
+	}
+
+	private E sample(final E entry) {
 		if (entry != null) {
-			String action = entry.getAction();
-			if (!sampleTable.containsKey(action)) {
-				sampleTable.put(action, 0);
-				return entry;
-			}
-			int i = sampleTable.get(action);
-			i++;
-			if (i >= samplingInterval) {
-				sampleTable.put(action, 0);
-				return entry;
+			// parsing may run on several threads; only the sample table needs guarding
+			synchronized (sampleTable) {
+				String action = entry.getAction();
+				if (!sampleTable.containsKey(action)) {
+					sampleTable.put(action, 0);
+					return entry;
+				}
+				int i = sampleTable.get(action);
+				i++;
+				if (i >= samplingInterval) {
+					sampleTable.put(action, 0);
+					return entry;
+				}
+				sampleTable.put(action, i);
 			}
-			sampleTable.put(action, i);
 		}
 		return null;
 	}
@@ -64,4 +78,4 @@ public final class SamplingByFrequency<E extends ITimestampedEntry> implements I
 	public int getSamplingInterval() {
 		return samplingInterval;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
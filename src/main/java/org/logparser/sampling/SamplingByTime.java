@@ -21,6 +21,11 @@ import com.google.common.base.Preconditions;
  * In this particular case, it extracts log entries each time the time interval 
  * between any 2 entries is longer than the value given by {@code timeInMillis}.
  * 
+ * Whether an entry is kept depends on the entry kept before it, so entries
+ * must be parsed one at a time, in file order, for the sample to be the same
+ * from one run to the next; it is safe to share between threads, but not
+ * deterministic when they parse lines concurrently.
+ * 
  * @see <a href="http://en.wikipedia.org/wiki/Stratified_sampling">Stratified sampling</a>
  * @see <a href="http://en.wikipedia.org/wiki/Systematic_sampling">Systematic sampling</a>
  * @see <a href="http://en.wikipedia.org/wiki/Decorator_pattern">Decorator pattern</a>
@@ -45,17 +50,26 @@ public final class SamplingByTime<E extends ITimestampedEntry> implements ILogEn
 	}
 
 	public E parse(final String text) {
-		E entry = filter.parse(text);
+		return sample(filter.parse(text));
+	}
+
+	public E parse(final CharSequence text) {
+		return sample(filter.parse(text));
+	}
+
+	private E sample(final E entry) {
 		if (entry != null) {
-			String action = entry.getAction();
-			if (!sampleTable.containsKey(action)) {
-				sampleTable.put(action, entry);
-				return entry;
-			}
-			E previous = sampleTable.get(action);
-			if (entry.getTimestamp() - previous.getTimestamp() > timeInMillis) {
-				sampleTable.put(action, entry);
-				return entry;
+			synchronized (sampleTable) {
+				String action = entry.getAction();
+				if (!sampleTable.containsKey(action)) {
+					sampleTable.put(action, entry);
+					return entry;
+				}
+				E previous = sampleTable.get(action);
+				if (entry.getTimestamp() - previous.getTimestamp() > timeInMillis) {
+					sampleTable.put(action, entry);
+					return entry;
+				}
 			}
 		}
 		return null;
@@ -68,4 +82,4 @@ public final class SamplingByTime<E extends ITimestampedEntry> implements ILogEn
 	public long getTimeInMillis() {
 		return timeInMillis;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,188 @@
+package org.logparser.sampling;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A Bloom filter of {@link CharSequence}s that grows as elements are added,
+ * while keeping its overall false positive rate within the one given.
+ * 
+ * It starts with a single Bloom filter sized for the expected number of
+ * elements; once that is full, a filter twice as large, with half the false
+ * positive rate, is added, and so on. The false positive rates of all filters
+ * add up to no more than the rate given. Memory used is a fixed number of bits
+ * per element, whatever the length of the elements.
+ * 
+ * Elements are hashed char by char, without being copied.
+ * 
+ * @see <a href="http://en.wikipedia.org/wiki/Bloom_filter">Bloom filter</a>
+ * @see <a href="http://gsd.di.uminho.pt/members/cbm/ps/dbloom.pdf">Scalable Bloom Filters</a>
+ * @author jorge.decastro
+ * 
+ */
+@NotThreadSafe
+public final class ScalableBloomFilter {
+	private static final double LN2 = Math.log(2);
+	// each filter added has this fraction of the false positive rate of the one before
+	private static final double TIGHTENING_RATIO = 0.5;
+	private static final int GROWTH_FACTOR = 2;
+	private final long expectedElements;
+	private final double falsePositiveRate;
+	private final List<Stage> stages;
+	private long size;
+
+	/**
+	 * @param expectedElements the number of elements the first filter is sized
+	 *            for.
+	 * @param falsePositiveRate the probability, between 0 and 1, that an
+	 *            element never added is taken to have been.
+	 */
+	public ScalableBloomFilter(final long expectedElements, final double falsePositiveRate) {
+		Preconditions.checkArgument(expectedElements > 0, "'expectedElements' argument must be a positive number.");
+		Preconditions.checkArgument(falsePositiveRate > 0 && falsePositiveRate < 1, "'falsePositiveRate' argument must lie between 0 and 1.");
+		this.expectedElements = expectedElements;
+		this.falsePositiveRate = falsePositiveRate;
+		this.stages = new ArrayList<Stage>();
+		this.stages.add(new Stage(expectedElements, falsePositiveRate * (1 - TIGHTENING_RATIO)));
+	}
+
+	/**
+	 * Adds the given element, unless it may have been added already.
+	 * 
+	 * @return {@code true} if the element was added, i.e. was certainly not
+	 *         added before; {@code false} if it probably was.
+	 */
+	public boolean add(final CharSequence element) {
+		long h1 = fnv1a(element);
+		long h2 = mix(h1 ^ element.length()) | 1;
+		for (Stage stage : stages) {
+			if (stage.mightContain(h1, h2)) {
+				return false;
+			}
+		}
+		Stage current = stages.get(stages.size() - 1);
+		if (current.count >= current.capacity) {
+			current = new Stage(current.capacity * GROWTH_FACTOR, current.falsePositiveRate * TIGHTENING_RATIO);
+			stages.add(current);
+		}
+		current.put(h1, h2);
+		size++;
+		return true;
+	}
+
+	/**
+	 * @return {@code true} if the given element may have been added;
+	 *         {@code false} if it certainly was not.
+	 */
+	public boolean mightContain(final CharSequence element) {
+		long h1 = fnv1a(element);
+		long h2 = mix(h1 ^ element.length()) | 1;
+		for (Stage stage : stages) {
+			if (stage.mightContain(h1, h2)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The number of elements added.
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * The total number of bits used, across all filters.
+	 */
+	public long bits() {
+		long bits = 0;
+		for (Stage stage : stages) {
+			bits += stage.bits;
+		}
+		return bits;
+	}
+
+	public long getExpectedElements() {
+		return expectedElements;
+	}
+
+	public double getFalsePositiveRate() {
+		return falsePositiveRate;
+	}
+
+	private static long fnv1a(final CharSequence text) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0, n = text.length(); i < n; i++) {
+			char c = text.charAt(i);
+			hash ^= c & 0xff;
+			hash *= 0x100000001b3L;
+			hash ^= c >>> 8;
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * The finalizer of MurmurHash3, giving a second hash independent enough
+	 * of the first.
+	 */
+	private static long mix(final long value) {
+		long h = value;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * A plain Bloom filter, indexed by double hashing.
+	 */
+	private static final class Stage {
+		private final long capacity;
+		private final double falsePositiveRate;
+		private final long bits;
+		private final int hashes;
+		private final long[] words;
+		private long count;
+
+		private Stage(final long capacity, final double falsePositiveRate) {
+			this.capacity = capacity;
+			this.falsePositiveRate = falsePositiveRate;
+			long optimal = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (LN2 * LN2));
+			// bounded by what a long[] can hold
+			this.bits = Math.max(64, Math.min(optimal, (long) Integer.MAX_VALUE * 64));
+			this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * LN2));
+			this.words = new long[(int) ((bits + 63) / 64)];
+		}
+
+		private boolean mightContain(final long h1, final long h2) {
+			for (int i = 0; i < hashes; i++) {
+				long bit = index(h1, h2, i);
+				if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void put(final long h1, final long h2) {
+			for (int i = 0; i < hashes; i++) {
+				long bit = index(h1, h2, i);
+				words[(int) (bit >>> 6)] |= 1L << bit;
+			}
+			count++;
+		}
+
+		private long index(final long h1, final long h2, final int i) {
+			long combined = h1 + i * h2;
+			return (combined & Long.MAX_VALUE) % bits;
+		}
+	}
+}
@@ -49,7 +49,17 @@ public final class DateInterval implements ITimeInterval {
 	 */
 	public boolean isBetweenInstants(final Date date) {
 		Preconditions.checkNotNull(date);
-		return date.after(begin) && date.before(end);
+		return isBetweenInstants(date.getTime());
+	}
+
+	public boolean isBetweenInstants(final long millis) {
+		return millis > begin.getTime() && millis < end.getTime();
+	}
+
+	public boolean overlaps(final Date from, final Date to) {
+		Preconditions.checkNotNull(from);
+		Preconditions.checkNotNull(to);
+		return to.after(begin) && from.before(end);
 	}
 
 	public Date getBegin() {
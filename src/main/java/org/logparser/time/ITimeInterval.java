@@ -17,4 +17,27 @@ public interface ITimeInterval {
 	 *         latest time instant; false otherwise.
 	 */
 	public boolean isBetweenInstants(Date date);
+
+	/**
+	 * Answers whether a given instant lies between two time instants, as
+	 * {@link #isBetweenInstants(Date)}, without a {@link Date} to hold it.
+	 * 
+	 * @param millis the milliseconds since the epoch of the instant being
+	 *            compared.
+	 * @return true if the instant lies after earliest time instant and before
+	 *         latest time instant; false otherwise.
+	 */
+	public boolean isBetweenInstants(long millis);
+
+	/**
+	 * Answers whether any {@link Date} from {@code from} to {@code to} may lie
+	 * between two time instants. The answer may be a false positive, but never a
+	 * false negative.
+	 * 
+	 * @param from the earliest {@link Date} of the period being compared.
+	 * @param to the latest {@link Date} of the period being compared.
+	 * @return true if the period from {@code from} to {@code to} may overlap
+	 *         this interval; false otherwise.
+	 */
+	public boolean overlaps(Date from, Date to);
 }
\ No newline at end of file
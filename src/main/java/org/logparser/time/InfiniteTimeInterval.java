@@ -16,4 +16,17 @@ public final class InfiniteTimeInterval implements ITimeInterval {
 	public boolean isBetweenInstants(final Date date) {
 		return true;
 	}
+
+	public boolean isBetweenInstants(final long millis) {
+		return true;
+	}
+
+	public boolean overlaps(final Date from, final Date to) {
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "{}";
+	}
 }
@@ -2,6 +2,7 @@ package org.logparser.time;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 import net.jcip.annotations.Immutable;
 
@@ -18,9 +19,10 @@ import org.codehaus.jackson.annotate.JsonProperty;
 public final class TimeInterval implements ITimeInterval {
 	private final Instant end;
 	private final Instant begin;
-	private final Calendar cal;
-	private final Calendar from;
-	private final Calendar to;
+	/**
+	 * Scratch {@link Calendar}, confined to each thread checking instants.
+	 */
+	private final ThreadLocal<Calendar> calendar;
 
 	public TimeInterval(final Instant instant) {
 		this(instant, instant);
@@ -34,9 +36,12 @@ public final class TimeInterval implements ITimeInterval {
 	public TimeInterval(final Instant begin, final Instant end) {
 		this.begin = begin;
 		this.end = end;
-		this.cal = Calendar.getInstance();
-		this.from = Calendar.getInstance();
-		this.to = Calendar.getInstance();
+		this.calendar = new ThreadLocal<Calendar>() {
+			@Override
+			protected Calendar initialValue() {
+				return Calendar.getInstance();
+			}
+		};
 	}
 
 	/**
@@ -46,29 +51,65 @@ public final class TimeInterval implements ITimeInterval {
 	 * @return true if {@code date} lies after earliest time instant and before latest time instant.
 	 */
 	public boolean isBetweenInstants(final Date date) {
-		return isBefore(date) && isAfter(date);
+		return isBetweenInstants(date.getTime());
+	}
+
+	public boolean isBetweenInstants(final long millis) {
+		return isBefore(millis) && isAfter(millis);
+	}
+
+	/**
+	 * Answers whether any {@link Date} from {@code from} to {@code to} may lie
+	 * between the two time instants, on any day.
+	 */
+	public boolean overlaps(final Date from, final Date to) {
+		if (to.getTime() - from.getTime() >= TimeUnit.DAYS.toMillis(1)) {
+			return true;
+		}
+		// a period shorter than a day spans the day it starts on and, at most, the next
+		return overlapsOnDayOf(from, from, to) || overlapsOnDayOf(to, from, to);
+	}
+
+	private boolean overlapsOnDayOf(final Date day, final Date from, final Date to) {
+		Calendar instant = calendar.get();
+		instant.setTime(day);
+		instant.set(Calendar.HOUR_OF_DAY, begin.getHour());
+		instant.set(Calendar.MINUTE, begin.getMinute());
+		instant.set(Calendar.SECOND, 0);
+		instant.set(Calendar.MILLISECOND, 0);
+		long first = instant.getTimeInMillis();
+		instant.set(Calendar.HOUR_OF_DAY, end.getHour());
+		instant.set(Calendar.MINUTE, end.getMinute());
+		instant.set(Calendar.SECOND, 59);
+		instant.set(Calendar.MILLISECOND, 999);
+		long last = instant.getTimeInMillis();
+		return to.getTime() >= first && from.getTime() <= last;
 	}
 
 	public boolean isBefore(final Date date) {
-		// defensive copy since {@link Date}s aren't immutable
-		Date d = new Date(date.getTime());
-		cal.setTime(d);
-		to.setTime(d);
+		return isBefore(date.getTime());
+	}
+
+	private boolean isBefore(final long time) {
+		Calendar to = calendar.get();
+		to.setTimeInMillis(time);
 		to.set(Calendar.HOUR_OF_DAY, end.getHour());
 		to.set(Calendar.MINUTE, end.getMinute());
 
-		return cal.before(to);
+		return time < to.getTimeInMillis();
 	}
 
 	public boolean isAfter(final Date date) {
-		// defensive copy since {@link Date}s aren't immutable
-		Date d = new Date(date.getTime());
-		cal.setTime(d);
-		from.setTime(d);
+		return isAfter(date.getTime());
+	}
+
+	private boolean isAfter(final long time) {
+		Calendar from = calendar.get();
+		from.setTimeInMillis(time);
 		from.set(Calendar.HOUR_OF_DAY, begin.getHour());
 		from.set(Calendar.MINUTE, begin.getMinute());
 
-		return cal.after(from);
+		return time > from.getTimeInMillis();
 	}
 
 	public Instant getBegin() {
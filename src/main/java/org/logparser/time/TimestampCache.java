@@ -0,0 +1,179 @@
+package org.logparser.time;
+
+import java.text.DateFormat;
+import java.text.FieldPosition;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Parses timestamps with a {@link SimpleDateFormat}, remembering the last
+ * timestamp parsed, since consecutive log entries mostly share the same
+ * second, or at least the same minute.
+ * 
+ * A timestamp equal to the last one parsed is not parsed again; one that only
+ * differs from it in the seconds field is the last one plus the difference in
+ * seconds. Anything else, e.g. a new minute, is parsed in full, and becomes
+ * the timestamp remembered.
+ * 
+ * Timestamps are parsed by the {@link TimestampLayout} of the format, if it
+ * has one, or else by a {@link SimpleDateFormat}. The layout's fields are
+ * turned into epoch millis arithmetically, from the start of their hour in
+ * the default time zone, which is only worked out, by a {@link Calendar},
+ * once per hour.
+ * 
+ * Like {@link SimpleDateFormat}, a cache is meant to be used by one thread at
+ * a time, e.g. one per thread through a {@link ThreadLocal}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+@NotThreadSafe
+public final class TimestampCache {
+	private final String timestampFormat;
+	private final DateFormat dateFormat;
+	private final TimestampLayout layout;
+	private final Calendar calendar;
+	private final int[] fields;
+	// the local hour whose start is hourMillis, as year, month, day and hour fields
+	private final int[] hour;
+	private long hourMillis;
+	private String lastText;
+	private long lastMillis;
+	private int lastSeconds;
+	// where the seconds of lastText are, or -1 if unknown
+	private int secondsBegin = -1;
+
+	public TimestampCache(final String timestampFormat) {
+		this(timestampFormat, TimestampLayout.compile(timestampFormat));
+	}
+
+	/**
+	 * @param timestampFormat the format of the timestamps parsed.
+	 * @param layout the layout compiled from {@code timestampFormat}, or null
+	 *            if it has none.
+	 */
+	public TimestampCache(final String timestampFormat, final TimestampLayout layout) {
+		this.timestampFormat = Preconditions.checkNotNull(timestampFormat, "'timestampFormat' argument cannot be null.");
+		Preconditions.checkArgument(layout == null || timestampFormat.equals(layout.getTimestampFormat()), "'layout' argument must be compiled from 'timestampFormat'.");
+		this.dateFormat = new SimpleDateFormat(timestampFormat);
+		this.layout = layout;
+		this.calendar = dateFormat.getCalendar();
+		this.fields = new int[TimestampLayout.FIELDS];
+		this.hour = new int[] { -1, -1, -1, -1 };
+	}
+
+	public String getTimestampFormat() {
+		return timestampFormat;
+	}
+
+	public TimestampLayout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * Returns the epoch millis of the given timestamp {@code text}.
+	 * 
+	 * @throws ParseException if {@code text} is not in this cache's format.
+	 */
+	public long parse(final CharSequence text) throws ParseException {
+		return parse(text, 0, text.length());
+	}
+
+	/**
+	 * Returns the epoch millis of the timestamp in {@code text} between
+	 * {@code begin} and {@code end}, without copying it out of {@code text}
+	 * unless it has to be parsed in full.
+	 * 
+	 * @throws ParseException if the timestamp is not in this cache's format.
+	 */
+	public long parse(final CharSequence text, final int begin, final int end) throws ParseException {
+		if (lastText != null && end - begin == lastText.length()) {
+			int seconds = lastSeconds;
+			boolean same = true;
+			for (int i = 0; i < lastText.length() && same; i++) {
+				char c = text.charAt(begin + i);
+				if (c != lastText.charAt(i)) {
+					if (secondsBegin < 0) {
+						same = false;
+					} else if (i == secondsBegin) {
+						seconds = seconds(c, text.charAt(begin + i + 1));
+						i++;
+						same = seconds >= 0;
+					} else if (i == secondsBegin + 1) {
+						seconds = seconds(lastText.charAt(secondsBegin), c);
+						same = seconds >= 0;
+					} else {
+						same = false;
+					}
+				}
+			}
+			if (same) {
+				return lastMillis + (seconds - lastSeconds) * 1000L;
+			}
+		}
+		String timestamp = text.subSequence(begin, end).toString();
+		if (layout != null && layout.parse(text, begin, end, fields) && fields[TimestampLayout.MINUTE] < 60 && fields[TimestampLayout.SECOND] < 60) {
+			lastText = timestamp;
+			lastMillis = hourMillis() + fields[TimestampLayout.MINUTE] * 60000L + fields[TimestampLayout.SECOND] * 1000L + fields[TimestampLayout.MILLISECOND];
+			lastSeconds = fields[TimestampLayout.SECOND];
+			secondsBegin = layout.getSecondsOffset();
+			return lastMillis;
+		}
+		Date date = dateFormat.parse(timestamp);
+		remember(timestamp, date);
+		return date.getTime();
+	}
+
+	/**
+	 * The start of the local hour of the {@code fields} parsed, computed as
+	 * {@link SimpleDateFormat} does, with its lenient {@link Calendar}, unless
+	 * it is the hour of the last timestamp parsed.
+	 */
+	private long hourMillis() {
+		if (fields[TimestampLayout.YEAR] != hour[0] || fields[TimestampLayout.MONTH] != hour[1] || fields[TimestampLayout.DAY] != hour[2] || fields[TimestampLayout.HOUR] != hour[3]) {
+			calendar.clear();
+			calendar.set(fields[TimestampLayout.YEAR], fields[TimestampLayout.MONTH], fields[TimestampLayout.DAY], fields[TimestampLayout.HOUR], 0, 0);
+			hourMillis = calendar.getTimeInMillis();
+			hour[0] = fields[TimestampLayout.YEAR];
+			hour[1] = fields[TimestampLayout.MONTH];
+			hour[2] = fields[TimestampLayout.DAY];
+			hour[3] = fields[TimestampLayout.HOUR];
+		}
+		return hourMillis;
+	}
+
+	/**
+	 * Finds where the seconds of the given timestamp are, by formatting the
+	 * date parsed back; unless the timestamp reads the same formatted, i.e.
+	 * with 2-digit seconds where formatted, only whole equality is cached.
+	 */
+	private void remember(final String timestamp, final Date date) {
+		FieldPosition position = new FieldPosition(DateFormat.SECOND_FIELD);
+		String formatted = dateFormat.format(date, new StringBuffer(), position).toString();
+		lastText = timestamp;
+		lastMillis = date.getTime();
+		secondsBegin = -1;
+		if (position.getEndIndex() - position.getBeginIndex() == 2 && timestamp.startsWith(formatted)) {
+			lastSeconds = seconds(timestamp.charAt(position.getBeginIndex()), timestamp.charAt(position.getBeginIndex() + 1));
+			if (lastSeconds >= 0) {
+				secondsBegin = position.getBeginIndex();
+			}
+		}
+	}
+
+	/**
+	 * @return the seconds of the given digits, or -1 unless within [00, 59].
+	 */
+	private static int seconds(final char tens, final char units) {
+		if (tens < '0' || tens > '5' || units < '0' || units > '9') {
+			return -1;
+		}
+		return (tens - '0') * 10 + units - '0';
+	}
+}
@@ -0,0 +1,308 @@
+package org.logparser.time;
+
+import java.text.DateFormatSymbols;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import net.jcip.annotations.Immutable;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A timestamp format compiled into a fixed layout, e.g.
+ * {@code dd/MMM/yyyy:HH:mm:ss} or {@code yyyy-MM-dd HH:mm:ss,SSS}: each field
+ * is read from the digits at its offset, and month names are looked up in a
+ * table, rather than interpreted by a {@link java.text.SimpleDateFormat}.
+ * 
+ * Only formats whose fields all have a fixed width can be compiled, i.e. made
+ * of {@code yyyy}, {@code MM}, {@code MMM} (when all the short month names of
+ * the default locale have the same length), {@code dd}, {@code HH},
+ * {@code mm}, {@code ss}, {@code SSS} and literal text. A timestamp that does
+ * not fit the layout exactly is not parsed, and is left to the
+ * {@link java.text.SimpleDateFormat} of the same format, which may read it
+ * differently, e.g. with fewer digits, or fail to.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+@Immutable
+public final class TimestampLayout {
+	/**
+	 * The indices of the fields parsed, as set by
+	 * {@link #parse(CharSequence, int, int, int[])}.
+	 */
+	public static final int YEAR = 0;
+	public static final int MONTH = 1;
+	public static final int DAY = 2;
+	public static final int HOUR = 3;
+	public static final int MINUTE = 4;
+	public static final int SECOND = 5;
+	public static final int MILLISECOND = 6;
+	public static final int FIELDS = 7;
+	// the kind of element which is not a field
+	private static final int LITERAL = -1;
+	// the kind of the month name element, which sets the MONTH field
+	private static final int MONTH_NAME = FIELDS;
+	private final String timestampFormat;
+	private final int[] kinds;
+	private final int[] offsets;
+	private final int[] widths;
+	private final String[] literals;
+	private final String[] monthNames;
+	private final int length;
+	private final int secondsOffset;
+
+	private TimestampLayout(final String timestampFormat, final List<Element> elements, final String[] monthNames) {
+		this.timestampFormat = timestampFormat;
+		this.kinds = new int[elements.size()];
+		this.offsets = new int[elements.size()];
+		this.widths = new int[elements.size()];
+		this.literals = new String[elements.size()];
+		this.monthNames = monthNames;
+		int offset = 0;
+		int seconds = -1;
+		for (int i = 0; i < elements.size(); i++) {
+			Element element = elements.get(i);
+			kinds[i] = element.kind;
+			offsets[i] = offset;
+			widths[i] = element.width;
+			literals[i] = element.literal;
+			if (element.kind == SECOND) {
+				seconds = offset;
+			}
+			offset += element.width;
+		}
+		this.length = offset;
+		this.secondsOffset = seconds;
+	}
+
+	/**
+	 * Compiles the given {@code timestampFormat}.
+	 * 
+	 * @return the layout of {@code timestampFormat}, or null if it has fields
+	 *         of variable width, or fields that are not supported.
+	 */
+	public static TimestampLayout compile(final String timestampFormat) {
+		Preconditions.checkNotNull(timestampFormat, "'timestampFormat' argument cannot be null.");
+		List<Element> elements = new ArrayList<Element>();
+		boolean[] seen = new boolean[FIELDS];
+		String[] monthNames = null;
+		int i = 0;
+		while (i < timestampFormat.length()) {
+			char c = timestampFormat.charAt(i);
+			int run = i;
+			while (run < timestampFormat.length() && timestampFormat.charAt(run) == c) {
+				run++;
+			}
+			int count = run - i;
+			if (c == '\'') {
+				StringBuilder literal = new StringBuilder();
+				if (count % 2 == 0) {
+					// escaped quotes
+					for (int q = 0; q < count / 2; q++) {
+						literal.append('\'');
+					}
+					i = run;
+				} else {
+					i++;
+					while (true) {
+						if (i >= timestampFormat.length()) {
+							// unterminated quote
+							return null;
+						}
+						if (timestampFormat.charAt(i) != '\'') {
+							literal.append(timestampFormat.charAt(i++));
+						} else if (i + 1 < timestampFormat.length() && timestampFormat.charAt(i + 1) == '\'') {
+							literal.append('\'');
+							i += 2;
+						} else {
+							i++;
+							break;
+						}
+					}
+				}
+				elements.add(new Element(LITERAL, literal.length(), literal.toString()));
+				continue;
+			}
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+				int kind = kind(c, count);
+				if (kind == LITERAL || seen[kind == MONTH_NAME ? MONTH : kind]) {
+					return null;
+				}
+				seen[kind == MONTH_NAME ? MONTH : kind] = true;
+				int width = count;
+				if (kind == MONTH_NAME) {
+					monthNames = monthNames();
+					if (monthNames == null) {
+						return null;
+					}
+					width = monthNames[0].length();
+				}
+				elements.add(new Element(kind, width, null));
+			} else {
+				elements.add(new Element(LITERAL, count, timestampFormat.substring(i, run)));
+			}
+			i = run;
+		}
+		return new TimestampLayout(timestampFormat, elements, monthNames);
+	}
+
+	/**
+	 * The kind of a run of {@code count} pattern letters {@code c}, or
+	 * {@link #LITERAL} if not supported.
+	 */
+	private static int kind(final char c, final int count) {
+		switch (c) {
+		case 'y':
+			return count == 4 ? YEAR : LITERAL;
+		case 'M':
+			return count == 2 ? MONTH : count == 3 ? MONTH_NAME : LITERAL;
+		case 'd':
+			return count == 2 ? DAY : LITERAL;
+		case 'H':
+			return count == 2 ? HOUR : LITERAL;
+		case 'm':
+			return count == 2 ? MINUTE : LITERAL;
+		case 's':
+			return count == 2 ? SECOND : LITERAL;
+		case 'S':
+			return count == 3 ? MILLISECOND : LITERAL;
+		default:
+			return LITERAL;
+		}
+	}
+
+	/**
+	 * The short month names of the default locale, as read by a
+	 * {@link java.text.SimpleDateFormat}, or null unless all have the same
+	 * length.
+	 */
+	private static String[] monthNames() {
+		String[] shortMonths = DateFormatSymbols.getInstance().getShortMonths();
+		String[] names = new String[12];
+		for (int month = 0; month < names.length; month++) {
+			names[month] = shortMonths[month];
+			if (names[month].length() == 0 || names[month].length() != names[0].length()) {
+				return null;
+			}
+		}
+		return names;
+	}
+
+	public String getTimestampFormat() {
+		return timestampFormat;
+	}
+
+	/**
+	 * The number of characters of a timestamp in this layout.
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * The offset of the 2 digit seconds within a timestamp in this layout, or
+	 * -1 if it has none.
+	 */
+	public int getSecondsOffset() {
+		return secondsOffset;
+	}
+
+	/**
+	 * Reads the fields of the timestamp in {@code text} from {@code begin};
+	 * text after the layout, up to {@code end}, is ignored, as by
+	 * {@link java.text.SimpleDateFormat#parse(String)}.
+	 * 
+	 * @param fields where to set the fields read, indexed by {@link #YEAR} to
+	 *            {@link #MILLISECOND}; those not in the layout are set as by a
+	 *            cleared {@link Calendar}, to 1970-01-01 00:00:00.000, and
+	 *            {@link #MONTH} is 0-based.
+	 * @return false if the timestamp does not fit the layout exactly, in which
+	 *         case {@code fields} are undefined.
+	 */
+	public boolean parse(final CharSequence text, final int begin, final int end, final int[] fields) {
+		if (end - begin < length) {
+			return false;
+		}
+		fields[YEAR] = 1970;
+		fields[MONTH] = Calendar.JANUARY;
+		fields[DAY] = 1;
+		fields[HOUR] = 0;
+		fields[MINUTE] = 0;
+		fields[SECOND] = 0;
+		fields[MILLISECOND] = 0;
+		for (int i = 0; i < kinds.length; i++) {
+			int offset = begin + offsets[i];
+			int kind = kinds[i];
+			if (kind == LITERAL) {
+				String literal = literals[i];
+				for (int j = 0; j < literal.length(); j++) {
+					if (text.charAt(offset + j) != literal.charAt(j)) {
+						return false;
+					}
+				}
+			} else if (kind == MONTH_NAME) {
+				int month = month(text, offset);
+				if (month < 0) {
+					return false;
+				}
+				fields[MONTH] = month;
+			} else {
+				int value = 0;
+				for (int j = 0; j < widths[i]; j++) {
+					char c = text.charAt(offset + j);
+					if (c < '0' || c > '9') {
+						return false;
+					}
+					value = value * 10 + c - '0';
+				}
+				// digits right after a number not followed by another number are
+				// part of it, to a date format
+				int next = offset + widths[i];
+				boolean abutting = i + 1 < kinds.length && kinds[i + 1] != LITERAL && kinds[i + 1] != MONTH_NAME;
+				if (!abutting && next < end && text.charAt(next) >= '0' && text.charAt(next) <= '9') {
+					return false;
+				}
+				fields[kind] = kind == MONTH ? value - 1 : value;
+			}
+		}
+		return true;
+	}
+
+	private int month(final CharSequence text, final int offset) {
+		for (int month = 0; month < monthNames.length; month++) {
+			String name = monthNames[month];
+			boolean matches = true;
+			for (int j = 0; j < name.length() && matches; j++) {
+				char c = text.charAt(offset + j);
+				char n = name.charAt(j);
+				matches = c == n || Character.toUpperCase(c) == Character.toUpperCase(n) || Character.toLowerCase(c) == Character.toLowerCase(n);
+			}
+			if (matches) {
+				return month;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public String toString() {
+		return timestampFormat;
+	}
+
+	/**
+	 * A field or literal of a format being compiled.
+	 */
+	private static final class Element {
+		private final int kind;
+		private final int width;
+		private final String literal;
+
+		private Element(final int kind, final int width, final String literal) {
+			this.kind = kind;
+			this.width = width;
+			this.literal = literal;
+		}
+	}
+}
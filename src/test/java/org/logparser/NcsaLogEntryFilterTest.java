@@ -0,0 +1,132 @@
+package org.logparser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.logparser.time.TimeInterval;
+
+/**
+ * Unit tests for the {@link NcsaLogEntryFilter}, checked against a
+ * {@link LogEntryFilter} with the 'example' profile patterns.
+ * 
+ * @author jorge.decastro
+ */
+public class NcsaLogEntryFilterTest {
+	private static final String SAMPLE_LOG_MESSAGE = "10.117.101.80 - - [15/Dec/2009:00:00:15 +0000] \"GET /example/action/lock.do?loid=26.0.1108263263&event=unlock&eventId=37087422 HTTP/1.1\" 200 - 14";
+	private static final String EXAMPLE_LOG = "logs/EXAMPLE_log_2008-12-15.log";
+	private static final Pattern FILTER_PATTERN = Pattern.compile(".*(refresh|reload|save)\\.do$");
+
+	private NcsaLogEntryFilter underTest;
+
+	@Before
+	public void setUp() {
+		underTest = new NcsaLogEntryFilter.Builder().build();
+	}
+
+	@After
+	public void tearDown() {
+		underTest = null;
+	}
+
+	@Test
+	public void testParsingOfSampleEntry() {
+		LogEntry entry = underTest.parse(SAMPLE_LOG_MESSAGE);
+
+		assertThat(entry, is(notNullValue()));
+		assertThat(entry.getAction(), is(equalTo("/example/action/lock.do")));
+		assertThat(entry.getDuration(), is(equalTo(14D)));
+	}
+
+	@Test
+	public void testSameEntriesAsRegexFilter() throws IOException {
+		assertSameEntries(new NcsaLogEntryFilter.Builder().build(), regexFilter(Pattern.compile(LogEntryFilter.DEFAULT_FILTER_PATTERN)));
+	}
+
+	@Test
+	public void testSameEntriesAsRegexFilterWithFilterPattern() throws IOException {
+		assertSameEntries(new NcsaLogEntryFilter.Builder().filterPattern(FILTER_PATTERN).build(), regexFilter(FILTER_PATTERN));
+	}
+
+	@Test
+	public void testSameEntriesAsRegexFilterForEdgeCases() {
+		LogEntryFilter regexFilter = regexFilter(Pattern.compile(LogEntryFilter.DEFAULT_FILTER_PATTERN));
+		String[] lines = {
+				"",
+				"no timestamp /path/a.do 12",
+				"[15/Dec/2009:00:00:15 +0000 /path/a.do 12",
+				"[15/Dec/2009:00:00:15 +0000] /path/a.do 12",
+				"[15/Dec/2009:00:00:15 +0000]/path/a.do 12",
+				"[15/Dec/2009:00:00:15 +0000] GET /path/a.do",
+				"[15/Dec/2009:00:00:15 +0000] GET /a 12",
+				"[15/Dec/2009:00:00:15 +0000] GET /ab 12",
+				"[15/Dec/2009:00:00:15 +0000] GET //ab 12",
+				"[15/Dec/2009:00:00:15 +0000] GET /a/b#top 12",
+				"[15/Dec/2009:00:00:15 +0000] GET /a//b?x=/y 12",
+				"[15/Dec/2009:00:00:15 +0000] GET /first.do /second.do 12",
+				"[15/Dec/2009:00:00:15 +0000] GET /first.do\t/x 12",
+				"[15/Dec/2009:00:00:15 +0000] [other] GET /path/a.do 12",
+				"/before.do [15/Dec/2009:00:00:15 +0000] 12" };
+		for (String line : lines) {
+			assertThat(line, underTest.parse(line), is(equalTo(regexFilter.parse(line))));
+			assertThat(line, underTest.extractTimestamp(line), is(equalTo(regexFilter.extractTimestamp(line))));
+		}
+	}
+
+	@Test
+	public void testTimeIntervalIsApplied() {
+		underTest = new NcsaLogEntryFilter.Builder().timeInterval(new TimeInterval("01:00", "02:00")).build();
+
+		assertThat(underTest.parse(SAMPLE_LOG_MESSAGE), is(nullValue()));
+	}
+
+	@Test
+	public void testExtractTimestampOfMalformedTimestampIsNull() {
+		assertThat(underTest.extractTimestamp("[yesterday] GET /path/a.do 12"), is(nullValue()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParsingOfMalformedTimestampFailsQuickly() {
+		underTest.parse("[yesterday] GET /path/a.do 12");
+	}
+
+	private static LogEntryFilter regexFilter(final Pattern filterPattern) {
+		return new LogEntryFilter.Builder(
+				Pattern.compile(NcsaLogEntryFilter.TIMESTAMP_PATTERN),
+				NcsaLogEntryFilter.DEFAULT_TIMESTAMP_FORMAT,
+				Pattern.compile(NcsaLogEntryFilter.ACTION_PATTERN),
+				Pattern.compile(NcsaLogEntryFilter.DURATION_PATTERN))
+				.filterPattern(filterPattern)
+				.build();
+	}
+
+	private static void assertSameEntries(final NcsaLogEntryFilter ncsaFilter, final LogEntryFilter regexFilter) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(EXAMPLE_LOG), "UTF-8"));
+		int parsed = 0;
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				LogEntry expected = regexFilter.parse(line);
+				assertThat(line, ncsaFilter.parse(line), is(equalTo(expected)));
+				if (expected != null) {
+					parsed++;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		assertThat(parsed, is(greaterThan(0)));
+	}
+}
@@ -0,0 +1,61 @@
+package org.logparser.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.nio.ByteBuffer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link AsciiCharSequence}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public class AsciiCharSequenceTest {
+	private ByteBuffer bytes;
+	private AsciiCharSequence underTest;
+
+	@Before
+	public void setUp() throws Exception {
+		bytes = ByteBuffer.wrap("xxGET /example/save.do 200 14yy".getBytes("US-ASCII"));
+		underTest = new AsciiCharSequence(bytes, 2, bytes.limit() - 4);
+	}
+
+	@Test
+	public void testViewsTheGivenRange() {
+		assertThat(underTest.length(), is(equalTo(27)));
+		assertThat(underTest.charAt(0), is(equalTo('G')));
+		assertThat(underTest.toString(), is(equalTo("GET /example/save.do 200 14")));
+		assertThat(underTest.subSequence(4, 20).toString(), is(equalTo("/example/save.do")));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testCharAtPastTheRangeThrows() {
+		underTest.charAt(27);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRangePastTheBufferLimitIsRejected() {
+		underTest.set(bytes, 2, bytes.limit());
+	}
+
+	@Test
+	public void testCanBeMatchedByRegularExpressions() {
+		Matcher m = Pattern.compile("\\s(\\S+\\.do)\\s").matcher(underTest);
+		assertThat(m.find(), is(true));
+		assertThat(m.group(1), is(equalTo("/example/save.do")));
+	}
+
+	@Test
+	public void testDetectsNonAsciiBytes() {
+		ByteBuffer nonAscii = ByteBuffer.wrap(new byte[] { 'a', (byte) 0xc3, (byte) 0xa9 });
+		assertThat(AsciiCharSequence.isAscii(nonAscii, 0, 1), is(true));
+		assertThat(AsciiCharSequence.isAscii(nonAscii, 0, 3), is(false));
+	}
+}
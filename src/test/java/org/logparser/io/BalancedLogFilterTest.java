@@ -0,0 +1,106 @@
+package org.logparser.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.logparser.LogEntry;
+import org.logparser.LogEntryFilter;
+import org.logparser.LogSnapshot;
+import org.logparser.provider.FilterProvider;
+import org.logparser.time.InfiniteTimeInterval;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Tests for {@link BalancedLogFilter}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public class BalancedLogFilterTest {
+	private static final File LOG_FILE = new File("logs/EXAMPLE_log_2008-12-15.log");
+	private static final int LOG_FILE_LINES = 10822;
+	private LogEntryFilter filter;
+	private File dir;
+	private File small;
+
+	@Before
+	public void setUp() throws IOException {
+		filter = new FilterProvider(
+				null,
+				"\\[((.*?))\\]",
+				"dd/MMM/yyyy:HH:mm:ss",
+				"(?:\\[.*?\\].*\\s)(((?:\\/\\w+)*\\/)([\\w\\-\\.]+[^#?\\s]+))",
+				"(\\d+)$",
+				".*\\.do$",
+				new InfiniteTimeInterval(),
+				new InfiniteTimeInterval()).build();
+		dir = Files.createTempDir();
+		small = new File(dir, "small.log");
+		// the first hundred lines of the example log
+		List<String> lines = Files.readLines(LOG_FILE, Charsets.UTF_8);
+		StringBuilder content = new StringBuilder();
+		for (String line : lines.subList(0, 100)) {
+			content.append(line).append('\n');
+		}
+		Files.write(content, small, Charsets.UTF_8);
+	}
+
+	@After
+	public void tearDown() {
+		small.delete();
+		dir.delete();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	@SuppressWarnings("unchecked")
+	public void testNonPositiveChunkSize() {
+		new BalancedLogFilter.Builder<LogEntry>(filter).chunkSize(0);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testTasksAreScheduledLargestFirst() {
+		BalancedLogFilter<LogEntry> underTest = new BalancedLogFilter.Builder<LogEntry>(filter).chunkSize(LOG_FILE.length() / 4 + 1).build();
+		List<BalancedLogFilter<LogEntry>.Task> tasks = underTest.schedule(new File[] { small, LOG_FILE });
+
+		assertThat(tasks.size(), is(equalTo(5)));
+		assertThat(tasks.get(tasks.size() - 1).getRange(), is(nullValue()));
+		long total = 0;
+		for (int i = 0; i < tasks.size(); i++) {
+			total += tasks.get(i).getLength();
+			if (i > 0) {
+				assertThat(tasks.get(i - 1).getLength() >= tasks.get(i).getLength(), is(true));
+			}
+		}
+		assertThat(total, is(equalTo(LOG_FILE.length() + small.length())));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSplitFilesPublishTheSameEntries() {
+		LogSnapshot<LogEntry> expected = new LogSnapshot<LogEntry>();
+		LineByLineLogFilter<LogEntry> lineByLine = new LineByLineLogFilter<LogEntry>(filter);
+		lineByLine.attach(expected);
+		lineByLine.filter(new File[] { LOG_FILE, small });
+
+		LogSnapshot<LogEntry> actual = new LogSnapshot<LogEntry>();
+		BalancedLogFilter<LogEntry> underTest = new BalancedLogFilter.Builder<LogEntry>(filter).chunkSize(64 * 1024).build();
+		underTest.attach(actual);
+		underTest.filter(new File[] { small, LOG_FILE }, 4);
+
+		assertThat(underTest.size(), is(equalTo(LOG_FILE_LINES + 100)));
+		assertThat(actual.getSize(), is(equalTo(expected.getSize())));
+		assertThat(actual.getSummary(), is(equalTo(expected.getSummary())));
+	}
+}
@@ -0,0 +1,100 @@
+package org.logparser.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+import org.logparser.ILogEntryFilter;
+import org.logparser.io.BoundedLineReader.Oversized;
+
+import com.google.common.base.Strings;
+
+/**
+ * Unit tests for {@link BoundedLineReader}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public class BoundedLineReaderTest {
+	private static final String HUGE = Strings.repeat("QUJDRA==", 100 * 1024);
+	private static final String LOG = "first line\r\n" + HUGE + "\n12345\nlast line";
+
+	@Test(expected = NullPointerException.class)
+	public void testNullReaderArgument() {
+		StringReader reader = null;
+		new BoundedLineReader(reader, 10, Oversized.TRUNCATE);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNonPositiveMaxLengthArgument() {
+		new BoundedLineReader(new StringReader(LOG), 0, Oversized.TRUNCATE);
+	}
+
+	@Test
+	public void testLinesWithinMaxLengthAreReadLikeBufferedReader() throws IOException {
+		BoundedLineReader underTest = new BoundedLineReader(new StringReader(LOG), HUGE.length(), Oversized.SKIP);
+		BufferedReader expected = new BufferedReader(new StringReader(LOG));
+		String line;
+		while ((line = expected.readLine()) != null) {
+			assertThat(underTest.readLine(), is(equalTo(line)));
+		}
+		assertThat(underTest.readLine(), is(nullValue()));
+		assertThat(underTest.getSkipped(), is(equalTo(0L)));
+	}
+
+	@Test
+	public void testOversizedLinesAreTruncated() throws IOException {
+		BoundedLineReader underTest = new BoundedLineReader(new StringReader(LOG), 10, Oversized.TRUNCATE);
+		assertThat(underTest.readLine(), is(equalTo("first line")));
+		assertThat(underTest.readLine(), is(equalTo("QUJDRA==QU")));
+		assertThat(underTest.readLine(), is(equalTo("12345")));
+		assertThat(underTest.readLine(), is(equalTo("last line")));
+		assertThat(underTest.readLine(), is(nullValue()));
+		assertThat(underTest.getTruncated(), is(equalTo(1L)));
+	}
+
+	@Test
+	public void testOversizedLinesAreSkipped() throws IOException {
+		BoundedLineReader underTest = new BoundedLineReader(new StringReader(LOG), 10, Oversized.SKIP);
+		assertThat(underTest.readLine(), is(equalTo("first line")));
+		assertThat(underTest.readLine(), is(equalTo("12345")));
+		assertThat(underTest.readLine(), is(equalTo("last line")));
+		assertThat(underTest.readLine(), is(nullValue()));
+		assertThat(underTest.getSkipped(), is(equalTo(1L)));
+	}
+
+	@Test
+	public void testDecoratedReaderLinesAreBounded() throws IOException {
+		ILineReader lines = new BufferedLineReader(new BufferedReader(new StringReader(LOG)));
+		BoundedLineReader underTest = new BoundedLineReader(lines, 9, Oversized.SKIP);
+		assertThat(underTest.readLine(), is(equalTo("12345")));
+		assertThat(underTest.readLine(), is(equalTo("last line")));
+		assertThat(underTest.readLine(), is(nullValue()));
+		assertThat(underTest.getSkipped(), is(equalTo(2L)));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testLogFilterCountsOversizedLines() {
+		LineByLineLogFilter<String> underTest = new LineByLineLogFilter<String>(new StringFilter());
+		underTest.setMaxLineLength(10, Oversized.SKIP);
+		assertThat(underTest.filter(new BoundedLineReader(new StringReader(LOG), 10, Oversized.SKIP), "test"), is(equalTo(3)));
+		assertThat(underTest.getSkippedLines(), is(equalTo(1L)));
+	}
+
+	private static final class StringFilter implements ILogEntryFilter<String> {
+		public String parse(final String text) {
+			return text;
+		}
+
+		public String parse(final CharSequence text) {
+			return text.toString();
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package org.logparser.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ByteRange}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public class ByteRangeTest {
+	private static final String CONTENT = "a\nbb\nccc\ndddd\neeeee\nffffff";
+	private File file;
+	private FileChannel channel;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("range", ".log");
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(CONTENT.getBytes("US-ASCII"));
+		out.close();
+		channel = new FileInputStream(file).getChannel();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		channel.close();
+		file.delete();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBeginAfterEndThrows() {
+		new ByteRange(2, 1);
+	}
+
+	@Test
+	public void testSplitRangesAreContiguousAndAlignedToLines() throws IOException {
+		List<ByteRange> ranges = ByteRange.split(channel, 3);
+		assertThat(ranges.size(), is(3));
+		long begin = 0;
+		for (ByteRange range : ranges) {
+			assertThat(range.getBegin(), is(equalTo(begin)));
+			if (range.getEnd() < channel.size()) {
+				assertThat(byteAt(range.getEnd() - 1), is(equalTo((byte) '\n')));
+			}
+			begin = range.getEnd();
+		}
+		assertThat(begin, is(equalTo(channel.size())));
+	}
+
+	@Test
+	public void testSplitIntoMorePartsThanLinesReturnsFewerRanges() throws IOException {
+		List<ByteRange> ranges = ByteRange.split(channel, 100);
+		assertThat(ranges.size(), is(6));
+	}
+
+	private byte byteAt(final long position) throws IOException {
+		ByteBuffer b = ByteBuffer.allocate(1);
+		channel.read(b, position);
+		return b.get(0);
+	}
+}
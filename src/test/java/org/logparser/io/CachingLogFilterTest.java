@@ -0,0 +1,116 @@
+package org.logparser.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.logparser.LogEntry;
+import org.logparser.LogEntryFilter;
+import org.logparser.LogSnapshot;
+import org.logparser.provider.FilterProvider;
+import org.logparser.time.InfiniteTimeInterval;
+
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+
+/**
+ * Tests for {@link CachingLogFilter}.
+ *
+ * @author jorge.decastro
+ *
+ */
+public class CachingLogFilterTest {
+	private static final File LOG_FILE = new File("logs/EXAMPLE_log_2008-12-15.log");
+	private LogEntryFilter filter;
+	private File dir;
+	private File cacheDir;
+	private File log;
+
+	@Before
+	public void setUp() throws IOException {
+		filter = new FilterProvider(
+				null,
+				"\\[((.*?))\\]",
+				"dd/MMM/yyyy:HH:mm:ss",
+				"(?:\\[.*?\\].*\\s)(((?:\\/\\w+)*\\/)([\\w\\-\\.]+[^#?\\s]+))",
+				"(\\d+)$",
+				".*\\.do$",
+				new InfiniteTimeInterval(),
+				new InfiniteTimeInterval()).build();
+		dir = File.createTempFile("caching", "");
+		dir.delete();
+		dir.mkdirs();
+		cacheDir = new File(dir, "cache");
+		log = new File(dir, LOG_FILE.getName());
+		Files.copy(LOG_FILE, log);
+	}
+
+	@After
+	public void tearDown() {
+		File[] cached = cacheDir.listFiles();
+		for (int i = 0; cached != null && i < cached.length; i++) {
+			cached[i].delete();
+		}
+		cacheDir.delete();
+		log.delete();
+		dir.delete();
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testLogFilterIsNotCreatedIfNullFilterKeyGiven() {
+		new CachingLogFilter<LogEntry>(new LineByLineLogFilter<LogEntry>(filter), cacheDir, null);
+	}
+
+	@Test
+	public void testUnchangedFileIsLoadedFromCache() {
+		CachingLogFilter<LogEntry> first = caching("key");
+		LogSnapshot<LogEntry> expected = new LogSnapshot<LogEntry>();
+		first.attach(expected);
+		first.filter(log);
+		assertThat(first.size(), is(equalTo(10822)));
+
+		CachingLogFilter<LogEntry> underTest = caching("key");
+		LogSnapshot<LogEntry> actual = new LogSnapshot<LogEntry>();
+		underTest.attach(actual);
+		underTest.filter(log);
+
+		assertThat(underTest.size(), is(equalTo(0)));
+		assertThat(actual.getFilteredEntries().size(), is(equalTo(10441)));
+		assertThat(actual.getFilteredEntries(), is(equalTo(expected.getFilteredEntries())));
+	}
+
+	@Test
+	public void testChangeOfFilterKeyInvalidatesCache() {
+		caching("key").filter(log);
+		CachingLogFilter<LogEntry> underTest = caching("other key");
+		underTest.filter(log);
+
+		assertThat(underTest.size(), is(equalTo(10822)));
+	}
+
+	@Test
+	public void testChangedFileIsParsedAgain() throws IOException {
+		caching("key").filter(log);
+		FileOutputStream out = new FileOutputStream(log, true);
+		try {
+			out.write("\nappended line".getBytes("ISO-8859-1"));
+		} finally {
+			Closeables.closeQuietly(out);
+		}
+		CachingLogFilter<LogEntry> underTest = caching("key");
+		underTest.filter(log);
+
+		assertThat(underTest.size(), is(equalTo(10823)));
+	}
+
+	private CachingLogFilter<LogEntry> caching(final String filterKey) {
+		return new CachingLogFilter<LogEntry>(new LineByLineLogFilter<LogEntry>(filter), cacheDir, filterKey);
+	}
+}
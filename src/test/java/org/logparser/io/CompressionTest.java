@@ -0,0 +1,133 @@
+package org.logparser.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.logparser.ILogEntryFilter;
+import org.logparser.LogEntry;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+
+/**
+ * Tests for {@link Compression}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public class CompressionTest {
+	private static final File LOG_FILE = new File("logs/EXAMPLE_log_2008-12-15.log");
+	private File gzipped;
+	private File zipped;
+	private File unnamed;
+	private File rotated;
+	private File misnamed;
+
+	@Before
+	public void setUp() throws IOException {
+		gzipped = File.createTempFile("compressed", ".log.gz");
+		write(new GZIPOutputStream(new FileOutputStream(gzipped)));
+		unnamed = File.createTempFile("compressed", "");
+		write(new GZIPOutputStream(new FileOutputStream(unnamed)));
+		rotated = File.createTempFile("compressed", ".log.1");
+		write(new GZIPOutputStream(new FileOutputStream(rotated)));
+		misnamed = File.createTempFile("compressed", ".log");
+		write(new GZIPOutputStream(new FileOutputStream(misnamed)));
+		zipped = File.createTempFile("compressed", ".zip");
+		ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(zipped));
+		zip.putNextEntry(new ZipEntry(LOG_FILE.getName()));
+		write(zip);
+	}
+
+	@After
+	public void tearDown() {
+		gzipped.delete();
+		zipped.delete();
+		unnamed.delete();
+		rotated.delete();
+		misnamed.delete();
+	}
+
+	@Test
+	public void testCompressionIsRecognisedByName() {
+		assertThat(Compression.of(gzipped), is(Compression.GZIP));
+		assertThat(Compression.of(zipped), is(Compression.ZIP));
+	}
+
+	@Test
+	public void testCompressionIsRecognisedByMagicBytes() {
+		assertThat(Compression.of(unnamed), is(Compression.GZIP));
+		assertThat(Compression.of(rotated), is(Compression.GZIP));
+	}
+
+	@Test
+	public void testFilesWithAnExtensionAreNotOpened() {
+		assertThat(Compression.of(LOG_FILE), is(Compression.NONE));
+		// the extension is trusted over the content
+		assertThat(Compression.of(misnamed), is(Compression.NONE));
+	}
+
+	@Test
+	public void testOpenDecompressesContent() throws IOException {
+		byte[] expected = toByteArray(new FileInputStream(LOG_FILE));
+		assertThat(toByteArray(Compression.GZIP.open(gzipped)), is(equalTo(expected)));
+		assertThat(toByteArray(Compression.ZIP.open(zipped)), is(equalTo(expected)));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testLogFiltersReadCompressedFiles() {
+		LineByLineLogFilter<LogEntry> lineByLine = new LineByLineLogFilter<LogEntry>(new ActionFilter());
+		lineByLine.filter(LOG_FILE);
+		int lines = lineByLine.size();
+
+		lineByLine.filter(gzipped);
+		assertThat(lineByLine.size(), is(equalTo(lines)));
+
+		MappedLogFilter<LogEntry> mapped = new MappedLogFilter.Builder<LogEntry>(new ActionFilter()).splits(4).build();
+		mapped.filter(zipped);
+		assertThat(mapped.size(), is(equalTo(lines)));
+	}
+
+	private void write(final OutputStream out) throws IOException {
+		InputStream in = new FileInputStream(LOG_FILE);
+		try {
+			ByteStreams.copy(in, out);
+		} finally {
+			Closeables.closeQuietly(in);
+			out.close();
+		}
+	}
+
+	private byte[] toByteArray(final InputStream in) throws IOException {
+		try {
+			return ByteStreams.toByteArray(in);
+		} finally {
+			Closeables.closeQuietly(in);
+		}
+	}
+
+	private static final class ActionFilter implements ILogEntryFilter<LogEntry> {
+		public LogEntry parse(final String text) {
+			return new LogEntry(0L, text, 0D);
+		}
+
+		public LogEntry parse(final CharSequence text) {
+			return parse(text.toString());
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package org.logparser.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+
+/**
+ * Tests for {@link DeduplicatingPreProcessor}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public class DeduplicatingPreProcessorTest {
+	private static final String LINE = "10.117.101.80 - - [15/Dec/2009:00:00:15 +0000] \"GET /example/action/save.do HTTP/1.1\" 200 - 14\n";
+	private static final String CONTENT = Strings.repeat(LINE, 5000);
+	private File dir;
+	private DeduplicatingPreProcessor underTest;
+
+	@Before
+	public void setUp() {
+		dir = Files.createTempDir();
+		underTest = new DeduplicatingPreProcessor(2);
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = dir.listFiles();
+		for (int i = 0; files != null && i < files.length; i++) {
+			files[i].delete();
+		}
+		dir.delete();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNonPositiveThreadsArgument() {
+		new DeduplicatingPreProcessor(0);
+	}
+
+	@Test
+	public void testDistinctFilesAreKept() throws IOException {
+		File a = write("a.log", CONTENT);
+		File b = write("b.log", CONTENT.replace("save.do", "load.do"));
+		List<File> files = Arrays.asList(a, b);
+		assertThat(underTest.apply(files), is(equalTo(files)));
+	}
+
+	@Test
+	public void testSameFileByAnotherPathIsDropped() throws IOException {
+		File a = write("a.log", CONTENT);
+		File alias = new File(dir, "../" + dir.getName() + "/a.log");
+		assertThat(underTest.apply(Arrays.asList(a, alias)), is(equalTo(Arrays.asList(a))));
+	}
+
+	@Test
+	public void testCopiesAreDropped() throws IOException {
+		File a = write("a.log", CONTENT);
+		File b = write("b.log", CONTENT.replace("save.do", "load.do"));
+		File copy = write("a.log.1", CONTENT);
+		assertThat(underTest.apply(Arrays.asList(a, b, copy)), is(equalTo(Arrays.asList(a, b))));
+	}
+
+	@Test
+	public void testSameSampledBlocksButDifferentContentIsKept() throws IOException {
+		// differs in the middle only, away from the sampled blocks
+		String content = Strings.repeat(LINE, 20000);
+		int middle = content.length() / 4;
+		File a = write("a.log", content);
+		File b = write("b.log", content.substring(0, middle) + "X" + content.substring(middle + 1));
+		List<File> files = Arrays.asList(a, b);
+		assertThat(underTest.apply(files), is(equalTo(files)));
+	}
+
+	@Test
+	public void testPrefixesAreDropped() throws IOException {
+		File archived = write("archived.log", CONTENT);
+		File live = write("live.log", CONTENT + LINE + LINE);
+		File small = write("small.log", LINE);
+		assertThat(underTest.apply(Arrays.asList(archived, live, small)), is(equalTo(Arrays.asList(live))));
+	}
+
+	@Test
+	public void testEveryPrefixOfTheSameFileIsDropped() throws IOException {
+		File first = write("live.log.3", Strings.repeat(LINE, 100));
+		File second = write("live.log.2", Strings.repeat(LINE, 1000));
+		File third = write("live.log.1", CONTENT);
+		File live = write("live.log", CONTENT + LINE);
+		File tiny = write("tiny.log", LINE.substring(0, 10));
+		assertThat(underTest.apply(Arrays.asList(first, second, third, live, tiny)), is(equalTo(Arrays.asList(live))));
+	}
+
+	@Test
+	public void testSameFirstBlockButDifferentContentIsKept() throws IOException {
+		File a = write("a.log", CONTENT);
+		File b = write("b.log", CONTENT.substring(0, CONTENT.length() - LINE.length()) + LINE.replace("save.do", "load.do") + LINE);
+		File small = write("small.log", LINE.replace("save.do", "load.do"));
+		List<File> files = Arrays.asList(a, b, small);
+		assertThat(underTest.apply(files), is(equalTo(files)));
+	}
+
+	private File write(final String name, final String content) throws IOException {
+		File file = new File(dir, name);
+		Files.write(content, file, Charsets.UTF_8);
+		return file;
+	}
+}
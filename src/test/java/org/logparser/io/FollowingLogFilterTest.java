@@ -0,0 +1,171 @@
+package org.logparser.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.logparser.ILogEntryFilter;
+import org.logparser.IObserver;
+
+import com.google.common.io.Files;
+
+/**
+ * Tests for {@link FollowingLogFilter}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public class FollowingLogFilterTest {
+	private static final int FILES = 50;
+	private File dir;
+
+	@Before
+	public void setUp() {
+		dir = Files.createTempDir();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = dir.listFiles();
+		for (int i = 0; files != null && i < files.length; i++) {
+			files[i].delete();
+		}
+		dir.delete();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	@SuppressWarnings("unchecked")
+	public void testNonPositiveThreads() {
+		new FollowingLogFilter<String>(10, new Echo()).follow(logFiles(), 0, 10);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testManyFilesAreFollowedByFewThreads() throws IOException, InterruptedException {
+		for (int i = 0; i < FILES; i++) {
+			append(new File(dir, String.format("pod-%s.log", i)), String.format("pod-%s first\n", i));
+		}
+		final Set<String> lines = Collections.synchronizedSet(new HashSet<String>());
+		final FollowingLogFilter<String> underTest = new FollowingLogFilter<String>(10, new Echo());
+		underTest.attach(new IObserver<String>() {
+			public void consume(final String event) {
+				lines.add(event);
+			}
+		});
+		Thread following = new Thread(new Runnable() {
+			public void run() {
+				underTest.follow(logFiles(), 2, 50);
+			}
+		});
+		following.start();
+		try {
+			await(lines, FILES);
+			// files grow, and new files appear
+			for (int i = 0; i < FILES; i++) {
+				append(new File(dir, String.format("pod-%s.log", i)), String.format("pod-%s second\n", i));
+			}
+			append(new File(dir, "pod-new.log"), "pod-new first\n");
+			await(lines, 2 * FILES + 1);
+		} finally {
+			underTest.stop();
+			following.join(5000);
+		}
+		assertThat(following.isAlive(), is(false));
+		assertThat(lines.size(), is(equalTo(2 * FILES + 1)));
+		assertThat(lines.contains("pod-new first"), is(true));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testFileIsStillFollowedAfterAFailedPoll() throws IOException, InterruptedException {
+		File file = new File(dir, "pod-0.log");
+		append(file, "boom\n");
+		final Set<String> lines = Collections.synchronizedSet(new HashSet<String>());
+		final FollowingLogFilter<String> underTest = new FollowingLogFilter<String>(10, new FailOnce("boom"));
+		underTest.attach(new IObserver<String>() {
+			public void consume(final String event) {
+				lines.add(event);
+			}
+		});
+		Thread following = new Thread(new Runnable() {
+			public void run() {
+				underTest.follow(logFiles(), 1, 50);
+			}
+		});
+		following.start();
+		try {
+			Thread.sleep(100);
+			append(file, "after\n");
+			await(lines, 1);
+		} finally {
+			underTest.stop();
+			following.join(5000);
+		}
+		assertThat(lines.contains("after"), is(true));
+	}
+
+	private LogFiles logFiles() {
+		return new LogFiles.Builder().inputDirs(new String[] { dir.getAbsolutePath() }).filenamePattern(".*\\.log$").build();
+	}
+
+	private void await(final Set<String> lines, final int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (lines.size() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertThat(lines.size(), is(equalTo(count)));
+	}
+
+	private void append(final File file, final String text) throws IOException {
+		FileOutputStream out = new FileOutputStream(file, true);
+		try {
+			out.write(text.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Fails to parse the given line the first time it is read.
+	 */
+	private static final class FailOnce implements ILogEntryFilter<String> {
+		private final String failing;
+		private final AtomicBoolean failed = new AtomicBoolean();
+
+		private FailOnce(final String failing) {
+			this.failing = failing;
+		}
+
+		public String parse(final String text) {
+			if (text.equals(failing) && failed.compareAndSet(false, true)) {
+				throw new IllegalStateException(String.format("failed parsing '%s'", text));
+			}
+			return text;
+		}
+
+		public String parse(final CharSequence text) {
+			return parse(text.toString());
+		}
+	}
+
+	private static final class Echo implements ILogEntryFilter<String> {
+		public String parse(final String text) {
+			return text;
+		}
+
+		public String parse(final CharSequence text) {
+			return text.toString();
+		}
+	}
+}
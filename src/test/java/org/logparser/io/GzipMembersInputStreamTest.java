@@ -0,0 +1,139 @@
+package org.logparser.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+
+/**
+ * Tests for {@link GzipMembersInputStream} and {@link GzipMembersLineReader}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public class GzipMembersInputStreamTest {
+	private static final String[] MEMBERS = { "first line\nsecond ", "line\n", "third line\n", "fourth line\n" };
+	private File file;
+	private FileChannel channel;
+	private long[] offsets;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("members", ".gz");
+		offsets = new long[MEMBERS.length + 1];
+		OutputStream out = new FileOutputStream(file);
+		try {
+			for (int i = 0; i < MEMBERS.length; i++) {
+				ByteArrayOutputStream member = new ByteArrayOutputStream();
+				GZIPOutputStream gzip = new GZIPOutputStream(member);
+				gzip.write(MEMBERS[i].getBytes("UTF-8"));
+				gzip.close();
+				out.write(member.toByteArray());
+				offsets[i + 1] = offsets[i] + member.size();
+			}
+		} finally {
+			out.close();
+		}
+		channel = new FileInputStream(file).getChannel();
+	}
+
+	@After
+	public void tearDown() {
+		Closeables.closeQuietly(channel);
+		file.delete();
+	}
+
+	@Test
+	public void testReadsAllMembers() throws IOException {
+		GzipMembersInputStream underTest = new GzipMembersInputStream(channel, 0);
+
+		assertThat(read(underTest), is(equalTo("first line\nsecond line\nthird line\nfourth line\n")));
+		assertThat(underTest.getMembers(), is(equalTo(4)));
+		assertThat(underTest.getMemberOffset(), is(equalTo(offsets[3])));
+	}
+
+	@Test
+	public void testReadsFromAnyMember() throws IOException {
+		GzipMembersInputStream underTest = new GzipMembersInputStream(channel, offsets[2]);
+
+		assertThat(read(underTest), is(equalTo("third line\nfourth line\n")));
+	}
+
+	@Test
+	public void testTellsTheMemberOfTheBytesRead() throws IOException {
+		GzipMembersInputStream underTest = new GzipMembersInputStream(channel, 0);
+		byte[] b = new byte[64];
+
+		assertThat(new String(b, 0, underTest.read(b, 0, b.length), "UTF-8"), is(equalTo(MEMBERS[0])));
+		assertThat(underTest.getMemberOffset(), is(equalTo(0L)));
+		assertThat(new String(b, 0, underTest.read(b, 0, b.length), "UTF-8"), is(equalTo(MEMBERS[1])));
+		assertThat(underTest.getMemberOffset(), is(equalTo(offsets[1])));
+		underTest.close();
+	}
+
+	@Test
+	public void testIgnoresTrailingGarbage() throws IOException {
+		OutputStream out = new FileOutputStream(file, true);
+		try {
+			out.write(new byte[16]);
+		} finally {
+			out.close();
+		}
+		GzipMembersInputStream underTest = new GzipMembersInputStream(channel, offsets[3]);
+
+		assertThat(read(underTest), is(equalTo("fourth line\n")));
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotAMember() throws IOException {
+		read(new GzipMembersInputStream(channel, 1));
+	}
+
+	@Test
+	public void testLinesAreReadByTheMemberOwningThem() throws IOException {
+		// "second line" is cut by the second member, but owned by the first
+		assertThat(lines(0, offsets[1]), is(equalTo("first line|second line|")));
+		assertThat(lines(offsets[1], offsets[2]), is(equalTo("third line|")));
+		assertThat(lines(offsets[2], offsets[4]), is(equalTo("fourth line|")));
+		assertThat(lines(0, offsets[4]), is(equalTo("first line|second line|third line|fourth line|")));
+	}
+
+	private String lines(final long begin, final long end) throws IOException {
+		GzipMembersLineReader reader = new GzipMembersLineReader(new GzipMembersInputStream(channel, begin), begin, end, Charset.forName("UTF-8"));
+		StringBuilder sb = new StringBuilder();
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				sb.append(line).append('|');
+			}
+		} finally {
+			reader.close();
+		}
+		return sb.toString();
+	}
+
+	private String read(final InputStream in) throws IOException {
+		try {
+			return new String(ByteStreams.toByteArray(in), "UTF-8");
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,286 @@
+package org.logparser.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.logparser.LogEntry;
+import org.logparser.LogEntryFilter;
+import org.logparser.LogSnapshot;
+import org.logparser.provider.FilterProvider;
+import org.logparser.time.InfiniteTimeInterval;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+
+/**
+ * Tests for {@link IncrementalLogFilter}.
+ *
+ * @author jorge.decastro
+ *
+ */
+public class IncrementalLogFilterTest {
+	private static final File LOG_FILE = new File("logs/EXAMPLE_log_2008-12-15.log");
+	private LogEntryFilter filter;
+	private List<String> lines;
+	private File dir;
+	private File checkpointDir;
+	private File log;
+
+	@Before
+	public void setUp() throws IOException {
+		filter = new FilterProvider(
+				null,
+				"\\[((.*?))\\]",
+				"dd/MMM/yyyy:HH:mm:ss",
+				"(?:\\[.*?\\].*\\s)(((?:\\/\\w+)*\\/)([\\w\\-\\.]+[^#?\\s]+))",
+				"(\\d+)$",
+				".*\\.do$",
+				new InfiniteTimeInterval(),
+				new InfiniteTimeInterval()).build();
+		lines = Files.readLines(LOG_FILE, Charsets.ISO_8859_1);
+		dir = File.createTempFile("incremental", "");
+		dir.delete();
+		dir.mkdirs();
+		checkpointDir = new File(dir, "checkpoints");
+		log = new File(dir, LOG_FILE.getName());
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : checkpointDir.listFiles() != null ? checkpointDir.listFiles() : new File[0]) {
+			f.delete();
+		}
+		checkpointDir.delete();
+		log.delete();
+		dir.delete();
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testLogFilterIsNotCreatedIfNullCheckpointDirGiven() {
+		new IncrementalLogFilter.Builder<LogEntry>(null, filter).build();
+	}
+
+	@Test
+	public void testSecondRunReadsOnlyAppendedLines() throws IOException {
+		int half = lines.size() / 2;
+		write(lines.subList(0, half), false);
+		LogSnapshot<LogEntry> first = run();
+
+		write(lines.subList(half, lines.size()), true);
+		LogSnapshot<LogEntry> second = new LogSnapshot<LogEntry>();
+		IncrementalLogFilter<LogEntry> underTest = new IncrementalLogFilter.Builder<LogEntry>(checkpointDir, filter).build();
+		underTest.attach(second);
+		underTest.filter(log);
+
+		assertThat(underTest.size(), is(equalTo(lines.size() - half)));
+		assertThat(second.getFilteredEntries().size() > first.getFilteredEntries().size(), is(true));
+		assertThat(second.getFilteredEntries(), is(equalTo(readAll())));
+	}
+
+	@Test
+	public void testUnchangedFileIsNotReadAgain() throws IOException {
+		write(lines, false);
+		LogSnapshot<LogEntry> first = run();
+		IncrementalLogFilter<LogEntry> underTest = new IncrementalLogFilter.Builder<LogEntry>(checkpointDir, filter).build();
+		LogSnapshot<LogEntry> second = new LogSnapshot<LogEntry>();
+		underTest.attach(second);
+		underTest.filter(log);
+
+		assertThat(underTest.size(), is(equalTo(0)));
+		assertThat(second.getFilteredEntries(), is(equalTo(first.getFilteredEntries())));
+	}
+
+	@Test
+	public void testUnterminatedLastLineIsLeftForNextRun() throws IOException {
+		write(lines.subList(0, 10), false);
+		FileOutputStream out = new FileOutputStream(log, true);
+		try {
+			out.write("partial".getBytes("ISO-8859-1"));
+		} finally {
+			Closeables.closeQuietly(out);
+		}
+		IncrementalLogFilter<LogEntry> underTest = new IncrementalLogFilter.Builder<LogEntry>(checkpointDir, filter).build();
+		underTest.filter(log);
+
+		assertThat(underTest.size(), is(equalTo(10)));
+		assertThat(underTest.getCheckpointStore().get(log).getOffset(), is(equalTo(log.length() - "partial".length())));
+	}
+
+	@Test
+	public void testUnterminatedLastLineIsReadOnceTheFileStopsGrowing() throws IOException {
+		write(lines.subList(0, 10), false);
+		FileOutputStream out = new FileOutputStream(log, true);
+		try {
+			out.write(lines.get(10).getBytes("ISO-8859-1"));
+		} finally {
+			Closeables.closeQuietly(out);
+		}
+		IncrementalLogFilter<LogEntry> first = new IncrementalLogFilter.Builder<LogEntry>(checkpointDir, filter).build();
+		first.filter(log);
+		assertThat(first.size(), is(equalTo(10)));
+
+		// the file has not changed since, so its last line is complete
+		IncrementalLogFilter<LogEntry> underTest = new IncrementalLogFilter.Builder<LogEntry>(checkpointDir, filter).build();
+		LogSnapshot<LogEntry> second = new LogSnapshot<LogEntry>();
+		underTest.attach(second);
+		underTest.filter(log);
+
+		assertThat(underTest.size(), is(equalTo(1)));
+		assertThat(underTest.getCheckpointStore().get(log).getOffset(), is(equalTo(log.length())));
+		assertThat(second.getFilteredEntries(), is(equalTo(readAll())));
+	}
+
+	@Test
+	public void testEntriesAreJournaledInBatches() throws IOException {
+		write(lines, false);
+		IncrementalLogFilter<LogEntry> underTest = new IncrementalLogFilter.Builder<LogEntry>(checkpointDir, filter).journalBatchSize(100).build();
+		underTest.filter(log);
+		int filtered = readAll().size();
+		assertThat(segments(underTest.getCheckpointStore().journalOf(log)), is(equalTo((filtered + 99) / 100)));
+
+		assertThat(run().getFilteredEntries(), is(equalTo(readAll())));
+	}
+
+	@Test
+	public void testReplacedFileIsReadFromTheStart() throws IOException {
+		write(lines.subList(0, 100), false);
+		run();
+		// a rotated log replaces the old one with different content
+		write(lines.subList(200, lines.size()), false);
+		IncrementalLogFilter<LogEntry> underTest = new IncrementalLogFilter.Builder<LogEntry>(checkpointDir, filter).build();
+		LogSnapshot<LogEntry> actual = new LogSnapshot<LogEntry>();
+		underTest.attach(actual);
+		underTest.filter(log);
+
+		assertThat(underTest.size(), is(equalTo(lines.size() - 200)));
+		assertThat(actual.getFilteredEntries(), is(equalTo(readAll())));
+		assertThat(underTest.getCheckpointStore().get(log), is(notNullValue()));
+	}
+
+	@Test
+	public void testChangedFilterSettingsDiscardTheCheckpoint() throws IOException {
+		int half = lines.size() / 2;
+		write(lines.subList(0, half), false);
+		LogSnapshot<LogEntry> first = new LogSnapshot<LogEntry>();
+		IncrementalLogFilter<LogEntry> underTest = new IncrementalLogFilter.Builder<LogEntry>(checkpointDir, filter).filterDigest("before").build();
+		underTest.attach(first);
+		underTest.filter(log);
+		assertThat(first.getFilteredEntries().isEmpty(), is(false));
+
+		// entries filtered under the old settings must not be replayed
+		write(lines.subList(half, lines.size()), true);
+		LogSnapshot<LogEntry> second = new LogSnapshot<LogEntry>();
+		underTest = new IncrementalLogFilter.Builder<LogEntry>(checkpointDir, filter).filterDigest("after").build();
+		underTest.attach(second);
+		underTest.filter(log);
+
+		assertThat(underTest.size(), is(equalTo(lines.size())));
+		assertThat(second.getFilteredEntries(), is(equalTo(readAll())));
+		assertThat(underTest.getCheckpointStore().get(log).getDigest(), is(equalTo("after")));
+	}
+
+	@Test
+	public void testCheckpointWithoutDigestIsDiscarded() throws IOException {
+		write(lines, false);
+		new IncrementalLogFilter.Builder<LogEntry>(checkpointDir, filter).filterDigest("digest").build().filter(log);
+		// the checkpoint as it would be saved without its digest field
+		File checkpoints = new File(checkpointDir, CheckpointStore.CHECKPOINTS_FILENAME);
+		Files.write(Files.toString(checkpoints, Charsets.ISO_8859_1).replace(",digest", ""), checkpoints, Charsets.ISO_8859_1);
+
+		IncrementalLogFilter<LogEntry> underTest = new IncrementalLogFilter.Builder<LogEntry>(checkpointDir, filter).build();
+		assertThat(underTest.getCheckpointStore().get(log), is(nullValue()));
+		LogSnapshot<LogEntry> actual = new LogSnapshot<LogEntry>();
+		underTest.attach(actual);
+		underTest.filter(log);
+
+		assertThat(underTest.size(), is(equalTo(lines.size())));
+		assertThat(actual.getFilteredEntries(), is(equalTo(readAll())));
+	}
+
+	@Test
+	public void testJournalWrittenPastTheCheckpointIsNotReplayed() throws IOException {
+		int third = lines.size() / 3;
+		write(lines.subList(0, third), false);
+		run();
+		File checkpoints = new File(checkpointDir, CheckpointStore.CHECKPOINTS_FILENAME);
+		byte[] saved = Files.toByteArray(checkpoints);
+
+		// a run that crashes after journaling its entries, but before saving its
+		// checkpoint, leaves a segment past the checkpoint offset
+		write(lines.subList(third, 2 * third), true);
+		run();
+		Files.write(saved, checkpoints);
+
+		LogSnapshot<LogEntry> recovered = run();
+		assertThat(recovered.getFilteredEntries(), is(equalTo(readAll())));
+
+		// once the checkpoint offset passes the stale segment, it must not be
+		// replayed along with the real one
+		write(lines.subList(2 * third, lines.size()), true);
+		LogSnapshot<LogEntry> last = run();
+		assertThat(last.getFilteredEntries(), is(equalTo(readAll())));
+	}
+
+	private LogSnapshot<LogEntry> run() {
+		LogSnapshot<LogEntry> snapshot = new LogSnapshot<LogEntry>();
+		IncrementalLogFilter<LogEntry> underTest = new IncrementalLogFilter.Builder<LogEntry>(checkpointDir, filter).build();
+		underTest.attach(snapshot);
+		underTest.filter(log);
+		return snapshot;
+	}
+
+	/**
+	 * Counts the segments of the given journal: each is the offset reached,
+	 * then the length of the entries serialized, then the entries.
+	 */
+	private static int segments(final File journal) throws IOException {
+		DataInputStream in = new DataInputStream(new FileInputStream(journal));
+		int segments = 0;
+		try {
+			while (true) {
+				try {
+					in.readLong();
+					in.skipBytes(in.readInt());
+				} catch (EOFException eofe) {
+					return segments;
+				}
+				segments++;
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private List<LogEntry> readAll() {
+		LogSnapshot<LogEntry> expected = new LogSnapshot<LogEntry>();
+		LineByLineLogFilter<LogEntry> lineByLine = new LineByLineLogFilter<LogEntry>(filter);
+		lineByLine.attach(expected);
+		lineByLine.filter(log);
+		return expected.getFilteredEntries();
+	}
+
+	private void write(final List<String> toWrite, final boolean append) throws IOException {
+		FileOutputStream out = new FileOutputStream(log, append);
+		try {
+			out.write((Joiner.on('\n').join(toWrite) + "\n").getBytes("ISO-8859-1"));
+		} finally {
+			Closeables.closeQuietly(out);
+		}
+	}
+}
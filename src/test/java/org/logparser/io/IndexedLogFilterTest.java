@@ -0,0 +1,186 @@
+package org.logparser.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.logparser.LogEntry;
+import org.logparser.LogEntryFilter;
+import org.logparser.LogSnapshot;
+import org.logparser.provider.FilterProvider;
+import org.logparser.time.DateInterval;
+import org.logparser.time.InfiniteTimeInterval;
+
+/**
+ * Tests for {@link IndexedLogFilter}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public class IndexedLogFilterTest {
+	private static final String TIMESTAMP_FORMAT = "dd/MMM/yyyy:HH:mm:ss";
+	private static final int LINES = 3 * 24 * 360;
+	private DateInterval dateInterval;
+	private LogEntryFilter filter;
+	private File dir;
+	private File file;
+
+	@Before
+	public void setUp() throws IOException, ParseException {
+		dateInterval = DateInterval.valueOf("2009/12/15", "2009/12/16");
+		filter = new FilterProvider(
+				null,
+				"\\[((.*?))\\]",
+				TIMESTAMP_FORMAT,
+				"(?:\\[.*?\\].*\\s)(((?:\\/\\w+)*\\/)([\\w\\-\\.]+[^#?\\s]+))",
+				"(\\d+)$",
+				".*\\.do$",
+				new InfiniteTimeInterval(),
+				dateInterval).build();
+		dir = File.createTempFile("indexed", "");
+		dir.delete();
+		dir.mkdirs();
+		file = new File(dir, "merged.log");
+		// two hosts' logs, each three days long, concatenated; the file is not ordered by time
+		long start = DateInterval.parseDate("2009/12/14").getTime();
+		BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		try {
+			write(out, start, "host-a");
+			write(out, start, "host-b");
+		} finally {
+			out.close();
+		}
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = dir.listFiles();
+		for (int i = 0; files != null && i < files.length; i++) {
+			files[i].delete();
+		}
+		dir.delete();
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testLogFilterIsNotCreatedIfNullTimestampExtractorGiven() {
+		new IndexedLogFilter.Builder<LogEntry>(null, filter).build();
+	}
+
+	@Test
+	public void testFirstReadIndexesTheWholeFile() {
+		IndexedLogFilter<LogEntry> underTest = indexed();
+		underTest.filter(file);
+
+		assertThat(underTest.size(), is(equalTo(2 * LINES)));
+		assertThat(underTest.indexOf(file).exists(), is(true));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testLaterReadsOnlyTheBlocksWithinTheInterval() {
+		LogSnapshot<LogEntry> expected = new LogSnapshot<LogEntry>();
+		LineByLineLogFilter<LogEntry> lineByLine = new LineByLineLogFilter<LogEntry>(filter);
+		lineByLine.attach(expected);
+		lineByLine.filter(file);
+		indexed().filter(file);
+
+		LogSnapshot<LogEntry> actual = new LogSnapshot<LogEntry>();
+		IndexedLogFilter<LogEntry> underTest = indexed();
+		underTest.attach(actual);
+		underTest.filter(file);
+
+		assertThat(expected.getFilteredEntries().size() > 0, is(true));
+		assertThat(actual.getFilteredEntries(), is(equalTo(expected.getFilteredEntries())));
+		assertThat(underTest.size() < lineByLine.size() / 2, is(true));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testLaterReadsOnlyTheGzipMembersWithinTheInterval() throws IOException {
+		File gzip = gzip(file, 64 * 1024);
+		LogSnapshot<LogEntry> expected = new LogSnapshot<LogEntry>();
+		LineByLineLogFilter<LogEntry> lineByLine = new LineByLineLogFilter<LogEntry>(filter);
+		lineByLine.attach(expected);
+		lineByLine.filter(gzip);
+
+		IndexedLogFilter<LogEntry> first = indexed();
+		first.filter(gzip);
+		assertThat(first.size(), is(equalTo(2 * LINES)));
+		assertThat(first.indexOf(gzip).exists(), is(true));
+
+		LogSnapshot<LogEntry> actual = new LogSnapshot<LogEntry>();
+		IndexedLogFilter<LogEntry> underTest = indexed();
+		underTest.attach(actual);
+		underTest.filter(gzip);
+
+		assertThat(expected.getFilteredEntries().size() > 0, is(true));
+		assertThat(actual.getFilteredEntries(), is(equalTo(expected.getFilteredEntries())));
+		assertThat(underTest.size() < lineByLine.size() / 2, is(true));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testGzipMembersAreReadByWorkers() throws IOException {
+		File gzip = gzip(file, 16 * 1024);
+		indexed().filter(gzip);
+
+		LogSnapshot<LogEntry> actual = new LogSnapshot<LogEntry>();
+		IndexedLogFilter<LogEntry> underTest = new IndexedLogFilter.Builder<LogEntry>(filter, filter).timeIntervals(dateInterval).blockSize(8 * 1024).workers(4).build();
+		underTest.attach(actual);
+		underTest.filter(gzip);
+
+		LogSnapshot<LogEntry> expected = new LogSnapshot<LogEntry>();
+		IndexedLogFilter<LogEntry> sequential = indexed();
+		sequential.attach(expected);
+		sequential.filter(gzip);
+
+		// workers publish entries as they go, so only the totals compare
+		assertThat(actual.getFilteredEntries().size(), is(equalTo(expected.getFilteredEntries().size())));
+		assertThat(underTest.size(), is(equalTo(sequential.size())));
+	}
+
+	/**
+	 * Compresses the given file into gzip members of {@code memberSize}
+	 * uncompressed bytes each, which cut lines in two.
+	 */
+	private File gzip(final File plain, final int memberSize) throws IOException {
+		File gzip = new File(dir, plain.getName() + ".gz");
+		byte[] content = com.google.common.io.Files.toByteArray(plain);
+		OutputStream out = new FileOutputStream(gzip);
+		try {
+			for (int i = 0; i < content.length; i += memberSize) {
+				GZIPOutputStream member = new GZIPOutputStream(out);
+				member.write(content, i, Math.min(memberSize, content.length - i));
+				member.finish();
+			}
+		} finally {
+			out.close();
+		}
+		return gzip;
+	}
+
+	private IndexedLogFilter<LogEntry> indexed() {
+		return new IndexedLogFilter.Builder<LogEntry>(filter, filter).timeIntervals(dateInterval).blockSize(8 * 1024).build();
+	}
+
+	private void write(final BufferedWriter out, final long start, final String host) throws IOException {
+		SimpleDateFormat format = new SimpleDateFormat(TIMESTAMP_FORMAT);
+		for (int i = 0; i < LINES; i++) {
+			out.write(String.format("%s - - [%s +0000] \"GET /example/action/save.do?id=%s HTTP/1.1\" 200 - %s\n", host, format.format(new Date(start + i * 10000L)), i, i % 100));
+		}
+	}
+}
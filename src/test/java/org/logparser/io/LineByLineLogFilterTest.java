@@ -1,11 +1,26 @@
 package org.logparser.io;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 import org.junit.Test;
 import org.logparser.ILogEntryFilter;
 import org.logparser.LogEntry;
+import org.logparser.LogEntryFilter;
+import org.logparser.LogSnapshot;
+import org.logparser.provider.FilterProvider;
+import org.logparser.time.InfiniteTimeInterval;
+
+import com.google.common.io.Files;
 
 /**
  * Unit tests for {@link LineByLineLogFilter}.
@@ -14,6 +29,8 @@ import org.logparser.LogEntry;
  * 
  */
 public class LineByLineLogFilterTest {
+	private static final File LOG_FILE = new File("logs/EXAMPLE_log_2008-12-15.log");
+	private static final int LOG_FILE_LINES = 10822;
 
 	@Test(expected = NullPointerException.class)
 	@SuppressWarnings("unchecked")
@@ -34,4 +51,82 @@ public class LineByLineLogFilterTest {
 		filters.add(null);
 		new LineByLineLogFilter<LogEntry>(filters);
 	}
+
+	@Test(expected = IllegalArgumentException.class)
+	@SuppressWarnings("unchecked")
+	public void testFilterFailsIfNonPositiveWorkersGiven() {
+		new LineByLineLogFilter<LogEntry>(buildFilter()).filter(new File[] { LOG_FILE }, 0);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSizeIsTheTotalOfLinesAcrossAllFiles() {
+		LineByLineLogFilter<LogEntry> underTest = new LineByLineLogFilter<LogEntry>(buildFilter());
+		underTest.filter(new File[] { LOG_FILE, LOG_FILE, LOG_FILE });
+		assertThat(underTest.size(), is(equalTo(3 * LOG_FILE_LINES)));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testConcurrentFilterPublishesEntriesOfAllFiles() {
+		LogEntryFilter filter = buildFilter();
+		LogSnapshot<LogEntry> sequential = new LogSnapshot<LogEntry>();
+		LineByLineLogFilter<LogEntry> expected = new LineByLineLogFilter<LogEntry>(filter);
+		expected.attach(sequential);
+		expected.filter(new File[] { LOG_FILE, LOG_FILE, LOG_FILE, LOG_FILE });
+
+		LogSnapshot<LogEntry> concurrent = new LogSnapshot<LogEntry>();
+		LineByLineLogFilter<LogEntry> underTest = new LineByLineLogFilter<LogEntry>(filter);
+		underTest.attach(concurrent);
+		underTest.filter(new File[] { LOG_FILE, LOG_FILE, LOG_FILE, LOG_FILE }, 4);
+
+		assertThat(underTest.size(), is(equalTo(4 * LOG_FILE_LINES)));
+		assertThat(concurrent.getSize(), is(equalTo(sequential.getSize())));
+		assertThat(concurrent.getSummary(), is(equalTo(sequential.getSummary())));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testFilterReadsStreamLikeFile() throws IOException {
+		LogEntryFilter filter = buildFilter();
+		LogSnapshot<LogEntry> fromFile = new LogSnapshot<LogEntry>();
+		LineByLineLogFilter<LogEntry> expected = new LineByLineLogFilter<LogEntry>(filter);
+		expected.attach(fromFile);
+		expected.filter(new File[] { LOG_FILE });
+
+		LogSnapshot<LogEntry> fromStream = new LogSnapshot<LogEntry>();
+		LineByLineLogFilter<LogEntry> underTest = new LineByLineLogFilter<LogEntry>(filter);
+		underTest.attach(fromStream);
+		underTest.filter(new ByteArrayInputStream(Files.toByteArray(LOG_FILE)), "-");
+
+		assertThat(underTest.size(), is(equalTo(LOG_FILE_LINES)));
+		assertThat(fromStream.getSize(), is(equalTo(fromFile.getSize())));
+		assertThat(fromStream.getSummary(), is(equalTo(fromFile.getSummary())));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testFilterDecompressesGzippedStream() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GZIPOutputStream out = new GZIPOutputStream(bytes);
+		out.write(Files.toByteArray(LOG_FILE));
+		out.close();
+
+		LineByLineLogFilter<LogEntry> underTest = new LineByLineLogFilter<LogEntry>(buildFilter());
+		underTest.filter(new ByteArrayInputStream(bytes.toByteArray()), "-");
+
+		assertThat(underTest.size(), is(equalTo(LOG_FILE_LINES)));
+	}
+
+	private LogEntryFilter buildFilter() {
+		return new FilterProvider(
+				null,
+				"\\[((.*?))\\]",
+				"dd/MMM/yyyy:HH:mm:ss",
+				"(?:\\[.*?\\].*\\s)(((?:\\/\\w+)*\\/)([\\w\\-\\.]+[^#?\\s]+))",
+				"(\\d+)$",
+				".*\\.do$",
+				new InfiniteTimeInterval(),
+				new InfiniteTimeInterval()).build();
+	}
 }
@@ -8,7 +8,15 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Calendar;
+
 import org.junit.Test;
+import org.logparser.time.DateInterval;
+
+import com.google.common.io.Files;
 
 /**
  * Tests for {@link LogFiles}.
@@ -80,6 +88,16 @@ public class LogFilesTest {
 		assertThat(underTest.getOutputDir(), containsString(overrideOutputDir));
 	}
 
+	@Test
+	public void testBaseOutputDirIsTheSameForEveryRun() {
+		String outputDir = "test";
+		LogFiles first = new LogFiles.Builder().outputDir(outputDir).build();
+		LogFiles second = new LogFiles.Builder().outputDir(outputDir).build();
+		assertThat(first.getBaseOutputDir(), is(equalTo(outputDir)));
+		assertThat(second.getBaseOutputDir(), is(equalTo(first.getBaseOutputDir())));
+		assertThat(new File(first.getOutputDir()).getParent(), is(equalTo(outputDir)));
+	}
+
 	@Test(expected = NullPointerException.class)
 	public void testNullPreProcessorArgumentThrows() {
 		underTest = new LogFiles.Builder().preProcessor(null).build();
@@ -93,4 +111,92 @@ public class LogFilesTest {
 		assertThat(underTest.getPreProcessor(), is(notNullValue()));
 		assertThat(underTest.getPreProcessor(), is(equalTo(preProcessorOverride)));
 	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidFilenameDateFormatThrows() {
+		new LogFiles.Builder().filenameDate(1, "yyyy-MM-dd-bb");
+	}
+
+	@Test
+	public void testFilesDatedOutsideTheDateIntervalAreSkipped() throws IOException {
+		File dir = Files.createTempDir();
+		try {
+			String[] names = { "EXAMPLE_log_2009-12-14.log", "EXAMPLE_log_2009-12-15.log", "EXAMPLE_log_2009-12-16.log", "EXAMPLE_log_current.log" };
+			for (String name : names) {
+				new File(dir, name).createNewFile();
+			}
+			underTest = new LogFiles.Builder()
+					.inputDirs(new String[] { dir.getAbsolutePath() })
+					.filenamePattern("EXAMPLE_log_(.+)\\.log")
+					.filenameDate(1, "yyyy-MM-dd")
+					.dateInterval(DateInterval.valueOf("2009/12/15", "2009/12/16"))
+					.build();
+
+			assertThat(names(underTest.list()), is(equalTo(new String[] { "EXAMPLE_log_2009-12-15.log", "EXAMPLE_log_current.log" })));
+			// without an interval, all files are kept
+			underTest = new LogFiles.Builder()
+					.inputDirs(new String[] { dir.getAbsolutePath() })
+					.filenamePattern("EXAMPLE_log_(.+)\\.log")
+					.filenameDate(1, "yyyy-MM-dd")
+					.build();
+			assertThat(underTest.list().length, is(equalTo(names.length)));
+		} finally {
+			delete(dir);
+		}
+	}
+
+	@Test
+	public void testInputDirsAreListedInOrder() throws IOException {
+		File[] dirs = new File[5];
+		String[] paths = new String[dirs.length];
+		try {
+			for (int i = 0; i < dirs.length; i++) {
+				dirs[i] = Files.createTempDir();
+				paths[i] = dirs[i].getAbsolutePath();
+				new File(dirs[i], String.format("host%s.log", i)).createNewFile();
+			}
+			underTest = new LogFiles.Builder().inputDirs(paths).build();
+
+			assertThat(names(underTest.list()), is(equalTo(new String[] { "host0.log", "host1.log", "host2.log", "host3.log", "host4.log" })));
+		} finally {
+			for (File dir : dirs) {
+				delete(dir);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMissingInputDirThrows() throws IOException {
+		File dir = Files.createTempDir();
+		try {
+			new LogFiles.Builder().inputDirs(new String[] { dir.getAbsolutePath(), new File(dir, "missing").getAbsolutePath() }).build().list();
+		} finally {
+			delete(dir);
+		}
+	}
+
+	@Test
+	public void testFinestFieldOfFilenameDateFormat() {
+		assertThat(LogFiles.finestField("yyyy-MM-dd"), is(equalTo(Calendar.DAY_OF_MONTH)));
+		assertThat(LogFiles.finestField("yyyyMMdd_HH"), is(equalTo(Calendar.HOUR_OF_DAY)));
+		assertThat(LogFiles.finestField("yyyy-MM"), is(equalTo(Calendar.MONTH)));
+		assertThat(LogFiles.finestField("yyyy'-day'"), is(equalTo(Calendar.YEAR)));
+	}
+
+	private String[] names(final File[] files) {
+		String[] names = new String[files.length];
+		for (int i = 0; i < files.length; i++) {
+			names[i] = files[i].getName();
+		}
+		Arrays.sort(names);
+		return names;
+	}
+
+	private void delete(final File dir) {
+		File[] files = dir.listFiles();
+		for (int i = 0; files != null && i < files.length; i++) {
+			files[i].delete();
+		}
+		dir.delete();
+	}
 }
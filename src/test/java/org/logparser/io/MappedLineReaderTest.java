@@ -0,0 +1,107 @@
+package org.logparser.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link MappedLineReader}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public class MappedLineReaderTest {
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final String CONTENT = "first line\nsecond line\r\n\nfourth, the longest line of them all\nlast";
+	private File file;
+	private MappedLineReader underTest;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("mapped", ".log");
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(CONTENT.getBytes("UTF-8"));
+		out.close();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		if (underTest != null) {
+			underTest.close();
+		}
+		file.delete();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNonPositiveWindowSizeThrows() throws IOException {
+		FileChannel channel = new FileInputStream(file).getChannel();
+		underTest = new MappedLineReader(channel, 0, channel.size(), 0, UTF_8);
+	}
+
+	@Test
+	public void testReadsAllLinesWithDefaultWindow() throws IOException {
+		underTest = new MappedLineReader(new FileInputStream(file).getChannel(), UTF_8);
+		assertLines(underTest, CONTENT.split("\r?\n"));
+	}
+
+	@Test
+	public void testReadsLinesLongerThanTheWindow() throws IOException {
+		FileChannel channel = new FileInputStream(file).getChannel();
+		underTest = new MappedLineReader(channel, 0, channel.size(), 4, UTF_8);
+		assertLines(underTest, CONTENT.split("\r?\n"));
+	}
+
+	@Test
+	public void testReadsOnlyTheGivenByteRange() throws IOException {
+		FileChannel channel = new FileInputStream(file).getChannel();
+		underTest = new MappedLineReader(channel, 11, 24, 8, UTF_8);
+		assertLines(underTest, "second line");
+		assertThat(underTest.position(), is(equalTo(24L)));
+	}
+
+	@Test
+	public void testAsciiLinesAreViewedWithoutDecoding() throws IOException {
+		underTest = new MappedLineReader(new FileInputStream(file).getChannel(), UTF_8);
+		CharSequence line = underTest.readSequence();
+		assertThat(line instanceof AsciiCharSequence, is(true));
+		assertThat(line.toString(), is(equalTo("first line")));
+	}
+
+	@Test
+	public void testNonAsciiLinesAreDecoded() throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		out.write("caf\u00e9 line\nplain line".getBytes("UTF-8"));
+		out.close();
+		underTest = new MappedLineReader(new FileInputStream(file).getChannel(), UTF_8);
+		CharSequence line = underTest.readSequence();
+		assertThat(line instanceof String, is(true));
+		assertThat(line.toString(), is(equalTo("caf\u00e9 line")));
+		assertThat(underTest.readSequence().toString(), is(equalTo("plain line")));
+	}
+
+	@Test
+	public void testCharsetsIncompatibleWithAsciiAreDetected() {
+		assertThat(MappedLineReader.isAsciiCompatible(UTF_8), is(true));
+		assertThat(MappedLineReader.isAsciiCompatible(Charset.forName("ISO-8859-1")), is(true));
+		assertThat(MappedLineReader.isAsciiCompatible(Charset.forName("UTF-16")), is(false));
+	}
+
+	private void assertLines(final MappedLineReader reader, final String... expected) throws IOException {
+		for (String line : expected) {
+			assertThat(reader.readLine(), is(equalTo(line)));
+		}
+		assertThat(reader.readLine(), is(nullValue()));
+	}
+}
@@ -0,0 +1,130 @@
+package org.logparser.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.logparser.ILogEntryFilter;
+import org.logparser.LogEntry;
+import org.logparser.LogEntryFilter;
+import org.logparser.LogSnapshot;
+import org.logparser.provider.FilterProvider;
+import org.logparser.time.InfiniteTimeInterval;
+
+/**
+ * Tests for {@link MappedLogFilter}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public class MappedLogFilterTest {
+	private static final File LOG_FILE = new File("logs/EXAMPLE_log_2008-12-15.log");
+	private LogEntryFilter filter;
+
+	@Before
+	public void setUp() {
+		filter = new FilterProvider(
+				null,
+				"\\[((.*?))\\]",
+				"dd/MMM/yyyy:HH:mm:ss",
+				"(?:\\[.*?\\].*\\s)(((?:\\/\\w+)*\\/)([\\w\\-\\.]+[^#?\\s]+))",
+				"(\\d+)$",
+				".*\\.do$",
+				new InfiniteTimeInterval(),
+				new InfiniteTimeInterval()).build();
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testLogFilterIsNotCreatedIfNullListOfFiltersGiven() {
+		List<ILogEntryFilter<LogEntry>> filters = null;
+		new MappedLogFilter.Builder<LogEntry>(filters).build();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLogFilterIsNotCreatedIfNonPositiveWindowSizeGiven() {
+		List<ILogEntryFilter<LogEntry>> filters = new ArrayList<ILogEntryFilter<LogEntry>>();
+		new MappedLogFilter.Builder<LogEntry>(filters).windowSize(-1).build();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testPublishesTheSameEntriesAsLineByLineLogFilter() {
+		LogSnapshot<LogEntry> expected = new LogSnapshot<LogEntry>();
+		LineByLineLogFilter<LogEntry> lineByLine = new LineByLineLogFilter<LogEntry>(filter);
+		lineByLine.attach(expected);
+		lineByLine.filter(LOG_FILE);
+
+		LogSnapshot<LogEntry> actual = new LogSnapshot<LogEntry>();
+		MappedLogFilter<LogEntry> underTest = new MappedLogFilter.Builder<LogEntry>(filter).windowSize(4096).build();
+		underTest.attach(actual);
+		underTest.filter(LOG_FILE);
+
+		assertThat(underTest.size(), is(equalTo(lineByLine.size())));
+		assertThat(actual.getFilteredEntries(), is(equalTo(expected.getFilteredEntries())));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testFilesReadConcurrentlyPublishTheSameEntries() {
+		LogSnapshot<LogEntry> expected = new LogSnapshot<LogEntry>();
+		LineByLineLogFilter<LogEntry> lineByLine = new LineByLineLogFilter<LogEntry>(filter);
+		lineByLine.attach(expected);
+		lineByLine.filter(new File[] { LOG_FILE, LOG_FILE, LOG_FILE });
+
+		LogSnapshot<LogEntry> actual = new LogSnapshot<LogEntry>();
+		MappedLogFilter<LogEntry> underTest = new MappedLogFilter.Builder<LogEntry>(filter).splits(3).build();
+		underTest.attach(actual);
+		underTest.filter(new File[] { LOG_FILE, LOG_FILE, LOG_FILE }, 2);
+
+		assertThat(underTest.size(), is(equalTo(lineByLine.size())));
+		assertThat(actual.getSize(), is(equalTo(expected.getSize())));
+		assertThat(actual.getSummary(), is(equalTo(expected.getSummary())));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSplitFilePublishesTheSameEntriesInFileOrder() {
+		LogSnapshot<LogEntry> expected = new LogSnapshot<LogEntry>();
+		LineByLineLogFilter<LogEntry> lineByLine = new LineByLineLogFilter<LogEntry>(filter);
+		lineByLine.attach(expected);
+		lineByLine.filter(LOG_FILE);
+
+		LogSnapshot<LogEntry> actual = new LogSnapshot<LogEntry>();
+		MappedLogFilter<LogEntry> underTest = new MappedLogFilter.Builder<LogEntry>(filter).splits(7).build();
+		underTest.attach(actual);
+		underTest.filter(LOG_FILE);
+
+		assertThat(underTest.size(), is(equalTo(lineByLine.size())));
+		assertThat(actual.getFilteredEntries(), is(equalTo(expected.getFilteredEntries())));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSplitFileWithSmallBacklogPublishesTheSameEntriesInFileOrder() {
+		LogSnapshot<LogEntry> expected = new LogSnapshot<LogEntry>();
+		LineByLineLogFilter<LogEntry> lineByLine = new LineByLineLogFilter<LogEntry>(filter);
+		lineByLine.attach(expected);
+		lineByLine.filter(LOG_FILE);
+
+		LogSnapshot<LogEntry> actual = new LogSnapshot<LogEntry>();
+		// workers of later ranges wait for earlier ranges to be published
+		MappedLogFilter<LogEntry> underTest = new MappedLogFilter.Builder<LogEntry>(filter).splits(7).batchSize(3).batches(1).build();
+		underTest.attach(actual);
+		underTest.filter(LOG_FILE);
+
+		assertThat(underTest.size(), is(equalTo(lineByLine.size())));
+		assertThat(actual.getFilteredEntries(), is(equalTo(expected.getFilteredEntries())));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLogFilterIsNotCreatedIfNonPositiveBatchesGiven() {
+		List<ILogEntryFilter<LogEntry>> filters = new ArrayList<ILogEntryFilter<LogEntry>>();
+		new MappedLogFilter.Builder<LogEntry>(filters).batches(0).build();
+	}
+}
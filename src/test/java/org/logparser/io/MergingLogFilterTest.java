@@ -0,0 +1,138 @@
+package org.logparser.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.logparser.ILogEntryFilter;
+import org.logparser.IObserver;
+import org.logparser.LogEntry;
+import org.logparser.LogEntryFilter;
+import org.logparser.provider.FilterProvider;
+import org.logparser.time.InfiniteTimeInterval;
+
+/**
+ * Tests for {@link MergingLogFilter}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public class MergingLogFilterTest {
+	private static final String TIMESTAMP_FORMAT = "dd/MMM/yyyy:HH:mm:ss";
+	private static final int HOSTS = 3;
+	private static final int LINES = 1000;
+	private LogEntryFilter filter;
+	private File dir;
+	private File[] files;
+
+	@Before
+	public void setUp() throws IOException {
+		filter = new FilterProvider(
+				null,
+				"\\[((.*?))\\]",
+				TIMESTAMP_FORMAT,
+				"(?:\\[.*?\\].*\\s)(((?:\\/\\w+)*\\/)([\\w\\-\\.]+[^#?\\s]+))",
+				"(\\d+)$",
+				".*\\.do$",
+				new InfiniteTimeInterval(),
+				new InfiniteTimeInterval()).build();
+		dir = File.createTempFile("merging", "");
+		dir.delete();
+		dir.mkdirs();
+		files = new File[HOSTS];
+		long start = System.currentTimeMillis() / 1000 * 1000;
+		for (int h = 0; h < HOSTS; h++) {
+			files[h] = new File(dir, String.format("host-%s.log", h));
+			// hosts log at the same pace, a few seconds apart
+			write(files[h], start + h * 3000L, "host-" + h);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		File[] all = dir.listFiles();
+		for (int i = 0; all != null && i < all.length; i++) {
+			all[i].delete();
+		}
+		dir.delete();
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testLogFilterIsNotCreatedIfNullTimestampExtractorGiven() {
+		new MergingLogFilter.Builder<LogEntry>(null, filter).build();
+	}
+
+	@Test
+	public void testEntriesOfAllFilesArePublishedInTimeOrder() {
+		final List<LogEntry> entries = new ArrayList<LogEntry>();
+		MergingLogFilter<LogEntry> underTest = new MergingLogFilter.Builder<LogEntry>(filter, filter).build();
+		underTest.attach(new IObserver<LogEntry>() {
+			public void consume(final LogEntry event) {
+				entries.add(event);
+			}
+		});
+		underTest.filter(files, 1);
+
+		// every line plus a stack trace line every 100 lines
+		assertThat(underTest.size(), is(equalTo(HOSTS * (LINES + LINES / 100))));
+		assertThat(entries.size(), is(equalTo(HOSTS * LINES)));
+		for (int i = 1; i < entries.size(); i++) {
+			assertThat(entries.get(i - 1).getTimestamp() <= entries.get(i).getTimestamp(), is(true));
+		}
+	}
+
+	@Test
+	public void testContinuationLinesFollowTheirRecord() throws IOException {
+		final List<String> lines = new ArrayList<String>();
+		MergingLogFilter<String> underTest = new MergingLogFilter.Builder<String>(filter, new Echo()).build();
+		underTest.attach(new IObserver<String>() {
+			public void consume(final String event) {
+				lines.add(event);
+			}
+		});
+		underTest.filter(files, 1);
+
+		for (int i = 0; i < lines.size(); i++) {
+			if (lines.get(i).startsWith("\tat ")) {
+				assertThat(lines.get(i).endsWith(lines.get(i - 1).substring(0, "host-0".length())), is(true));
+			}
+		}
+	}
+
+	private void write(final File file, final long start, final String host) throws IOException {
+		SimpleDateFormat format = new SimpleDateFormat(TIMESTAMP_FORMAT);
+		BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		try {
+			for (int i = 0; i < LINES; i++) {
+				out.write(String.format("%s - - [%s +0000] \"GET /example/action/save.do?id=%s HTTP/1.1\" 200 - %s\n", host, format.format(new Date(start + i * 10000L)), i, i % 100));
+				if (i % 100 == 0) {
+					out.write(String.format("\tat com.web.Foo.bar(Foo.java:12) %s\n", host));
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private static final class Echo implements ILogEntryFilter<String> {
+		public String parse(final String text) {
+			return text;
+		}
+
+		public String parse(final CharSequence text) {
+			return text.toString();
+		}
+	}
+}
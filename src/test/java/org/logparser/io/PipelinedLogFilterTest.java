@@ -0,0 +1,137 @@
+package org.logparser.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.logparser.ILogEntryFilter;
+import org.logparser.LogEntry;
+import org.logparser.LogEntryFilter;
+import org.logparser.LogSnapshot;
+import org.logparser.provider.FilterProvider;
+import org.logparser.time.InfiniteTimeInterval;
+
+/**
+ * Tests for {@link PipelinedLogFilter}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public class PipelinedLogFilterTest {
+	private static final File LOG_FILE = new File("logs/EXAMPLE_log_2008-12-15.log");
+	private LogEntryFilter filter;
+
+	@Before
+	public void setUp() {
+		filter = new FilterProvider(
+				null,
+				"\\[((.*?))\\]",
+				"dd/MMM/yyyy:HH:mm:ss",
+				"(?:\\[.*?\\].*\\s)(((?:\\/\\w+)*\\/)([\\w\\-\\.]+[^#?\\s]+))",
+				"(\\d+)$",
+				".*\\.do$",
+				new InfiniteTimeInterval(),
+				new InfiniteTimeInterval()).build();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLogFilterIsNotCreatedIfNonPositiveParsersGiven() {
+		List<ILogEntryFilter<LogEntry>> filters = new ArrayList<ILogEntryFilter<LogEntry>>();
+		new PipelinedLogFilter.Builder<LogEntry>(filters).parsers(0).build();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testFilesReadConcurrentlyPublishTheSameEntries() {
+		LogSnapshot<LogEntry> expected = new LogSnapshot<LogEntry>();
+		LineByLineLogFilter<LogEntry> lineByLine = new LineByLineLogFilter<LogEntry>(filter);
+		lineByLine.attach(expected);
+		lineByLine.filter(new File[] { LOG_FILE, LOG_FILE, LOG_FILE });
+
+		LogSnapshot<LogEntry> actual = new LogSnapshot<LogEntry>();
+		PipelinedLogFilter<LogEntry> underTest = new PipelinedLogFilter.Builder<LogEntry>(filter).parsers(2).build();
+		underTest.attach(actual);
+		underTest.filter(new File[] { LOG_FILE, LOG_FILE, LOG_FILE }, 2);
+
+		assertThat(underTest.size(), is(equalTo(lineByLine.size())));
+		assertThat(actual.getSize(), is(equalTo(expected.getSize())));
+		assertThat(actual.getSummary(), is(equalTo(expected.getSummary())));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testPublishesTheSameEntriesInFileOrder() {
+		LogSnapshot<LogEntry> expected = new LogSnapshot<LogEntry>();
+		LineByLineLogFilter<LogEntry> lineByLine = new LineByLineLogFilter<LogEntry>(filter);
+		lineByLine.attach(expected);
+		lineByLine.filter(LOG_FILE);
+
+		LogSnapshot<LogEntry> actual = new LogSnapshot<LogEntry>();
+		// small batches, few of them, so that every stage has to wait on the others
+		PipelinedLogFilter<LogEntry> underTest = new PipelinedLogFilter.Builder<LogEntry>(filter).parsers(3).batchSize(7).batches(2).build();
+		underTest.attach(actual);
+		underTest.filter(LOG_FILE);
+
+		assertThat(underTest.size(), is(equalTo(lineByLine.size())));
+		assertThat(actual.getFilteredEntries(), is(equalTo(expected.getFilteredEntries())));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testLinesReadBeforeAnIOErrorArePublished() {
+		ILogEntryFilter<String> echo = new ILogEntryFilter<String>() {
+			public String parse(final String text) {
+				return text;
+			}
+
+			public String parse(final CharSequence text) {
+				return text.toString();
+			}
+		};
+		ILineReader failing = new ILineReader() {
+			private int read;
+
+			public String readLine() throws IOException {
+				if (read == 10) {
+					throw new IOException("disk error");
+				}
+				return String.format("line-%s", read++);
+			}
+
+			public CharSequence readSequence() throws IOException {
+				return readLine();
+			}
+
+			public void close() {
+			}
+		};
+		List<String> published = new ArrayList<String>();
+		PipelinedLogFilter<String> underTest = new PipelinedLogFilter.Builder<String>(echo).parsers(2).batchSize(4).batches(2).build();
+
+		assertThat(underTest.filter(failing, "failing", published), is(equalTo(10)));
+		assertThat(published.size(), is(equalTo(10)));
+		assertThat(published.get(9), is(equalTo("line-9")));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	@SuppressWarnings("unchecked")
+	public void testParserFailureIsRethrownToTheCaller() {
+		ILogEntryFilter<LogEntry> failing = new ILogEntryFilter<LogEntry>() {
+			public LogEntry parse(final String text) {
+				throw new IllegalStateException(text);
+			}
+
+			public LogEntry parse(final CharSequence text) {
+				throw new IllegalStateException(text.toString());
+			}
+		};
+		new PipelinedLogFilter.Builder<LogEntry>(failing).parsers(2).batchSize(16).batches(2).build().filter(LOG_FILE);
+	}
+}
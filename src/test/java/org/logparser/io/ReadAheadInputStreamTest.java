@@ -0,0 +1,133 @@
+package org.logparser.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Tests for {@link ReadAheadInputStream}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public class ReadAheadInputStreamTest {
+
+	@Test
+	public void testReadsTheSameBytes() throws IOException {
+		byte[] expected = new byte[10000];
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = (byte) i;
+		}
+		ReadAheadInputStream underTest = new ReadAheadInputStream(new ByteArrayInputStream(expected), "bytes", 64, 2);
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		try {
+			ByteStreams.copy(underTest, actual);
+		} finally {
+			underTest.close();
+		}
+		assertThat(actual.toByteArray(), is(equalTo(expected)));
+	}
+
+	@Test(timeout = 5000)
+	public void testBytesAreHandedOverBeforeTheChunkIsFull() throws IOException {
+		PipedOutputStream out = new PipedOutputStream();
+		ReadAheadInputStream underTest = new ReadAheadInputStream(new PipedInputStream(out), "pipe", 64, 2);
+		try {
+			out.write(new byte[10]);
+			out.flush();
+			// the pipe is left open, with far less than a chunk written to it
+			byte[] b = new byte[10];
+			int read = 0;
+			int n;
+			while (read < b.length && (n = underTest.read(b, read, b.length - read)) != -1) {
+				read += n;
+			}
+			assertThat(read, is(equalTo(10)));
+		} finally {
+			out.close();
+			underTest.close();
+		}
+	}
+
+	@Test(timeout = 5000)
+	public void testBytesReadBeforeAnIOErrorAreHandedOver() throws IOException {
+		ReadAheadInputStream underTest = new ReadAheadInputStream(new FailingInputStream(100, new IOException("corrupt")), "failing", 256, 2);
+		byte[] b = new byte[256];
+		int read = 0;
+		try {
+			int n;
+			while ((n = underTest.read(b, read, b.length - read)) != -1) {
+				read += n;
+			}
+			fail("the error should be rethrown");
+		} catch (IOException expected) {
+			assertThat(read, is(equalTo(100)));
+		} finally {
+			underTest.close();
+		}
+	}
+
+	@Test(timeout = 5000, expected = IOException.class)
+	public void testIOErrorIsRethrown() throws IOException {
+		ReadAheadInputStream underTest = new ReadAheadInputStream(new FailingInputStream(100, new IOException("corrupt")), "failing", 64, 2);
+		try {
+			ByteStreams.toByteArray(underTest);
+		} finally {
+			underTest.close();
+		}
+	}
+
+	@Test(timeout = 5000, expected = IllegalStateException.class)
+	public void testUncheckedErrorIsRethrownRatherThanWaitedFor() throws IOException {
+		ReadAheadInputStream underTest = new ReadAheadInputStream(new FailingInputStream(100, new IllegalStateException("bug")), "failing", 64, 2);
+		try {
+			ByteStreams.toByteArray(underTest);
+		} finally {
+			underTest.close();
+		}
+	}
+
+	/**
+	 * Reads the given number of zero bytes, then fails. Like a decompressing
+	 * stream, it cannot tell how much is left, so there is always a byte
+	 * available.
+	 */
+	private static final class FailingInputStream extends InputStream {
+		private final Exception error;
+		private int remaining;
+
+		private FailingInputStream(final int length, final Exception error) {
+			this.remaining = length;
+			this.error = error;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (remaining == 0) {
+				if (error instanceof IOException) {
+					throw (IOException) error;
+				}
+				throw (RuntimeException) error;
+			}
+			remaining--;
+			return 0;
+		}
+
+		@Override
+		public int available() {
+			return 1;
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package org.logparser.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import org.logparser.LogEntry;
+import org.logparser.LogEntryFilter;
+
+/**
+ * Unit tests for {@link RecordLineReader}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public class RecordLineReaderTest {
+	private static final Pattern RECORD_START = Pattern.compile("\\d{4}-\\d{2}-\\d{2} ");
+	private static final String LOG =
+			"2010-07-01 22:59:14,014 [http-8080-exec-8] INFO PerformanceLoggingFilter - /example/cms/edit.do 23ms\n"
+			+ "2010-07-01 22:59:15,001 [http-8080-exec-2] ERROR ExceptionHandler - failed\n"
+			+ "java.lang.IllegalStateException: failed\n"
+			+ "\tat com.web.Foo.bar(Foo.java:12)\n"
+			+ "\tat com.web.Foo.baz(Foo.java:34)\n"
+			+ "2010-07-01 22:59:16,120 [http-8080-exec-3] INFO PerformanceLoggingFilter - /example/cms/view.do 7ms";
+
+	@Test(expected = NullPointerException.class)
+	public void testNullReaderArgument() {
+		new RecordLineReader(null, RECORD_START);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testNullPatternArgument() {
+		new RecordLineReader(reader(LOG), null);
+	}
+
+	@Test
+	public void testContinuationLinesAreSkipped() throws IOException {
+		RecordLineReader underTest = new RecordLineReader(reader(LOG), RECORD_START);
+		assertThat(underTest.readLine().endsWith("edit.do 23ms"), is(true));
+		assertThat(underTest.readLine().endsWith("failed"), is(true));
+		assertThat(underTest.readLine().endsWith("view.do 7ms"), is(true));
+		assertThat(underTest.readLine(), is(nullValue()));
+		assertThat(underTest.getContinuations(), is(equalTo(3L)));
+	}
+
+	@Test
+	public void testLinesBeforeFirstRecordAreContinuations() throws IOException {
+		RecordLineReader underTest = new RecordLineReader(reader("\tat com.web.Foo.bar(Foo.java:12)\n" + LOG), RECORD_START);
+		assertThat(underTest.readSequence().toString().startsWith("2010-07-01 22:59:14"), is(true));
+		assertThat(underTest.getContinuations(), is(equalTo(1L)));
+	}
+
+	@Test
+	public void testLogFilterParsesRecordsOnly() {
+		LogEntryFilter filter = new LogEntryFilter.Builder(
+				Pattern.compile("^((\\d{4}-\\d{2}-\\d{2}.*)?)\\s\\["),
+				"yyyy-MM-dd HH:mm:ss,SSS",
+				Pattern.compile("\\[.*?\\].*\\s(((?:\\/\\w+)*\\/)([\\w\\-\\.]+[^#?\\s]+))"),
+				Pattern.compile("\\s((\\d)*)ms$")).build();
+		LineByLineLogFilter<LogEntry> underTest = new LineByLineLogFilter<LogEntry>(filter);
+		underTest.setRecordStart(RECORD_START);
+		assertThat(underTest.filter(reader(LOG), "test"), is(equalTo(3)));
+		assertThat(underTest.getContinuations(), is(equalTo(3L)));
+	}
+
+	private ILineReader reader(final String text) {
+		return new BufferedLineReader(new BufferedReader(new StringReader(text)));
+	}
+}
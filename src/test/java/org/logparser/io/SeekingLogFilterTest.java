@@ -0,0 +1,105 @@
+package org.logparser.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.logparser.LogEntry;
+import org.logparser.LogEntryFilter;
+import org.logparser.LogSnapshot;
+import org.logparser.provider.FilterProvider;
+import org.logparser.time.DateInterval;
+import org.logparser.time.InfiniteTimeInterval;
+
+/**
+ * Tests for {@link SeekingLogFilter}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public class SeekingLogFilterTest {
+	private static final String TIMESTAMP_FORMAT = "dd/MMM/yyyy:HH:mm:ss";
+	private static final int LINES = 3 * 24 * 360;
+	private DateInterval dateInterval;
+	private LogEntryFilter filter;
+	private File file;
+
+	@Before
+	public void setUp() throws IOException, ParseException {
+		dateInterval = DateInterval.valueOf("2009/12/15", "2009/12/16");
+		filter = new FilterProvider(
+				null,
+				"\\[((.*?))\\]",
+				TIMESTAMP_FORMAT,
+				"(?:\\[.*?\\].*\\s)(((?:\\/\\w+)*\\/)([\\w\\-\\.]+[^#?\\s]+))",
+				"(\\d+)$",
+				".*\\.do$",
+				new InfiniteTimeInterval(),
+				dateInterval).build();
+		// three days of entries, 10 seconds apart, with the odd one out of order
+		file = File.createTempFile("seeking", ".log");
+		SimpleDateFormat format = new SimpleDateFormat(TIMESTAMP_FORMAT);
+		long start = DateInterval.parseDate("2009/12/14").getTime();
+		BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		try {
+			for (int i = 0; i < LINES; i++) {
+				long time = start + i * 10000L - (i % 50 == 0 ? 20000L : 0L);
+				out.write(String.format("10.117.101.80 - - [%s +0000] \"GET /example/action/save.do?id=%s HTTP/1.1\" 200 - %s\n", format.format(new Date(time)), i, i % 100));
+				if (i % 1000 == 0) {
+					out.write("a continuation line without a timestamp\n");
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testLogFilterIsNotCreatedIfNullDateIntervalGiven() {
+		new SeekingLogFilter.Builder<LogEntry>(filter, null, filter).build();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testReadsOnlyTheLinesAroundTheDateInterval() {
+		LogSnapshot<LogEntry> expected = new LogSnapshot<LogEntry>();
+		LineByLineLogFilter<LogEntry> lineByLine = new LineByLineLogFilter<LogEntry>(filter);
+		lineByLine.attach(expected);
+		lineByLine.filter(file);
+
+		LogSnapshot<LogEntry> actual = new LogSnapshot<LogEntry>();
+		SeekingLogFilter<LogEntry> underTest = new SeekingLogFilter.Builder<LogEntry>(filter, dateInterval, filter).build();
+		underTest.attach(actual);
+		underTest.filter(file);
+
+		assertThat(expected.getFilteredEntries().size() > 0, is(true));
+		assertThat(actual.getFilteredEntries(), is(equalTo(expected.getFilteredEntries())));
+		assertThat(underTest.size() < lineByLine.size() / 2, is(true));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testIntervalOutsideTheFileReadsNothing() {
+		DateInterval later = DateInterval.valueOf("2010/01/01", "2010/01/02");
+		SeekingLogFilter<LogEntry> underTest = new SeekingLogFilter.Builder<LogEntry>(filter, later, filter).build();
+		underTest.filter(file);
+
+		assertThat(underTest.size() < 1000, is(true));
+	}
+}
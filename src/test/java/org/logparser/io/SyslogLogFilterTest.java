@@ -0,0 +1,175 @@
+package org.logparser.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.logparser.ILogEntryFilter;
+import org.logparser.IObserver;
+
+/**
+ * Tests for {@link SyslogLogFilter}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public class SyslogLogFilterTest {
+	private static final String ACCESS_LOG = "10.0.0.1 - - [15/Dec/2009:10:00:00 +0000] \"GET /example/save.do HTTP/1.1\" 200 - 3";
+	private SyslogLogFilter<String> underTest;
+	private List<String> messages;
+	private Thread listening;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() throws InterruptedException {
+		underTest = new SyslogLogFilter.Builder<String>(new Echo()).host("127.0.0.1").port(0).maxMessageSize(256).build();
+		messages = Collections.synchronizedList(new ArrayList<String>());
+		underTest.attach(new IObserver<String>() {
+			public void consume(final String event) {
+				messages.add(event);
+			}
+		});
+		listening = new Thread(new Runnable() {
+			public void run() {
+				underTest.listen();
+			}
+		});
+		listening.start();
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!underTest.isListening() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	@After
+	public void tearDown() throws InterruptedException {
+		underTest.stop();
+		listening.join(5000);
+		assertThat(listening.isAlive(), is(false));
+		assertThat(underTest.isListening(), is(false));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	@SuppressWarnings("unchecked")
+	public void testNeitherTcpNorUdp() {
+		new SyslogLogFilter.Builder<String>(new Echo()).tcp(false).udp(false).build();
+	}
+
+	@Test
+	public void testContentOfRfc3164Message() {
+		assertThat(SyslogLogFilter.content("<134>Dec 15 10:00:00 web-01 nginx[42]: " + ACCESS_LOG + "\n"), is(equalTo(ACCESS_LOG)));
+		assertThat(SyslogLogFilter.content("<134>Dec  5 10:00:00 web-01 " + ACCESS_LOG), is(equalTo(ACCESS_LOG)));
+	}
+
+	@Test
+	public void testContentOfRfc5424Message() {
+		assertThat(SyslogLogFilter.content("<165>1 2009-12-15T10:00:00.003Z web-01 nginx 42 ID47 - " + ACCESS_LOG), is(equalTo(ACCESS_LOG)));
+		assertThat(SyslogLogFilter.content("<165>1 2009-12-15T10:00:00Z web-01 nginx - - [origin ip=\"10.0.0.9\"][meta x=\"a\\]b\"] \uFEFF" + ACCESS_LOG), is(equalTo(ACCESS_LOG)));
+	}
+
+	@Test
+	public void testContentOfMessageWithoutHeader() {
+		assertThat(SyslogLogFilter.content(ACCESS_LOG + "\r\n"), is(equalTo(ACCESS_LOG)));
+	}
+
+	@Test
+	public void testTcpMessagesFramedByOctetCountAndNewLine() throws IOException, InterruptedException {
+		String counted = "<134>Dec 15 10:00:00 web-01 nginx: counted";
+		String oversized = "<134>Dec 15 10:00:00 web-01 nginx: " + repeat('x', 300);
+		Socket socket = new Socket("127.0.0.1", underTest.getTcpPort());
+		try {
+			OutputStream out = socket.getOutputStream();
+			byte[] frames = (counted.length() + " " + counted + oversized.length() + " " + oversized + "<134>Dec 15 10:00:00 web-01 nginx: lf\n").getBytes("UTF-8");
+			// byte by byte, so that messages arrive split across reads
+			for (byte b : frames) {
+				out.write(b);
+				out.flush();
+			}
+			out.write((oversized + "\n<134>Dec 15 10:00:00 web-01 nginx: last\n").getBytes("UTF-8"));
+			out.flush();
+			await(3);
+		} finally {
+			socket.close();
+		}
+		assertThat(messages, is(equalTo(list("counted", "lf", "last"))));
+		assertThat(underTest.size(), is(equalTo(3)));
+		assertThat(underTest.getDropped(), is(equalTo(2L)));
+	}
+
+	@Test
+	public void testManyConnections() throws IOException, InterruptedException {
+		List<Socket> sockets = new ArrayList<Socket>();
+		try {
+			for (int i = 0; i < 50; i++) {
+				sockets.add(new Socket("127.0.0.1", underTest.getTcpPort()));
+			}
+			for (int i = 0; i < sockets.size(); i++) {
+				sockets.get(i).getOutputStream().write(String.format("<13>1 - - - - - - message %s\n", i).getBytes("UTF-8"));
+			}
+			await(50);
+		} finally {
+			for (Socket socket : sockets) {
+				socket.close();
+			}
+		}
+		assertThat(messages.contains("message 49"), is(true));
+	}
+
+	@Test
+	public void testUdpMessages() throws IOException, InterruptedException {
+		DatagramSocket socket = new DatagramSocket();
+		try {
+			byte[] message = ("<165>1 2009-12-15T10:00:00Z web-01 nginx - - - " + ACCESS_LOG).getBytes("UTF-8");
+			socket.send(new DatagramPacket(message, message.length, InetAddress.getByName("127.0.0.1"), underTest.getUdpPort()));
+			await(1);
+		} finally {
+			socket.close();
+		}
+		assertThat(messages, is(equalTo(list(ACCESS_LOG))));
+	}
+
+	private void await(final int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (messages.size() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(messages.size(), is(equalTo(count)));
+	}
+
+	private List<String> list(final String... strings) {
+		List<String> list = new ArrayList<String>();
+		Collections.addAll(list, strings);
+		return list;
+	}
+
+	private String repeat(final char c, final int times) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < times; i++) {
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+
+	private static final class Echo implements ILogEntryFilter<String> {
+		public String parse(final String text) {
+			return text;
+		}
+
+		public String parse(final CharSequence text) {
+			return text.toString();
+		}
+	}
+}
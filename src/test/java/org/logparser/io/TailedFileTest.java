@@ -0,0 +1,127 @@
+package org.logparser.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Closeables;
+
+/**
+ * Tests for {@link TailedFile}.
+ *
+ * @author jorge.decastro
+ *
+ */
+public class TailedFileTest {
+	private File file;
+	private TailedFile underTest;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("tailed", ".log");
+		underTest = new TailedFile(file, Charset.forName("UTF-8"));
+	}
+
+	@After
+	public void tearDown() {
+		Closeables.closeQuietly(underTest);
+		file.delete();
+	}
+
+	@Test
+	public void testReadsOnlyCompleteLines() throws IOException {
+		write("first\nsec", true);
+		assertThat(underTest.readLine(), is(equalTo("first")));
+		assertThat(underTest.readLine(), is(nullValue()));
+	}
+
+	@Test
+	public void testReadsAppendedLinesOnNextPoll() throws IOException {
+		write("first\nsec", true);
+		assertThat(underTest.readLine(), is(equalTo("first")));
+		assertThat(underTest.readLine(), is(nullValue()));
+		write("ond\r\nthird\n", true);
+		assertThat(underTest.readLine(), is(equalTo("second")));
+		assertThat(underTest.readLine(), is(equalTo("third")));
+		assertThat(underTest.readLine(), is(nullValue()));
+		assertThat(underTest.getPosition(), is(equalTo(file.length())));
+	}
+
+	@Test
+	public void testRestartsFromBeginningWhenTruncated() throws IOException {
+		write("a rather long first line\n", true);
+		assertThat(underTest.readLine(), is(equalTo("a rather long first line")));
+		write("short\n", false);
+		assertThat(underTest.readLine(), is(equalTo("short")));
+		assertThat(underTest.readLine(), is(nullValue()));
+	}
+
+	@Test
+	public void testRestartsFromBeginningWhenTruncatedAndGrownPastPosition() throws IOException {
+		write("old one\n", true);
+		assertThat(underTest.readLine(), is(equalTo("old one")));
+		assertThat(underTest.readLine(), is(nullValue()));
+		// truncated, and longer than before, by the next poll
+		write("new first line\n", false);
+		assertThat(underTest.readLine(), is(equalTo("new first line")));
+		assertThat(underTest.readLine(), is(nullValue()));
+	}
+
+	@Test
+	public void testFollowsRotatedFileWhenHeldFileIsEmpty() throws IOException {
+		assertThat(underTest.readLine(), is(nullValue()));
+		File rotated = new File(file.getPath() + ".1");
+		assertThat(file.renameTo(rotated), is(true));
+		try {
+			write("new one\n", true);
+			assertThat(underTest.readLine(), is(equalTo("new one")));
+			assertThat(underTest.readLine(), is(nullValue()));
+		} finally {
+			rotated.delete();
+		}
+	}
+
+	@Test
+	public void testFollowsRotatedFile() throws IOException {
+		write("old one\nold two\nold tail", true);
+		assertThat(underTest.readLine(), is(equalTo("old one")));
+		assertThat(underTest.readLine(), is(equalTo("old two")));
+		File rotated = new File(file.getPath() + ".1");
+		assertThat(file.renameTo(rotated), is(true));
+		try {
+			write("new one\n", true);
+			assertThat(underTest.readLine(), is(equalTo("old tail")));
+			assertThat(underTest.readLine(), is(equalTo("new one")));
+			assertThat(underTest.readLine(), is(nullValue()));
+		} finally {
+			rotated.delete();
+		}
+	}
+
+	@Test
+	public void testReturnsNullWhileFileIsMissing() throws IOException {
+		file.delete();
+		assertThat(underTest.readLine(), is(nullValue()));
+		write("created\n", true);
+		assertThat(underTest.readLine(), is(equalTo("created")));
+	}
+
+	private void write(final String text, final boolean append) throws IOException {
+		FileOutputStream out = new FileOutputStream(file, append);
+		try {
+			out.write(text.getBytes("UTF-8"));
+		} finally {
+			Closeables.closeQuietly(out);
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package org.logparser.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.logparser.time.DateInterval;
+import org.logparser.time.InfiniteTimeInterval;
+
+import com.google.common.io.Closeables;
+
+/**
+ * Tests for {@link TimeIndex}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public class TimeIndexTest {
+	private File file;
+	private File indexFile;
+	private FileChannel channel;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("indexed", ".log");
+		indexFile = new File(file.getPath() + IndexedLogFilter.INDEX_EXTENSION);
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(new byte[400]);
+		out.close();
+		channel = new FileInputStream(file).getChannel();
+	}
+
+	@After
+	public void tearDown() {
+		Closeables.closeQuietly(channel);
+		file.delete();
+		indexFile.delete();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNonPositiveBlockSizeIsRejected() {
+		new TimeIndex(0);
+	}
+
+	@Test
+	public void testSelectsOnlyOverlappingBlocksMergingAdjacentOnes() throws IOException {
+		TimeIndex underTest = build();
+		List<ByteRange> ranges = underTest.overlapping(new DateInterval(new Date(50), new Date(150)));
+
+		assertThat(ranges.size(), is(equalTo(1)));
+		assertThat(ranges.get(0).getBegin(), is(equalTo(0L)));
+		assertThat(ranges.get(0).getEnd(), is(equalTo(200L)));
+	}
+
+	@Test
+	public void testBlocksWithoutTimestampsAreNeverSelected() throws IOException {
+		TimeIndex underTest = build();
+		List<ByteRange> ranges = underTest.overlapping(new InfiniteTimeInterval());
+
+		assertThat(ranges.size(), is(equalTo(2)));
+		assertThat(ranges.get(1).getBegin(), is(equalTo(300L)));
+		assertThat(ranges.get(1).getEnd(), is(equalTo(400L)));
+	}
+
+	@Test
+	public void testSavedIndexLoadsTheSameBlocks() throws IOException {
+		build().save(indexFile);
+		TimeIndex loaded = TimeIndex.load(indexFile);
+
+		assertThat(loaded.getEnd(), is(equalTo(400L)));
+		assertThat(loaded.getBlocks().size(), is(equalTo(4)));
+		assertThat(loaded.isValidFor(channel), is(true));
+		assertThat(loaded.overlapping(new InfiniteTimeInterval()).size(), is(equalTo(2)));
+	}
+
+	/**
+	 * Four blocks of 100 bytes: [0, 100] ms, [100, 200] ms, no timestamps, [400, 400] ms.
+	 */
+	private TimeIndex build() throws IOException {
+		TimeIndex index = new TimeIndex(100);
+		index.add(0, new Date(0));
+		index.add(50, new Date(100));
+		index.add(100, new Date(200));
+		index.add(150, new Date(100));
+		index.add(200, null);
+		index.add(300, new Date(400));
+		index.finish(channel, 400);
+		return index;
+	}
+}
@@ -7,9 +7,16 @@ import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.logparser.Constants.DEFAULT_OUTPUT_DIR;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.TypeReference;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.logparser.io.BoundedLineReader.Oversized;
 import org.logparser.provider.Config;
 import org.logparser.provider.FilterProvider;
 import org.logparser.provider.LogFilesProvider;
@@ -22,6 +29,7 @@ import org.logparser.time.InfiniteTimeInterval;
  * 
  */
 public class ConfigTest {
+	private static final String CONFIG_FILE = "config.json";
 	private static final String FILENAME_PATTERN = ".*.log";
 	private static final String[] INPUT_DIRS = new String[] { DEFAULT_OUTPUT_DIR };
 	private Config underTest;
@@ -63,4 +71,112 @@ public class ConfigTest {
 		assertThat(underTest.getLogFilesProvider(), is(notNullValue()));
 		assertThat(underTest.getLogFilesProvider(), is(equalTo(logFilesProvider)));
 	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSamplerIsRejectedWhenLogFilesAreReadConcurrently() {
+		underTest.setSamplerProvider(new SamplerProvider(SamplerProvider.SampleBy.FREQUENCY, 3, null));
+		underTest.setLogFilterProvider(logFilterProvider(LogFilterProvider.ReadBy.LINE, 1, 2));
+		underTest.validate();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSamplerIsRejectedWhenEachLogFileIsSplit() {
+		underTest.setSamplerProvider(new SamplerProvider(SamplerProvider.SampleBy.TIME, 1, null));
+		underTest.setLogFilterProvider(logFilterProvider(LogFilterProvider.ReadBy.MEMORY_MAP, 4, 1));
+		underTest.validate();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSamplerIsRejectedWhenLinesAreParsedByAPipeline() {
+		underTest.setSamplerProvider(new SamplerProvider(SamplerProvider.SampleBy.TIME, 1, null));
+		underTest.setLogFilterProvider(logFilterProvider(LogFilterProvider.ReadBy.PIPELINE, 1, 1));
+		underTest.validate();
+	}
+
+	@Test
+	public void testSamplerIsAcceptedWhenLinesAreParsedInFileOrder() {
+		underTest.setSamplerProvider(new SamplerProvider(SamplerProvider.SampleBy.TIME, 1, null));
+		underTest.validate();
+		underTest.setLogFilterProvider(logFilterProvider(LogFilterProvider.ReadBy.MEMORY_MAP, 1, 1));
+		underTest.validate();
+	}
+
+	@Test
+	public void testConcurrentReadsAreAcceptedWithoutSampler() {
+		underTest.setLogFilterProvider(logFilterProvider(LogFilterProvider.ReadBy.BALANCED, 1, 4));
+		underTest.validate();
+	}
+
+	@Test
+	public void testFilterDigestIsStableForEqualSettings() {
+		Config other = new Config(new FilterProvider(".*", ".*", ".*", ".*", ".*", ".*", new InfiniteTimeInterval(), new InfiniteTimeInterval()), logFilesProvider);
+		assertThat(underTest.getFilterDigest(), is(equalTo(other.getFilterDigest())));
+	}
+
+	@Test
+	public void testFilterDigestChangesWithFilterSettings() {
+		String digest = underTest.getFilterDigest();
+		filterProvider.setFilterPattern(".*\\.do$");
+		assertThat(underTest.getFilterDigest().equals(digest), is(false));
+	}
+
+	@Test
+	public void testFilterDigestChangesWithLineSettings() {
+		underTest.setLogFilterProvider(lineSettings(null, 0, null));
+		String digest = underTest.getFilterDigest();
+
+		underTest.setLogFilterProvider(lineSettings("\\d{4}-", 0, null));
+		assertThat(underTest.getFilterDigest().equals(digest), is(false));
+		underTest.setLogFilterProvider(lineSettings(null, 1024, null));
+		assertThat(underTest.getFilterDigest().equals(digest), is(false));
+		String skipped = underTest.getFilterDigest();
+		underTest.setLogFilterProvider(lineSettings(null, 1024, Oversized.TRUNCATE));
+		assertThat(underTest.getFilterDigest().equals(skipped), is(false));
+	}
+
+	@Test
+	public void testFilterDigestIgnoresHowLinesAreRead() {
+		underTest.setLogFilterProvider(logFilterProvider(LogFilterProvider.ReadBy.LINE, 1, 1));
+		String digest = underTest.getFilterDigest();
+		underTest.setLogFilterProvider(logFilterProvider(LogFilterProvider.ReadBy.MEMORY_MAP, 4, 2));
+		assertThat(underTest.getFilterDigest(), is(equalTo(digest)));
+	}
+
+	@Test
+	public void testExampleConfigIsLoaded() throws IOException {
+		Config example = loadConfig("example");
+		assertThat(example.getFriendlyName(), is(equalTo("Example Log")));
+		assertThat(example.getLogFilesProvider().isDeduplicate(), is(false));
+		assertThat(example.getLogFilterProvider(), is(nullValue()));
+	}
+
+	@Test
+	public void testMultiLineRecordsExampleConfigIsLoaded() throws IOException {
+		Config example2 = loadConfig("example2");
+		LogFilterProvider logFilterProvider = example2.getLogFilterProvider();
+		assertThat(logFilterProvider, is(notNullValue()));
+		assertThat(logFilterProvider.getRecordStartPattern(), is(equalTo("\\d{4}-\\d{2}-\\d{2} ")));
+		assertThat(logFilterProvider.getReadBy(), is(LogFilterProvider.ReadBy.LINE));
+		assertThat(logFilterProvider.build(example2.getFilterProvider().build()).getRecordStart().pattern(), is(equalTo(logFilterProvider.getRecordStartPattern())));
+	}
+
+	/**
+	 * Loads the named configuration of the stock configuration file, as the
+	 * command line application does.
+	 */
+	private static Config loadConfig(final String name) throws IOException {
+		Map<String, Config> configs = new ObjectMapper().readValue(new File(CONFIG_FILE), new TypeReference<Map<String, Config>>() {
+		});
+		Config config = configs.get(name);
+		assertThat(config, is(notNullValue()));
+		return config;
+	}
+
+	private static LogFilterProvider lineSettings(final String recordStartPattern, final int maxLineLength, final Oversized oversizedLines) {
+		return new LogFilterProvider(null, 0, 0, 0, 0L, 0, false, false, false, 0, false, false, recordStartPattern, maxLineLength, oversizedLines);
+	}
+
+	private static LogFilterProvider logFilterProvider(final LogFilterProvider.ReadBy readBy, final int splits, final int workers) {
+		return new LogFilterProvider(readBy, 0, splits, workers, 0L, 0, false, false, false, 0, false, false, null, 0, null);
+	}
 }
@@ -0,0 +1,40 @@
+package org.logparser.provider;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link DuplicateFilterProvider}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public class DuplicateFilterProviderTest {
+
+	@Test
+	public void testExpectedLinesAloneIsLoaded() throws IOException {
+		DuplicateFilterProvider underTest = new ObjectMapper().readValue("{\"expectedLines\" : 5000}", DuplicateFilterProvider.class);
+
+		assertThat(underTest.getExpectedLines(), is(equalTo(5000L)));
+		assertThat(underTest.getFalsePositiveRate(), is(equalTo(DuplicateFilterProvider.DEFAULT_FALSE_POSITIVE_RATE)));
+	}
+
+	@Test
+	public void testFalsePositiveRateAloneIsLoaded() throws IOException {
+		DuplicateFilterProvider underTest = new ObjectMapper().readValue("{\"falsePositiveRate\" : 0.01}", DuplicateFilterProvider.class);
+
+		assertThat(underTest.getExpectedLines(), is(equalTo(DuplicateFilterProvider.DEFAULT_EXPECTED_LINES)));
+		assertThat(underTest.getFalsePositiveRate(), is(equalTo(0.01)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCreationFailsOnFalsePositiveRateOfOne() {
+		new DuplicateFilterProvider(null, 1.0);
+	}
+}
@@ -7,10 +7,12 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 
+import org.codehaus.jackson.map.ObjectMapper;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.logparser.LogEntryFilter;
+import org.logparser.NcsaLogEntryFilter;
 import org.logparser.io.CommandLineArguments;
 import org.logparser.provider.FilterProvider;
 import org.logparser.time.DateInterval;
@@ -221,4 +223,28 @@ public class FilterProviderTest {
 		assertThat(logEntryFilter.getTimeInterval(), is(instanceOf(ITimeInterval.class)));
 		assertThat(logEntryFilter.getDateInterval(), is(instanceOf(ITimeInterval.class)));
 	}
+
+	@Test
+	public void testFormatDefaultsToRegex() {
+		assertThat(underTest.getFormat(), is(FilterProvider.Format.REGEX));
+		assertThat(underTest.buildFilter(), is(instanceOf(LogEntryFilter.class)));
+	}
+
+	@Test
+	public void testNcsaFormatNeedsNoPatterns() {
+		underTest = new FilterProvider(FilterProvider.Format.NCSA, SAMPLE_LOG_ENTRY, null, null, null, null, FILTER_PATTERN, timeInterval, dateInterval);
+
+		assertThat(underTest.getTimestampFormat(), is(equalTo(NcsaLogEntryFilter.DEFAULT_TIMESTAMP_FORMAT)));
+		assertThat(underTest.buildFilter(), is(instanceOf(NcsaLogEntryFilter.class)));
+		FilterProvider regexProvider = new FilterProvider(SAMPLE_LOG_ENTRY, TIMESTAMP_PATTERN, TIMESTAMP_FORMAT, ACTION_PATTERN, DURATION_PATTERN, FILTER_PATTERN, timeInterval, dateInterval);
+		assertThat(underTest.buildFilter().parse(SAMPLE_LOG_ENTRY), is(equalTo(regexProvider.build().parse(SAMPLE_LOG_ENTRY))));
+	}
+
+	@Test
+	public void testNcsaFormatIsReadFromJson() throws Exception {
+		FilterProvider provider = new ObjectMapper().readValue("{\"format\" : \"NCSA\", \"filterPattern\" : \".*lock.do$\"}", FilterProvider.class);
+
+		assertThat(provider.getFormat(), is(FilterProvider.Format.NCSA));
+		assertThat(provider.buildFilter().parse(SAMPLE_LOG_ENTRY), is(notNullValue()));
+	}
 }
@@ -0,0 +1,232 @@
+package org.logparser.provider;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.logparser.LogEntry;
+import org.logparser.LogEntryFilter;
+import org.logparser.io.AbstractLogFilter;
+import org.logparser.io.BoundedLineReader.Oversized;
+import org.logparser.io.CachingLogFilter;
+import org.logparser.io.IncrementalLogFilter;
+import org.logparser.io.IndexedLogFilter;
+import org.logparser.io.LineByLineLogFilter;
+import org.logparser.io.LogFiles;
+import org.logparser.io.MappedLogFilter;
+import org.logparser.io.MergingLogFilter;
+import org.logparser.io.SeekingLogFilter;
+import org.logparser.provider.LogFilterProvider.ReadBy;
+import org.logparser.time.DateInterval;
+import org.logparser.time.ITimeInterval;
+import org.logparser.time.InfiniteTimeInterval;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Tests for the {@link LogFilterProvider}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+public class LogFilterProviderTest {
+	private static final ITimeInterval ALWAYS = new InfiniteTimeInterval();
+	private static final File LOG_FILE = new File("logs/EXAMPLE_log_2008-12-15.log");
+	private static final int LOG_FILE_LINES = 10822;
+	private LogEntryFilter filter;
+	private File outputDir;
+
+	@Before
+	public void setUp() {
+		filter = new FilterProvider(null, "\\[((.*?))\\]", "dd/MMM/yyyy:HH:mm:ss", "(?:\\[.*?\\].*\\s)(((?:\\/\\w+)*\\/)([\\w\\-\\.]+[^#?\\s]+))", "(\\d+)$", ".*\\.do$", ALWAYS, ALWAYS).build();
+		outputDir = Files.createTempDir();
+	}
+
+	@After
+	public void tearDown() {
+		delete(outputDir);
+		filter = null;
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCreationFailsOnMoreThanOneMode() {
+		new LogFilterProvider(null, 0, 0, 0, 0L, 0, true, false, true, 0, false, false, null, 0, null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCreationFailsOnModeAlongWithReadBy() {
+		new LogFilterProvider(ReadBy.MEMORY_MAP, 0, 0, 0, 0L, 0, false, false, false, 0, true, false, null, 0, null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCreationFailsOnCachedAndMerged() {
+		new LogFilterProvider(null, 0, 0, 0, 0L, 0, false, true, false, 0, false, true, null, 0, null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSeekFailsWithoutDateInterval() {
+		provider(false, true, false, false).build(filter, filter, ALWAYS, ALWAYS, outputDir.getPath(), "");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIndexedFailsWithoutTimestampExtractor() {
+		provider(false, false, true, false).build(filter, outputDir.getPath());
+	}
+
+	@Test
+	public void testPropertiesLeftOutTakeTheirDefaults() throws IOException {
+		LogFilterProvider underTest = new ObjectMapper().readValue("{\"readBy\" : \"MEMORY_MAP\"}", LogFilterProvider.class);
+
+		assertThat(underTest.getReadBy(), is(ReadBy.MEMORY_MAP));
+		assertThat(underTest.getSplits(), is(1));
+		assertThat(underTest.getWorkers(), is(1));
+		assertThat(underTest.isIncremental(), is(false));
+		assertThat(underTest.isMerged(), is(false));
+		assertThat(underTest.getRecordStartPattern(), is(nullValue()));
+		assertThat(underTest.getMaxLineLength(), is(0));
+		assertThat(underTest.getOversizedLines(), is(Oversized.SKIP));
+	}
+
+	@Test
+	public void testOversizedLinesAreSkippedByDefault() throws IOException {
+		String line = "10.117.101.80 - - [15/Dec/2008:00:00:15 +0000] \"GET /example/action/lock.do HTTP/1.1\" 200 - 12345";
+		File log = new File(outputDir, "oversized.log");
+		Files.write(line + "\n", log, Charsets.ISO_8859_1);
+		// the limit falls within the duration, which would be read as 123 were the line truncated
+		LogFilterProvider underTest = new LogFilterProvider(null, 0, 0, 0, 0L, 0, false, false, false, 0, false, false, null, line.length() - 2, null);
+		AbstractLogFilter<LogEntry> logFilter = build(underTest, ALWAYS);
+		logFilter.filter(log);
+
+		assertThat(logFilter.getSkippedLines(), is(equalTo(1L)));
+		assertThat(logFilter.getTruncatedLines(), is(equalTo(0L)));
+		assertThat(logFilter.size(), is(equalTo(0)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testModesSetInJsonStillConflict() throws IOException {
+		new ObjectMapper().readValue("{\"incremental\" : true, \"merged\" : true}", LogFilterProvider.class);
+	}
+
+	@Test
+	public void testEachModeBuildsItsLogFilter() {
+		DateInterval dateInterval = new DateInterval(new Date(0), new Date());
+
+		assertThat(build(provider(false, false, false, false), dateInterval), is(instanceOf(LineByLineLogFilter.class)));
+		assertThat(build(provider(true, false, false, false), dateInterval), is(instanceOf(IncrementalLogFilter.class)));
+		assertThat(build(provider(false, true, false, false), dateInterval), is(instanceOf(SeekingLogFilter.class)));
+		assertThat(build(provider(false, false, true, false), dateInterval), is(instanceOf(IndexedLogFilter.class)));
+		assertThat(build(provider(false, false, false, true), dateInterval), is(instanceOf(MergingLogFilter.class)));
+	}
+
+	@Test
+	public void testReadByBuildsItsLogFilter() {
+		LogFilterProvider underTest = new LogFilterProvider(ReadBy.MEMORY_MAP, 0, 4, 0, 0L, 0, false, false, false, 0, false, false, null, 0, null);
+		assertThat(build(underTest, ALWAYS), is(instanceOf(MappedLogFilter.class)));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testCachedWrapsTheLogFilterOfTheMode() {
+		LogFilterProvider underTest = new LogFilterProvider(null, 0, 0, 0, 0L, 0, true, true, false, 0, false, false, null, 0, null);
+		AbstractLogFilter<LogEntry> logFilter = build(underTest, ALWAYS);
+		assertThat(logFilter, is(instanceOf(CachingLogFilter.class)));
+		assertThat(((CachingLogFilter<LogEntry>) logFilter).getLogFilter(), is(instanceOf(IncrementalLogFilter.class)));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testCachedEntriesAreLoadedByTheNextRun() {
+		LogFilterProvider underTest = new LogFilterProvider(null, 0, 0, 0, 0L, 0, false, true, false, 0, false, false, null, 0, null);
+		CachingLogFilter<LogEntry> first = (CachingLogFilter<LogEntry>) underTest.build(filter, filter, ALWAYS, ALWAYS, baseOutputDir(), "");
+		first.filter(LOG_FILE);
+		assertThat(first.size(), is(equalTo(LOG_FILE_LINES)));
+
+		CachingLogFilter<LogEntry> next = (CachingLogFilter<LogEntry>) underTest.build(filter, filter, ALWAYS, ALWAYS, baseOutputDir(), "");
+		next.filter(LOG_FILE);
+		assertThat(next.getCacheDir(), is(equalTo(first.getCacheDir())));
+		// no line is read again
+		assertThat(next.size(), is(equalTo(0)));
+	}
+
+	@Test
+	public void testTimeIndexIsUsedByTheNextRun() throws ParseException {
+		LogFilterProvider underTest = provider(false, false, true, false);
+		DateInterval elsewhen = DateInterval.valueOf("2000/01/01", "2000/01/02");
+		IndexedLogFilter<LogEntry> first = (IndexedLogFilter<LogEntry>) build(underTest, elsewhen);
+		first.filter(LOG_FILE);
+		assertThat(first.size(), is(equalTo(LOG_FILE_LINES)));
+
+		IndexedLogFilter<LogEntry> next = (IndexedLogFilter<LogEntry>) build(underTest, elsewhen);
+		next.filter(LOG_FILE);
+		assertThat(next.getIndexDir(), is(equalTo(first.getIndexDir())));
+		// only the last line, which has no line separator, is left out of the index
+		assertThat(next.size(), is(equalTo(1)));
+	}
+
+	@Test
+	public void testGzipMemberIndexIsUsedByTheNextRun() throws IOException, ParseException {
+		File gzip = new File(outputDir, LOG_FILE.getName() + ".gz");
+		byte[] content = Files.toByteArray(LOG_FILE);
+		OutputStream out = new FileOutputStream(gzip);
+		try {
+			// members of 64KB, which can be decompressed on their own
+			for (int i = 0; i < content.length; i += 64 * 1024) {
+				GZIPOutputStream member = new GZIPOutputStream(out);
+				member.write(content, i, Math.min(64 * 1024, content.length - i));
+				member.finish();
+			}
+		} finally {
+			out.close();
+		}
+		LogFilterProvider underTest = provider(false, false, true, false);
+		DateInterval elsewhen = DateInterval.valueOf("2000/01/01", "2000/01/02");
+		IndexedLogFilter<LogEntry> first = (IndexedLogFilter<LogEntry>) build(underTest, elsewhen);
+		first.filter(gzip);
+		assertThat(first.size(), is(equalTo(LOG_FILE_LINES)));
+
+		IndexedLogFilter<LogEntry> next = (IndexedLogFilter<LogEntry>) build(underTest, elsewhen);
+		next.filter(gzip);
+		assertThat(next.getIndexDir(), is(equalTo(first.getIndexDir())));
+		// no member holds entries of the interval
+		assertThat(next.size(), is(equalTo(0)));
+	}
+
+	/**
+	 * The output dir that the log files of a run are given, which checkpoints,
+	 * indices and cached entries are kept under.
+	 */
+	private String baseOutputDir() {
+		return new LogFiles.Builder().outputDir(outputDir.getPath()).build().getBaseOutputDir();
+	}
+
+	private static void delete(final File file) {
+		File[] files = file.listFiles();
+		for (int i = 0; files != null && i < files.length; i++) {
+			delete(files[i]);
+		}
+		file.delete();
+	}
+
+	private AbstractLogFilter<LogEntry> build(final LogFilterProvider underTest, final ITimeInterval dateInterval) {
+		return underTest.build(filter, filter, ALWAYS, dateInterval, baseOutputDir(), "");
+	}
+
+	private static LogFilterProvider provider(final boolean incremental, final boolean seek, final boolean indexed, final boolean merged) {
+		return new LogFilterProvider(null, 0, 0, 0, 0L, 0, incremental, false, seek, 0, indexed, merged, null, 0, null);
+	}
+}
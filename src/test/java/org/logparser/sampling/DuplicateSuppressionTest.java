@@ -0,0 +1,83 @@
+package org.logparser.sampling;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.logparser.ILogEntryFilter;
+import org.logparser.LogEntry;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ * Unit tests for {@link DuplicateSuppression}.
+ * 
+ * @author jorge.decastro
+ * 
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class DuplicateSuppressionTest {
+	private static final String SAMPLE_ENTRY_1 = "10.118.101.132 - - [15/Dec/2008:17:15:00 +0000] \"POST /action.1 HTTP/1.1\" 200 1779 2073";
+	private static final String SAMPLE_ENTRY_2 = "10.118.101.132 - - [15/Dec/2008:17:15:00 +0000] \"POST /action.2 HTTP/1.1\" 200 1779 2073";
+
+	@Mock
+	ILogEntryFilter<LogEntry> mockFilter;
+
+	@Test(expected = NullPointerException.class)
+	public void testNullMessageFilter() {
+		new DuplicateSuppression<LogEntry>(null, 100, 0.01);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidFalsePositiveRate() {
+		new DuplicateSuppression<LogEntry>(mockFilter, 100, 1);
+	}
+
+	@Test
+	public void testDuplicateLinesAreNotParsed() {
+		DuplicateSuppression<LogEntry> underTest = new DuplicateSuppression<LogEntry>(mockFilter, 100, 0.01);
+		LogEntry entry = new LogEntry(new Date().getTime(), "/action.1", 2073D);
+		when(mockFilter.parse(anyString())).thenReturn(entry);
+
+		assertThat(underTest.parse(SAMPLE_ENTRY_1), is(equalTo(entry)));
+		assertThat(underTest.parse(SAMPLE_ENTRY_2), is(equalTo(entry)));
+		assertThat(underTest.parse(SAMPLE_ENTRY_1), is(nullValue()));
+		assertThat(underTest.parse(new StringBuilder(SAMPLE_ENTRY_2)), is(nullValue()));
+
+		verify(mockFilter, times(2)).parse(anyString());
+		assertThat(underTest.getSuppressed(), is(equalTo(2L)));
+	}
+
+	@Test
+	public void testBloomFilterGrowsWithinFalsePositiveRate() {
+		int lines = 100000;
+		ScalableBloomFilter seen = new ScalableBloomFilter(1000, 0.01);
+		int falsePositives = 0;
+		for (int i = 0; i < lines; i++) {
+			if (!seen.add(SAMPLE_ENTRY_1 + i)) {
+				falsePositives++;
+			}
+		}
+		for (int i = 0; i < lines; i++) {
+			assertThat(seen.mightContain(SAMPLE_ENTRY_1 + i), is(true));
+		}
+		assertThat(seen.size(), is(equalTo((long) lines - falsePositives)));
+		assertThat(falsePositives < lines * 0.01, is(true));
+		int unseen = 0;
+		for (int i = 0; i < lines; i++) {
+			if (seen.mightContain(SAMPLE_ENTRY_2 + i)) {
+				unseen++;
+			}
+		}
+		assertThat(unseen < lines * 0.01, is(true));
+	}
+}
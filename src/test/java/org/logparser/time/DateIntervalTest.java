@@ -55,6 +55,13 @@ public class DateIntervalTest {
 		assertThat(underTest, is(nullValue()));
 	}
 
+	@Test
+	public void testMillisAreBetweenDateIntervalAsDate() {
+		assertThat(underTest.isBetweenInstants(System.currentTimeMillis()), is(true));
+		assertThat(underTest.isBetweenInstants(lastWeek.getTime()), is(false));
+		assertThat(underTest.isBetweenInstants(nextWeek.getTime() + 1), is(false));
+	}
+
 	@Test
 	public void testDateIsBetweenDateInterval() {
 		Date today = new Date();
@@ -5,6 +5,7 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 
 import java.util.Calendar;
+import java.util.Date;
 
 import org.junit.After;
 import org.junit.Before;
@@ -51,6 +52,16 @@ public class TimeIntervalTest {
 		assertThat(isBetween, is(true));
 	}
 
+	@Test
+	public void testMillisAreBetweenTimeIntervalAsDate() {
+		cal.set(2010, 1, 14, 14, 23, 10);
+		TimeInterval timeInterval = new TimeInterval(new Instant(12, 30), new Instant(19, 30));
+
+		assertThat(timeInterval.isBetweenInstants(cal.getTimeInMillis()), is(true));
+		cal.set(2010, 1, 14, 11, 23, 10);
+		assertThat(timeInterval.isBetweenInstants(cal.getTimeInMillis()), is(false));
+	}
+
 	@Test
 	public void testDateIsNotBetweenTimeInterval() {
 		cal.set(2010, 1, 14, 14, 23, 10);
@@ -106,4 +117,34 @@ public class TimeIntervalTest {
 
 		assertThat(isBefore, is(false));
 	}
+
+	@Test
+	public void testPeriodWithinTheDayOverlapsTimeInterval() {
+		cal.set(2010, 1, 14, 12, 0, 0);
+		Date from = cal.getTime();
+		cal.set(2010, 1, 14, 13, 0, 0);
+		TimeInterval timeInterval = new TimeInterval(new Instant(12, 30), new Instant(19, 30));
+
+		assertThat(timeInterval.overlaps(from, cal.getTime()), is(true));
+	}
+
+	@Test
+	public void testPeriodOutsideTheDayDoesNotOverlapTimeInterval() {
+		cal.set(2010, 1, 14, 20, 0, 0);
+		Date from = cal.getTime();
+		cal.set(2010, 1, 15, 9, 0, 0);
+		TimeInterval timeInterval = new TimeInterval(new Instant(12, 30), new Instant(19, 30));
+
+		assertThat(timeInterval.overlaps(from, cal.getTime()), is(false));
+	}
+
+	@Test
+	public void testPeriodAcrossMidnightOverlapsTimeIntervalOnTheNextDay() {
+		cal.set(2010, 1, 14, 20, 0, 0);
+		Date from = cal.getTime();
+		cal.set(2010, 1, 15, 13, 0, 0);
+		TimeInterval timeInterval = new TimeInterval(new Instant(12, 30), new Instant(19, 30));
+
+		assertThat(timeInterval.overlaps(from, cal.getTime()), is(true));
+	}
 }
@@ -0,0 +1,73 @@
+package org.logparser.time;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link TimestampCache}.
+ * 
+ * @author jorge.decastro
+ */
+public class TimestampCacheTest {
+	private static final String TIMESTAMP_FORMAT = "dd/MMM/yyyy:HH:mm:ss";
+	private SimpleDateFormat dateFormat;
+	private TimestampCache underTest;
+
+	@Before
+	public void setUp() {
+		dateFormat = new SimpleDateFormat(TIMESTAMP_FORMAT);
+		underTest = new TimestampCache(TIMESTAMP_FORMAT);
+	}
+
+	@After
+	public void tearDown() {
+		dateFormat = null;
+		underTest = null;
+	}
+
+	@Test
+	public void testSameTimestampsAsDateFormat() throws ParseException {
+		String[] timestamps = {
+				"15/Dec/2009:00:00:15 +0000",
+				"15/Dec/2009:00:00:15 +0000",
+				"15/Dec/2009:00:00:16 +0000",
+				"15/Dec/2009:00:00:09 +0000",
+				"15/Dec/2009:00:00:59 +0000",
+				"15/Dec/2009:00:01:00 +0000",
+				"15/Dec/2009:00:01:10 +0000",
+				"15/Dec/2009:00:01:10 +0100",
+				"16/Dec/2009:00:01:10 +0100",
+				"16/Dec/2009:00:01:60 +0100",
+				"16/Dec/2009:00:01:1x +0100",
+				"16/Dec/2009:00:01:10",
+				"1/Dec/2009:00:01:10",
+				"1/Dec/2009:00:01:11" };
+		for (String timestamp : timestamps) {
+			assertThat(timestamp, underTest.parse(timestamp), is(equalTo(dateFormat.parse(timestamp).getTime())));
+		}
+	}
+
+	@Test
+	public void testTimestampWithinText() throws ParseException {
+		String text = "10.117.101.80 - - [15/Dec/2009:00:00:15 +0000] \"GET /example/action/lock.do HTTP/1.1\" 200 - 14";
+		int begin = text.indexOf('[') + 1;
+		int end = text.indexOf(']');
+
+		assertThat(underTest.parse(text, begin, end), is(equalTo(dateFormat.parse("15/Dec/2009:00:00:15").getTime())));
+		assertThat(underTest.parse(text.replace(":15 ", ":42 "), begin, end), is(equalTo(dateFormat.parse("15/Dec/2009:00:00:42").getTime())));
+	}
+
+	@Test(expected = ParseException.class)
+	public void testMalformedTimestampFailsToParse() throws ParseException {
+		underTest.parse("15/Dec/2009:00:00:15 +0000");
+		underTest.parse("yesterday at noon, roughly");
+	}
+}
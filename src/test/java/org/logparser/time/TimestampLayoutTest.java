@@ -0,0 +1,130 @@
+package org.logparser.time;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link TimestampLayout}, and its use by the
+ * {@link TimestampCache}, checked against {@link SimpleDateFormat}.
+ * 
+ * @author jorge.decastro
+ */
+public class TimestampLayoutTest {
+	private Locale locale;
+	private TimeZone timeZone;
+
+	@Before
+	public void setUp() {
+		locale = Locale.getDefault();
+		timeZone = TimeZone.getDefault();
+		Locale.setDefault(Locale.US);
+		// a time zone with daylight saving time
+		TimeZone.setDefault(TimeZone.getTimeZone("Europe/London"));
+	}
+
+	@After
+	public void tearDown() {
+		Locale.setDefault(locale);
+		TimeZone.setDefault(timeZone);
+	}
+
+	@Test
+	public void testFixedWidthFormatsAreCompiled() {
+		assertThat(TimestampLayout.compile("dd/MMM/yyyy:HH:mm:ss").getLength(), is(equalTo(20)));
+		assertThat(TimestampLayout.compile("dd/MMM/yyyy:HH:mm:ss").getSecondsOffset(), is(equalTo(18)));
+		assertThat(TimestampLayout.compile("yyyy-MM-dd HH:mm:ss,SSS").getLength(), is(equalTo(23)));
+		assertThat(TimestampLayout.compile("yyyyMMdd'T'HHmmss").getLength(), is(equalTo(15)));
+	}
+
+	@Test
+	public void testVariableWidthFormatsAreNotCompiled() {
+		assertThat(TimestampLayout.compile("d/MMM/yyyy"), is(nullValue()));
+		assertThat(TimestampLayout.compile("dd/MMMM/yyyy"), is(nullValue()));
+		assertThat(TimestampLayout.compile("dd/MM/yy"), is(nullValue()));
+		assertThat(TimestampLayout.compile("yyyy-MM-dd hh:mm a"), is(nullValue()));
+		assertThat(TimestampLayout.compile("yyyy-MM-dd HH:mm:ss Z"), is(nullValue()));
+		assertThat(TimestampLayout.compile("yyyy-MM-dd HH:mm:ss 'unterminated"), is(nullValue()));
+	}
+
+	@Test
+	public void testFieldsParsed() {
+		int[] fields = new int[TimestampLayout.FIELDS];
+		String text = "[15/dec/2009:13:04:59 +0000]";
+
+		assertThat(TimestampLayout.compile("dd/MMM/yyyy:HH:mm:ss").parse(text, 1, text.length() - 1, fields), is(true));
+		assertThat(fields, is(equalTo(new int[] { 2009, Calendar.DECEMBER, 15, 13, 4, 59, 0 })));
+	}
+
+	@Test
+	public void testTimestampsNotFittingTheLayoutAreNotParsed() {
+		TimestampLayout underTest = TimestampLayout.compile("dd/MMM/yyyy:HH:mm:ss");
+		int[] fields = new int[TimestampLayout.FIELDS];
+		String[] timestamps = { "1/Dec/2009:13:04:59", "15/Dez/2009:13:04:59", "15-Dec-2009:13:04:59", "15/Dec/2009:13:04:5", "15/Dec/2009:13:04:590", "15/Dec/2009:13:0x:59" };
+
+		for (String timestamp : timestamps) {
+			assertThat(timestamp, underTest.parse(timestamp, 0, timestamp.length(), fields), is(false));
+		}
+	}
+
+	@Test
+	public void testSameTimestampsAsDateFormatAcrossDaylightSavingTime() throws ParseException {
+		assertSameTimestamps("dd/MMM/yyyy:HH:mm:ss");
+		assertSameTimestamps("yyyy-MM-dd HH:mm:ss,SSS");
+		assertSameTimestamps("yyyyMMdd'T'HHmmss.SSS");
+	}
+
+	@Test
+	public void testSameTimestampsAsDateFormatForOddValues() throws ParseException {
+		String format = "yyyy-MM-dd HH:mm:ss,SSS";
+		TimestampCache underTest = new TimestampCache(format);
+		SimpleDateFormat dateFormat = new SimpleDateFormat(format);
+		String[] timestamps = {
+				"2009-03-29 01:30:00,000",
+				"2009-10-25 01:30:00,000",
+				"2009-02-29 24:00:00,000",
+				"2009-13-00 12:00:00,000",
+				"2009-12-31 23:59:60,000",
+				"2009-12-31 23:60:00,000",
+				"2009-12-31 23:59:59,999 trailing text" };
+		for (String timestamp : timestamps) {
+			assertThat(timestamp, underTest.parse(timestamp), is(equalTo(dateFormat.parse(timestamp).getTime())));
+		}
+	}
+
+	@Test
+	public void testCacheUsesLayoutOfItsFormat() {
+		assertThat(new TimestampCache("dd/MMM/yyyy:HH:mm:ss").getLayout(), is(notNullValue()));
+		assertThat(new TimestampCache("d/MMM/yyyy:HH:mm:ss").getLayout(), is(nullValue()));
+	}
+
+	/**
+	 * Parses every 7 minutes and 13.5 seconds of 2009 formatted, which covers
+	 * both daylight saving time changes.
+	 */
+	private static void assertSameTimestamps(final String format) throws ParseException {
+		TimestampCache underTest = new TimestampCache(format);
+		assertThat(underTest.getLayout(), is(notNullValue()));
+		SimpleDateFormat dateFormat = new SimpleDateFormat(format);
+		Calendar calendar = Calendar.getInstance();
+		calendar.clear();
+		calendar.set(2009, Calendar.JANUARY, 1);
+		long end = calendar.getTimeInMillis() + 365L * 24 * 60 * 60 * 1000;
+		for (long millis = calendar.getTimeInMillis(); millis < end; millis += 7 * 60 * 1000 + 13500) {
+			String timestamp = dateFormat.format(millis);
+			assertThat(timestamp, underTest.parse(timestamp), is(equalTo(dateFormat.parse(timestamp).getTime())));
+		}
+	}
+}